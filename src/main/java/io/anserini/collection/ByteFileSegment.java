@@ -0,0 +1,62 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.collection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * A {@link FileSegment} that reads its file as raw bytes through a {@link ByteLineReader}, rather than decoding every
+ * line into characters with a {@link java.io.BufferedReader}. Compressed files are decompressed as described in
+ * {@link CompressedFiles}.
+ */
+public abstract class ByteFileSegment<T extends SourceDocument> extends FileSegment<T> {
+  protected final ByteLineReader reader;
+
+  public ByteFileSegment(Path path) throws IOException {
+    this(path, CompressedFiles.open(path));
+  }
+
+  public ByteFileSegment(Path path, InputStream input) {
+    this(path, input, StandardCharsets.UTF_8, false);
+  }
+
+  /**
+   * @param path path of the file
+   * @param input stream over the (decompressed) file
+   * @param charset charset to decode lines in (see {@link ByteLineReader})
+   * @param crEndsLine whether a lone {@code \r} also ends a line
+   */
+  public ByteFileSegment(Path path, InputStream input, Charset charset, boolean crEndsLine) {
+    super(path);
+    this.reader = new ByteLineReader(input, charset, crEndsLine);
+  }
+
+  @Override
+  public void close() {
+    try {
+      reader.close();
+    } catch (IOException e) {
+      // There's really nothing to be done, so just silently eat the exception.
+    }
+    super.close();
+  }
+}
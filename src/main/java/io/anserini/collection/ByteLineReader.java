@@ -0,0 +1,223 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.collection;
+
+import org.apache.lucene.util.BytesRefBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads a stream line by line as raw bytes, through a large buffer. Lines are never decoded unless asked for: the
+ * current line is exposed as a range of the buffer, so that record and tag boundaries can be found by comparing bytes,
+ * and only the parts of a record that are kept need to be decoded. By default, lines end at {@code \n}, a {@code \r}
+ * just before it is dropped, and lines are decoded as UTF-8; readers replacing a {@link java.io.BufferedReader} can
+ * also end lines at a lone {@code \r} and decode them in another charset, as {@link java.io.BufferedReader#readLine()}
+ * over an {@link java.io.InputStreamReader} would.
+ */
+public class ByteLineReader implements Closeable {
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private final InputStream input;
+  private final Charset charset;
+  private final boolean crEndsLine;
+  private byte[] buffer = new byte[BUFFER_SIZE];
+  private int position = 0; // start of the bytes not yet consumed
+  private int limit = 0;    // end of the bytes read so far
+  private boolean eof = false;
+
+  // Bounds of the current line in the buffer.
+  private int lineStart = 0;
+  private int lineEnd = 0;
+
+  public ByteLineReader(InputStream input) {
+    this(input, StandardCharsets.UTF_8, false);
+  }
+
+  /**
+   * @param input stream to read
+   * @param charset charset to decode lines in, which must encode ASCII characters as single bytes
+   * @param crEndsLine whether a lone {@code \r} also ends a line
+   */
+  public ByteLineReader(InputStream input, Charset charset, boolean crEndsLine) {
+    this.input = input;
+    this.charset = charset;
+    this.crEndsLine = crEndsLine;
+  }
+
+  /**
+   * Returns the charset lines are decoded in.
+   *
+   * @return the charset lines are decoded in
+   */
+  public Charset charset() {
+    return charset;
+  }
+
+  /**
+   * Advances to the next line.
+   *
+   * @return whether there is a next line
+   * @throws IOException if error encountered reading from stream
+   */
+  public boolean nextLine() throws IOException {
+    int scanned = 0;
+    while (true) {
+      for (int i = position + scanned; i < limit; i++) {
+        if (buffer[i] == '\n') {
+          setLine(position, i);
+          position = i + 1;
+          return true;
+        }
+        if (buffer[i] == '\r' && crEndsLine) {
+          if (i + 1 < limit) {
+            setLine(position, i);
+            position = buffer[i + 1] == '\n' ? i + 2 : i + 1;
+            return true;
+          } else if (eof) {
+            setLine(position, i);
+            position = limit;
+            return true;
+          }
+          // Whether a \n follows is only known once more is read.
+          break;
+        }
+      }
+      if (eof) {
+        if (position == limit) {
+          lineStart = lineEnd = position;
+          return false;
+        }
+        setLine(position, limit);
+        position = limit;
+        return true;
+      }
+      // A \r that may start a \r\n is scanned again after the fill.
+      scanned = limit - position;
+      if (crEndsLine && scanned > 0 && buffer[limit - 1] == '\r') {
+        scanned--;
+      }
+      fill();
+    }
+  }
+
+  private void setLine(int start, int end) {
+    lineStart = start;
+    lineEnd = end > start && buffer[end - 1] == '\r' ? end - 1 : end;
+  }
+
+  // Moves the unconsumed bytes to the front of the buffer (growing it if they fill it) and reads more after them.
+  private void fill() throws IOException {
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      limit -= position;
+      position = 0;
+    }
+    if (limit == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+    int n = input.read(buffer, limit, buffer.length - limit);
+    if (n < 0) {
+      eof = true;
+    } else {
+      limit += n;
+    }
+  }
+
+  /**
+   * Drops leading and trailing whitespace (and control characters) from the current line, as {@link String#trim()}
+   * would.
+   */
+  public void trimLine() {
+    while (lineStart < lineEnd && (buffer[lineStart] & 0xff) <= ' ') {
+      lineStart++;
+    }
+    while (lineEnd > lineStart && (buffer[lineEnd - 1] & 0xff) <= ' ') {
+      lineEnd--;
+    }
+  }
+
+  public int lineLength() {
+    return lineEnd - lineStart;
+  }
+
+  public boolean lineStartsWith(byte[] prefix) {
+    return prefix.length <= lineLength() &&
+        Arrays.equals(buffer, lineStart, lineStart + prefix.length, prefix, 0, prefix.length);
+  }
+
+  public boolean lineEndsWith(byte[] suffix) {
+    return suffix.length <= lineLength() &&
+        Arrays.equals(buffer, lineEnd - suffix.length, lineEnd, suffix, 0, suffix.length);
+  }
+
+  /**
+   * Decodes the current line.
+   *
+   * @return current line
+   */
+  public String lineString() {
+    return new String(buffer, lineStart, lineLength(), charset);
+  }
+
+  /**
+   * Appends the current line, followed by a newline, without decoding it.
+   *
+   * @param builder builder to append to
+   */
+  public void appendLine(BytesRefBuilder builder) {
+    builder.append(buffer, lineStart, lineLength());
+    builder.append((byte) '\n');
+  }
+
+  /**
+   * Reads the bytes following the current line.
+   *
+   * @param n number of bytes
+   * @return the next {@code n} bytes, or fewer if the stream ends first
+   * @throws IOException if error encountered reading from stream
+   */
+  public byte[] readBytes(int n) throws IOException {
+    byte[] bytes = new byte[n];
+    int copied = 0;
+    while (copied < n) {
+      if (position == limit) {
+        if (eof) {
+          break;
+        }
+        fill();
+        continue;
+      }
+      int k = Math.min(n - copied, limit - position);
+      System.arraycopy(buffer, position, bytes, copied, k);
+      position += k;
+      copied += k;
+    }
+    lineStart = lineEnd = position;
+    return copied == n ? bytes : Arrays.copyOf(bytes, copied);
+  }
+
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+}
@@ -18,14 +18,10 @@ package io.anserini.collection;
 
 import org.apache.logging.log4j.LogManager;
 
-import java.io.DataInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.zip.GZIPInputStream;
 
 /**
  * An instance of the <a href="https://www.lemurproject.org/clueweb12.php/">ClueWeb12 collection</a>.
@@ -47,29 +43,15 @@ public class ClueWeb12Collection extends DocumentCollection<ClueWeb12Collection.
   /**
    * An individual WARC in the <a href="https://www.lemurproject.org/clueweb12.php/">ClueWeb12 collection</a>.
    */
-  public static class Segment extends FileSegment<ClueWeb12Collection.Document> {
-    protected DataInputStream stream;
+  public static class Segment extends ByteFileSegment<ClueWeb12Collection.Document> {
 
     public Segment(Path path) throws IOException {
       super(path);
-      this.stream = new DataInputStream(new GZIPInputStream(Files.newInputStream(path, StandardOpenOption.READ)));
     }
 
     @Override
     public void readNext() throws IOException, NoSuchElementException {
-      bufferedRecord = Document.readNextWarcRecord(stream);
-    }
-
-    @Override
-    public void close() {
-      try {
-        if (stream != null) {
-          stream.close();
-        }
-        super.close();
-      } catch (IOException e) {
-        // There's really nothing to be done, so just silently eat the exception.
-      }
+      bufferedRecord = Document.readNextWarcRecord(reader);
     }
   }
 
@@ -89,14 +71,14 @@ public class ClueWeb12Collection extends DocumentCollection<ClueWeb12Collection.
     }
 
     /**
-     * Reads in a WARC record from a data input stream.
+     * Reads in a WARC record from a reader.
      *
-     * @param in      the input stream
+     * @param in      the reader
      * @return a WARC record (or null if EOF)
      * @throws IOException if error encountered reading from stream
      */
 
-    public static Document readNextWarcRecord(DataInputStream in)
+    public static Document readNextWarcRecord(ByteLineReader in)
         throws IOException {
       StringBuilder recordHeader = new StringBuilder();
       byte[] recordContent = readNextRecord(in, recordHeader, "Content-Length");
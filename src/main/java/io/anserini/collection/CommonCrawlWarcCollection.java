@@ -19,14 +19,10 @@ package io.anserini.collection;
 
 import org.apache.logging.log4j.LogManager;
 
-import java.io.DataInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.zip.GZIPInputStream;
 
 /**
  * A collection of WARC files from CommonCrawl (https://commoncrawl.org/the-data/get-started/#WARC-Format).
@@ -47,30 +43,15 @@ public class CommonCrawlWarcCollection extends DocumentCollection<CommonCrawlWar
   /**
    * An individual WARC in CommonCrawl.
    */
-  public static class Segment extends FileSegment<CommonCrawlWarcCollection.Document> {
-
-    protected DataInputStream stream;
+  public static class Segment extends ByteFileSegment<CommonCrawlWarcCollection.Document> {
 
     public Segment(Path path) throws IOException {
       super(path);
-      this.stream = new DataInputStream(new GZIPInputStream(Files.newInputStream(path, StandardOpenOption.READ)));
     }
 
     @Override
     public void readNext() throws IOException, NoSuchElementException {
-      bufferedRecord = Document.readNextWarcRecord(stream);
-    }
-
-    @Override
-    public void close() {
-      try {
-        if (stream != null) {
-          stream.close();
-        }
-        super.close();
-      } catch (IOException e) {
-        // There's really nothing to be done, so just silently eat the exception.
-      }
+      bufferedRecord = Document.readNextWarcRecord(reader);
     }
   }
 
@@ -87,14 +68,14 @@ public class CommonCrawlWarcCollection extends DocumentCollection<CommonCrawlWar
     }
 
     /**
-     * Reads in a WARC record from a data input stream.
+     * Reads in a WARC record from a reader.
      *
-     * @param in      the input stream
+     * @param in      the reader
      * @return a WARC record (or null if EOF)
      * @throws IOException if error encountered reading from stream
      */
 
-    public static Document readNextWarcRecord(DataInputStream in)
+    public static Document readNextWarcRecord(ByteLineReader in)
         throws IOException {
       StringBuilder recordHeader = new StringBuilder();
       byte[] recordContent = readNextRecord(in, recordHeader, "WARC-Block-Digest");
@@ -0,0 +1,475 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.collection;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.tukaani.xz.SeekableFileInputStream;
+import org.tukaani.xz.SeekableXZInputStream;
+import org.tukaani.xz.XZInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Opens collection files that may be compressed, choosing the decompressor by file suffix (one of {@link #SUFFIXES}).
+ * Decompression never runs on the thread that parses the file. Files made of independently compressed blocks (BGZF
+ * gzip, as written by {@code bgzip}, and multi-block xz, as written by {@code xz -T}) are decompressed a block at a
+ * time on a shared pool, several blocks in parallel; all other files are decompressed by a read-ahead thread, so that
+ * decompression overlaps with parsing.
+ */
+public final class CompressedFiles {
+  /**
+   * Suffixes of the compressed files that can be read.
+   */
+  public static final List<String> SUFFIXES = List.of(".gz", ".bz2", ".xz", ".zst");
+
+  private static final int CHUNK_SIZE = 1 << 16;
+  private static final int READ_AHEAD_CHUNKS = 16;
+  private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+  // Shared by all open files, so that the number of decompression threads does not grow with the number of files.
+  private static final ExecutorService POOL = Executors.newFixedThreadPool(PARALLELISM, runnable -> {
+    Thread thread = new Thread(runnable, "decompressor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private CompressedFiles() {
+  }
+
+  /**
+   * Returns whether a file is compressed, judging by its suffix.
+   *
+   * @param path file
+   * @return whether the file is compressed
+   */
+  public static boolean isCompressed(Path path) {
+    String fileName = path.getFileName().toString();
+    for (String suffix : SUFFIXES) {
+      if (fileName.endsWith(suffix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Extends a set of allowed file suffixes (e.g., {@code .jsonl}) with their compressed variants (e.g.,
+   * {@code .jsonl.gz}).
+   *
+   * @param suffixes suffixes of uncompressed files
+   * @return the given suffixes, together with their compressed variants
+   */
+  public static Set<String> withCompressedSuffixes(Collection<String> suffixes) {
+    Set<String> all = new HashSet<>(suffixes);
+    for (String suffix : suffixes) {
+      for (String compressed : SUFFIXES) {
+        all.add(suffix + compressed);
+      }
+    }
+    return all;
+  }
+
+  /**
+   * Opens a file, decompressing it if it is compressed.
+   *
+   * @param path file
+   * @return stream of the (decompressed) contents of the file
+   * @throws IOException if errors encountered opening the file
+   */
+  public static InputStream open(Path path) throws IOException {
+    String fileName = path.getFileName().toString();
+    if (fileName.endsWith(".gz")) {
+      if (isBgzf(path)) {
+        return new BlockParallelInputStream(new BgzfBlocks(path));
+      }
+      return new ReadAheadInputStream(new GZIPInputStream(Files.newInputStream(path), CHUNK_SIZE), fileName);
+    } else if (fileName.endsWith(".xz")) {
+      SeekableXZInputStream index = new SeekableXZInputStream(new SeekableFileInputStream(path.toFile()));
+      if (index.getBlockCount() > 1 && maxBlockSize(index) <= Integer.MAX_VALUE - 8) {
+        return new BlockParallelInputStream(new XzBlocks(path, index));
+      }
+      index.close();
+      return new ReadAheadInputStream(new XZInputStream(new BufferedInputStream(Files.newInputStream(path))), fileName);
+    } else if (fileName.endsWith(".bz2")) {
+      return new ReadAheadInputStream(
+          new BZip2CompressorInputStream(new BufferedInputStream(Files.newInputStream(path)), true), fileName);
+    } else if (fileName.endsWith(".zst")) {
+      return new ReadAheadInputStream(
+          new ZstdCompressorInputStream(new BufferedInputStream(Files.newInputStream(path))), fileName);
+    }
+    return Files.newInputStream(path);
+  }
+
+  private static long maxBlockSize(SeekableXZInputStream index) {
+    long max = 0;
+    for (int i = 0; i < index.getBlockCount(); i++) {
+      max = Math.max(max, index.getBlockSize(i));
+    }
+    return max;
+  }
+
+  // BGZF is gzip whose members each carry their own compressed size in a "BC" extra subfield, so the file can be cut
+  // into members without decompressing it.
+  private static boolean isBgzf(Path path) throws IOException {
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+      return BgzfBlocks.readBlock(in) != null;
+    } catch (EOFException | IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private static int readUnsignedShort(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8;
+  }
+
+  private static long readUnsignedInt(byte[] bytes, int offset) {
+    return readUnsignedShort(bytes, offset) | (long) readUnsignedShort(bytes, offset + 2) << 16;
+  }
+
+  /**
+   * A sequence of independently compressed blocks of a file, in file order.
+   */
+  private interface BlockSource extends AutoCloseable {
+    /**
+     * Returns a task that decompresses the next block, or {@code null} if there are no more blocks.
+     */
+    Callable<byte[]> next() throws IOException;
+
+    @Override
+    void close() throws IOException;
+  }
+
+  private static final class BgzfBlocks implements BlockSource {
+    private static final int HEADER_SIZE = 12;
+    private static final int TRAILER_SIZE = 8;
+
+    private final DataInputStream in;
+
+    private BgzfBlocks(Path path) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), CHUNK_SIZE));
+    }
+
+    // Reads a whole BGZF member, or returns null at the end of the file. Throws IllegalArgumentException if the member
+    // is not a BGZF one.
+    private static byte[] readBlock(DataInputStream in) throws IOException {
+      byte[] header = new byte[HEADER_SIZE];
+      int n = in.readNBytes(header, 0, HEADER_SIZE);
+      if (n == 0) {
+        return null;
+      } else if (n < HEADER_SIZE) {
+        throw new EOFException("Truncated gzip header");
+      }
+      if ((header[0] & 0xff) != 0x1f || (header[1] & 0xff) != 0x8b || header[2] != 8 || (header[3] & 0x04) == 0) {
+        throw new IllegalArgumentException("Not a BGZF block");
+      }
+      int xlen = readUnsignedShort(header, 10);
+      byte[] extra = new byte[xlen];
+      in.readFully(extra);
+
+      int size = -1;
+      for (int i = 0; i + 4 <= xlen; i += 4 + readUnsignedShort(extra, i + 2)) {
+        if (extra[i] == 'B' && extra[i + 1] == 'C' && readUnsignedShort(extra, i + 2) == 2 && i + 6 <= xlen) {
+          size = readUnsignedShort(extra, i + 4) + 1;
+          break;
+        }
+      }
+      if (size < HEADER_SIZE + xlen + TRAILER_SIZE) {
+        throw new IllegalArgumentException("Not a BGZF block");
+      }
+
+      byte[] block = new byte[size];
+      System.arraycopy(header, 0, block, 0, HEADER_SIZE);
+      System.arraycopy(extra, 0, block, HEADER_SIZE, xlen);
+      in.readFully(block, HEADER_SIZE + xlen, size - HEADER_SIZE - xlen);
+      return block;
+    }
+
+    private static byte[] inflate(byte[] block) throws IOException {
+      int start = HEADER_SIZE + readUnsignedShort(block, 10);
+      int length = block.length - start - TRAILER_SIZE;
+      long expectedCrc = readUnsignedInt(block, block.length - 8);
+      byte[] out = new byte[(int) readUnsignedInt(block, block.length - 4)];
+
+      Inflater inflater = new Inflater(true);
+      try {
+        inflater.setInput(block, start, length);
+        int n = 0;
+        while (n < out.length && !inflater.finished()) {
+          int inflated = inflater.inflate(out, n, out.length - n);
+          if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            break;
+          }
+          n += inflated;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(out, 0, n);
+        if (n != out.length || crc.getValue() != expectedCrc) {
+          throw new IOException("Corrupt BGZF block");
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("Corrupt BGZF block", e);
+      } finally {
+        inflater.end();
+      }
+      return out;
+    }
+
+    @Override
+    public Callable<byte[]> next() throws IOException {
+      try {
+        byte[] block = readBlock(in);
+        return block == null ? null : () -> inflate(block);
+      } catch (IllegalArgumentException e) {
+        throw new IOException(e.getMessage() + "; gzip files must not mix BGZF and plain members", e);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  private static final class XzBlocks implements BlockSource {
+    private final Path path;
+    private final SeekableXZInputStream index;
+    private int block = 0;
+
+    private XzBlocks(Path path, SeekableXZInputStream index) {
+      this.path = path;
+      this.index = index;
+    }
+
+    @Override
+    public Callable<byte[]> next() {
+      if (block == index.getBlockCount()) {
+        return null;
+      }
+      final int number = block++;
+      final int size = (int) index.getBlockSize(number);
+      return () -> {
+        // Each task opens its own stream, since a stream can only be positioned at one block at a time.
+        try (SeekableXZInputStream in = new SeekableXZInputStream(new SeekableFileInputStream(path.toFile()))) {
+          in.seekToBlock(number);
+          byte[] out = new byte[size];
+          int n = in.readNBytes(out, 0, size);
+          if (n != size) {
+            throw new EOFException("Truncated xz block " + number);
+          }
+          return out;
+        }
+      };
+    }
+
+    @Override
+    public void close() throws IOException {
+      index.close();
+    }
+  }
+
+  /**
+   * A stream that hands out a sequence of chunks of bytes.
+   */
+  abstract static class ChunkedInputStream extends InputStream {
+    private byte[] chunk = new byte[0];
+    private int position = 0;
+    private boolean eof = false;
+
+    /**
+     * Returns the next chunk, or {@code null} at the end of the stream.
+     */
+    protected abstract byte[] nextChunk() throws IOException;
+
+    private boolean fill() throws IOException {
+      while (!eof && position == chunk.length) {
+        byte[] next = nextChunk();
+        if (next == null) {
+          eof = true;
+        } else {
+          chunk = next;
+          position = 0;
+        }
+      }
+      return !eof;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return fill() ? chunk[position++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!fill()) {
+        return -1;
+      }
+      int n = Math.min(len, chunk.length - position);
+      System.arraycopy(chunk, position, b, off, n);
+      position += n;
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return chunk.length - position;
+    }
+  }
+
+  /**
+   * Decompresses the blocks of a file on the shared pool, keeping a bounded number of blocks in flight ahead of the
+   * reader.
+   */
+  private static final class BlockParallelInputStream extends ChunkedInputStream {
+    private final BlockSource blocks;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private boolean exhausted = false;
+
+    private BlockParallelInputStream(BlockSource blocks) {
+      this.blocks = blocks;
+    }
+
+    @Override
+    protected byte[] nextChunk() throws IOException {
+      while (!exhausted && pending.size() <= PARALLELISM) {
+        Callable<byte[]> task = blocks.next();
+        if (task == null) {
+          exhausted = true;
+        } else {
+          pending.add(POOL.submit(task));
+        }
+      }
+
+      Future<byte[]> next = pending.poll();
+      if (next == null) {
+        return null;
+      }
+      try {
+        return next.get();
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while decompressing", e);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      for (Future<byte[]> future : pending) {
+        future.cancel(false);
+      }
+      pending.clear();
+      blocks.close();
+    }
+  }
+
+  /**
+   * Reads a stream on a dedicated thread, ahead of the reader, so that the work done by the stream (here,
+   * decompression) overlaps with the work done by the reader.
+   */
+  static final class ReadAheadInputStream extends ChunkedInputStream {
+    private static final byte[] END = new byte[0];
+
+    private final BlockingQueue<Object> chunks = new ArrayBlockingQueue<>(READ_AHEAD_CHUNKS);
+    private final Thread thread;
+    // Failure of the reading thread, rethrown on every later read since the thread has stopped.
+    private IOException failure;
+
+    ReadAheadInputStream(InputStream in, String name) {
+      thread = new Thread(() -> {
+        try (in) {
+          while (true) {
+            byte[] buffer = new byte[CHUNK_SIZE];
+            int n = in.readNBytes(buffer, 0, CHUNK_SIZE);
+            if (n == 0) {
+              break;
+            }
+            chunks.put(n == CHUNK_SIZE ? buffer : Arrays.copyOf(buffer, n));
+          }
+          chunks.put(END);
+        } catch (InterruptedException e) {
+          // Closed by the reader.
+        } catch (Throwable t) {
+          // Any failure must reach the reader (e.g., an Error from a codec whose native library is missing), or the
+          // reader would wait forever for the next chunk.
+          try {
+            chunks.put(t);
+          } catch (InterruptedException ie) {
+            // Closed by the reader.
+          }
+        }
+      }, "decompressor-" + name);
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    @Override
+    protected byte[] nextChunk() throws IOException {
+      if (failure != null) {
+        throw failure;
+      }
+      Object next;
+      try {
+        next = chunks.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while decompressing", e);
+      }
+      if (next instanceof Throwable) {
+        failure = new IOException("Error decompressing", (Throwable) next);
+        throw failure;
+      } else if (next == END) {
+        return null;
+      }
+      return (byte[]) next;
+    }
+
+    @Override
+    public void close() {
+      thread.interrupt();
+    }
+  }
+}
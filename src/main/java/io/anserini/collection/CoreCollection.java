@@ -21,7 +21,6 @@ import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.tukaani.xz.XZInputStream;
 
 import java.io.BufferedReader;
 import java.io.FileInputStream;
@@ -69,8 +68,7 @@ public class CoreCollection extends DocumentCollection<CoreCollection.Document>
       super(path);
 
       if (path.toString().endsWith(".xz")) {
-        bufferedReader = new BufferedReader(new InputStreamReader(
-          new XZInputStream(new FileInputStream(path.toString()))));
+        bufferedReader = new BufferedReader(new InputStreamReader(CompressedFiles.open(path)));
       } else {
         bufferedReader = new BufferedReader(new InputStreamReader(
           new FileInputStream(path.toString())));
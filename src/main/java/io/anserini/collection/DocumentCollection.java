@@ -92,6 +92,33 @@ public abstract class DocumentCollection<T extends SourceDocument> implements It
    */
   public abstract FileSegment<T> createFileSegment(Path p) throws IOException;
 
+  /**
+   * Returns whether a file holds exactly one document per line, so that it can be split into byte ranges aligned to
+   * line boundaries and indexed in parallel (see {@link FileSplit}). By default, files are not splittable.
+   *
+   * @param p path
+   * @return whether the file can be split
+   */
+  public boolean isSplittable(Path p) {
+    return false;
+  }
+
+  /**
+   * Creates a {@code FileSegment} over a {@link FileSplit}. A whole-file split is equivalent to
+   * {@link #createFileSegment(Path)}; other splits are only supported for files that are
+   * {@link #isSplittable(Path) splittable}.
+   *
+   * @param split file split
+   * @return {@code FileSegment} over the split
+   * @throws IOException if file access error encountered
+   */
+  public FileSegment<T> createFileSegment(FileSplit split) throws IOException {
+    if (split.isWholeFile()) {
+      return createFileSegment(split.getPath());
+    }
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support file splits.");
+  }
+
   /**
    * An iterator over {@code FileSegment} for the {@code DocumentCollection} iterable.
    * A collection is comprised of one or more file segments.
@@ -20,8 +20,9 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -31,7 +32,7 @@ public class FeverParagraphCollection extends DocumentCollection<FeverParagraphC
 
   public FeverParagraphCollection(Path path) {
     this.path = path;
-    this.allowedFileSuffix = Set.of(".jsonl");
+    this.allowedFileSuffix = CompressedFiles.withCompressedSuffixes(Set.of(".jsonl"));
   }
 
   @Override
@@ -39,6 +40,17 @@ public class FeverParagraphCollection extends DocumentCollection<FeverParagraphC
     return new Segment(p);
   }
 
+  @Override
+  public FileSegment<Document> createFileSegment(FileSplit split) throws IOException {
+    return split.isWholeFile() ? new Segment(split.getPath()) : new Segment(split);
+  }
+
+  // Only uncompressed JSON Lines files can be cut on line boundaries.
+  @Override
+  public boolean isSplittable(Path p) {
+    return p.toString().endsWith(".jsonl");
+  }
+
   /**
    * A file in a FEVER collection, containing a document in JSON format on
    * each line.
@@ -48,8 +60,16 @@ public class FeverParagraphCollection extends DocumentCollection<FeverParagraphC
     private Iterator<JsonNode> iterator = null;
 
     public Segment(Path path) throws IOException {
+      this(path, new BufferedReader(new InputStreamReader(CompressedFiles.open(path), StandardCharsets.UTF_8)));
+    }
+
+    public Segment(FileSplit split) throws IOException {
+      this(split.getPath(), new BufferedReader(new InputStreamReader(split.newInputStream(), StandardCharsets.UTF_8)));
+    }
+
+    private Segment(Path path, BufferedReader reader) throws IOException {
       super(path);
-      bufferedReader = new BufferedReader(new FileReader(path.toString()));
+      bufferedReader = reader;
       ObjectMapper mapper = new ObjectMapper();
       iterator = mapper.readerFor(JsonNode.class).readValues(bufferedReader);
       if (iterator.hasNext()) {
@@ -24,8 +24,9 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Stream;
@@ -35,7 +36,7 @@ public class FeverSentenceCollection extends DocumentCollection<FeverSentenceCol
 
   public FeverSentenceCollection(Path path) {
     this.path = path;
-    this.allowedFileSuffix = Set.of(".jsonl");
+    this.allowedFileSuffix = CompressedFiles.withCompressedSuffixes(Set.of(".jsonl"));
   }
 
   @Override
@@ -43,6 +44,17 @@ public class FeverSentenceCollection extends DocumentCollection<FeverSentenceCol
     return new Segment(p);
   }
 
+  @Override
+  public FileSegment<Document> createFileSegment(FileSplit split) throws IOException {
+    return split.isWholeFile() ? new Segment(split.getPath()) : new Segment(split);
+  }
+
+  // Only uncompressed JSON Lines files can be cut on line boundaries.
+  @Override
+  public boolean isSplittable(Path p) {
+    return p.toString().endsWith(".jsonl");
+  }
+
   /**
    * A file in a FEVER collection, containing a document in JSON format on
    * each line. For this sentence collection, we want to split each document
@@ -53,8 +65,16 @@ public class FeverSentenceCollection extends DocumentCollection<FeverSentenceCol
     private Iterator<JsonNode> iterator = null;
 
     public Segment(Path path) throws IOException {
+      this(path, new BufferedReader(new InputStreamReader(CompressedFiles.open(path), StandardCharsets.UTF_8)));
+    }
+
+    public Segment(FileSplit split) throws IOException {
+      this(split.getPath(), new BufferedReader(new InputStreamReader(split.newInputStream(), StandardCharsets.UTF_8)));
+    }
+
+    private Segment(Path path, BufferedReader reader) throws IOException {
       super(path);
-      bufferedReader = new BufferedReader(new FileReader(path.toString()));
+      bufferedReader = reader;
       ObjectMapper mapper = new ObjectMapper();
 
       // read in lines as a stream, convert to json, flatten to sentences, convert back into json
@@ -0,0 +1,210 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.anserini.collection;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * A unit of indexing work: either a whole file of a collection, or a byte range {@code [start, end)} of a file that
+ * holds one document per line, aligned to line boundaries. Splitting a large line-delimited file lets multiple
+ * indexing threads share it; see {@link DocumentCollection#isSplittable(Path)}.
+ */
+public final class FileSplit {
+  private final Path path;
+  private final long start;
+  private final long end;
+  private final boolean wholeFile;
+  // Told the number of bytes read through each call to newInputStream(), if not null.
+  private final LongConsumer progress;
+
+  private FileSplit(Path path, long start, long end, boolean wholeFile) {
+    this(path, start, end, wholeFile, null);
+  }
+
+  private FileSplit(Path path, long start, long end, boolean wholeFile, LongConsumer progress) {
+    this.path = path;
+    this.start = start;
+    this.end = end;
+    this.wholeFile = wholeFile;
+    this.progress = progress;
+  }
+
+  /**
+   * Creates a split covering a whole file.
+   *
+   * @param path file
+   * @return split covering the whole file
+   * @throws IOException if the file size cannot be determined
+   */
+  public static FileSplit wholeFile(Path path) throws IOException {
+    return new FileSplit(path, 0, Files.size(path), true);
+  }
+
+  /**
+   * Splits a line-delimited file into byte ranges of roughly {@code splitSize} bytes. Each range but the last ends just
+   * after a newline, so that every line falls entirely within one range. A file no larger than {@code splitSize} yields
+   * a single whole-file split.
+   *
+   * @param path file
+   * @param splitSize target size of each range in bytes
+   * @return list of splits covering the file, in file order
+   * @throws IOException if errors encountered reading the file
+   */
+  public static List<FileSplit> split(Path path, long splitSize) throws IOException {
+    if (splitSize <= 0) {
+      throw new IllegalArgumentException("Split size must be positive: " + splitSize);
+    }
+
+    long size = Files.size(path);
+    List<FileSplit> splits = new ArrayList<>();
+    if (size <= splitSize) {
+      splits.add(new FileSplit(path, 0, size, true));
+      return splits;
+    }
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+      long start = 0;
+      while (start < size) {
+        long end = start + splitSize >= size ? size : nextLineStart(channel, start + splitSize, size, buffer);
+        splits.add(new FileSplit(path, start, end, false));
+        start = end;
+      }
+    }
+
+    return splits;
+  }
+
+  // Returns the offset of the first line that starts at or after the given offset, or the file size if there is none.
+  private static long nextLineStart(FileChannel channel, long offset, long size, ByteBuffer buffer) throws IOException {
+    // If the byte just before the offset is a newline, the offset is itself a line start.
+    long position = offset - 1;
+    while (position < size) {
+      buffer.clear();
+      int n = channel.read(buffer, position);
+      if (n <= 0) {
+        break;
+      }
+      for (int i = 0; i < n; i++) {
+        if (buffer.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += n;
+    }
+    return size;
+  }
+
+  /**
+   * Opens an input stream over the bytes of this split.
+   *
+   * @return input stream positioned at the start of the split and ending at its end
+   * @throws IOException if errors encountered opening the file
+   */
+  public InputStream newInputStream() throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    channel.position(start);
+    InputStream in = ByteStreams.limit(Channels.newInputStream(channel), end - start);
+    return progress == null ? in : new ProgressInputStream(in, progress);
+  }
+
+  /**
+   * Returns the same split, with streams opened by {@link #newInputStream()} reporting the number of bytes read as they
+   * are read, e.g., to track indexing progress within a large split. Collections that open the file directly (e.g.,
+   * for whole files) do not report anything.
+   *
+   * @param progress told the number of bytes of each read
+   * @return the same split, reporting reads to {@code progress}
+   */
+  public FileSplit reportingTo(LongConsumer progress) {
+    return new FileSplit(path, start, end, wholeFile, progress);
+  }
+
+  private static final class ProgressInputStream extends FilterInputStream {
+    private final LongConsumer progress;
+
+    private ProgressInputStream(InputStream in, LongConsumer progress) {
+      super(in);
+      this.progress = progress;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = in.read();
+      if (b >= 0) {
+        progress.accept(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = in.read(b, off, len);
+      if (n > 0) {
+        progress.accept(n);
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = in.skip(n);
+      if (skipped > 0) {
+        progress.accept(skipped);
+      }
+      return skipped;
+    }
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getEnd() {
+    return end;
+  }
+
+  public long length() {
+    return end - start;
+  }
+
+  public boolean isWholeFile() {
+    return wholeFile;
+  }
+
+  @Override
+  public String toString() {
+    return wholeFile ? path.toString() : path.toString() + "[" + start + "-" + end + ")";
+  }
+}
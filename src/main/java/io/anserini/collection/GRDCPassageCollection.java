@@ -5,207 +5,269 @@ import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.*;
 
 public class GRDCPassageCollection extends DocumentCollection<GRDCPassageCollection.Document> {
-    public GRDCPassageCollection(Path path) {
-        this.path = path;
-        this.allowedFileSuffix = new HashSet<>(Arrays.asList(".json", ".jsonl"));
+  public GRDCPassageCollection(Path path) {
+    this.path = path;
+    this.allowedFileSuffix = CompressedFiles.withCompressedSuffixes(Arrays.asList(".json", ".jsonl"));
+  }
+
+  @Override
+  public FileSegment<GRDCPassageCollection.Document> createFileSegment(Path p) throws IOException {
+    return new Segment(p);
+  }
+
+  @Override
+  public FileSegment<GRDCPassageCollection.Document> createFileSegment(FileSplit split) throws IOException {
+    return split.isWholeFile() ? new Segment(split.getPath()) : new Segment(split);
+  }
+
+  // Only JSON Lines files hold exactly one passage per line.
+  @Override
+  public boolean isSplittable(Path p) {
+    return p.toString().endsWith(".jsonl");
+  }
+
+  public static class Segment extends FileSegment<GRDCPassageCollection.Document> {
+    private JsonNode node = null;
+    private Iterator<JsonNode> iter = null;
+    private MappingIterator<JsonNode> iterator;
+    // Position of the next passage: the start offset of the split plus the number of passages read so far. As
+    // every passage takes at least one byte, positions keep increasing across the splits of a file.
+    private long position;
+    // Number of passages of each report read so far, to key every passage by its ordinal within its report.
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    // Passages of a report may straddle the start of a split, so ordinals counted within a split are qualified by
+    // its start offset; those of whole files are not.
+    private final String ordinalPrefix;
+
+    public Segment(Path path) throws IOException {
+      this(path, new BufferedReader(new InputStreamReader(CompressedFiles.open(path), StandardCharsets.UTF_8)), 0);
     }
 
-    @Override
-    public FileSegment<GRDCPassageCollection.Document> createFileSegment(Path p) throws IOException {
-        return new Segment(p);
-    }
-
-    public static class Segment extends FileSegment<GRDCPassageCollection.Document> {
-        private JsonNode node = null;
-        private Iterator<JsonNode> iter = null;
-        private MappingIterator<JsonNode> iterator;
-
-        public Segment(Path path) throws IOException {
-            super(path);
-            bufferedReader = new BufferedReader(new FileReader(path.toString()));
-            ObjectMapper mapper = new ObjectMapper();
-            iterator = mapper.readerFor(JsonNode.class).readValues(bufferedReader);
-            if (iterator.hasNext()) {
-                node = iterator.next();
-                if (node.isArray()) {
-                    iter = node.elements();
-                }
-            }
-        }
+    public Segment(FileSplit split) throws IOException {
+      this(split.getPath(), new BufferedReader(new InputStreamReader(split.newInputStream(), StandardCharsets.UTF_8)),
+          split.getStart());
+    }
 
-        @Override
-        public void readNext() throws NoSuchElementException {
-            if (node == null) {
-                throw new NoSuchElementException("JsonNode is empty");
-            } else if (node.isObject()) {
-                bufferedRecord = new GRDCPassageCollection.Document(node);
-                if (iterator.hasNext()) {
-                    node = iterator.next();
-                } else {
-                    atEOF = true;
-                }
-            } else if (node.isArray()) {
-                if (iter != null && iter.hasNext()) {
-                    bufferedRecord = new GRDCPassageCollection.Document(node);
-                } else {
-                    throw new NoSuchElementException("Reached end of JsonNode iterator");
-                }
-            } else {
-                throw new NoSuchElementException("Invalid JsonNode type");
-            }
+    private Segment(Path path, BufferedReader reader, long start) throws IOException {
+      super(path);
+      bufferedReader = reader;
+      position = start;
+      ordinalPrefix = start == 0 ? "" : start + ".";
+      ObjectMapper mapper = new ObjectMapper();
+      iterator = mapper.readerFor(JsonNode.class).readValues(bufferedReader);
+      if (iterator.hasNext()) {
+        node = iterator.next();
+        if (node.isArray()) {
+          iter = node.elements();
         }
+      }
     }
 
-    public static class Document implements SourceDocument {
-        protected String report_id;
-        protected String type;
-        protected String project_number;
-        protected String report_title;
-        protected String region_name;
-        protected String category_name;
-        protected String research_theme_name;
-        protected String organisation_name;
-        protected String complete_date;
-        protected String supervisor_name;
-        protected String publish_date;
-        protected String report_path;
-        protected String[] keywords;
-        protected String pdf_url;
-        protected String web_url;
-        protected String summary;
-        protected String text;
-        protected String raw;
-
-        public Document(JsonNode json) {
-            // extracting the fields from the GRDC json file
-            this.raw = json.toString();
-
-            this.report_id = json.get("report_id").asText();
-            this.type = json.get("type").asText();
-            this.project_number = json.get("project_number").asText();
-            this.report_title = json.get("report_title").asText();
-            this.region_name = json.get("region_name").asText();
-            this.category_name = json.get("category_name").asText();
-            this.research_theme_name = json.get("research_theme_name").asText();
-            this.organisation_name = json.get("organisation_name").asText();
-            this.complete_date = json.get("complete_date").asText();
-            this.supervisor_name = json.get("supervisor_name").asText();
-            this.publish_date = json.get("publish_date").asText();
-            this.report_path = json.get("report_path").asText();
-            this.pdf_url = json.get("pdf_url").asText();
-            this.web_url = json.get("web_url").asText();
-            this.summary = json.get("summary").asText();
-            this.text = json.get("text").asText();
-
-
-            // get all keywords as JsonNode
-            JsonNode keywords_node = json.get("keywords");
-
-            // extracting all keywords from keywords field
-            int number_of_keywords = keywords_node.size();
-            this.keywords = new String[number_of_keywords];
-
-            // check if there are keywords, if not, assign empty array
-            if (number_of_keywords > 0) {
-                for (int i = 0; i < number_of_keywords; i++) {
-                    this.keywords[i] = keywords_node.get(i).asText();
-                }
-            }
+    @Override
+    public void readNext() throws NoSuchElementException {
+      if (node == null) {
+        throw new NoSuchElementException("JsonNode is empty");
+      } else if (node.isObject()) {
+        bufferedRecord = next(node);
+        if (iterator.hasNext()) {
+          node = iterator.next();
+        } else {
+          atEOF = true;
         }
-
-        @Override
-        public String id() {
-            return report_id;
+      } else if (node.isArray()) {
+        if (iter != null && iter.hasNext()) {
+          bufferedRecord = next(node);
+        } else {
+          throw new NoSuchElementException("Reached end of JsonNode iterator");
         }
+      } else {
+        throw new NoSuchElementException("Invalid JsonNode type");
+      }
+    }
 
-        @Override
-        public String contents() {
-            return text;
-        }
+    private GRDCPassageCollection.Document next(JsonNode json) {
+      String reportId = json.get("report_id").asText();
+      int ordinal = ordinals.merge(reportId, 1, Integer::sum) - 1;
+      return new GRDCPassageCollection.Document(json, position++, reportId + "#" + ordinalPrefix + ordinal);
+    }
+  }
+
+  public static class Document implements SourceDocument {
+    protected String report_id;
+    protected String type;
+    protected String project_number;
+    protected String report_title;
+    protected String region_name;
+    protected String category_name;
+    protected String research_theme_name;
+    protected String organisation_name;
+    protected String complete_date;
+    protected String supervisor_name;
+    protected String publish_date;
+    protected String report_path;
+    protected String[] keywords;
+    protected String pdf_url;
+    protected String web_url;
+    protected String summary;
+    protected String text;
+    protected String raw;
+    protected long position;
+    protected String key;
+
+    public Document(JsonNode json) {
+      this(json, 0, null);
+    }
 
-        @Override
-        public String raw() {
-            return raw;
+    /**
+     * @param json passage
+     * @param position position of the passage in its file, which orders the passages of a report
+     * @param key key that tells the passage apart from the other passages of its report, or {@code null} for the
+     *            report id followed by "#0"
+     */
+    public Document(JsonNode json, long position, String key) {
+      this.position = position;
+
+      // extracting the fields from the GRDC json file
+      this.raw = json.toString();
+
+      this.report_id = json.get("report_id").asText();
+      this.type = json.get("type").asText();
+      this.project_number = json.get("project_number").asText();
+      this.report_title = json.get("report_title").asText();
+      this.region_name = json.get("region_name").asText();
+      this.category_name = json.get("category_name").asText();
+      this.research_theme_name = json.get("research_theme_name").asText();
+      this.organisation_name = json.get("organisation_name").asText();
+      this.complete_date = json.get("complete_date").asText();
+      this.supervisor_name = json.get("supervisor_name").asText();
+      this.publish_date = json.get("publish_date").asText();
+      this.report_path = json.get("report_path").asText();
+      this.pdf_url = json.get("pdf_url").asText();
+      this.web_url = json.get("web_url").asText();
+      this.summary = json.get("summary").asText();
+      this.text = json.get("text").asText();
+      this.key = key == null ? report_id + "#0" : key;
+
+      // get all keywords as JsonNode
+      JsonNode keywords_node = json.get("keywords");
+
+      // extracting all keywords from keywords field
+      int number_of_keywords = keywords_node.size();
+      this.keywords = new String[number_of_keywords];
+
+      // check if there are keywords, if not, assign empty array
+      if (number_of_keywords > 0) {
+        for (int i = 0; i < number_of_keywords; i++) {
+          this.keywords[i] = keywords_node.get(i).asText();
         }
+      }
+    }
 
-        @Override
-        public boolean indexable() {
-            return true;
-        }
+    @Override
+    public String id() {
+      return report_id;
+    }
 
-        public String getReportID() {
-            return report_id;
-        }
+    // All passages of a report share its id, so a passage is keyed by its report and its ordinal within the report
+    // (see Segment). Whether its text changed is told by its content hash, not by its key.
+    @Override
+    public String key() {
+      return key;
+    }
 
-        public String getType() {
-            return type;
-        }
+    @Override
+    public String contents() {
+      return text;
+    }
 
-        public String getProjectNumber() {
-            return project_number;
-        }
+    @Override
+    public String raw() {
+      return raw;
+    }
 
-        public String getReportTitle() {
-            return report_title;
-        }
+    @Override
+    public boolean indexable() {
+      return true;
+    }
 
-        public String getRegionName() {
-            return region_name;
-        }
+    public String getReportID() {
+      return report_id;
+    }
 
-        public String getCategoryName() {
-            return category_name;
-        }
+    public String getType() {
+      return type;
+    }
 
-        public String getResearchThemeName() {
-            return research_theme_name;
-        }
+    public String getProjectNumber() {
+      return project_number;
+    }
 
-        public String getOrganisationName() {
-            return organisation_name;
-        }
+    public String getReportTitle() {
+      return report_title;
+    }
 
-        public String getCompleteDate() {
-            return complete_date;
-        }
+    public String getRegionName() {
+      return region_name;
+    }
 
-        public String getSupervisorName() {
-            return supervisor_name;
-        }
+    public String getCategoryName() {
+      return category_name;
+    }
 
-        public String getPublishDate() {
-            return publish_date;
-        }
+    public String getResearchThemeName() {
+      return research_theme_name;
+    }
 
-        public String getReportPath() {
-            return report_path;
-        }
+    public String getOrganisationName() {
+      return organisation_name;
+    }
 
-        public String getPDFURL() {
-            return pdf_url;
-        }
+    public String getCompleteDate() {
+      return complete_date;
+    }
 
-        public String getWebURL() {
-            return web_url;
-        }
+    public String getSupervisorName() {
+      return supervisor_name;
+    }
 
-        public String getSummary() {
-            return summary;
-        }
+    public String getPublishDate() {
+      return publish_date;
+    }
 
-        public String getText() {
-            return text;
-        }
+    public String getReportPath() {
+      return report_path;
+    }
 
-        public String[] getKeywords() {
-            return keywords;
-        }
+    public String getPDFURL() {
+      return pdf_url;
+    }
+
+    public String getWebURL() {
+      return web_url;
+    }
 
+    public String getSummary() {
+      return summary;
     }
+
+    public String getText() {
+      return text;
+    }
+
+    public String[] getKeywords() {
+      return keywords;
+    }
+
+    public long getPosition() {
+      return position;
+    }
+
+  }
 }
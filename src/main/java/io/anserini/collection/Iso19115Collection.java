@@ -21,19 +21,19 @@ import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.lang.StringBuilder;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 public class Iso19115Collection extends DocumentCollection<Iso19115Collection.Document> {
   public Iso19115Collection(Path path) {
     this.path = path;
-    this.allowedFileSuffix = new HashSet<>(Arrays.asList(".json", ".jsonl"));
+    this.allowedFileSuffix = CompressedFiles.withCompressedSuffixes(Arrays.asList(".json", ".jsonl"));
   }
 
   @Override
@@ -41,14 +41,33 @@ public class Iso19115Collection extends DocumentCollection<Iso19115Collection.Do
     return new Segment(p);
   }
 
+  @Override
+  public FileSegment<Iso19115Collection.Document> createFileSegment(FileSplit split) throws IOException {
+    return split.isWholeFile() ? new Segment(split.getPath()) : new Segment(split);
+  }
+
+  // Only JSON Lines files hold exactly one document per line.
+  @Override
+  public boolean isSplittable(Path p) {
+    return p.toString().endsWith(".jsonl");
+  }
+
   public static class Segment extends FileSegment<Iso19115Collection.Document> {
     private JsonNode node = null;
     private Iterator<JsonNode> iter = null;
     private MappingIterator<JsonNode> iterator;
 
     public Segment(Path path) throws IOException {
+      this(path, new BufferedReader(new InputStreamReader(CompressedFiles.open(path), StandardCharsets.UTF_8)));
+    }
+
+    public Segment(FileSplit split) throws IOException {
+      this(split.getPath(), new BufferedReader(new InputStreamReader(split.newInputStream(), StandardCharsets.UTF_8)));
+    }
+
+    private Segment(Path path, BufferedReader reader) throws IOException {
       super(path);
-      bufferedReader = new BufferedReader(new FileReader(path.toString()));
+      bufferedReader = reader;
       ObjectMapper mapper = new ObjectMapper();
       iterator = mapper.readerFor(JsonNode.class).readValues(bufferedReader);
       if (iterator.hasNext()) {
@@ -23,12 +23,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -74,7 +74,7 @@ public class JsonCollection extends DocumentCollection<JsonCollection.Document>
 
   public JsonCollection(Path path) {
     this.path = path;
-    this.allowedFileSuffix = new HashSet<>(Arrays.asList(".json", ".jsonl"));
+    this.allowedFileSuffix = CompressedFiles.withCompressedSuffixes(Arrays.asList(".json", ".jsonl"));
   }
 
   @Override
@@ -82,6 +82,17 @@ public class JsonCollection extends DocumentCollection<JsonCollection.Document>
     return new Segment(p);
   }
 
+  @Override
+  public FileSegment<JsonCollection.Document> createFileSegment(FileSplit split) throws IOException {
+    return split.isWholeFile() ? new Segment(split.getPath()) : new Segment(split);
+  }
+
+  // Only JSON Lines files hold exactly one document per line.
+  @Override
+  public boolean isSplittable(Path p) {
+    return p.toString().endsWith(".jsonl");
+  }
+
   /**
    * A file in a JSON collection, typically containing multiple documents.
    */
@@ -91,8 +102,16 @@ public class JsonCollection extends DocumentCollection<JsonCollection.Document>
     private MappingIterator<JsonNode> iterator; // iterator for JSON line objects
 
     public Segment(Path path) throws IOException {
+      this(path, new BufferedReader(new InputStreamReader(CompressedFiles.open(path), StandardCharsets.UTF_8)));
+    }
+
+    public Segment(FileSplit split) throws IOException {
+      this(split.getPath(), new BufferedReader(new InputStreamReader(split.newInputStream(), StandardCharsets.UTF_8)));
+    }
+
+    private Segment(Path path, BufferedReader reader) throws IOException {
       super(path);
-      bufferedReader = new BufferedReader(new FileReader(path.toString()));
+      bufferedReader = reader;
       ObjectMapper mapper = new ObjectMapper();
       iterator = mapper.readerFor(JsonNode.class).readValues(bufferedReader);
       if (iterator.hasNext()) {
@@ -0,0 +1,116 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.anserini.collection;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * An {@link InputStream} that remembers the bytes it has handed out, so that a record can later be
+ * recovered verbatim as a slice of the input, addressed by absolute stream offsets. This allows a
+ * streaming parser (e.g., Jackson's {@code JsonParser}) to report where a record starts and ends
+ * without the caller having to re-serialize what was parsed. Bytes before {@link #release(long)}
+ * are discarded, so memory use is bounded by the size of the current record plus parser look-ahead.
+ */
+public class RecordingInputStream extends FilterInputStream {
+  private byte[] buffer;
+  private long base = 0;  // absolute stream offset of buffer[0]
+  private int length = 0; // number of valid bytes in buffer
+
+  public RecordingInputStream(InputStream in, int initialCapacity) {
+    super(in);
+    this.buffer = new byte[initialCapacity];
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = in.read();
+    if (b >= 0) {
+      ensureCapacity(1);
+      buffer[length++] = (byte) b;
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int n = in.read(b, off, len);
+    if (n > 0) {
+      ensureCapacity(n);
+      System.arraycopy(b, off, buffer, length, n);
+      length += n;
+    }
+    return n;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    // Skipped bytes must still be recorded, so route them through read().
+    byte[] scratch = new byte[(int) Math.min(n, 8192)];
+    long skipped = 0;
+    while (skipped < n) {
+      int r = read(scratch, 0, (int) Math.min(scratch.length, n - skipped));
+      if (r < 0) {
+        break;
+      }
+      skipped += r;
+    }
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  /**
+   * Discards all recorded bytes before the given absolute offset.
+   *
+   * @param offset absolute stream offset
+   */
+  public void release(long offset) {
+    int drop = (int) Math.min(Math.max(offset - base, 0), length);
+    if (drop > 0) {
+      System.arraycopy(buffer, drop, buffer, 0, length - drop);
+      length -= drop;
+      base += drop;
+    }
+  }
+
+  /**
+   * Returns a copy of the recorded bytes between two absolute offsets.
+   *
+   * @param from absolute start offset (inclusive)
+   * @param to absolute end offset (exclusive)
+   * @return the bytes in the range
+   */
+  public byte[] slice(long from, long to) {
+    if (from < base || to > base + length || from > to) {
+      throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") is not recorded; recorded range is [" +
+          base + ", " + (base + length) + ")");
+    }
+    return Arrays.copyOfRange(buffer, (int) (from - base), (int) (to - base));
+  }
+
+  private void ensureCapacity(int extra) {
+    if (length + extra > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+    }
+  }
+}
@@ -29,6 +29,16 @@ public interface SourceDocument {
    */
   String id();
 
+  /**
+   * Returns a key that uniquely identifies the document within its collection. This is the docid, except in
+   * collections where several documents share a docid (e.g., the passages of a GRDC report).
+   *
+   * @return a key that uniquely identifies the document within its collection
+   */
+  default String key() {
+    return id();
+  }
+
   /**
    * Returns the contents of the document to be searched.
    *
@@ -17,24 +17,20 @@
 package io.anserini.collection;
 
 import org.apache.commons.compress.compressors.z.ZCompressorInputStream;
+import org.apache.lucene.util.BytesRefBuilder;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedReader;
-import java.io.FileInputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
 
 /**
  * <p>A classic TREC <i>ad hoc</i> document collection.</p>
@@ -80,74 +76,119 @@ public class TrecCollection extends DocumentCollection<TrecCollection.Document>
    *
    * @param <T> type of the document
    */
-  public static class Segment<T extends Document> extends FileSegment<T>{
+  public static class Segment<T extends Document> extends ByteFileSegment<T> {
     private static final Pattern ID_PATTERN = Pattern.compile(".*id=\\\"([^\\\"]+)\\\".*");
 
+    // Tags are matched on the raw bytes of each line; only the parts of a record that are kept are decoded.
+    private static final byte[] DOC_BYTES = bytes(Document.DOC);
+    private static final byte[] DOC_WITH_ATTRIBUTES_BYTES = bytes("<DOC ");
+    private static final byte[] TERMINATING_DOC_BYTES = bytes(Document.TERMINATING_DOC);
+    private static final byte[] DOCNO_BYTES = bytes(Document.DOCNO);
+    private static final byte[] TERMINATING_DOCNO_BYTES = bytes(Document.TERMINATING_DOCNO);
+    private static final byte[] TAG_BYTES = bytes("<");
+    private static final byte[][] START_TAG_BYTES = Arrays.stream(Document.startTags).map(Segment::bytes)
+        .toArray(byte[][]::new);
+    private static final byte[][] END_TAG_BYTES = Arrays.stream(Document.endTags).map(Segment::bytes)
+        .toArray(byte[][]::new);
+
+    // As when segments were read with a BufferedReader, a lone \r also ends a line, and plain text files are decoded in
+    // the platform charset (compressed ones in UTF-8).
     public Segment(Path path) throws IOException {
-      super(path);
-      this.bufferedReader = null;
-      String fileName = path.toString();
-      if (fileName.matches("(?i:.*?\\.\\d*z$)")) { // .z .0z .1z .2z
-        FileInputStream fin = new FileInputStream(fileName);
-        BufferedInputStream in = new BufferedInputStream(fin);
-        ZCompressorInputStream zIn = new ZCompressorInputStream(in);
-        bufferedReader = new BufferedReader(new InputStreamReader(zIn, StandardCharsets.UTF_8));
-      } else if (fileName.endsWith(".gz")) { //.gz
-        InputStream stream = new GZIPInputStream(
-            Files.newInputStream(path, StandardOpenOption.READ), BUFFER_SIZE);
-        bufferedReader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
-      } else { // plain text file
-        bufferedReader = new BufferedReader(new FileReader(fileName));
+      super(path, open(path), isCompressed(path) ? StandardCharsets.UTF_8 : Charset.defaultCharset(), true);
+    }
+
+    private static boolean isCompressed(Path path) {
+      return isZ(path) || CompressedFiles.isCompressed(path);
+    }
+
+    private static boolean isZ(Path path) {
+      return path.toString().matches("(?i:.*?\\.\\d*z$)"); // .z .0z .1z .2z
+    }
+
+    private static InputStream open(Path path) throws IOException {
+      if (isZ(path)) {
+        return new ZCompressorInputStream(new BufferedInputStream(Files.newInputStream(path)));
+      }
+      return CompressedFiles.open(path); // .gz .bz2 .xz .zst, or plain text
+    }
+
+    // Decodes the bytes of a record in the charset of the segment.
+    protected String decode(BytesRefBuilder builder) {
+      return new String(builder.bytes(), 0, builder.length(), reader.charset());
+    }
+
+    protected static byte[] bytes(String s) {
+      return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    protected static int indexOf(BytesRefBuilder builder, byte[] target) {
+      byte[] bytes = builder.bytes();
+      outer:
+      for (int i = 0; i <= builder.length() - target.length; i++) {
+        for (int k = 0; k < target.length; k++) {
+          if (bytes[i + k] != target[k]) {
+            continue outer;
+          }
+        }
+        return i;
       }
+      return -1;
     }
 
     @Override
     public void readNext() throws IOException, ParseException {
-      readNextRecord(bufferedReader);
+      readNextRecord();
     }
 
-    private void readNextRecord(BufferedReader reader) throws IOException {
-      StringBuilder builder = new StringBuilder();
+    private void readNextRecord() throws IOException {
+      BytesRefBuilder builder = new BytesRefBuilder();
       boolean found = false;
       int inTag = -1;
 
-      String line;
-      while ((line=reader.readLine()) != null) {
-        line = line.trim();
+      while (reader.nextLine()) {
+        reader.trimLine();
 
         // Also handle the variant case where docid is an attributed of the <DOC> tag, e.g., <DOC id="abc">
         // The NTCIR-8 ACLIA task, which uses LDC2007T38, is organized in this way.
-        if (line.startsWith(Document.DOC) || line.startsWith("<DOC ")) {
+        if (reader.lineStartsWith(DOC_BYTES) || reader.lineStartsWith(DOC_WITH_ATTRIBUTES_BYTES)) {
           found = true;
 
-          Matcher matcher = ID_PATTERN.matcher(line);
+          Matcher matcher = ID_PATTERN.matcher(reader.lineString());
           if (matcher.matches()) {
             // Handle cases like <DOC id="abc">
-            builder.append(Document.DOCNO).append(matcher.group(1)).append(Document.TERMINATING_DOCNO);
+            builder.append(DOCNO_BYTES, 0, DOCNO_BYTES.length);
+            byte[] id = bytes(matcher.group(1));
+            builder.append(id, 0, id.length);
+            builder.append(TERMINATING_DOCNO_BYTES, 0, TERMINATING_DOCNO_BYTES.length);
           } else {
             // Continue to read DOCNO as normal.
-            while ((line = reader.readLine()) != null) {
-              if (line.startsWith(Document.DOCNO)) {
-                builder.append(line).append('\n');
+            boolean more;
+            while ((more = reader.nextLine())) {
+              if (reader.lineStartsWith(DOCNO_BYTES)) {
+                reader.appendLine(builder);
                 break;
               }
             }
-            while (builder.indexOf(Document.TERMINATING_DOCNO) == -1) {
-              line = reader.readLine();
-              if (line == null) break;
-              builder.append(line).append('\n');
+            while (more && indexOf(builder, TERMINATING_DOCNO_BYTES) == -1) {
+              if ((more = reader.nextLine())) {
+                reader.appendLine(builder);
+              }
+            }
+            if (!more) {
+              // The file ends in the middle of a document.
+              return;
             }
           }
         }
 
         if (found) {
-          if (line.startsWith("<")) {
-            if (inTag >= 0 && line.startsWith(Document.endTags[inTag])) {
-              builder.append(line).append("\n");
+          if (reader.lineStartsWith(TAG_BYTES)) {
+            if (inTag >= 0 && reader.lineStartsWith(END_TAG_BYTES[inTag])) {
+              reader.appendLine(builder);
               inTag = -1;
             } else if (inTag < 0) {
-              for (int k = 0; k < Document.startTags.length; k++) {
-                if (line.startsWith(Document.startTags[k])) {
+              for (int k = 0; k < START_TAG_BYTES.length; k++) {
+                if (reader.lineStartsWith(START_TAG_BYTES[k])) {
                   inTag = k;
                   break;
                 }
@@ -155,33 +196,31 @@ public class TrecCollection extends DocumentCollection<TrecCollection.Document>
             }
           }
           if (inTag >= 0) {
-            if (line.endsWith(Document.endTags[inTag])) {
-              builder.append(line).append("\n");
+            reader.appendLine(builder);
+            if (reader.lineEndsWith(END_TAG_BYTES[inTag])) {
               inTag = -1;
-            } else {
-              builder.append(line).append("\n");
             }
           }
         }
 
-        if (line.startsWith(Document.TERMINATING_DOC)) {
-          parseRecord(builder);
+        if (reader.lineStartsWith(TERMINATING_DOC_BYTES)) {
+          parseRecord(decode(builder));
           return;
         }
       }
     }
 
     @SuppressWarnings("unchecked")
-    private void parseRecord(StringBuilder builder) {
-      int i = builder.indexOf(Document.DOCNO);
+    private void parseRecord(String record) {
+      int i = record.indexOf(Document.DOCNO);
       if (i == -1) throw new RuntimeException("cannot find start tag " + Document.DOCNO);
       if (i != 0) throw new RuntimeException("should start with " + Document.DOCNO);
-      int j = builder.indexOf(Document.TERMINATING_DOCNO);
+      int j = record.indexOf(Document.TERMINATING_DOCNO);
       if (j == -1) throw new RuntimeException("cannot find end tag " + Document.TERMINATING_DOCNO);
 
       bufferedRecord = (T) createNewDocument();
-      bufferedRecord.id = builder.substring(i + Document.DOCNO.length(), j).trim();
-      bufferedRecord.raw = builder.substring(j + Document.TERMINATING_DOCNO.length()).trim();
+      bufferedRecord.id = record.substring(i + Document.DOCNO.length(), j).trim();
+      bufferedRecord.raw = record.substring(j + Document.TERMINATING_DOCNO.length()).trim();
     }
 
     protected Document createNewDocument() {
@@ -16,7 +16,8 @@
 
 package io.anserini.collection;
 
-import java.io.BufferedReader;
+import org.apache.lucene.util.BytesRefBuilder;
+
 import java.io.IOException;
 import java.nio.file.Path;
 import java.text.ParseException;
@@ -46,56 +47,58 @@ public class TrecwebCollection extends DocumentCollection<TrecwebCollection.Docu
       super(path);
     }
 
+    private static final byte[] DOC_BYTES = bytes(Document.DOC);
+    private static final byte[] TERMINATING_DOC_BYTES = bytes(Document.TERMINATING_DOC);
+
     @Override
     public void readNext() throws IOException, ParseException {
-      readNextRecord(bufferedReader);
+      readNextRecord();
     }
 
-    private void readNextRecord(BufferedReader reader) throws IOException, ParseException {
-      StringBuilder builder = new StringBuilder();
+    private void readNextRecord() throws IOException, ParseException {
+      BytesRefBuilder builder = new BytesRefBuilder();
       boolean found = false;
 
-      String line;
-      while ((line=reader.readLine()) != null) {
-        line = line.trim();
+      while (reader.nextLine()) {
+        reader.trimLine();
 
-        if (line.startsWith(Document.DOC)) {
+        if (reader.lineStartsWith(DOC_BYTES)) {
           found = true;
           continue;
         }
 
-        if (line.startsWith(Document.TERMINATING_DOC) && builder.length() > 0) {
-          parseRecord(builder);
+        if (reader.lineStartsWith(TERMINATING_DOC_BYTES) && builder.length() > 0) {
+          parseRecord(decode(builder));
           return;
         }
 
         if (found)
-          builder.append(line).append("\n");
+          reader.appendLine(builder);
       }
     }
 
     @SuppressWarnings("unchecked")
-    private void parseRecord(StringBuilder builder) throws ParseException {
-      int i = builder.indexOf(Document.DOCNO);
+    private void parseRecord(String record) throws ParseException {
+      int i = record.indexOf(Document.DOCNO);
       if (i == -1) throw new ParseException("cannot find start tag " + Document.DOCNO, 0);
 
       if (i != 0) throw new ParseException("should start with " + Document.DOCNO, 0);
 
-      int j = builder.indexOf(Document.TERMINATING_DOCNO);
+      int j = record.indexOf(Document.TERMINATING_DOCNO);
       if (j == -1) throw new ParseException("cannot find end tag " + Document.TERMINATING_DOCNO, 0);
 
       bufferedRecord = (T) new Document();
-      bufferedRecord.id = builder.substring(i + Document.DOCNO.length(), j).trim();
+      bufferedRecord.id = record.substring(i + Document.DOCNO.length(), j).trim();
 
-      i = builder.indexOf(Document.DOCHDR);
+      i = record.indexOf(Document.DOCHDR);
       if (i == -1) throw new ParseException("cannot find header tag " + Document.DOCHDR, 0);
 
-      j = builder.indexOf(Document.TERMINATING_DOCHDR);
+      j = record.indexOf(Document.TERMINATING_DOCHDR);
       if (j == -1) throw new ParseException("cannot find end tag " + Document.TERMINATING_DOCHDR, 0);
 
       if (j < i) throw new ParseException(Document.TERMINATING_DOCHDR + " comes before " + Document.DOCHDR, 0);
 
-      bufferedRecord.raw = builder.substring(j + Document.TERMINATING_DOCHDR.length()).trim();
+      bufferedRecord.raw = record.substring(j + Document.TERMINATING_DOCHDR.length()).trim();
     }
   }
 
@@ -28,12 +28,9 @@ import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.List;
@@ -43,7 +40,6 @@ import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
-import java.util.zip.GZIPInputStream;
 
 /**
  * A collection of tweets.
@@ -69,10 +65,8 @@ public class TweetCollection extends DocumentCollection<TweetCollection.Document
       super(path);
       this.bufferedReader = null;
       String fileName = path.toString();
-      if (fileName.endsWith(".gz")) { //.gz
-        InputStream stream = new GZIPInputStream(
-                Files.newInputStream(path, StandardOpenOption.READ), BUFFER_SIZE);
-        bufferedReader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+      if (CompressedFiles.isCompressed(path)) { // .gz .bz2 .xz .zst
+        bufferedReader = new BufferedReader(new InputStreamReader(CompressedFiles.open(path), StandardCharsets.UTF_8));
       } else { // plain text file
         bufferedReader = new BufferedReader(new FileReader(fileName));
       }
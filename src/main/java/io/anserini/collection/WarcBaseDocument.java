@@ -53,9 +53,7 @@
 package io.anserini.collection;
 
 import java.io.DataInput;
-import java.io.DataInputStream;
 import java.io.DataOutput;
-import java.io.EOFException;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
@@ -75,13 +73,6 @@ import org.apache.logging.log4j.Logger;
  * representation that can be directly inserted into an index.
  */
 public abstract class WarcBaseDocument implements SourceDocument { 
-  private static final byte MASK_THREE_BYTE_CHAR = (byte) (0xE0);
-  private static final byte MASK_TWO_BYTE_CHAR = (byte) (0xC0);
-  private static final byte MASK_TOPMOST_BIT = (byte) (0x80);
-  private static final byte MASK_BOTTOM_SIX_BITS = (byte) (0x1F);
-  private static final byte MASK_BOTTOM_FIVE_BITS = (byte) (0x3F);
-  private static final byte MASK_BOTTOM_FOUR_BITS = (byte) (0x0F);
-  
   protected static final String NEWLINE = "\n";
 
   public static String WARC_VERSION = "WARC/0.18";
@@ -135,111 +126,41 @@ public abstract class WarcBaseDocument implements SourceDocument {
   }
 
   /**
-   * Our read line implementation. We cannot allow buffering here (for gzip
-   * streams) so, we need to use DataInputStream. Also, we need to account
-   * for Java's UTF8 implementation.
+   * Performs the actual heavy lifting of reading in the next WARC record. Lines are scanned as raw bytes; only the
+   * header lines are decoded.
    *
-   * @param in the input data stream
-   * @return the read line (or null if eof)
+   * @param in the reader
+   * @param headerBuffer a blank string buffer to contain the WARC header
+   * @param headerEndKey name of the last header field
+   * @return the content bytes (with the headerBuffer populated)
    * @throws IOException if error encountered reading from stream
    */
-  protected static String readLineFromInputStream(DataInputStream in) throws IOException {
-    StringBuilder retString = new StringBuilder();
-
-    boolean keepReading = true;
-    try {
-      do {
-        char thisChar = 0;
-        byte readByte = in.readByte();
-
-        // check to see if it's a multibyte character
-        if ((readByte & MASK_THREE_BYTE_CHAR) == MASK_THREE_BYTE_CHAR) {
-          // need to read the next 2 bytes
-          if (in.available() < 2) {
-            // treat these all as individual characters
-            retString.append((char) readByte);
-            int numAvailable = in.available();
-            for (int i = 0; i < numAvailable; i++) {
-              retString.append((char) (in.readByte()));
-            }
-            continue;
-          }
-          byte secondByte = in.readByte();
-          byte thirdByte = in.readByte();
-          // ensure the topmost bit is set
-          if (((secondByte & MASK_TOPMOST_BIT) != MASK_TOPMOST_BIT)
-              || ((thirdByte & MASK_TOPMOST_BIT) != MASK_TOPMOST_BIT)) {
-            // treat these as individual characters
-            retString.append((char) readByte);
-            retString.append((char) secondByte);
-            retString.append((char) thirdByte);
-            continue;
-          }
-          int finalVal = (thirdByte & MASK_BOTTOM_FIVE_BITS) + 64
-              * (secondByte & MASK_BOTTOM_FIVE_BITS) + 4096
-              * (readByte & MASK_BOTTOM_FOUR_BITS);
-          thisChar = (char) finalVal;
-        } else if ((readByte & MASK_TWO_BYTE_CHAR) == MASK_TWO_BYTE_CHAR) {
-          // need to read next byte
-          if (in.available() < 1) {
-            // treat this as individual characters
-            retString.append((char) readByte);
-            continue;
-          }
-          byte secondByte = in.readByte();
-          if ((secondByte & MASK_TOPMOST_BIT) != MASK_TOPMOST_BIT) {
-            retString.append((char) readByte);
-            retString.append((char) secondByte);
-            continue;
-          }
-          int finalVal = (secondByte & MASK_BOTTOM_FIVE_BITS) + 64
-              * (readByte & MASK_BOTTOM_SIX_BITS);
-          thisChar = (char) finalVal;
-        } else {
-          // interpret it as a single byte
-          thisChar = (char) readByte;
-        }
-
-        if (thisChar == '\n') {
-          keepReading = false;
-        } else {
-          retString.append(thisChar);
-        }
-      } while (keepReading);
-    } catch (EOFException eofEx) {
-      return null;
-    }
-
-    if (retString.length() == 0) {
-      return "";
-    }
-
-    return retString.toString();
+  protected static byte[] readNextRecord(ByteLineReader in, StringBuilder headerBuffer, String headerEndKey) throws IOException {
+    return readNextRecord(in, headerBuffer, headerEndKey, 0);
   }
 
   /**
-   * Performs the actual heavy lifting of reading in the next WARC record.
+   * Performs the actual heavy lifting of reading in the next WARC record, for formats whose content runs a few bytes
+   * past its declared length.
    *
-   * @param in the data input stream
+   * @param in the reader
    * @param headerBuffer a blank string buffer to contain the WARC header
+   * @param headerEndKey name of the last header field
+   * @param extraContentBytes number of bytes to read past the declared content length
    * @return the content bytes (with the headerBuffer populated)
    * @throws IOException if error encountered reading from stream
    */
-  protected static byte[] readNextRecord(DataInputStream in, StringBuilder headerBuffer, String headerEndKey) throws IOException {
+  protected static byte[] readNextRecord(ByteLineReader in, StringBuilder headerBuffer, String headerEndKey,
+                                         int extraContentBytes) throws IOException {
     if (in == null || headerBuffer == null) {
       throw new NoSuchElementException();
     }
 
-    String line = null;
-    boolean foundMark = false;
-    boolean inHeader = true;
-    byte[] retContent = null;
-
-    // cannot be using a buffered reader here!!!!
-    // just read the header
     // first - find our WARC header
-    while ((!foundMark) && ((line = readLineFromInputStream(in)) != null)) {
-      if (line.startsWith(WARC_VERSION)) {
+    byte[] mark = WARC_VERSION.getBytes(StandardCharsets.UTF_8);
+    boolean foundMark = false;
+    while (!foundMark && in.nextLine()) {
+      if (in.lineStartsWith(mark)) {
         foundMark = true;
       }
     }
@@ -249,27 +170,26 @@ public abstract class WarcBaseDocument implements SourceDocument {
       throw new NoSuchElementException();
     }
 
-    // then read to the first newline
+    // then read up to the last header field
     // make sure we get the content length here
+    String endKey = headerEndKey.toLowerCase(Locale.US);
     int contentLength = -1;
     boolean reachHeaderEnd = false;
-    while (!reachHeaderEnd && inHeader && ((line = readLineFromInputStream(in)) != null)) {
-      if ((line.trim().length() == 0 && reachHeaderEnd)) {
-        inHeader = false;
-      } else {
-        headerBuffer.append(line);
-        headerBuffer.append(WarcBaseDocument.NEWLINE);
-        String[] thisHeaderPieceParts = line.split(":", 2);
-        if (thisHeaderPieceParts.length == 2) {
-          if (thisHeaderPieceParts[0].toLowerCase(Locale.US).startsWith(headerEndKey.toLowerCase(Locale.US))){
-            reachHeaderEnd = true;
-          }
-          if (thisHeaderPieceParts[0].toLowerCase(Locale.US).startsWith("content-length")) {
-            try {
-              contentLength = Integer.parseInt(thisHeaderPieceParts[1].trim());
-            } catch (NumberFormatException nfEx) {
-              contentLength = -1;
-            }
+    while (!reachHeaderEnd && in.nextLine()) {
+      String line = in.lineString();
+      headerBuffer.append(line);
+      headerBuffer.append(WarcBaseDocument.NEWLINE);
+      String[] thisHeaderPieceParts = line.split(":", 2);
+      if (thisHeaderPieceParts.length == 2) {
+        String key = thisHeaderPieceParts[0].toLowerCase(Locale.US);
+        if (key.startsWith(endKey)) {
+          reachHeaderEnd = true;
+        }
+        if (key.startsWith("content-length")) {
+          try {
+            contentLength = Integer.parseInt(thisHeaderPieceParts[1].trim()) + extraContentBytes;
+          } catch (NumberFormatException nfEx) {
+            contentLength = -1;
           }
         }
       }
@@ -280,30 +200,10 @@ public abstract class WarcBaseDocument implements SourceDocument {
     }
 
     // now read the bytes of the content
-    retContent = new byte[contentLength];
-    int totalWant = contentLength;
-    int totalRead = 0;
-    while (totalRead < contentLength) {
-      try {
-        int numRead = in.read(retContent, totalRead, totalWant);
-        if (numRead < 0) {
-          throw new NoSuchElementException();
-        } else {
-          totalRead += numRead;
-          totalWant = contentLength - totalRead;
-        } // end if (numRead < 0) / else
-      } catch (EOFException eofEx) {
-        // resize to what we have
-        if (totalRead > 0) {
-          byte[] newReturn = new byte[totalRead];
-          System.arraycopy(retContent, 0, newReturn, 0, totalRead);
-          return newReturn;
-        } else {
-          throw new NoSuchElementException();
-        }
-      } // end try/catch (EOFException)
-    } // end while (totalRead < contentLength)
-
+    byte[] retContent = in.readBytes(contentLength);
+    if (retContent.length < contentLength) {
+      throw new NoSuchElementException();
+    }
     return retContent;
   }
 
@@ -0,0 +1,216 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.index;
+
+import com.google.common.hash.Hashing;
+import io.anserini.collection.SourceDocument;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content hashes of the documents in an existing index, used to update the index incrementally from a new version of
+ * the collection. Every document indexed incrementally carries a hash of its source document in the
+ * {@link IndexArgs#CONTENT_HASH} doc values field. Comparing hashes tells which source documents are new, changed or
+ * unchanged, and the documents never seen in the new version are the ones to delete. Documents are identified by their
+ * key (see {@link SourceDocument#key()}), which is indexed in the {@link IndexArgs#KEY} field when it differs from the
+ * docid, and is the docid otherwise. Thread-safe once loaded.
+ */
+public final class ContentHashes {
+  /**
+   * How a source document relates to the existing index.
+   */
+  public enum Change {
+    ADDED, UPDATED, UNCHANGED
+  }
+
+  // Stands in for the hash of documents indexed without one (i.e., not incrementally); never equal to a real hash.
+  private static final BytesRef UNKNOWN = new BytesRef();
+
+  private static final int DELETE_BATCH = 1000;
+
+  private final Map<String, BytesRef> indexed;
+  // Keys indexed in the key field rather than the docid field.
+  private final Set<String> keyed;
+  private final Set<String> seen = ConcurrentHashMap.newKeySet();
+
+  private ContentHashes(Map<String, BytesRef> indexed, Set<String> keyed) {
+    this.indexed = indexed;
+    this.keyed = keyed;
+  }
+
+  /**
+   * Returns the term that identifies the indexed version of a source document, to replace or delete it.
+   *
+   * @param doc source document
+   * @return term on the key field if the document has a key distinct from its docid, on the docid field otherwise
+   */
+  public static Term term(SourceDocument doc) {
+    String key = doc.key();
+    return key.equals(doc.id()) ? new Term(IndexArgs.ID, key) : new Term(IndexArgs.KEY, key);
+  }
+
+  /**
+   * Reads the keys and content hashes of the live documents visible to an index writer.
+   *
+   * @param writer index writer
+   * @return content hashes of the existing index, empty if the index is new
+   * @throws IOException if errors encountered reading the index
+   */
+  public static ContentHashes load(IndexWriter writer) throws IOException {
+    Map<String, BytesRef> indexed = new HashMap<>();
+    Set<String> keyed = new HashSet<>();
+    try (DirectoryReader reader = DirectoryReader.open(writer)) {
+      for (LeafReaderContext context : reader.leaves()) {
+        LeafReader leaf = context.reader();
+        // Map internal docids to keys via the postings of the id field, overridden by those of the key field, then walk
+        // the hashes in docid order.
+        String[] keys = new String[leaf.maxDoc()];
+        boolean[] isKeyed = new boolean[leaf.maxDoc()];
+        readKeys(leaf, IndexArgs.ID, keys, isKeyed);
+        readKeys(leaf, IndexArgs.KEY, keys, isKeyed);
+        for (int doc = 0; doc < keys.length; doc++) {
+          if (keys[doc] != null) {
+            indexed.put(keys[doc], UNKNOWN);
+            if (isKeyed[doc]) {
+              keyed.add(keys[doc]);
+            }
+          }
+        }
+
+        BinaryDocValues hashes = leaf.getBinaryDocValues(IndexArgs.CONTENT_HASH);
+        if (hashes == null) {
+          continue;
+        }
+        for (int doc = hashes.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = hashes.nextDoc()) {
+          if (keys[doc] != null) {
+            indexed.put(keys[doc], BytesRef.deepCopyOf(hashes.binaryValue()));
+          }
+        }
+      }
+    }
+    return new ContentHashes(indexed, keyed);
+  }
+
+  private static void readKeys(LeafReader leaf, String field, String[] keys, boolean[] isKeyed) throws IOException {
+    Terms terms = leaf.terms(field);
+    if (terms == null) {
+      return;
+    }
+
+    Bits liveDocs = leaf.getLiveDocs();
+    TermsEnum termsEnum = terms.iterator();
+    PostingsEnum postings = null;
+    BytesRef term;
+    while ((term = termsEnum.next()) != null) {
+      String key = term.utf8ToString();
+      postings = termsEnum.postings(postings, PostingsEnum.NONE);
+      for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+        if (liveDocs == null || liveDocs.get(doc)) {
+          keys[doc] = key;
+          isKeyed[doc] = field.equals(IndexArgs.KEY);
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes the content hash of a source document, over its raw content (or its contents, if there is no raw
+   * content). The hash only needs to detect edits, so a fast non-cryptographic 128-bit hash is used.
+   *
+   * @param doc source document
+   * @return content hash
+   */
+  public static BytesRef hash(SourceDocument doc) {
+    String content = doc.raw() != null ? doc.raw() : doc.contents();
+    return new BytesRef(Hashing.murmur3_128().hashString(content == null ? "" : content, StandardCharsets.UTF_8)
+        .asBytes());
+  }
+
+  /**
+   * Records that a document is part of the new version of the collection and classifies it against the index.
+   *
+   * @param key key of the source document
+   * @param hash content hash of the source document
+   * @return whether the document is new, changed or unchanged
+   */
+  public Change check(String key, BytesRef hash) {
+    seen.add(key);
+    BytesRef previous = indexed.get(key);
+    if (previous == null) {
+      return Change.ADDED;
+    }
+    return previous.equals(hash) ? Change.UNCHANGED : Change.UPDATED;
+  }
+
+  /**
+   * Deletes the documents of the existing index that were not seen in the new version of the collection. Call once,
+   * after all source documents have been checked.
+   *
+   * @param writer index writer
+   * @return number of deleted documents
+   * @throws IOException if errors encountered deleting documents
+   */
+  public long deleteUnseen(IndexWriter writer) throws IOException {
+    List<Term> batch = new ArrayList<>(DELETE_BATCH);
+    long deleted = 0;
+    for (String key : indexed.keySet()) {
+      if (seen.contains(key)) {
+        continue;
+      }
+      batch.add(new Term(keyed.contains(key) ? IndexArgs.KEY : IndexArgs.ID, key));
+      deleted++;
+      if (batch.size() == DELETE_BATCH) {
+        writer.deleteDocuments(batch.toArray(new Term[0]));
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      writer.deleteDocuments(batch.toArray(new Term[0]));
+    }
+    return deleted;
+  }
+
+  /**
+   * Returns the number of live documents in the existing index.
+   *
+   * @return number of live documents in the existing index
+   */
+  public int size() {
+    return indexed.size();
+  }
+}
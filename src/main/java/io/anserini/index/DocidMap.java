@@ -0,0 +1,254 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.index;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.packed.PackedInts;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps between collection docids and Lucene docids, using the sorted doc values of the {@link IndexArgs#ID} field
+ * rather than a query or a stored document per lookup. Lucene docids are mapped to collection docids by reading their
+ * doc values directly. Collection docids are mapped to Lucene docids by looking up their ordinal in the doc values of
+ * each segment, and then the first document with that ordinal, in a packed array that is built the first time a
+ * segment is looked up in. These arrays take a few bytes per document; they are shared by all readers over the same
+ * segment (e.g., after a refresh), and are dropped when the segment is closed. Segments without doc values for the id
+ * field (e.g., of tweets) fall back on the postings and stored values of the field.
+ */
+public final class DocidMap {
+  private static final Set<String> ID_FIELD = Collections.singleton(IndexArgs.ID);
+  private static final Map<IndexReader.CacheKey, Segment> SEGMENTS = new ConcurrentHashMap<>();
+
+  private final IndexReader reader;
+  private final List<LeafReaderContext> leaves;
+  private final Segment[] segments;
+
+  private DocidMap(IndexReader reader) {
+    this.reader = reader;
+    this.leaves = reader.leaves();
+    this.segments = new Segment[leaves.size()];
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = segment(leaves.get(i).reader());
+    }
+  }
+
+  /**
+   * Returns the docid map of a reader. This is cheap: the maps of its segments are shared and built on demand.
+   *
+   * @param reader index reader
+   * @return docid map
+   */
+  public static DocidMap of(IndexReader reader) {
+    return new DocidMap(reader);
+  }
+
+  private static Segment segment(LeafReader leaf) {
+    IndexReader.CacheHelper helper = leaf.getCoreCacheHelper();
+    if (helper == null) {
+      return new Segment();
+    }
+    return SEGMENTS.computeIfAbsent(helper.getKey(), key -> {
+      helper.addClosedListener(SEGMENTS::remove);
+      return new Segment();
+    });
+  }
+
+  /**
+   * Converts a collection docid to a Lucene docid.
+   *
+   * @param docid collection docid
+   * @return corresponding Lucene docid, or -1 if docid not found
+   * @throws IOException if error encountered during access to index
+   */
+  public int toLuceneDocid(String docid) throws IOException {
+    return toLuceneDocids(Collections.singletonList(docid))[0];
+  }
+
+  /**
+   * Converts collection docids to Lucene docids.
+   *
+   * @param docids collection docids
+   * @return corresponding Lucene docids, with -1 for docids not found
+   * @throws IOException if error encountered during access to index
+   */
+  public int[] toLuceneDocids(List<String> docids) throws IOException {
+    int[] ldocids = new int[docids.size()];
+    Arrays.fill(ldocids, -1);
+
+    BytesRef[] terms = new BytesRef[docids.size()];
+    for (int i = 0; i < terms.length; i++) {
+      terms[i] = new BytesRef(docids.get(i));
+    }
+
+    // As a query on the id field would, prefer the first live document with the docid.
+    for (int s = 0; s < leaves.size(); s++) {
+      LeafReaderContext context = leaves.get(s);
+      SortedDocValues values = DocValues.getSorted(context.reader(), IndexArgs.ID);
+      for (int i = 0; i < terms.length; i++) {
+        if (ldocids[i] == -1) {
+          int doc = lookup(s, values, terms[i]);
+          if (doc != -1) {
+            ldocids[i] = context.docBase + doc;
+          }
+        }
+      }
+    }
+
+    return ldocids;
+  }
+
+  // Returns the first live document of a segment with a docid, or -1 if there is none.
+  private int lookup(int s, SortedDocValues values, BytesRef term) throws IOException {
+    LeafReader leaf = leaves.get(s).reader();
+    if (values.getValueCount() > 0) {
+      int ord = values.lookupTerm(term);
+      if (ord < 0) {
+        return -1;
+      }
+      int doc = segments[s].firstDoc(leaf, ord);
+      Bits liveDocs = leaf.getLiveDocs();
+      if (doc != -1 && (liveDocs == null || liveDocs.get(doc))) {
+        return doc;
+      }
+    }
+
+    // Without doc values, or if the first document with the docid has been deleted, go through the postings.
+    Terms terms = leaf.terms(IndexArgs.ID);
+    if (terms == null) {
+      return -1;
+    }
+    TermsEnum te = terms.iterator();
+    if (!te.seekExact(term)) {
+      return -1;
+    }
+    PostingsEnum postings = te.postings(null, PostingsEnum.NONE);
+    Bits liveDocs = leaf.getLiveDocs();
+    for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+      if (liveDocs == null || liveDocs.get(doc)) {
+        return doc;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Converts a Lucene docid to a collection docid.
+   *
+   * @param ldocid Lucene docid
+   * @return corresponding collection docid, or {@code null} if not found
+   * @throws IOException if error encountered during access to index
+   */
+  public String toDocid(int ldocid) throws IOException {
+    return toDocids(new int[] {ldocid})[0];
+  }
+
+  /**
+   * Converts Lucene docids to collection docids. The docids may come in any order (e.g., by rank).
+   *
+   * @param ldocids Lucene docids
+   * @return corresponding collection docids, with {@code null} for docids not found
+   * @throws IOException if error encountered during access to index
+   */
+  public String[] toDocids(int[] ldocids) throws IOException {
+    String[] docids = new String[ldocids.length];
+
+    // Doc values can only be read in increasing docid order.
+    Integer[] order = new Integer[ldocids.length];
+    for (int i = 0; i < ldocids.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparingInt(i -> ldocids[i]));
+
+    LeafReaderContext context = null;
+    SortedDocValues values = null;
+    int previous = -1;
+    String previousDocid = null;
+    for (int i : order) {
+      int doc = ldocids[i];
+      if (doc < 0 || doc >= reader.maxDoc()) {
+        continue;
+      }
+      if (doc != previous) {
+        if (context == null || doc >= context.docBase + context.reader().maxDoc()) {
+          context = leaves.get(ReaderUtil.subIndex(doc, leaves));
+          values = DocValues.getSorted(context.reader(), IndexArgs.ID);
+        }
+        if (values.advanceExact(doc - context.docBase)) {
+          previousDocid = values.binaryValue().utf8ToString();
+        } else {
+          previousDocid = reader.document(doc, ID_FIELD).get(IndexArgs.ID);
+        }
+        previous = doc;
+      }
+      docids[i] = previousDocid;
+    }
+
+    return docids;
+  }
+
+  // The ordinal map of a segment, built on first use.
+  private static final class Segment {
+    private volatile PackedInts.Reader firstDocs;
+
+    int firstDoc(LeafReader leaf, int ord) throws IOException {
+      PackedInts.Reader map = firstDocs;
+      if (map == null) {
+        synchronized (this) {
+          map = firstDocs;
+          if (map == null) {
+            firstDocs = map = build(leaf);
+          }
+        }
+      }
+      return (int) map.get(ord) - 1;
+    }
+
+    // Maps each ordinal to its first document plus one, so that zero marks ordinals without a document (yet).
+    private static PackedInts.Reader build(LeafReader leaf) throws IOException {
+      SortedDocValues values = DocValues.getSorted(leaf, IndexArgs.ID);
+      PackedInts.Mutable map = PackedInts.getMutable(values.getValueCount(), PackedInts.bitsRequired(leaf.maxDoc()),
+          PackedInts.COMPACT);
+      for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+        int ord = values.ordValue();
+        if (map.get(ord) == 0) {
+          map.set(ord, doc + 1);
+        }
+      }
+      return map;
+    }
+  }
+}
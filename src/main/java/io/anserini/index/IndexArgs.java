@@ -29,6 +29,14 @@ public class IndexArgs {
   // This is the name of the field in the Lucene document where the raw document is stored.
   public static final String RAW = "raw";
 
+  // This is the name of the doc values field in the Lucene document that holds a hash of the source document; it is
+  // only populated when indexing with -incremental.
+  public static final String CONTENT_HASH = "content_hash";
+
+  // This is the name of the field in the Lucene document where the key of the source document is indexed, for the
+  // collections in which several documents share a docid (see SourceDocument#key()).
+  public static final String KEY = "key";
+
   private static final int TIMEOUT = 600 * 1000;
 
   // required arguments
@@ -102,6 +110,57 @@ public class IndexArgs {
               "but may be needed for tweet collections since the streaming API might deliver a tweet multiple times.")
   public boolean uniqueDocid = false;
 
+  @Option(name = "-splitSize", metaVar = "[mb]",
+      usage = "Splits files holding one document per line (e.g., JSON Lines) into line-aligned byte ranges of " +
+              "this size (in MB), so that multiple threads can index a single large file; 0 disables splitting.")
+  public int splitSize = 0;
+
+  @Option(name = "-incremental",
+      usage = "Boolean switch to update an existing index instead of rebuilding it: unchanged documents are skipped, " +
+              "changed ones are replaced, and documents no longer in the collection are deleted.")
+  public boolean incremental = false;
+
+  @Option(name = "-checkpoint",
+      usage = "Boolean switch to periodically commit the index and record the committed segments in a journal next " +
+              "to the index (<index>.checkpoint), so that an interrupted run can be continued with -resume.")
+  public boolean checkpoint = false;
+
+  @Option(name = "-checkpoint.minutes", metaVar = "[num]",
+      usage = "Minimum time (in minutes) between checkpoint commits.")
+  public int checkpointMinutes = 10;
+
+  @Option(name = "-resume",
+      usage = "Boolean switch to continue an interrupted run from its checkpoint journal: segments already committed " +
+              "are skipped, and new segments are appended to the index. Implies -checkpoint.")
+  public boolean resume = false;
+
+  @Option(name = "-pipeline",
+      usage = "Boolean switch to index with separate reader, generator and writer stages connected by bounded " +
+              "queues, each with its own threads (see -pipeline.*); only for Lucene indexes built with -index.")
+  public boolean pipeline = false;
+
+  @Option(name = "-pipeline.readers", metaVar = "[num]",
+      usage = "Number of threads in the pipeline stage that reads and parses file segments.")
+  public int pipelineReaders = 1;
+
+  @Option(name = "-pipeline.generators", metaVar = "[num]",
+      usage = "Number of threads in the pipeline stage that turns source documents into Lucene documents.")
+  public int pipelineGenerators = 4;
+
+  @Option(name = "-pipeline.writers", metaVar = "[num]",
+      usage = "Number of threads in the pipeline stage that analyzes documents and adds them to the index.")
+  public int pipelineWriters = 4;
+
+  @Option(name = "-pipeline.queueSize", metaVar = "[num]",
+      usage = "Capacity (in documents) of each queue between pipeline stages.")
+  public int pipelineQueueSize = 1000;
+
+  @Option(name = "-indexSort", metaVar = "[fields]",
+      usage = "Sorts the index by a comma-separated list of doc values fields, each optionally followed by ':desc' " +
+              "(e.g., 'report_id,passage_position' or 'publish_date:desc'), so that queries sorted the same way can " +
+              "terminate early; the generator must support sorting on the fields. Only for Lucene indexes.")
+  public String indexSort = null;
+
   @Option(name = "-memorybuffer", metaVar = "[mb]",
       usage = "Memory buffer size (in MB).")
   public int memorybufferSize = 2048;
@@ -140,6 +199,19 @@ public class IndexArgs {
       usage = "File that contains deleted tweet ids (longs), one per line; these tweets will be skipped during indexing.")
   public String tweetDeletedIdsFile = "";
 
+  // GRDC options
+
+  @Option(name = "-grdc.reportIndex", metaVar = "[path]",
+      usage = "Path of a side index that holds GRDC report-level metadata once per report; passages then only carry " +
+              "the report_id (GRDCPassageGenerator only).")
+  public String grdcReportIndex = null;
+
+  @Option(name = "-grdc.storeTextOnce",
+      usage = "Stores the GRDC passage text exactly once, rather than in \"contents\", \"raw\" and \"text\"; the " +
+              "other views are rebuilt at fetch time, and \"text\" is no longer indexed as a single term " +
+              "(GRDCPassageGenerator only).")
+  public boolean grdcStoreTextOnce = false;
+
   // Solr options
 
   @Option(name = "-solr", forbids = {"-index", "-es"},
@@ -170,6 +242,18 @@ public class IndexArgs {
       usage = "Solr client pool size.")
   public int solrPoolSize = 16;
 
+  @Option(name = "-solr.streaming",
+      usage = "Streams documents to the shard leaders through per-shard queues, instead of sending blocking batches.")
+  public boolean solrStreaming = false;
+
+  @Option(name = "-solr.queueSize", metaVar = "[n]",
+      usage = "In streaming mode, the capacity of the queue of documents waiting for each shard leader.")
+  public int solrQueueSize = 10000;
+
+  @Option(name = "-solr.threads", metaVar = "[n]",
+      usage = "In streaming mode, the number of threads sending updates to each shard leader.")
+  public int solrThreads = 2;
+
   // Elasticsearch options
 
   @Option(name = "-es", forbids = {"-index", "-solr"},
@@ -208,6 +292,23 @@ public class IndexArgs {
       usage = "Elasticsearch client pool size.")
   public int esPoolSize = 10;
 
+  @Option(name = "-es.concurrentRequests", metaVar = "[num]",
+      usage = "Maximum number of bulk requests in flight to Elasticsearch; indexing threads block beyond that.")
+  public int esConcurrentRequests = 10;
+
+  @Option(name = "-es.closeTimeout", metaVar = "[ms]",
+      usage = "Maximum time (in ms) to wait for the bulk requests in flight once all documents are read; 0 waits " +
+              "until they complete.")
+  public long esCloseTimeout = 0;
+
+  @Option(name = "-es.maxRetries", metaVar = "[num]",
+      usage = "Maximum number of times documents rejected by an overloaded Elasticsearch are retried.")
+  public int esMaxRetries = 8;
+
+  @Option(name = "-es.backoff", metaVar = "[ms]",
+      usage = "Initial delay (in ms) before retrying rejected documents; doubles with every retry.")
+  public int esBackoff = 100;
+
   @Option(name = "-es.connectTimeout", metaVar = "[ms]",
       usage = "Elasticsearch (low level) REST client connect timeout (in ms).")
   public int esConnectTimeout = TIMEOUT;
@@ -219,7 +320,8 @@ public class IndexArgs {
   // Sharding options
 
   @Option(name = "-shard.count", metaVar = "[n]",
-      usage = "Number of shards to partition the document collection into.")
+      usage = "Number of shards to partition the document collection into; without -shard.current, all shards " +
+              "are built in one pass, in subdirectories shard0, shard1, ... of the index path.")
   public int shardCount = -1;
 
   @Option(name = "-shard.current", metaVar = "[n]",
@@ -16,16 +16,18 @@
 
 package io.anserini.index;
 
-import com.google.common.base.Charsets;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
-import com.google.common.hash.Hashing;
 import io.anserini.analysis.DefaultEnglishAnalyzer;
 import io.anserini.analysis.TweetAnalyzer;
+import io.anserini.collection.CompressedFiles;
 import io.anserini.collection.DocumentCollection;
 import io.anserini.collection.FileSegment;
+import io.anserini.collection.FileSplit;
 import io.anserini.collection.SourceDocument;
 import io.anserini.index.generator.EmptyDocumentException;
+import io.anserini.index.generator.GRDCReportStore;
+import io.anserini.index.generator.GeneratorException;
 import io.anserini.index.generator.InvalidDocumentException;
 import io.anserini.index.generator.LuceneDocumentGenerator;
 import io.anserini.index.generator.SkippedDocumentException;
@@ -57,25 +59,38 @@ import org.apache.lucene.analysis.de.GermanAnalyzer;
 import org.apache.lucene.analysis.es.SpanishAnalyzer;
 import org.apache.lucene.analysis.fr.FrenchAnalyzer;
 import org.apache.lucene.analysis.hi.HindiAnalyzer;
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.similarities.BM25Similarity;
-import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
 import org.apache.solr.common.SolrInputDocument;
-import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
 import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.kohsuke.args4j.CmdLineException;
@@ -85,16 +100,21 @@ import org.kohsuke.args4j.ParserProperties;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public final class IndexCollection {
   private static final Logger LOG = LogManager.getLogger(IndexCollection.class);
@@ -108,6 +128,16 @@ public final class IndexCollection {
   private static final List<String> IGNORED_DUPLICATE_FIELDS =
       Lists.newArrayList(WashingtonPostGenerator.WashingtonPostField.PUBLISHED_DATE.name);
 
+  // Kinds of data held in Lucene index files, by file extension; used to report where the index bytes go.
+  private static final Map<String, String> INDEX_FILE_KINDS = Map.ofEntries(
+      Map.entry("fdt", "stored fields"), Map.entry("fdx", "stored fields"), Map.entry("fdm", "stored fields"),
+      Map.entry("tim", "terms"), Map.entry("tip", "terms"),
+      Map.entry("doc", "postings"), Map.entry("pos", "positions"), Map.entry("pay", "positions"),
+      Map.entry("tvd", "term vectors"), Map.entry("tvx", "term vectors"),
+      Map.entry("dvd", "doc values"), Map.entry("dvm", "doc values"),
+      Map.entry("nvd", "norms"), Map.entry("nvm", "norms"),
+      Map.entry("dim", "points"), Map.entry("dii", "points"));
+
   public final class Counters {
     /**
      * Counter for successfully indexed documents.
@@ -136,24 +166,424 @@ public final class IndexCollection {
      * Counter for unexpected errors.
      */
     public AtomicLong errors = new AtomicLong();
+
+    /**
+     * Counter for bytes of input in segments that have been completely processed; used to report progress.
+     */
+    public AtomicLong bytesProcessed = new AtomicLong();
+
+    /**
+     * Counter for documents not previously in the index (incremental mode only).
+     */
+    public AtomicLong added = new AtomicLong();
+
+    /**
+     * Counter for documents whose content changed since they were indexed, and were replaced (incremental mode only).
+     */
+    public AtomicLong updated = new AtomicLong();
+
+    /**
+     * Counter for indexed documents no longer in the collection, and deleted (incremental mode only).
+     */
+    public AtomicLong deleted = new AtomicLong();
+
+    /**
+     * Counter for documents whose content is unchanged since they were indexed, and were left alone (incremental mode
+     * only).
+     */
+    public AtomicLong unchanged = new AtomicLong();
+
+    /**
+     * Counter for source documents passed from the reader stage to the generator stage (pipeline mode only).
+     */
+    public AtomicLong read = new AtomicLong();
+
+    /**
+     * Counter for Lucene documents passed from the generator stage to the writer stage (pipeline mode only).
+     */
+    public AtomicLong generated = new AtomicLong();
+
+    /**
+     * Largest sampled number of documents waiting between the reader and generator stages (pipeline mode only).
+     */
+    public AtomicLong sourceQueuePeak = new AtomicLong();
+
+    /**
+     * Largest sampled number of documents waiting between the generator and writer stages (pipeline mode only).
+     */
+    public AtomicLong documentQueuePeak = new AtomicLong();
+
+    /**
+     * Total time (in nanoseconds) reader threads were blocked on a full queue, i.e., waiting for the generators
+     * (pipeline mode only).
+     */
+    public AtomicLong readerWaitNanos = new AtomicLong();
+
+    /**
+     * Total time (in nanoseconds) generator threads were blocked on an empty input queue or a full output queue
+     * (pipeline mode only).
+     */
+    public AtomicLong generatorWaitNanos = new AtomicLong();
+
+    /**
+     * Total time (in nanoseconds) writer threads were blocked on an empty queue, i.e., waiting for the generators
+     * (pipeline mode only).
+     */
+    public AtomicLong writerWaitNanos = new AtomicLong();
+
+    /**
+     * Counters for documents written to each shard, when all shards are built in one pass.
+     */
+    public AtomicLongArray shardIndexed = new AtomicLongArray(Math.max(args.shardCount, 1));
+  }
+
+  // Marks the end of the queue between the reader and generator stages in pipeline mode.
+  private static final SourceDocument END_OF_SOURCES = new SourceDocument() {
+    @Override
+    public String id() {
+      return null;
+    }
+
+    @Override
+    public String contents() {
+      return null;
+    }
+
+    @Override
+    public String raw() {
+      return null;
+    }
+
+    @Override
+    public boolean indexable() {
+      return false;
+    }
+  };
+
+  // A generated Lucene document waiting to be added to the index in pipeline mode.
+  private static final class PendingDocument {
+    // Marks the end of the queue between the generator and writer stages.
+    private static final PendingDocument END = new PendingDocument(null, null, -1, null, null);
+
+    private final String id;
+    private final Term term;
+    private final int shard;
+    private final Document document;
+    private final ContentHashes.Change change;
+
+    private PendingDocument(String id, Term term, int shard, Document document, ContentHashes.Change change) {
+      this.id = id;
+      this.term = term;
+      this.shard = shard;
+      this.document = document;
+      this.change = change;
+    }
+  }
+
+  /**
+   * Builds a Lucene index in three stages connected by bounded queues: reader threads iterate over file segments,
+   * generator threads turn source documents into Lucene documents, and writer threads add them to the index (which is
+   * where analysis takes place). Each stage has its own threads, so that I/O stalls or expensive parsing do not leave
+   * the other stages idle. The wait counters in {@link Counters} show which stage is the bottleneck.
+   */
+  private final class IndexingPipeline {
+    private final IndexWriter[] writers;
+    private final BlockingQueue<SourceDocument> sources;
+    private final BlockingQueue<PendingDocument> documents;
+
+    private IndexingPipeline(IndexWriter[] writers) {
+      this.writers = writers;
+      this.sources = new ArrayBlockingQueue<>(args.pipelineQueueSize);
+      this.documents = new ArrayBlockingQueue<>(args.pipelineQueueSize);
+    }
+
+    /**
+     * Indexes the given segments, returning once all stages have drained.
+     *
+     * @param splits segments to index
+     * @return number of segments that were completely read
+     */
+    private long run(List<FileSplit> splits) {
+      // Generators are instantiated up front: a generator thread that fails to start would stall the readers.
+      final List<LuceneDocumentGenerator> generators = new ArrayList<>();
+      for (int i = 0; i < args.pipelineGenerators; i++) {
+        try {
+          generators.add((LuceneDocumentGenerator)
+              generatorClass.getDeclaredConstructor(IndexArgs.class).newInstance(args));
+        } catch (ReflectiveOperationException e) {
+          throw new RuntimeException("Unable to instantiate generator " + generatorClass.getName(), e);
+        }
+      }
+
+      final ThreadPoolExecutor readerPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(args.pipelineReaders);
+      final ExecutorService generatorPool = Executors.newFixedThreadPool(args.pipelineGenerators);
+      final ExecutorService writerPool = Executors.newFixedThreadPool(args.pipelineWriters);
+      LOG.info(String.format("Pipeline with %d reader, %d generator and %d writer threads initialized; queue size %d.",
+          args.pipelineReaders, args.pipelineGenerators, args.pipelineWriters, args.pipelineQueueSize));
+
+      for (int i = 0; i < args.pipelineWriters; i++) {
+        writerPool.execute(this::write);
+      }
+      for (LuceneDocumentGenerator generator : generators) {
+        generatorPool.execute(() -> generate(generator));
+      }
+      final long start = System.nanoTime();
+      final long totalBytes = splits.stream().mapToLong(FileSplit::length).sum();
+      for (FileSplit split : splits) {
+        readerPool.execute(() -> countBytes(split, this::read));
+      }
+
+      try {
+        // Each stage is shut down after the one feeding it, with one end marker per consumer thread.
+        readerPool.shutdown();
+        while (!readerPool.awaitTermination(1, TimeUnit.MINUTES)) {
+          logProgress(start, totalBytes);
+        }
+        for (int i = 0; i < args.pipelineGenerators; i++) {
+          sources.put(END_OF_SOURCES);
+        }
+
+        generatorPool.shutdown();
+        while (!generatorPool.awaitTermination(1, TimeUnit.MINUTES)) {
+          logProgress(start, totalBytes);
+        }
+        for (int i = 0; i < args.pipelineWriters; i++) {
+          documents.put(PendingDocument.END);
+        }
+
+        writerPool.shutdown();
+        while (!writerPool.awaitTermination(1, TimeUnit.MINUTES)) {
+          logProgress(start, totalBytes);
+        }
+      } catch (InterruptedException ie) {
+        // (Re-)Cancel if current thread also interrupted
+        readerPool.shutdownNow();
+        generatorPool.shutdownNow();
+        writerPool.shutdownNow();
+        // Preserve interrupt status
+        Thread.currentThread().interrupt();
+      }
+
+      return readerPool.getCompletedTaskCount();
+    }
+
+    private void logProgress(long start, long totalBytes) {
+      LOG.info(String.format("%s; %,d read, %,d generated; queued %,d/%,d", progress(start, totalBytes),
+          counters.read.get(), counters.generated.get(), sources.size(), documents.size()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void read(FileSplit split) {
+      final Path inputFile = split.getPath();
+      FileSegment<SourceDocument> segment = null;
+      int cnt = 0;
+      int batch = 0;
+      long waitNanos = 0;
+
+      try {
+        segment = collection.createFileSegment(split);
+
+        for (SourceDocument d : segment) {
+          if (!d.indexable()) {
+            counters.unindexable.incrementAndGet();
+            continue;
+          }
+
+          // Used for indexing distinct shardCount of a collection
+          final int shard = route(d.id());
+          if (shard < 0) {
+            counters.skipped.incrementAndGet();
+            continue;
+          }
+
+          long t = System.nanoTime();
+          sources.put(d);
+          waitNanos += System.nanoTime() - t;
+          cnt++;
+          batch++;
+
+          if (batch % 10000 == 0) {
+            counters.read.addAndGet(batch);
+            counters.readerWaitNanos.addAndGet(waitNanos);
+            counters.sourceQueuePeak.accumulateAndGet(sources.size(), Math::max);
+            batch = 0;
+            waitNanos = 0;
+          }
+        }
+
+        int skipped = segment.getSkippedCount();
+        if (skipped > 0) {
+          counters.skipped.addAndGet(skipped);
+          LOG.warn(inputFile.getParent().getFileName().toString() + File.separator +
+              inputFile.getFileName().toString() + ": " + skipped + " docs skipped.");
+        }
+
+        if (segment.getErrorStatus()) {
+          counters.errors.incrementAndGet();
+          LOG.error(inputFile.getParent().getFileName().toString() + File.separator +
+              inputFile.getFileName().toString() + ": error iterating through segment.");
+        }
+
+        LOG.debug(inputFile.getParent().getFileName().toString() + File.separator +
+            inputFile.getFileName().toString() + ": " + cnt + " docs read.");
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (Exception e) {
+        LOG.error(split + ": Unexpected Exception:", e);
+      } finally {
+        counters.read.addAndGet(batch);
+        counters.readerWaitNanos.addAndGet(waitNanos);
+        if (segment != null) {
+          segment.close();
+        }
+      }
+    }
+
+    private void generate(LuceneDocumentGenerator generator) {
+      int batch = 0;
+      long waitNanos = 0;
+
+      try {
+        while (true) {
+          long t = System.nanoTime();
+          SourceDocument d = sources.take();
+          waitNanos += System.nanoTime() - t;
+          if (d == END_OF_SOURCES) {
+            break;
+          }
+          final int shard = route(d.id());
+
+          BytesRef hash = null;
+          ContentHashes.Change change = null;
+          if (contentHashes != null) {
+            hash = ContentHashes.hash(d);
+            change = contentHashes[shard].check(d.key(), hash);
+            if (change == ContentHashes.Change.UNCHANGED) {
+              counters.unchanged.incrementAndGet();
+              continue;
+            }
+          }
+
+          Document doc;
+          try {
+            doc = generator.createDocument(d);
+          } catch (EmptyDocumentException e1) {
+            counters.empty.incrementAndGet();
+            continue;
+          } catch (SkippedDocumentException e2) {
+            counters.skipped.incrementAndGet();
+            continue;
+          } catch (InvalidDocumentException e3) {
+            counters.errors.incrementAndGet();
+            continue;
+          } catch (GeneratorException e4) {
+            counters.errors.incrementAndGet();
+            LOG.error(Thread.currentThread().getName() + ": Error generating " + d.id() + ":", e4);
+            continue;
+          } catch (RuntimeException e4) {
+            // Unlike an indexer thread, a generator thread must survive a bad document, or the readers would stall.
+            counters.errors.incrementAndGet();
+            LOG.error(Thread.currentThread().getName() + ": Unexpected Exception generating " + d.id() + ":", e4);
+            continue;
+          }
+
+          if (whitelistDocids != null && !whitelistDocids.contains(d.id())) {
+            counters.skipped.incrementAndGet();
+            continue;
+          }
+
+          if (hash != null) {
+            doc.add(new BinaryDocValuesField(IndexArgs.CONTENT_HASH, hash));
+          }
+          addKey(d, doc);
+
+          t = System.nanoTime();
+          documents.put(new PendingDocument(d.id(), updateTerm(d), shard, doc, change));
+          waitNanos += System.nanoTime() - t;
+          batch++;
+
+          if (batch % 10000 == 0) {
+            counters.generated.addAndGet(batch);
+            counters.generatorWaitNanos.addAndGet(waitNanos);
+            counters.documentQueuePeak.accumulateAndGet(documents.size(), Math::max);
+            batch = 0;
+            waitNanos = 0;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        counters.generated.addAndGet(batch);
+        counters.generatorWaitNanos.addAndGet(waitNanos);
+      }
+    }
+
+    private void write() {
+      int batch = 0;
+      long waitNanos = 0;
+
+      try {
+        while (true) {
+          long t = System.nanoTime();
+          PendingDocument pending = documents.take();
+          waitNanos += System.nanoTime() - t;
+          if (pending == PendingDocument.END) {
+            break;
+          }
+
+          try {
+            if (args.uniqueDocid || pending.change == ContentHashes.Change.UPDATED) {
+              writers[pending.shard].updateDocument(pending.term, pending.document);
+            } else {
+              writers[pending.shard].addDocument(pending.document);
+            }
+            countChange(pending.change);
+            countShard(pending.shard);
+          } catch (IOException | RuntimeException e) {
+            // A writer thread must keep draining its queue, or the generators would stall.
+            counters.errors.incrementAndGet();
+            LOG.error(Thread.currentThread().getName() + ": Unexpected Exception indexing " + pending.id + ":", e);
+            continue;
+          }
+          batch++;
+
+          if (batch % 10000 == 0) {
+            counters.indexed.addAndGet(batch);
+            counters.writerWaitNanos.addAndGet(waitNanos);
+            batch = 0;
+            waitNanos = 0;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        counters.indexed.addAndGet(batch);
+        counters.writerWaitNanos.addAndGet(waitNanos);
+      }
+    }
   }
 
   private final class LocalIndexerThread extends Thread {
     final private Path inputFile;
-    final private IndexWriter writer;
+    final private FileSplit split;
+    final private IndexWriter[] writers;
     final private DocumentCollection collection;
     private FileSegment fileSegment;
 
-    private LocalIndexerThread(IndexWriter writer, DocumentCollection collection, Path inputFile) {
-      this.writer = writer;
+    private LocalIndexerThread(IndexWriter[] writers, DocumentCollection collection, FileSplit split) {
+      this.writers = writers;
       this.collection = collection;
-      this.inputFile = inputFile;
+      this.split = split;
+      this.inputFile = split.getPath();
       setName(inputFile.getFileName().toString());
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public void run() {
+      // Counts of this segment, other than the indexed count, are added to the global counters once the segment is
+      // done, so that a checkpoint can record them per segment.
+      final IndexingCheckpoint.SegmentCounts local = new IndexingCheckpoint.SegmentCounts();
       try {
         LuceneDocumentGenerator generator = (LuceneDocumentGenerator)
             generatorClass.getDeclaredConstructor(IndexArgs.class).newInstance(args);
@@ -165,21 +595,31 @@ public final class IndexCollection {
         int cnt = 0;
         int batch = 0;
 
-        FileSegment<SourceDocument> segment = collection.createFileSegment(inputFile);
+        FileSegment<SourceDocument> segment = collection.createFileSegment(split);
         // in order to call close() and clean up resources in case of exception
         this.fileSegment = segment;
 
         for (SourceDocument d : segment) {
           if (!d.indexable()) {
-            counters.unindexable.incrementAndGet();
+            local.unindexable++;
             continue;
           }
 
           // Used for indexing distinct shardCount of a collection
-          if (args.shardCount > 1) {
-            int hash = Hashing.sha1().hashString(d.id(), Charsets.UTF_8).asInt() % args.shardCount;
-            if (hash != args.shardCurrent) {
-              counters.skipped.incrementAndGet();
+          final int shard = route(d.id());
+          if (shard < 0) {
+            local.skipped++;
+            continue;
+          }
+
+          // In incremental mode, unchanged documents are left alone before paying for document generation.
+          BytesRef hash = null;
+          ContentHashes.Change change = null;
+          if (contentHashes != null) {
+            hash = ContentHashes.hash(d);
+            change = contentHashes[shard].check(d.key(), hash);
+            if (change == ContentHashes.Change.UNCHANGED) {
+              counters.unchanged.incrementAndGet();
               continue;
             }
           }
@@ -188,26 +628,35 @@ public final class IndexCollection {
           try {
             doc = generator.createDocument(d);
           } catch (EmptyDocumentException e1) {
-            counters.empty.incrementAndGet();
+            local.empty++;
             continue;
           } catch (SkippedDocumentException e2) {
-            counters.skipped.incrementAndGet();
+            local.skipped++;
             continue;
           } catch (InvalidDocumentException e3) {
-            counters.errors.incrementAndGet();
+            local.errors++;
             continue;
           }
 
           if (whitelistDocids != null && !whitelistDocids.contains(d.id())) {
-            counters.skipped.incrementAndGet();
+            local.skipped++;
             continue;
           }
 
-          if (args.uniqueDocid) {
-            writer.updateDocument(new Term("id", d.id()), doc);
+          if (hash != null) {
+            doc.add(new BinaryDocValuesField(IndexArgs.CONTENT_HASH, hash));
+          }
+          addKey(d, doc);
+
+          // A resumed run may re-index documents committed from a segment that was in flight when the last run died, or
+          // that failed part way through. They are replaced by key, which unlike the docid identifies a single document.
+          if (args.uniqueDocid || args.resume || change == ContentHashes.Change.UPDATED) {
+            writers[shard].updateDocument(updateTerm(d), doc);
           } else {
-            writer.addDocument(doc);
+            writers[shard].addDocument(doc);
           }
+          countChange(change);
+          countShard(shard);
           cnt++;
           batch++;
 
@@ -224,13 +673,13 @@ public final class IndexCollection {
         int skipped = segment.getSkippedCount();
         if (skipped > 0) {
           // When indexing tweets, this is normal, because there are delete messages that are skipped over.
-          counters.skipped.addAndGet(skipped);
+          local.skipped += skipped;
           LOG.warn(inputFile.getParent().getFileName().toString() + File.separator +
               inputFile.getFileName().toString() + ": " + skipped + " docs skipped.");
         }
 
         if (segment.getErrorStatus()) {
-          counters.errors.incrementAndGet();
+          local.errors++;
           LOG.error(inputFile.getParent().getFileName().toString() + File.separator +
               inputFile.getFileName().toString() + ": error iterating through segment.");
         }
@@ -238,9 +687,19 @@ public final class IndexCollection {
         // Log at the debug level because this can be quite noisy if there are lots of file segments.
         LOG.debug(inputFile.getParent().getFileName().toString() + File.separator +
             inputFile.getFileName().toString() + ": " + cnt + " docs added.");
+
+        // A segment that could not be read to the end is left out of the journal, so that a resumed run retries it.
+        if (checkpoint != null && !segment.getErrorStatus()) {
+          local.indexed = cnt;
+          checkpoint.segmentDone(split.toString(), local);
+        }
       } catch (Exception e) {
         LOG.error(Thread.currentThread().getName() + ": Unexpected Exception:", e);
       } finally {
+        counters.unindexable.addAndGet(local.unindexable);
+        counters.empty.addAndGet(local.empty);
+        counters.skipped.addAndGet(local.skipped);
+        counters.errors.addAndGet(local.errors);
         if (fileSegment != null) {
             fileSegment.close();
         }
@@ -250,12 +709,14 @@ public final class IndexCollection {
 
   private final class SolrIndexerThread implements Runnable {
     private final Path input;
+    private final FileSplit split;
     private final DocumentCollection collection;
     private final List<SolrInputDocument> buffer = new ArrayList<>(args.solrBatch);
     private FileSegment fileSegment;
 
-    private SolrIndexerThread(DocumentCollection collection, Path input) {
-      this.input = input;
+    private SolrIndexerThread(DocumentCollection collection, FileSplit split) {
+      this.split = split;
+      this.input = split.getPath();
       this.collection = collection;
     }
 
@@ -274,7 +735,7 @@ public final class IndexCollection {
         int batch = 0;
 
         @SuppressWarnings("unchecked")
-        FileSegment<SourceDocument> segment = (FileSegment) collection.createFileSegment(input);
+        FileSegment<SourceDocument> segment = (FileSegment) collection.createFileSegment(split);
         // in order to call close() and clean up resources in case of exception
         this.fileSegment = segment;
 
@@ -285,12 +746,9 @@ public final class IndexCollection {
           }
 
           // Used for indexing distinct shardCount of a collection
-          if (args.shardCount > 1) {
-            int hash = Hashing.sha1().hashString(sourceDocument.id(), Charsets.UTF_8).asInt() % args.shardCount;
-            if (hash != args.shardCurrent) {
-              counters.skipped.incrementAndGet();
-              continue;
-            }
+          if (route(sourceDocument.id()) < 0) {
+            counters.skipped.incrementAndGet();
+            continue;
           }
 
           Document document;
@@ -316,8 +774,8 @@ public final class IndexCollection {
 
           // Copy all Lucene Document fields to Solr document
           for (IndexableField field : document.getFields()) {
-            // Skip docValues fields - this is done via Solr config.
-            if (field.fieldType().docValuesType() != DocValuesType.NONE) {
+            // Skip docValues fields (this is done via Solr config) and duplicate points.
+            if (!isCopiedToExternalIndex(document, field)) {
               continue;
             }
             // If the field is already in the doc, skip it.
@@ -332,6 +790,13 @@ public final class IndexCollection {
             }
           }
 
+          if (solrUpdater != null) {
+            // The updater counts the documents as Solr accepts them.
+            solrUpdater.add(solrDocument);
+            cnt++;
+            continue;
+          }
+
           buffer.add(solrDocument);
           if (buffer.size() == args.solrBatch) {
             flush();
@@ -425,14 +890,14 @@ public final class IndexCollection {
 
   private final class ESIndexerThread implements Runnable {
     private final Path input;
+    private final FileSplit split;
     private final DocumentCollection collection;
-    private BulkRequest bulkRequest;
     private FileSegment fileSegment;
 
-    private ESIndexerThread(DocumentCollection collection, Path input) {
-      this.input = input;
+    private ESIndexerThread(DocumentCollection collection, FileSplit split) {
+      this.split = split;
+      this.input = split.getPath();
       this.collection = collection;
-      this.bulkRequest = new BulkRequest();
     }
 
     @Override
@@ -442,14 +907,10 @@ public final class IndexCollection {
         LuceneDocumentGenerator generator = (LuceneDocumentGenerator)
             generatorClass.getDeclaredConstructor(IndexArgs.class).newInstance(args);
 
-        // We keep track of two separate counts: the total count of documents in this file segment (cnt),
-        // and the number of documents in this current "batch" (batch). We update the global counter every
-        // 10k documents: this is so that we get intermediate updates, which is informative if a collection
-        // has only one file segment; see https://github.com/castorini/anserini/issues/683
+        // Documents are only counted as indexed once Elasticsearch acknowledges them; see ESBulkListener.
         int cnt = 0;
-        int batch = 0;
 
-        FileSegment<SourceDocument> segment = collection.createFileSegment(input);
+        FileSegment<SourceDocument> segment = collection.createFileSegment(split);
         // in order to call close() and clean up resources in case of exception
         this.fileSegment = segment;
 
@@ -460,12 +921,9 @@ public final class IndexCollection {
           }
 
           // Used for indexing distinct shardCount of a collection
-          if (args.shardCount > 1) {
-            int hash = Hashing.sha1().hashString(sourceDocument.id(), Charsets.UTF_8).asInt() % args.shardCount;
-            if (hash != args.shardCurrent) {
-              counters.skipped.incrementAndGet();
-              continue;
-            }
+          if (route(sourceDocument.id()) < 0) {
+            counters.skipped.incrementAndGet();
+            continue;
           }
 
           Document document;
@@ -494,19 +952,24 @@ public final class IndexCollection {
 
           for (String field : fields) {
 
-            // Skip docValues fields
-            if (document.getField(field).fieldType().docValuesType() != DocValuesType.NONE) continue;
-
-            // Get field objects for current field name (could be multiple, such as WaPo's fullCaption)
-            IndexableField[] indexableFields = document.getFields(field);
+            // Get field objects for current field name (could be multiple, such as WaPo's fullCaption), skipping
+            // docValues fields
+            List<IndexableField> indexableFields = new ArrayList<>();
+            for (IndexableField f : document.getFields(field)) {
+              if (isCopiedToExternalIndex(document, f)) {
+                indexableFields.add(f);
+              }
+            }
+            if (indexableFields.isEmpty()) continue;
 
-            if (field.equalsIgnoreCase("id") || indexableFields.length == 1) {
+            if (field.equalsIgnoreCase("id") || indexableFields.size() == 1) {
               // Single value fields or "id" field
-              Object value = document.getField(field).stringValue() != null ? document.getField(field).stringValue() : document.getField(field).numericValue();
+              IndexableField f = indexableFields.get(0);
+              Object value = f.stringValue() != null ? f.stringValue() : f.numericValue();
               builder.field(field, value);
             } else {
               // Multi-valued fields
-              Object[] values = Stream.of(indexableFields).map(f -> f.stringValue()).toArray();
+              Object[] values = indexableFields.stream().map(f -> f.stringValue()).toArray();
               builder.array(field, values);
             }
           }
@@ -514,31 +977,11 @@ public final class IndexCollection {
           builder.endObject();
 
           String indexName = (args.esIndex != null) ? args.esIndex : input.getFileName().toString();
-          bulkRequest.add(new IndexRequest(indexName).id(sourceDocument.id()).source(builder));
-
-          // sendBulkRequest when the batch size is reached OR the bulk size is reached
-          if (bulkRequest.numberOfActions() == args.esBatch || 
-              bulkRequest.estimatedSizeInBytes() >= args.esBulk) {
-            sendBulkRequest();
-          }
-
+          // Flushed when the batch size or the bulk size is reached; blocks while too many bulk requests are in flight.
+          esBulkProcessor.add(new IndexRequest(indexName).id(sourceDocument.id()).source(builder));
           cnt++;
-          batch++;
-
-          // And the counts from this batch, reset batch counter.
-          if (batch % 10000 == 0) {
-            counters.indexed.addAndGet(batch);
-            batch = 0;
-          }
         }
 
-        if (bulkRequest.numberOfActions() != 0) {
-          sendBulkRequest();
-        }
-
-        // Add the remaining documents.
-        counters.indexed.addAndGet(batch);
-
         int skipped = segment.getSkippedCount();
         if (skipped > 0) {
           // When indexing tweets, this is normal, because there are delete messages that are skipped over.
@@ -555,7 +998,7 @@ public final class IndexCollection {
 
         // Log at the debug level because this can be quite noisy if there are lots of file segments.
         LOG.debug(input.getParent().getFileName().toString() + File.separator +
-            input.getFileName().toString() + ": " + cnt + " docs added.");
+            input.getFileName().toString() + ": " + cnt + " docs sent.");
       } catch (Exception e) {
         LOG.error(Thread.currentThread().getName() + ": Unexpected Exception:", e);
       } finally {
@@ -564,62 +1007,88 @@ public final class IndexCollection {
         }
       }
     }
+  }
 
-    private void sendBulkRequest() {
-      if (bulkRequest.numberOfActions() == 0) {
-        return;
-      }
+  // Counts what actually landed in Elasticsearch. Items of a bulk request succeed or fail individually; items rejected
+  // because Elasticsearch was overloaded have already been retried with backoff by the bulk processor.
+  private final class ESBulkListener implements BulkProcessor.Listener {
+    private final AtomicLong loggedFailures = new AtomicLong();
+    // Documents in bulk requests sent but not completed, and requests still to complete.
+    private long pendingDocuments = 0;
+    private long pendingRequests = 0;
+    private boolean abandoned = false;
 
-      RestHighLevelClient esClient = null;
-      try {
-        esClient = esPool.borrowObject();
-        esClient.bulk(bulkRequest, RequestOptions.DEFAULT);
-        bulkRequest = new BulkRequest();
-      } catch (Exception e) {
-        LOG.error("Error sending bulk requests to Elasticsearch", e);
+    @Override
+    public synchronized void beforeBulk(long executionId, BulkRequest request) {
+      pendingDocuments += request.numberOfActions();
+      pendingRequests++;
+    }
 
-        // Log the 10 docs that have the largest sizes in this request
-        List<DocWriteRequest<?>> docs = bulkRequest.requests();
-        Collections.sort(docs, (d1, d2) -> ((IndexRequest) d2).source().length() - ((IndexRequest) d1).source().length());
+    // Counts the documents of the bulk requests that never completed as errors, and ignores them from now on.
+    private synchronized void abandon() {
+      if (pendingRequests > 0) {
+        LOG.error(String.format("%,d bulk requests (%,d documents) to Elasticsearch did not complete",
+            pendingRequests, pendingDocuments));
+      }
+      counters.errors.addAndGet(pendingDocuments);
+      abandoned = true;
+    }
 
-        LOG.info("Error sending bulkRequest. The 10 largest docs in this request are the following cord_uid: ");
-        for (int i = 0; i < 10; i++) {
-          IndexRequest doc = (IndexRequest) docs.get(i);
-          LOG.info(doc.id()); 
-        }
-      } finally {
-        if (esClient != null) {
-          try {
-            esPool.returnObject(esClient);
-          } catch (Exception e) {
-            LOG.error("Error returning ES client to pool", e);
+    @Override
+    public synchronized void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+      if (abandoned) {
+        return;
+      }
+      pendingDocuments -= request.numberOfActions();
+      pendingRequests--;
+      long failed = 0;
+      for (BulkItemResponse item : response) {
+        if (item.isFailed()) {
+          failed++;
+          // Log the first few failures only; they tend to share a cause.
+          if (loggedFailures.getAndIncrement() < 10) {
+            LOG.warn("Error indexing " + item.getId() + " into Elasticsearch: " + item.getFailureMessage());
           }
         }
       }
+      counters.indexed.addAndGet(response.getItems().length - failed);
+      counters.errors.addAndGet(failed);
     }
-  }
 
-  private class ESClientFactory extends BasePooledObjectFactory<RestHighLevelClient> {
     @Override
-    public RestHighLevelClient create() {
-      final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
-      credentialsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(args.esUser, args.esPassword));
-      return new RestHighLevelClient(
-          RestClient.builder(new HttpHost(args.esHostname, args.esPort, "http"))
-              .setHttpClientConfigCallback(builder -> builder.setDefaultCredentialsProvider(credentialsProvider))
-              .setRequestConfigCallback(builder -> builder.setConnectTimeout(args.esConnectTimeout).setSocketTimeout(args.esSocketTimeout))
-      );
+    public synchronized void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+      if (abandoned) {
+        return;
+      }
+      pendingDocuments -= request.numberOfActions();
+      pendingRequests--;
+      counters.errors.addAndGet(request.numberOfActions());
+      LOG.error("Error sending bulk request of " + request.numberOfActions() + " documents to Elasticsearch", failure);
     }
+  }
 
-    @Override
-    public PooledObject<RestHighLevelClient> wrap(RestHighLevelClient esClient) {
-      return new DefaultPooledObject<>(esClient);
-    }
+  private RestHighLevelClient createESClient() {
+    final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+    credentialsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(args.esUser, args.esPassword));
+    return new RestHighLevelClient(
+        RestClient.builder(new HttpHost(args.esHostname, args.esPort, "http"))
+            .setHttpClientConfigCallback(builder -> builder.setDefaultCredentialsProvider(credentialsProvider)
+                .setMaxConnTotal(args.esPoolSize).setMaxConnPerRoute(args.esPoolSize))
+            .setRequestConfigCallback(builder -> builder.setConnectTimeout(args.esConnectTimeout).setSocketTimeout(args.esSocketTimeout))
+    );
+  }
 
-    @Override
-    public void destroyObject(PooledObject<RestHighLevelClient> pooled) throws Exception {
-      pooled.getObject().close();
-    }
+  // Sends bulk requests asynchronously: at most -es.concurrentRequests requests are in flight, and items rejected
+  // because Elasticsearch is overloaded are retried with exponential backoff.
+  private BulkProcessor createESBulkProcessor(RestHighLevelClient client) {
+    return BulkProcessor.builder(
+        (request, listener) -> client.bulkAsync(request, RequestOptions.DEFAULT, listener), esBulkListener)
+        .setBulkActions(args.esBatch)
+        .setBulkSize(new ByteSizeValue(args.esBulk, ByteSizeUnit.BYTES))
+        .setConcurrentRequests(args.esConcurrentRequests)
+        .setBackoffPolicy(
+            BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(args.esBackoff), args.esMaxRetries))
+        .build();
   }
 
   private final IndexArgs args;
@@ -629,9 +1098,15 @@ public final class IndexCollection {
   private final Class generatorClass;
   private final DocumentCollection collection;
   private final Counters counters;
+  private final Sort indexSort;
   private Path indexPath;
+  private ContentHashes[] contentHashes;
+  private IndexingCheckpoint checkpoint;
   private ObjectPool<SolrClient> solrPool;
-  private ObjectPool<RestHighLevelClient> esPool;
+  private StreamingSolrUpdater solrUpdater;
+  private RestHighLevelClient esClient;
+  private BulkProcessor esBulkProcessor;
+  private final ESBulkListener esBulkListener = new ESBulkListener();
 
   @SuppressWarnings("unchecked")
   public IndexCollection(IndexArgs args) throws Exception {
@@ -664,7 +1139,26 @@ public final class IndexCollection {
     LOG.info("Store document \"contents\" field? " + args.storeContents);
     LOG.info("Store document \"raw\" field? " + args.storeRaw);
     LOG.info("Optimize (merge segments)? " + args.optimize);
+    LOG.info("Split size (in MB): " + (args.splitSize > 0 ? args.splitSize : "no splitting"));
     LOG.info("Whitelist: " + args.whitelist);
+    LOG.info("Index sort: " + (args.indexSort != null ? args.indexSort : "none"));
+    LOG.info("Incremental? " + args.incremental);
+    if (args.checkpoint || args.resume) {
+      LOG.info("Checkpoint every (in minutes): " + args.checkpointMinutes);
+      LOG.info("Resume? " + args.resume);
+    }
+    if (args.shardCount > 1) {
+      LOG.info("Shards: " + (args.shardCurrent < 0 ? "all " + args.shardCount + " in one pass" :
+          args.shardCurrent + " of " + args.shardCount));
+    }
+    if (args.pipeline) {
+      LOG.info("Pipeline (readers/generators/writers): " + args.pipelineReaders + "/" + args.pipelineGenerators + "/" +
+          args.pipelineWriters);
+      LOG.info("Pipeline queue size: " + args.pipelineQueueSize);
+    }
+    if (args.grdcReportIndex != null) {
+      LOG.info("GRDC report index: " + args.grdcReportIndex);
+    }
 
     if (args.solr) {
       LOG.info("Indexing into Solr...");
@@ -673,6 +1167,9 @@ public final class IndexCollection {
       LOG.info("Solr index: " + args.solrIndex);
       LOG.info("Solr ZooKeeper URL: " + args.zkUrl);
       LOG.info("SolrClient pool size: " + args.solrPoolSize);
+      if (args.solrStreaming) {
+        LOG.info("Solr streaming (queue size/threads per shard): " + args.solrQueueSize + "/" + args.solrThreads);
+      }
     } else if (args.es) {
       LOG.info("Indexing into Elasticsearch...");
       LOG.info("Elasticsearch batch size: " + args.esBatch);
@@ -681,7 +1178,9 @@ public final class IndexCollection {
       LOG.info("Elasticsearch host port: " + args.esPort);
       LOG.info("Elasticsearch client connect timeout (in ms): " + args.esConnectTimeout);
       LOG.info("Elasticsearch client socket timeout (in ms): " + args.esSocketTimeout);
-      LOG.info("Elasticsearch pool size: " + args.esPoolSize);
+      LOG.info("Elasticsearch client pool size: " + args.esPoolSize);
+      LOG.info("Elasticsearch bulk requests in flight: " + args.esConcurrentRequests);
+      LOG.info("Elasticsearch retries of rejected documents: " + args.esMaxRetries);
       LOG.info("Elasticsearch user: " + args.esUser);
     } else {
       LOG.info("Directly building Lucene indexes...");
@@ -692,6 +1191,32 @@ public final class IndexCollection {
       throw new IllegalArgumentException("Must specify one of -index, -solr, or -es");
     }
 
+    if (args.solrStreaming && !args.solr) {
+      throw new IllegalArgumentException("-solr.streaming requires -solr");
+    }
+
+    if (args.incremental && (args.solr || args.es)) {
+      throw new IllegalArgumentException("-incremental is only supported when building Lucene indexes with -index");
+    }
+
+    if (args.shardCount > 1 && args.shardCurrent < 0 && (args.solr || args.es)) {
+      throw new IllegalArgumentException("Building all shards in one pass (-shard.count without -shard.current) " +
+          "is only supported when building Lucene indexes with -index");
+    }
+
+    if ((args.checkpoint || args.resume) && (args.index == null || args.pipeline || args.incremental)) {
+      throw new IllegalArgumentException("-checkpoint and -resume are only supported when building Lucene indexes " +
+          "with -index, without -pipeline or -incremental");
+    }
+
+    if (args.pipeline && (args.solr || args.es)) {
+      throw new IllegalArgumentException("-pipeline is only supported when building Lucene indexes with -index");
+    }
+
+    if (args.indexSort != null && (args.solr || args.es)) {
+      throw new IllegalArgumentException("-indexSort is only supported when building Lucene indexes with -index");
+    }
+
     if (args.index != null) {
       this.indexPath = Paths.get(args.index);
       if (!Files.exists(this.indexPath)) {
@@ -707,6 +1232,13 @@ public final class IndexCollection {
     this.generatorClass = Class.forName("io.anserini.index.generator." + args.generatorClass);
     this.collectionClass = Class.forName("io.anserini.collection." + args.collectionClass);
 
+    if (args.indexSort != null) {
+      this.indexSort = parseIndexSort(args.indexSort,
+          (LuceneDocumentGenerator) generatorClass.getDeclaredConstructor(IndexArgs.class).newInstance(args));
+    } else {
+      this.indexSort = null;
+    }
+
     // Initialize the collection.
     collection = (DocumentCollection) this.collectionClass.getConstructor(Path.class).newInstance(collectionPath);
 
@@ -722,11 +1254,13 @@ public final class IndexCollection {
       config.setMaxTotal(args.solrPoolSize);
       config.setMinIdle(args.solrPoolSize); // To guard against premature discarding of solrClients
       this.solrPool = new GenericObjectPool<>(new SolrClientFactory(), config);
+      if (args.solrStreaming) {
+        this.solrUpdater = StreamingSolrUpdater.forCloud(Splitter.on(',').splitToList(args.zkUrl), args.zkChroot,
+            args.solrIndex, TIMEOUT, args.solrQueueSize, args.solrThreads, args.solrBatch, args.solrCommitWithin * 1000);
+      }
     } else if (args.es) {
-      GenericObjectPoolConfig<RestHighLevelClient> config = new GenericObjectPoolConfig<>();
-      config.setMaxTotal(args.esPoolSize);
-      config.setMinIdle(args.esPoolSize);
-      this.esPool = new GenericObjectPool<>(new ESClientFactory(), config);
+      this.esClient = createESClient();
+      this.esBulkProcessor = createESBulkProcessor(esClient);
     }
 
     this.counters = new Counters();
@@ -737,112 +1271,178 @@ public final class IndexCollection {
     LOG.info("============ Indexing Collection ============");
 
     int numThreads = args.threads;
-    IndexWriter writer = null;
+    IndexWriter[] writers = null;
 
     // Used for LocalIndexThread
     if (indexPath != null) {
-      final Directory dir = FSDirectory.open(indexPath);
-      final CJKAnalyzer chineseAnalyzer = new CJKAnalyzer();
-      final ArabicAnalyzer arabicAnalyzer = new ArabicAnalyzer();
-      final FrenchAnalyzer frenchAnalyzer = new FrenchAnalyzer();
-      final HindiAnalyzer hindiAnalyzer = new HindiAnalyzer();
-      final BengaliAnalyzer bengaliAnalyzer = new BengaliAnalyzer();
-      final GermanAnalyzer germanAnalyzer = new GermanAnalyzer();
-      final SpanishAnalyzer spanishAnalyzer = new SpanishAnalyzer();
-      final DefaultEnglishAnalyzer analyzer;
-      if (args.keepStopwords) {
-        analyzer = DefaultEnglishAnalyzer.newStemmingInstance(args.stemmer, CharArraySet.EMPTY_SET);
-      } else if (args.stopwords != null) {
-        final List<String> stopWords = FileUtils.readLines(new File(args.stopwords), "utf-8");
-        final CharArraySet stopWordsSet = new CharArraySet(stopWords, false);
-        analyzer = DefaultEnglishAnalyzer.newStemmingInstance(args.stemmer, CharArraySet.unmodifiableSet(stopWordsSet));
-      } else {
-        analyzer = DefaultEnglishAnalyzer.newStemmingInstance(args.stemmer);
-      }
-      final TweetAnalyzer tweetAnalyzer = new TweetAnalyzer(args.tweetStemming);
-
-      final IndexWriterConfig config;
-      if (args.collectionClass.equals("TweetCollection")) {
-        config = new IndexWriterConfig(tweetAnalyzer);
-      } else if (args.language.equals("zh")) {
-        config = new IndexWriterConfig(chineseAnalyzer);
-      } else if (args.language.equals("ar")) {
-        config = new IndexWriterConfig(arabicAnalyzer);
-      } else if (args.language.equals("fr")) {
-        config = new IndexWriterConfig(frenchAnalyzer);
-      } else if (args.language.equals("hi")) {
-        config = new IndexWriterConfig(hindiAnalyzer);
-      } else if (args.language.equals("bn")) {
-        config = new IndexWriterConfig(bengaliAnalyzer);
-      } else if (args.language.equals("de")) {
-        config = new IndexWriterConfig(germanAnalyzer);
-      } else if (args.language.equals("es")) {
-        config = new IndexWriterConfig(spanishAnalyzer);
-      } else {
-        config = new IndexWriterConfig(analyzer);
+      // With -shard.count but no -shard.current, all shards are built in one pass, each in its own subdirectory.
+      final int numWriters = args.shardCount > 1 && args.shardCurrent < 0 ? args.shardCount : 1;
+      writers = new IndexWriter[numWriters];
+      if (args.incremental) {
+        contentHashes = new ContentHashes[numWriters];
       }
-      if (args.bm25Accurate) {
-        config.setSimilarity(new AccurateBM25Similarity()); // necessary during indexing as the norm used in BM25 is already determined at index time.
-      } else {
-        config.setSimilarity(new BM25Similarity());
+
+      for (int i = 0; i < numWriters; i++) {
+        final Path path = numWriters == 1 ? indexPath : indexPath.resolve("shard" + i);
+        Files.createDirectories(path);
+        // The shards share the memory budget of a single writer.
+        writers[i] = new IndexWriter(FSDirectory.open(path),
+            createIndexWriterConfig((double) args.memorybufferSize / numWriters));
+
+        if (args.incremental) {
+          contentHashes[i] = ContentHashes.load(writers[i]);
+          LOG.info(String.format("%,d documents in existing index %s", contentHashes[i].size(), path));
+        }
       }
-      config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
-      config.setRAMBufferSizeMB(args.memorybufferSize);
-      config.setUseCompoundFile(false);
-      config.setMergeScheduler(new ConcurrentMergeScheduler());
 
-      writer = new IndexWriter(dir, config);
+      if (args.checkpoint || args.resume) {
+        checkpoint = new IndexingCheckpoint(IndexingCheckpoint.pathFor(indexPath), args.resume, writers,
+            args.checkpointMinutes);
+      }
     }
 
-    final ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(numThreads);
-    LOG.info("Thread pool with " + numThreads + " threads initialized.");
-
     LOG.info("Initializing collection in " + collectionPath.toString());
     final List segmentPaths = collection.getSegmentPaths();
-    final int segmentCnt = segmentPaths.size();
-    LOG.info(String.format("%,d %s found", segmentCnt, (segmentCnt == 1 ? "file" : "files" )));
-    LOG.info("Starting to index...");
-
-    for (int i = 0; i < segmentCnt; i++) {
-      if (args.solr) {
-        executor.execute(new SolrIndexerThread(collection, (Path) segmentPaths.get(i)));
-      } else if (args.es) {
-        executor.execute(new ESIndexerThread(collection, (Path) segmentPaths.get(i)));
+    LOG.info(String.format("%,d %s found", segmentPaths.size(), (segmentPaths.size() == 1 ? "file" : "files" )));
+
+    // Large files that hold one document per line are split into line-aligned byte ranges, so that all threads can
+    // share the work even if the collection comprises only a few huge files. Compressed files are read whole; they are
+    // decompressed in parallel instead (see CompressedFiles).
+    final List<FileSplit> splits = new ArrayList<>();
+    for (Object segmentPath : segmentPaths) {
+      Path path = (Path) segmentPath;
+      if (args.splitSize > 0 && collection.isSplittable(path) && !CompressedFiles.isCompressed(path)) {
+        splits.addAll(FileSplit.split(path, args.splitSize * 1024L * 1024L));
       } else {
-        executor.execute(new LocalIndexerThread(writer, collection, (Path) segmentPaths.get(i)));
+        splits.add(FileSplit.wholeFile(path));
       }
     }
+    if (splits.size() != segmentPaths.size()) {
+      LOG.info(String.format("Files split into %,d segments", splits.size()));
+    }
+
+    if (checkpoint != null && checkpoint.completedCount() > 0) {
+      splits.removeIf(split -> checkpoint.isCompleted(split.toString()));
+      IndexingCheckpoint.SegmentCounts previous = checkpoint.completedTotals();
+      counters.indexed.addAndGet(previous.indexed);
+      counters.unindexable.addAndGet(previous.unindexable);
+      counters.empty.addAndGet(previous.empty);
+      counters.skipped.addAndGet(previous.skipped);
+      counters.errors.addAndGet(previous.errors);
+      LOG.info(String.format("Resuming: %,d segments (%,d documents) already committed, %,d segments left",
+          checkpoint.completedCount(), previous.indexed, splits.size()));
+    }
+    // Largest segments first (longest-processing-time-first scheduling): a large segment started last would leave a
+    // single thread running alone at the end.
+    splits.sort(Comparator.comparingLong(FileSplit::length).reversed());
+    final int segmentCnt = splits.size();
+    final long totalBytes = splits.stream().mapToLong(FileSplit::length).sum();
+    LOG.info(String.format("%,d segments to index, %s in total", segmentCnt,
+        FileUtils.byteCountToDisplaySize(totalBytes)));
+
+    final long completedTaskCount;
+    if (args.pipeline) {
+      LOG.info("Starting to index...");
+      completedTaskCount = new IndexingPipeline(writers).run(splits);
+    } else {
+      final ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(numThreads);
+      LOG.info("Thread pool with " + numThreads + " threads initialized.");
+      LOG.info("Starting to index...");
+
+      final long indexingStart = System.nanoTime();
+      for (FileSplit split : splits) {
+        executor.execute(() -> countBytes(split, s -> {
+          final Runnable task;
+          if (args.solr) {
+            task = new SolrIndexerThread(collection, s);
+          } else if (args.es) {
+            task = new ESIndexerThread(collection, s);
+          } else {
+            task = new LocalIndexerThread(writers, collection, s);
+          }
+          task.run();
+        }));
+      }
 
-    executor.shutdown();
+      executor.shutdown();
 
-    try {
-      // Wait for existing tasks to terminate
-      while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
-        if (segmentCnt == 1) {
-          LOG.info(String.format("%,d documents indexed", counters.indexed.get()));
-        } else {
-          LOG.info(String.format("%.2f%% of files completed, %,d documents indexed",
-              (double) executor.getCompletedTaskCount() / segmentCnt * 100.0d, counters.indexed.get()));
+      try {
+        // Wait for existing tasks to terminate
+        while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+          LOG.info(progress(indexingStart, totalBytes));
         }
+      } catch (InterruptedException ie) {
+        // (Re-)Cancel if current thread also interrupted
+        executor.shutdownNow();
+        // Preserve interrupt status
+        Thread.currentThread().interrupt();
       }
-    } catch (InterruptedException ie) {
-      // (Re-)Cancel if current thread also interrupted
-      executor.shutdownNow();
-      // Preserve interrupt status
-      Thread.currentThread().interrupt();
+      completedTaskCount = executor.getCompletedTaskCount();
     }
 
-    if (segmentCnt != executor.getCompletedTaskCount()) {
+    if (segmentCnt != completedTaskCount) {
       throw new RuntimeException("totalFiles = " + segmentCnt +
-          " is not equal to completedTaskCount =  " + executor.getCompletedTaskCount());
+          " is not equal to completedTaskCount =  " + completedTaskCount);
     }
 
-    long numIndexed;
+    if (args.es) {
+      // Wait for the bulk requests still in flight (including retries), so that the counters are final. Those that do
+      // not complete in time are reported and counted as errors.
+      try {
+        if (!esBulkProcessor.awaitClose(args.esCloseTimeout > 0 ? args.esCloseTimeout : Long.MAX_VALUE,
+            TimeUnit.MILLISECONDS)) {
+          LOG.error("Timed out waiting for bulk requests to Elasticsearch to complete");
+        }
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+      esBulkListener.abandon();
+      esClient.close();
+    }
+
+    if (solrUpdater != null) {
+      // Send the documents still queued, so that the counters are final.
+      solrUpdater.close();
+      counters.indexed.addAndGet(solrUpdater.getIndexed());
+      counters.errors.addAndGet(solrUpdater.getErrors());
+    }
+
+    if (checkpoint != null) {
+      // Record the remaining segments, so that resuming a completed run is a no-op.
+      checkpoint.commit();
+      checkpoint.close();
+    }
 
-    if (args.solr || args.es) {
+    if (contentHashes != null) {
+      // A segment that failed part way through would make its remaining documents look deleted.
+      if (counters.errors.get() > 0) {
+        LOG.warn("Errors encountered; not deleting documents missing from the collection.");
+      } else {
+        for (int i = 0; i < writers.length; i++) {
+          counters.deleted.addAndGet(contentHashes[i].deleteUnseen(writers[i]));
+        }
+        if (args.grdcReportIndex != null) {
+          // The passages just deleted may have been the last ones of their reports.
+          DirectoryReader[] readers = new DirectoryReader[writers.length];
+          for (int i = 0; i < writers.length; i++) {
+            readers[i] = DirectoryReader.open(writers[i]);
+          }
+          try (MultiReader passages = new MultiReader(readers)) {
+            LOG.info(String.format("%,d reports without passages deleted from the report store",
+                GRDCReportStore.deleteOrphans(passages)));
+          }
+        }
+      }
+    }
+
+    long numIndexed = 0;
+
+    if (args.solr || args.es || args.incremental || args.resume) {
       numIndexed = counters.indexed.get();
     } else {
-      numIndexed = writer.getDocStats().maxDoc;
+      for (IndexWriter writer : writers) {
+        numIndexed += writer.getDocStats().maxDoc;
+      }
     }
 
     // Do a final commit
@@ -858,29 +1458,29 @@ public final class IndexCollection {
       }
     }
 
-    if (args.es) {
-      esPool.close();
-    }
-
-    try {
-      if (writer != null) {
-        writer.commit();
-        if (args.optimize) {
-          writer.forceMerge(1);
-        }
-      }
-    } finally {
-      try {
-        if (writer != null) {
-          writer.close();
+    if (writers != null) {
+      for (IndexWriter writer : writers) {
+        try {
+          writer.commit();
+          if (args.optimize) {
+            writer.forceMerge(1);
+          }
+        } finally {
+          try {
+            writer.close();
+          } catch (IOException e) {
+            // It is possible that this happens... but nothing much we can do at this point,
+            // so just log the error and move on.
+            LOG.error(e);
+          }
         }
-      } catch (IOException e) {
-        // It is possible that this happens... but nothing much we can do at this point,
-        // so just log the error and move on.
-        LOG.error(e);
       }
     }
 
+    if (args.grdcReportIndex != null) {
+      GRDCReportStore.closeAll();
+    }
+
     if (numIndexed != counters.indexed.get()) {
       LOG.warn("Unexpected difference between number of indexed documents and index maxDoc.");
     }
@@ -892,6 +1492,38 @@ public final class IndexCollection {
     LOG.info(String.format("empty:       %,12d", counters.empty.get()));
     LOG.info(String.format("skipped:     %,12d", counters.skipped.get()));
     LOG.info(String.format("errors:      %,12d", counters.errors.get()));
+    if (args.incremental) {
+      LOG.info("============ Changes to Existing Index ============");
+      LOG.info(String.format("added:       %,12d", counters.added.get()));
+      LOG.info(String.format("updated:     %,12d", counters.updated.get()));
+      LOG.info(String.format("deleted:     %,12d", counters.deleted.get()));
+      LOG.info(String.format("unchanged:   %,12d", counters.unchanged.get()));
+    }
+    if (writers != null && writers.length > 1) {
+      LOG.info("============ Documents per Shard ============");
+      for (int i = 0; i < writers.length; i++) {
+        LOG.info(String.format("shard%-6d %,12d", i, counters.shardIndexed.get(i)));
+      }
+    }
+    if (args.pipeline) {
+      LOG.info("============ Pipeline Stages ============");
+      LOG.info(String.format("read:        %,12d (readers waited %s)", counters.read.get(),
+          formatNanos(counters.readerWaitNanos.get())));
+      LOG.info(String.format("generated:   %,12d (generators waited %s)", counters.generated.get(),
+          formatNanos(counters.generatorWaitNanos.get())));
+      LOG.info(String.format("indexed:     %,12d (writers waited %s)", counters.indexed.get(),
+          formatNanos(counters.writerWaitNanos.get())));
+      LOG.info(String.format("queue peaks: %,12d / %,d of %,d", counters.sourceQueuePeak.get(),
+          counters.documentQueuePeak.get(), args.pipelineQueueSize));
+    }
+
+    if (writers != null && writers.length > 1) {
+      for (int i = 0; i < writers.length; i++) {
+        logIndexSize(indexPath.resolve("shard" + i));
+      }
+    } else if (indexPath != null) {
+      logIndexSize(indexPath);
+    }
 
     final long durationMillis = TimeUnit.MILLISECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS);
     LOG.info(String.format("Total %,d documents indexed in %s", numIndexed,
@@ -900,6 +1532,253 @@ public final class IndexCollection {
     return counters;
   }
 
+  // Creates the configuration of an index writer; each writer needs its own.
+  private IndexWriterConfig createIndexWriterConfig(double ramBufferSizeMB) throws IOException {
+    final CJKAnalyzer chineseAnalyzer = new CJKAnalyzer();
+    final ArabicAnalyzer arabicAnalyzer = new ArabicAnalyzer();
+    final FrenchAnalyzer frenchAnalyzer = new FrenchAnalyzer();
+    final HindiAnalyzer hindiAnalyzer = new HindiAnalyzer();
+    final BengaliAnalyzer bengaliAnalyzer = new BengaliAnalyzer();
+    final GermanAnalyzer germanAnalyzer = new GermanAnalyzer();
+    final SpanishAnalyzer spanishAnalyzer = new SpanishAnalyzer();
+    final DefaultEnglishAnalyzer analyzer;
+    if (args.keepStopwords) {
+      analyzer = DefaultEnglishAnalyzer.newStemmingInstance(args.stemmer, CharArraySet.EMPTY_SET);
+    } else if (args.stopwords != null) {
+      final List<String> stopWords = FileUtils.readLines(new File(args.stopwords), "utf-8");
+      final CharArraySet stopWordsSet = new CharArraySet(stopWords, false);
+      analyzer = DefaultEnglishAnalyzer.newStemmingInstance(args.stemmer, CharArraySet.unmodifiableSet(stopWordsSet));
+    } else {
+      analyzer = DefaultEnglishAnalyzer.newStemmingInstance(args.stemmer);
+    }
+    final TweetAnalyzer tweetAnalyzer = new TweetAnalyzer(args.tweetStemming);
+
+    final IndexWriterConfig config;
+    if (args.collectionClass.equals("TweetCollection")) {
+      config = new IndexWriterConfig(tweetAnalyzer);
+    } else if (args.language.equals("zh")) {
+      config = new IndexWriterConfig(chineseAnalyzer);
+    } else if (args.language.equals("ar")) {
+      config = new IndexWriterConfig(arabicAnalyzer);
+    } else if (args.language.equals("fr")) {
+      config = new IndexWriterConfig(frenchAnalyzer);
+    } else if (args.language.equals("hi")) {
+      config = new IndexWriterConfig(hindiAnalyzer);
+    } else if (args.language.equals("bn")) {
+      config = new IndexWriterConfig(bengaliAnalyzer);
+    } else if (args.language.equals("de")) {
+      config = new IndexWriterConfig(germanAnalyzer);
+    } else if (args.language.equals("es")) {
+      config = new IndexWriterConfig(spanishAnalyzer);
+    } else {
+      config = new IndexWriterConfig(analyzer);
+    }
+    if (args.bm25Accurate) {
+      config.setSimilarity(new AccurateBM25Similarity()); // necessary during indexing as the norm used in BM25 is already determined at index time.
+    } else {
+      config.setSimilarity(new BM25Similarity());
+    }
+    config.setOpenMode(args.incremental || args.resume ? IndexWriterConfig.OpenMode.CREATE_OR_APPEND :
+        IndexWriterConfig.OpenMode.CREATE);
+    config.setRAMBufferSizeMB(ramBufferSizeMB);
+    config.setUseCompoundFile(false);
+    config.setMergeScheduler(new ConcurrentMergeScheduler());
+    if (indexSort != null) {
+      config.setIndexSort(indexSort);
+    }
+
+    return config;
+  }
+
+  /**
+   * Parses the value of {@code -indexSort}: a comma-separated list of fields, each optionally followed by
+   * {@code :asc} or {@code :desc}. Documents without a value for a field sort after all others, in either direction.
+   *
+   * @param spec sort specification, e.g., "report_id,passage_position" or "publish_date:desc"
+   * @param generator generator of the documents, which must support sorting on the fields
+   * @return index sort
+   */
+  public static Sort parseIndexSort(String spec, LuceneDocumentGenerator generator) {
+    List<SortField> sortFields = new ArrayList<>();
+    for (String s : Splitter.on(',').trimResults().omitEmptyStrings().split(spec)) {
+      List<String> parts = Splitter.on(':').trimResults().splitToList(s);
+      String field = parts.get(0);
+      boolean reverse = false;
+      if (parts.size() == 2 && (parts.get(1).equals("asc") || parts.get(1).equals("desc"))) {
+        reverse = parts.get(1).equals("desc");
+      } else if (parts.size() != 1) {
+        throw new IllegalArgumentException("Invalid -indexSort field \"" + s + "\", expected <field>[:asc|:desc]");
+      }
+
+      SortField.Type type = generator.sortFieldType(field);
+      if (type == SortField.Type.STRING) {
+        SortField sortField = new SortField(field, type, reverse);
+        sortField.setMissingValue(reverse ? SortField.STRING_FIRST : SortField.STRING_LAST);
+        sortFields.add(sortField);
+      } else if (type == SortField.Type.LONG) {
+        SortField sortField = new SortField(field, type, reverse);
+        sortField.setMissingValue(reverse ? Long.MIN_VALUE : Long.MAX_VALUE);
+        sortFields.add(sortField);
+      } else {
+        throw new IllegalArgumentException("Generator " + generator.getClass().getSimpleName() +
+            " does not support sorting the index on field \"" + field + "\"");
+      }
+    }
+
+    if (sortFields.isEmpty()) {
+      throw new IllegalArgumentException("Empty -indexSort");
+    }
+    return new Sort(sortFields.toArray(new SortField[0]));
+  }
+
+  // Returns whether a field is sent to Solr or Elasticsearch. Doc values fields are not, and neither are points that
+  // only index a value the document also holds in an ordinary field of the same name (e.g., the LongPoint next to the
+  // stored copy of a date), so that such values are not sent twice.
+  private static boolean isCopiedToExternalIndex(Document document, IndexableField field) {
+    if (field.fieldType().docValuesType() != DocValuesType.NONE) {
+      return false;
+    }
+    if (field.fieldType().pointDimensionCount() == 0 || field.fieldType().stored()) {
+      return true;
+    }
+    for (IndexableField other : document.getFields(field.name())) {
+      if (other.fieldType().pointDimensionCount() == 0 && other.fieldType().docValuesType() == DocValuesType.NONE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the shard a document belongs to when a collection is partitioned into shards. The shard only depends on
+   * the docid, so that a document lands in the same shard whether shards are built one at a time or in one pass.
+   *
+   * @param docid docid
+   * @param shardCount number of shards
+   * @return shard number, between 0 (inclusive) and {@code shardCount} (exclusive)
+   */
+  public static int shardOf(String docid, int shardCount) {
+    // String.hashCode is fixed by the language spec, so it is stable across runs; the murmur3 finalizer spreads it.
+    int h = docid.hashCode();
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return Math.floorMod(h, shardCount);
+  }
+
+  // Returns the index of the writer a document goes to, or -1 if it belongs to a shard not built by this run.
+  private int route(String docid) {
+    if (args.shardCount <= 1) {
+      return 0;
+    }
+    int shard = shardOf(docid, args.shardCount);
+    if (args.shardCurrent >= 0) {
+      return shard == args.shardCurrent ? 0 : -1;
+    }
+    return shard;
+  }
+
+  // Counts a document written to a shard, when all shards are built in one pass.
+  private void countShard(int shard) {
+    if (args.shardCount > 1 && args.shardCurrent < 0) {
+      counters.shardIndexed.incrementAndGet(shard);
+    }
+  }
+
+  // Returns the term on which a document replaces its indexed version: the docid with -uniqueDocid, which keeps one
+  // document per docid, and the key otherwise.
+  private Term updateTerm(SourceDocument d) {
+    return args.uniqueDocid ? new Term(IndexArgs.ID, d.id()) : ContentHashes.term(d);
+  }
+
+  // Indexes the key of a document that shares its docid with others, so that it can be replaced or deleted on its own.
+  private static void addKey(SourceDocument d, Document doc) {
+    if (!d.key().equals(d.id())) {
+      doc.add(new StringField(IndexArgs.KEY, d.key(), Field.Store.NO));
+    }
+  }
+
+  // Counts a document written in incremental mode as added or updated.
+  private void countChange(ContentHashes.Change change) {
+    if (change == ContentHashes.Change.ADDED) {
+      counters.added.incrementAndGet();
+    } else if (change == ContentHashes.Change.UPDATED) {
+      counters.updated.incrementAndGet();
+    }
+  }
+
+  // Indexes a split, counting its bytes as processed while they are read if the collection reads it through
+  // FileSplit#newInputStream() (i.e., ranges of large files), and once it is done otherwise (e.g., whole files).
+  private void countBytes(FileSplit split, Consumer<FileSplit> indexer) {
+    AtomicLong read = new AtomicLong();
+    try {
+      indexer.accept(split.reportingTo(n -> {
+        read.addAndGet(n);
+        counters.bytesProcessed.addAndGet(n);
+      }));
+    } finally {
+      // A reader reads past the end of its split to finish its last record, so it may have read more than the split
+      // holds; the excess, counted as it was read, is not taken back, but no more is added.
+      counters.bytesProcessed.addAndGet(Math.max(0, split.length() - read.get()));
+    }
+  }
+
+  // Reports progress in bytes of input processed, with an ETA extrapolated from the throughput so far.
+  private String progress(long start, long totalBytes) {
+    long done = counters.bytesProcessed.get();
+    String eta = "unknown";
+    if (done > 0) {
+      double elapsedMillis = (System.nanoTime() - start) / 1e6;
+      eta = DurationFormatUtils.formatDuration((long) (elapsedMillis * (totalBytes - done) / done), "HH:mm:ss");
+    }
+    return String.format("%.2f%% of input (%s of %s) processed, %,d documents indexed, ETA %s",
+        totalBytes == 0 ? 100.0d : (double) done / totalBytes * 100.0d, FileUtils.byteCountToDisplaySize(done),
+        FileUtils.byteCountToDisplaySize(totalBytes), counters.indexed.get(), eta);
+  }
+
+  // Formats a duration summed over threads.
+  private static String formatNanos(long nanos) {
+    return DurationFormatUtils.formatDuration(TimeUnit.MILLISECONDS.convert(nanos, TimeUnit.NANOSECONDS), "HH:mm:ss");
+  }
+
+  /**
+   * Returns the on-disk size of an index, broken down by the kind of data held in each file (e.g., "stored fields",
+   * "postings"), so that the effect of storage options (e.g., -storeRaw, -storeContents) can be compared across builds.
+   *
+   * @param path index path
+   * @return size in bytes of each kind of data, in the order of kinds
+   * @throws IOException if errors encountered listing the index files
+   */
+  public static SortedMap<String, Long> indexSize(Path path) throws IOException {
+    SortedMap<String, Long> sizes = new TreeMap<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(path)) {
+      for (Path file : files) {
+        if (!Files.isRegularFile(file)) {
+          continue;
+        }
+        String name = file.getFileName().toString();
+        String extension = name.substring(name.lastIndexOf('.') + 1);
+        sizes.merge(INDEX_FILE_KINDS.getOrDefault(extension, "other"), Files.size(file), Long::sum);
+      }
+    }
+    return sizes;
+  }
+
+  // Logs the on-disk size of an index, broken down by the kind of data held in each file.
+  private static void logIndexSize(Path path) throws IOException {
+    Map<String, Long> sizes = indexSize(path);
+    long total = sizes.values().stream().mapToLong(Long::longValue).sum();
+
+    LOG.info("============ Index Size ============");
+    for (Map.Entry<String, Long> entry : sizes.entrySet()) {
+      LOG.info(String.format("%-14s %,12.1f MB (%.1f%%)", entry.getKey() + ":", entry.getValue() / 1048576.0,
+          total == 0 ? 0.0 : entry.getValue() * 100.0 / total));
+    }
+    LOG.info(String.format("%-14s %,12.1f MB", "total:", total / 1048576.0));
+  }
+
   public static void main(String[] args) throws Exception {
     IndexArgs indexCollectionArgs = new IndexArgs();
     CmdLineParser parser = new CmdLineParser(indexCollectionArgs, ParserProperties.defaults().withUsageWidth(100));
@@ -26,8 +26,10 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.FieldInfos;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiTerms;
 import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
@@ -38,13 +40,18 @@ import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.search.similarities.BM25Similarity;
 import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
@@ -55,6 +62,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -662,7 +671,146 @@ public class IndexReaderUtils {
     return rs.scoreDocs.length == 0 ? 0 : rs.scoreDocs[0].score - 1;
   }
 
-  // TODO: Write a variant of computeQueryDocumentScore that takes a set of documents.
+  /**
+   * Computes the BM25 scores of documents with respect to a query. Assumes default BM25 parameter settings and
+   * Anserini's default analyzer.
+   *
+   * @param reader index reader
+   * @param docids docids of the documents to score
+   * @param q query
+   * @return the scores of the documents with respect to the query, in the order of the docids
+   * @throws IOException if error encountered during query
+   */
+  public static float[] computeQueryDocumentScores(IndexReader reader, List<String> docids, String q)
+      throws IOException {
+    SearchArgs args = new SearchArgs();
+    return computeQueryDocumentScoresWithSimilarityAndAnalyzer(reader, docids, q,
+        new BM25Similarity(Float.parseFloat(args.bm25_k1[0]), Float.parseFloat(args.bm25_b[0])),
+        IndexCollection.DEFAULT_ANALYZER);
+  }
+
+  /**
+   * Computes the scores of documents with respect to a query given a scoring function. Assumes Anserini's default
+   * analyzer.
+   *
+   * @param reader index reader
+   * @param docids docids of the documents to score
+   * @param q query
+   * @param similarity scoring function
+   * @return the scores of the documents with respect to the query, in the order of the docids
+   * @throws IOException if error encountered during query
+   */
+  public static float[] computeQueryDocumentScoresWithSimilarity(
+      IndexReader reader, List<String> docids, String q, Similarity similarity)
+      throws IOException {
+    return computeQueryDocumentScoresWithSimilarityAndAnalyzer(reader, docids, q, similarity,
+        IndexCollection.DEFAULT_ANALYZER);
+  }
+
+  /**
+   * Computes the scores of documents with respect to a query given a scoring function and an analyzer.
+   *
+   * @param reader index reader
+   * @param docids docids of the documents to score
+   * @param q query
+   * @param similarity scoring function
+   * @param analyzer analyzer to use
+   * @return the scores of the documents with respect to the query, in the order of the docids
+   * @throws IOException if error encountered during query
+   */
+  public static float[] computeQueryDocumentScoresWithSimilarityAndAnalyzer(
+      IndexReader reader, List<String> docids, String q, Similarity similarity, Analyzer analyzer)
+      throws IOException {
+    return computeQueryDocumentScoresWithSimilarityAndAnalyzer(reader,
+        DocidMap.of(reader).toLuceneDocids(docids), q, similarity, analyzer);
+  }
+
+  /**
+   * Computes the scores of documents, given by Lucene internal docids, with respect to a query given a scoring
+   * function and an analyzer.
+   *
+   * @param reader index reader
+   * @param docids Lucene internal docids of the documents to score
+   * @param q query
+   * @param similarity scoring function
+   * @param analyzer analyzer to use
+   * @return the scores of the documents with respect to the query, in the order of the docids
+   * @throws IOException if error encountered during query
+   */
+  public static float[] computeQueryDocumentScoresWithSimilarityAndAnalyzer(
+      IndexReader reader, int[] docids, String q, Similarity similarity, Analyzer analyzer)
+      throws IOException {
+    Query query = new BagOfWordsQueryGenerator().buildQuery(IndexArgs.CONTENTS, analyzer, q);
+    return computeQueryDocumentScores(reader, docids, query, similarity);
+  }
+
+  /**
+   * Computes the scores of documents, given by Lucene internal docids, with respect to a query given a scoring
+   * function. The scores are exactly those that a search with the query would return; documents that do not match the
+   * query (or do not exist) score zero. Rather than searching once per document, the documents are visited in docid
+   * order, and the scorer of each segment is advanced over them in a single pass. Note that the single-document
+   * {@code computeQueryDocumentScore*} methods search with a constant-score docid filter and subtract its score, so
+   * their scores may differ from these in the last bits of float precision.
+   *
+   * @param reader index reader
+   * @param docids Lucene internal docids of the documents to score
+   * @param query query
+   * @param similarity scoring function
+   * @return the scores of the documents with respect to the query, in the order of the docids
+   * @throws IOException if error encountered during query
+   */
+  public static float[] computeQueryDocumentScores(IndexReader reader, int[] docids, Query query,
+                                                   Similarity similarity) throws IOException {
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setSimilarity(similarity);
+    Weight weight = searcher.createWeight(searcher.rewrite(query), ScoreMode.COMPLETE, 1.0f);
+
+    Integer[] order = new Integer[docids.length];
+    for (int i = 0; i < docids.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparingInt(i -> docids[i]));
+
+    float[] scores = new float[docids.length];
+    List<LeafReaderContext> leaves = reader.leaves();
+    LeafReaderContext leaf = null;
+    Scorer scorer = null;
+    int previous = -1;
+    float previousScore = 0.0f;
+    for (int i : order) {
+      int doc = docids[i];
+      if (doc < 0 || doc >= reader.maxDoc()) {
+        continue;
+      }
+      if (doc == previous) {
+        scores[i] = previousScore;
+        continue;
+      }
+      if (leaf == null || doc >= leaf.docBase + leaf.reader().maxDoc()) {
+        leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+        scorer = weight.scorer(leaf);
+      }
+
+      previous = doc;
+      previousScore = 0.0f;
+      int target = doc - leaf.docBase;
+      Bits liveDocs = leaf.reader().getLiveDocs();
+      if (scorer == null || (liveDocs != null && !liveDocs.get(target))) {
+        continue;
+      }
+      TwoPhaseIterator twoPhase = scorer.twoPhaseIterator();
+      DocIdSetIterator iterator = twoPhase == null ? scorer.iterator() : twoPhase.approximation();
+      if (iterator.docID() < target) {
+        iterator.advance(target);
+      }
+      if (iterator.docID() == target && (twoPhase == null || twoPhase.matches())) {
+        previousScore = scorer.score();
+        scores[i] = previousScore;
+      }
+    }
+
+    return scores;
+  }
 
   /**
    * Converts a collection docid to a Lucene internal docid.
@@ -673,23 +821,25 @@ public class IndexReaderUtils {
    */
   public static int convertDocidToLuceneDocid(IndexReader reader, String docid) {
     try {
-      IndexSearcher searcher = new IndexSearcher(reader);
-      Query q = new TermQuery(new Term(IndexArgs.ID, docid));
-      TopDocs rs = searcher.search(q, 1);
-      ScoreDoc[] hits = rs.scoreDocs;
-
-      if (hits == null || hits.length == 0) {
-        // Silently eat the error and return -1
-        return -1;
-      }
-
-      return hits[0].doc;
+      return DocidMap.of(reader).toLuceneDocid(docid);
     } catch (IOException e) {
       // Silently eat the error and return -1
       return -1;
     }
   }
 
+  /**
+   * Converts collection docids to Lucene internal docids.
+   *
+   * @param reader index reader
+   * @param docids collection docids
+   * @return corresponding Lucene internal docids, with -1 for docids not found
+   * @throws IOException if error encountered during access to index
+   */
+  public static int[] convertDocidsToLuceneDocids(IndexReader reader, List<String> docids) throws IOException {
+    return DocidMap.of(reader).toLuceneDocids(docids);
+  }
+
   /**
    * Converts a Lucene internal docid to a collection docid.
    *
@@ -698,17 +848,26 @@ public class IndexReaderUtils {
    * @return corresponding collection docid, or <code>null</code> if not found.
    */
   public static String convertLuceneDocidToDocid(IndexReader reader, int docid) {
-    if (docid >= reader.maxDoc())
-      return null;
-
     try {
-      return reader.document(docid).get(IndexArgs.ID);
+      return DocidMap.of(reader).toDocid(docid);
     } catch (IOException e) {
       // Eat any exceptions and just return null.
       return null;
     }
   }
 
+  /**
+   * Converts Lucene internal docids to collection docids.
+   *
+   * @param reader index reader
+   * @param docids Lucene internal docids
+   * @return corresponding collection docids, with <code>null</code> for docids not found
+   * @throws IOException if error encountered during access to index
+   */
+  public static String[] convertLuceneDocidsToDocids(IndexReader reader, int[] docids) throws IOException {
+    return DocidMap.of(reader).toDocids(docids);
+  }
+
   /**
    * Returns index statistics.
    *
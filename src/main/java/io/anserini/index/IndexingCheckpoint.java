@@ -0,0 +1,234 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.IndexWriter;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A journal of the file segments whose documents are durably committed to an index, so that an interrupted
+ * {@link IndexCollection} run can be resumed without starting over. Completed segments are buffered and, at most every
+ * interval, the index writers are committed and the buffered segments appended to the journal, one JSON object per
+ * line with the segment's counts. Segments that were in flight when a run died are partly committed, so a resumed run
+ * must re-index them with {@link IndexWriter#updateDocument} rather than {@link IndexWriter#addDocument}.
+ */
+public final class IndexingCheckpoint implements Closeable {
+  private static final Logger LOG = LogManager.getLogger(IndexingCheckpoint.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  /**
+   * Counts of the documents of a single segment.
+   */
+  public static final class SegmentCounts {
+    public long indexed;
+    public long unindexable;
+    public long empty;
+    public long skipped;
+    public long errors;
+
+    private void add(SegmentCounts other) {
+      indexed += other.indexed;
+      unindexable += other.unindexable;
+      empty += other.empty;
+      skipped += other.skipped;
+      errors += other.errors;
+    }
+  }
+
+  private final IndexWriter[] writers;
+  private final long intervalNanos;
+  private final FileChannel journal;
+  private final Map<String, SegmentCounts> completed = new HashMap<>();
+  private final List<ObjectNode> pending = new ArrayList<>();
+  private long lastCommit = System.nanoTime();
+
+  /**
+   * Opens the journal of an index.
+   *
+   * @param path path of the journal
+   * @param resume whether to keep the segments recorded by an earlier run, rather than starting a new journal
+   * @param writers index writers to commit before recording segments
+   * @param intervalMinutes minimum time between commits
+   * @throws IOException if errors encountered reading or creating the journal
+   */
+  public IndexingCheckpoint(Path path, boolean resume, IndexWriter[] writers, int intervalMinutes) throws IOException {
+    this.writers = writers;
+    this.intervalNanos = intervalMinutes * 60L * 1_000_000_000L;
+
+    if (resume && Files.exists(path)) {
+      try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.isEmpty()) {
+            continue;
+          }
+          JsonNode record;
+          try {
+            record = MAPPER.readTree(line);
+          } catch (IOException e) {
+            // The last line may be torn if the run died while writing it; its segments were not recorded.
+            LOG.warn("Ignoring unreadable checkpoint record: " + line);
+            continue;
+          }
+          SegmentCounts counts = new SegmentCounts();
+          counts.indexed = record.path("indexed").asLong();
+          counts.unindexable = record.path("unindexable").asLong();
+          counts.empty = record.path("empty").asLong();
+          counts.skipped = record.path("skipped").asLong();
+          counts.errors = record.path("errors").asLong();
+          completed.put(record.path("segment").asText(), counts);
+        }
+      }
+    }
+
+    if (resume) {
+      boolean torn = false;
+      if (Files.exists(path) && Files.size(path) > 0) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+          ByteBuffer last = ByteBuffer.allocate(1);
+          torn = channel.read(last, channel.size() - 1) == 1 && last.get(0) != '\n';
+        }
+      }
+      this.journal = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.APPEND);
+      // Terminate a torn last record, so that it does not swallow the next one.
+      if (torn) {
+        journal.write(ByteBuffer.wrap(new byte[] {'\n'}));
+      }
+    } else {
+      this.journal = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING);
+    }
+  }
+
+  /**
+   * Returns the path of the journal of an index: a file next to the index directory.
+   *
+   * @param indexPath index path
+   * @return path of the journal
+   */
+  public static Path pathFor(Path indexPath) {
+    Path absolute = indexPath.toAbsolutePath().normalize();
+    return absolute.resolveSibling(absolute.getFileName() + ".checkpoint");
+  }
+
+  /**
+   * Returns whether a segment was committed by an earlier run.
+   *
+   * @param segment segment key
+   * @return whether the segment was committed by an earlier run
+   */
+  public boolean isCompleted(String segment) {
+    return completed.containsKey(segment);
+  }
+
+  /**
+   * Returns the number of segments committed by earlier runs.
+   *
+   * @return number of segments committed by earlier runs
+   */
+  public int completedCount() {
+    return completed.size();
+  }
+
+  /**
+   * Returns the summed counts of the segments committed by earlier runs.
+   *
+   * @return summed counts of the segments committed by earlier runs
+   */
+  public SegmentCounts completedTotals() {
+    SegmentCounts totals = new SegmentCounts();
+    completed.values().forEach(totals::add);
+    return totals;
+  }
+
+  /**
+   * Records that all documents of a segment have been handed to the index writers, committing if the interval has
+   * elapsed since the last commit.
+   *
+   * @param segment segment key
+   * @param counts counts of the segment
+   * @throws IOException if errors encountered committing or writing the journal
+   */
+  public synchronized void segmentDone(String segment, SegmentCounts counts) throws IOException {
+    ObjectNode record = MAPPER.createObjectNode();
+    record.put("segment", segment);
+    record.put("indexed", counts.indexed);
+    record.put("unindexable", counts.unindexable);
+    record.put("empty", counts.empty);
+    record.put("skipped", counts.skipped);
+    record.put("errors", counts.errors);
+    pending.add(record);
+
+    if (System.nanoTime() - lastCommit >= intervalNanos) {
+      commit();
+    }
+  }
+
+  /**
+   * Commits the index writers and records the segments completed since the last commit.
+   *
+   * @throws IOException if errors encountered committing or writing the journal
+   */
+  public synchronized void commit() throws IOException {
+    // Only segments whose documents were handed to the writers before the commit are recorded.
+    List<ObjectNode> batch = new ArrayList<>(pending);
+    pending.clear();
+    for (IndexWriter writer : writers) {
+      writer.commit();
+    }
+    lastCommit = System.nanoTime();
+
+    if (batch.isEmpty()) {
+      return;
+    }
+    StringBuilder sb = new StringBuilder();
+    for (ObjectNode record : batch) {
+      sb.append(MAPPER.writeValueAsString(record)).append('\n');
+    }
+    ByteBuffer bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+    while (bytes.hasRemaining()) {
+      journal.write(bytes);
+    }
+    journal.force(false);
+    LOG.info(String.format("Checkpoint: %,d segments committed", batch.size()));
+  }
+
+  @Override
+  public void close() throws IOException {
+    journal.close();
+  }
+}
@@ -0,0 +1,330 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.index;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.impl.CloudSolrClient;
+import org.apache.solr.client.solrj.impl.HttpSolrClient;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.Slice;
+import org.apache.solr.common.cloud.ZkStateReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Streams documents into Solr. Each target core (in SolrCloud, the leader of a shard) gets its own bounded queue,
+ * drained by dedicated runner threads that send batches of up to {@code batchSize} documents. A slow shard thus only
+ * holds back the documents routed to it, and adding a document blocks only while that shard's queue is full. When a
+ * batch is rejected, its documents are resent one at a time so that failures are counted per document rather than
+ * losing the whole batch.
+ */
+public class StreamingSolrUpdater implements Closeable {
+  private static final Logger LOG = LogManager.getLogger(StreamingSolrUpdater.class);
+
+  // Tells a runner thread that its queue has been closed.
+  private static final SolrInputDocument END = new SolrInputDocument();
+
+  /**
+   * Decides which core a document is sent to.
+   */
+  public interface Router {
+    /**
+     * Returns the key of the target a document is sent to, e.g., the URL of a core.
+     *
+     * @param document document
+     * @return target key
+     * @throws InterruptedException if interrupted while waiting for routing information
+     */
+    String route(SolrInputDocument document) throws InterruptedException;
+  }
+
+  private final Router router;
+  private final Function<String, SolrClient> clients;
+  private final int queueSize;
+  private final int threads;
+  private final int batchSize;
+  private final int commitWithinMs;
+  private final Map<String, Target> targets = new ConcurrentHashMap<>();
+  private final List<Closeable> resources;
+  private final boolean ownsClients;
+  private final AtomicLong indexed = new AtomicLong();
+  private final AtomicLong errors = new AtomicLong();
+  private final AtomicLong loggedFailures = new AtomicLong();
+  private volatile boolean closed = false;
+
+  /**
+   * Creates an updater that sends documents to the clients chosen by a router. The clients are not closed by the
+   * updater.
+   *
+   * @param router routes documents to targets
+   * @param clients creates the client for a target; called once per target
+   * @param queueSize capacity of the queue of each target
+   * @param threads number of runner threads of each target
+   * @param batchSize maximum number of documents per update request
+   * @param commitWithinMs commitWithin of update requests (in milliseconds)
+   */
+  public StreamingSolrUpdater(Router router, Function<String, SolrClient> clients,
+                              int queueSize, int threads, int batchSize, int commitWithinMs) {
+    this(router, clients, queueSize, threads, batchSize, commitWithinMs, Collections.emptyList(), false);
+  }
+
+  // Resources (e.g., the cloud client), and the target clients if ownsClients is set, are owned by the updater, and
+  // closed with it.
+  private StreamingSolrUpdater(Router router, Function<String, SolrClient> clients, int queueSize, int threads,
+                               int batchSize, int commitWithinMs, List<Closeable> resources, boolean ownsClients) {
+    if (queueSize < 1 || threads < 1 || batchSize < 1) {
+      throw new IllegalArgumentException("Queue size, threads, and batch size must be positive");
+    }
+    this.router = router;
+    this.clients = clients;
+    this.queueSize = queueSize;
+    this.threads = threads;
+    this.batchSize = batchSize;
+    this.commitWithinMs = commitWithinMs;
+    this.resources = resources;
+    this.ownsClients = ownsClients;
+  }
+
+  /**
+   * Creates an updater that sends each document directly to the leader of the shard of a SolrCloud collection that
+   * owns it, as decided by the collection's router.
+   *
+   * @param zkUrls ZooKeeper URLs
+   * @param zkChroot ZooKeeper chroot
+   * @param collection collection name
+   * @param timeout connection and socket timeout (in milliseconds)
+   * @param queueSize capacity of the queue of each shard leader
+   * @param threads number of runner threads of each shard leader
+   * @param batchSize maximum number of documents per update request
+   * @param commitWithinMs commitWithin of update requests (in milliseconds)
+   * @return updater
+   */
+  public static StreamingSolrUpdater forCloud(List<String> zkUrls, String zkChroot, String collection, int timeout,
+                                              int queueSize, int threads, int batchSize, int commitWithinMs) {
+    CloudSolrClient cloudClient = new CloudSolrClient.Builder(zkUrls, Optional.of(zkChroot))
+        .withConnectionTimeout(timeout)
+        .withSocketTimeout(timeout)
+        .build();
+
+    // The cluster state is watched by the client, so leader changes are picked up as they happen.
+    Router router = document -> {
+      ZkStateReader reader = cloudClient.getZkStateReader();
+      DocCollection docCollection = reader.getClusterState().getCollection(collection);
+      String id = (String) document.getFieldValue(IndexArgs.ID);
+      Slice slice = docCollection.getRouter().getTargetSlice(id, document, null, null, docCollection);
+      return reader.getLeaderRetry(collection, slice.getName()).getCoreUrl();
+    };
+
+    Function<String, SolrClient> clients = coreUrl -> new HttpSolrClient.Builder(coreUrl)
+        .withConnectionTimeout(timeout)
+        .withSocketTimeout(timeout)
+        .build();
+    return new StreamingSolrUpdater(router, clients, queueSize, threads, batchSize, commitWithinMs,
+        Collections.singletonList(cloudClient), true);
+  }
+
+  /**
+   * Queues a document, blocking while the queue of its target is full. A document that cannot be routed (e.g., while
+   * its shard has no leader), or whose target cannot be reached, is counted as an error.
+   *
+   * @param document document
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void add(SolrInputDocument document) throws InterruptedException {
+    if (closed) {
+      throw new IllegalStateException("Updater is closed");
+    }
+
+    String key;
+    Target target;
+    try {
+      key = router.route(document);
+      target = targets.get(key);
+      if (target == null) {
+        // Targets are created outside of the map, as creating one opens a client; should another thread win the race
+        // for the same key, the target created here is discarded before it starts.
+        Target created = new Target(key);
+        target = targets.putIfAbsent(key, created);
+        if (target == null) {
+          target = created;
+          target.start();
+        } else {
+          created.discard();
+        }
+      }
+    } catch (RuntimeException e) {
+      fail(document, "routing", e);
+      return;
+    }
+    target.queue.put(document);
+  }
+
+  // Counts a document that could not be indexed, and logs the first few failures only, as they tend to share a cause.
+  private void fail(SolrInputDocument document, String where, Exception e) {
+    errors.incrementAndGet();
+    if (loggedFailures.getAndIncrement() < 10) {
+      LOG.warn("Error indexing " + document.getFieldValue(IndexArgs.ID) + " into Solr (" + where + "): " +
+          e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the number of documents accepted by Solr.
+   *
+   * @return number of documents accepted by Solr
+   */
+  public long getIndexed() {
+    return indexed.get();
+  }
+
+  /**
+   * Returns the number of documents rejected by Solr.
+   *
+   * @return number of documents rejected by Solr
+   */
+  public long getErrors() {
+    return errors.get();
+  }
+
+  /**
+   * Sends the documents still queued and waits for the runner threads to finish, so that the counts are final.
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    try {
+      for (Target target : targets.values()) {
+        for (int i = 0; i < threads; i++) {
+          target.queue.put(END);
+        }
+      }
+      for (Target target : targets.values()) {
+        for (Thread runner : target.runners) {
+          runner.join();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for Solr updates to complete", e);
+    } finally {
+      if (ownsClients) {
+        for (Target target : targets.values()) {
+          target.discard();
+        }
+      }
+      for (Closeable resource : resources) {
+        resource.close();
+      }
+    }
+  }
+
+  private final class Target {
+    private final String key;
+    private final SolrClient client;
+    private final BlockingQueue<SolrInputDocument> queue = new ArrayBlockingQueue<>(queueSize);
+    private final List<Thread> runners = new ArrayList<>(threads);
+
+    private Target(String key) {
+      this.key = key;
+      this.client = clients.apply(key);
+    }
+
+    private void start() {
+      for (int i = 0; i < threads; i++) {
+        Thread runner = new Thread(this::run, "solr-updater-" + key + "-" + i);
+        runner.setDaemon(true);
+        runner.start();
+        runners.add(runner);
+      }
+      LOG.info("Streaming documents to " + key);
+    }
+
+    // Closes the client of the target, if the updater owns it.
+    private void discard() {
+      if (!ownsClients) {
+        return;
+      }
+      try {
+        client.close();
+      } catch (IOException e) {
+        LOG.warn("Error closing the Solr client of " + key + ": " + e.getMessage());
+      }
+    }
+
+    private void run() {
+      List<SolrInputDocument> batch = new ArrayList<>(batchSize);
+      boolean done = false;
+      try {
+        while (!done) {
+          SolrInputDocument document = queue.take();
+          if (document == END) {
+            break;
+          }
+          batch.add(document);
+          // Fill the batch with whatever else is already waiting, without waiting for more.
+          while (batch.size() < batchSize && (document = queue.poll()) != null) {
+            if (document == END) {
+              done = true;
+              break;
+            }
+            batch.add(document);
+          }
+          send(batch);
+          batch.clear();
+        }
+      } catch (InterruptedException e) {
+        errors.addAndGet(batch.size());
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void send(List<SolrInputDocument> batch) {
+      try {
+        UpdateRequest request = new UpdateRequest();
+        request.add(batch);
+        request.setCommitWithin(commitWithinMs);
+        request.process(client);
+        indexed.addAndGet(batch.size());
+      } catch (Exception e) {
+        if (batch.size() > 1) {
+          // Find the culprits: the rest of the batch is not lost.
+          for (SolrInputDocument document : batch) {
+            send(Collections.singletonList(document));
+          }
+          return;
+        }
+        fail(batch.get(0), key, e);
+      }
+    }
+  }
+}
@@ -27,6 +27,7 @@ import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.util.BytesRef;
 
 /**
@@ -105,4 +106,9 @@ public class DefaultLuceneDocumentGenerator<T extends SourceDocument> implements
 
     return document;
   }
+
+  @Override
+  public SortField.Type sortFieldType(String field) {
+    return IndexArgs.ID.equals(field) ? SortField.Type.STRING : null;
+  }
 }
@@ -1,70 +1,223 @@
 package io.anserini.index.generator;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.anserini.collection.GRDCPassageCollection;
 import io.anserini.index.IndexArgs;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.apache.lucene.document.*;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 public class GRDCPassageGenerator extends DefaultLuceneDocumentGenerator<GRDCPassageCollection.Document> {
-    protected IndexArgs args;
-
-    // constants for storing
-    public enum GRDCFields {
-        REPORT_ID("report_id"), 
-		TYPE("type"), 
-		PROJECT_NUMBER("project_number"), 
-		REPORT_TITLE("report_title"),
-        REGION_NAME("region_name"), 
-		CATEGORY_NAME("category_name"), 
-		RESEARCH_THEME_NAME("research_theme_name"),
-        ORGANISATION_NAME("organisation_name"), 
-        COMPLETE_DATE("complete_date"),
-        SUPERVISOR_NAME("supervisor_name"), 
-		PUBLISH_DATE("publish_date"), 
-		REPORT_PATH("report_path"), 
-		KEYWORDS("keywords"), 
-		PDF_URL("pdf_url"),
-        WEB_URL("web_url"), 
-		SUMMARY("summary"), 
-		TEXT("text");
-
-        public final String name;
-
-        GRDCFields(String s) {
-            name = s;
-        }
+  private static final Logger LOG = LogManager.getLogger(GRDCPassageGenerator.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  protected IndexArgs args;
+
+  // constants for storing
+  public enum GRDCFields {
+    REPORT_ID("report_id"),
+    TYPE("type"),
+    PROJECT_NUMBER("project_number"),
+    REPORT_TITLE("report_title"),
+    REGION_NAME("region_name"),
+    CATEGORY_NAME("category_name"),
+    RESEARCH_THEME_NAME("research_theme_name"),
+    ORGANISATION_NAME("organisation_name"),
+    COMPLETE_DATE("complete_date"),
+    SUPERVISOR_NAME("supervisor_name"),
+    PUBLISH_DATE("publish_date"),
+    REPORT_PATH("report_path"),
+    KEYWORDS("keywords"),
+    PDF_URL("pdf_url"),
+    WEB_URL("web_url"),
+    SUMMARY("summary"),
+    TEXT("text"),
+    TEXT_STORED_AS("text_stored_as"),
+    RAW_WITHOUT_TEXT("raw_without_text"),
+    RAW_TEXT_OFFSET("raw_text_offset"),
+    PASSAGE_POSITION("passage_position");
+
+    public final String name;
+
+    GRDCFields(String s) {
+      name = s;
     }
+  }
 
-    public GRDCPassageGenerator(IndexArgs args) {
-        super(args);
-        this.args = args;
+  // fields also indexed as SortedSetDocValues, for facet counts and drill-down (see SimpleSearcher.searchFacets())
+  public static final List<String> FACET_FIELDS = List.of(GRDCFields.TYPE.name, GRDCFields.REGION_NAME.name,
+      GRDCFields.CATEGORY_NAME.name, GRDCFields.RESEARCH_THEME_NAME.name, GRDCFields.ORGANISATION_NAME.name);
+
+  protected GRDCReportStore reportStore;
+
+  public GRDCPassageGenerator(IndexArgs args) {
+    super(args);
+    this.args = args;
+    if (args.grdcReportIndex != null) {
+      this.reportStore = GRDCReportStore.open(Paths.get(args.grdcReportIndex), args.incremental);
     }
+  }
+
+  public Document createDocument(GRDCPassageCollection.Document doc) throws GeneratorException {
+    Document document = super.createDocument(doc);
+
+    document.add(new StringField(GRDCFields.REPORT_ID.name, doc.getReportID(), Field.Store.YES));
+    // the passages of a report may differ in type, so the type stays with the passage
+    document.add(new StringField(GRDCFields.TYPE.name, doc.getType(), Field.Store.YES));
 
-    public Document createDocument(GRDCPassageCollection.Document doc) throws GeneratorException {
-        Document document = super.createDocument(doc);
-
-        document.add(new StringField(GRDCFields.REPORT_ID.name, doc.getReportID(), Field.Store.YES));
-        document.add(new StringField(GRDCFields.TYPE.name, doc.getType(), Field.Store.YES));
-        document.add(new StringField(GRDCFields.PROJECT_NUMBER.name, doc.getProjectNumber(), Field.Store.YES));
-        document.add(new StringField(GRDCFields.REPORT_TITLE.name, doc.getReportTitle(), Field.Store.YES));
-        document.add(new StringField(GRDCFields.REGION_NAME.name, doc.getRegionName(), Field.Store.YES));
-        document.add(new StringField(GRDCFields.CATEGORY_NAME.name, doc.getCategoryName(), Field.Store.YES));
-        document.add(new StringField(GRDCFields.RESEARCH_THEME_NAME.name, doc.getResearchThemeName(), Field.Store.YES));
-        document.add(new StringField(GRDCFields.ORGANISATION_NAME.name, doc.getOrganisationName(), Field.Store.YES));
-        document.add(new StringField(GRDCFields.COMPLETE_DATE.name, doc.getCompleteDate(), Field.Store.YES));
-        document.add(new StringField(GRDCFields.SUPERVISOR_NAME.name, doc.getSupervisorName(), Field.Store.YES));
-        document.add(new StringField(GRDCFields.PUBLISH_DATE.name, doc.getPublishDate(), Field.Store.YES));
-        document.add(new StringField(GRDCFields.REPORT_PATH.name, doc.getReportPath(), Field.Store.YES));
-        document.add(new StringField(GRDCFields.PDF_URL.name, doc.getPDFURL(), Field.Store.YES));
-        document.add(new StringField(GRDCFields.WEB_URL.name, doc.getWebURL(), Field.Store.YES));
-        document.add(new StringField(GRDCFields.SUMMARY.name, doc.getSummary(), Field.Store.YES));
-		document.add(new StringField(GRDCFields.TEXT.name, doc.getText(), Field.Store.YES));
-
-        // indexing the keywords
-        String[] keywords = doc.getKeywords();
-        for (String keyword : keywords) {
-            document.add(new StringField(GRDCFields.KEYWORDS.name, keyword, Field.Store.YES));
-        }
-
-        return document;
+    // doc values to sort the index on (see sortFieldType()), and dates to filter on; unlike the other report-level
+    // metadata, these stay with the passage when there is a report store
+    document.add(new SortedDocValuesField(GRDCFields.REPORT_ID.name, new BytesRef(doc.getReportID())));
+    document.add(new NumericDocValuesField(GRDCFields.PASSAGE_POSITION.name, doc.getPosition()));
+    GRDCGenerator.addDate(document, GRDCFields.COMPLETE_DATE.name, doc.getCompleteDate());
+    GRDCGenerator.addDate(document, GRDCFields.PUBLISH_DATE.name, doc.getPublishDate());
+
+    // doc values for facets, which also stay with the passage
+    GRDCGenerator.addFacet(document, GRDCFields.TYPE.name, doc.getType());
+    GRDCGenerator.addFacet(document, GRDCFields.REGION_NAME.name, doc.getRegionName());
+    GRDCGenerator.addFacet(document, GRDCFields.CATEGORY_NAME.name, doc.getCategoryName());
+    GRDCGenerator.addFacet(document, GRDCFields.RESEARCH_THEME_NAME.name, doc.getResearchThemeName());
+    GRDCGenerator.addFacet(document, GRDCFields.ORGANISATION_NAME.name, doc.getOrganisationName());
+
+    if (args.grdcStoreTextOnce) {
+      // The passage text is stored exactly once: as the stored "contents" if we're storing contents, otherwise
+      // as a stored-only "text". With -storeRaw, the raw JSON is stored with the text cut out. The other views
+      // are rebuilt at fetch time, see restoreTextViews(). Unlike in the default mode, "text" is not indexed as
+      // a single term, which long passages would push past Lucene's term length limit, so exact-text lookups
+      // on it match nothing.
+      document.removeFields(IndexArgs.RAW);
+      if (args.storeContents) {
+        document.add(new StoredField(GRDCFields.TEXT_STORED_AS.name, IndexArgs.CONTENTS));
+      } else {
+        document.add(new StoredField(GRDCFields.TEXT.name, doc.getText()));
+        document.add(new StoredField(GRDCFields.TEXT_STORED_AS.name, GRDCFields.TEXT.name));
+      }
+      if (args.storeRaw) {
+        addRawWithoutText(document, doc);
+      }
+    } else {
+      document.add(new StringField(GRDCFields.TEXT.name, doc.getText(), Field.Store.YES));
+    }
+
+    // With a report store, report-level metadata is written once per report and passages only carry the key.
+    if (reportStore != null) {
+      try {
+        reportStore.add(doc.getReportID(), () -> reportFields(doc));
+      } catch (IOException e) {
+        LOG.error("Error writing report " + doc.getReportID() + " to the report store:", e);
+        throw new InvalidDocumentException();
+      }
+    } else {
+      reportFields(doc).forEach(document::add);
     }
+
+    return document;
+  }
+
+  @Override
+  public SortField.Type sortFieldType(String field) {
+    if (field.equals(GRDCFields.REPORT_ID.name)) {
+      return SortField.Type.STRING;
+    } else if (field.equals(GRDCFields.PASSAGE_POSITION.name) || field.equals(GRDCFields.COMPLETE_DATE.name) ||
+        field.equals(GRDCFields.PUBLISH_DATE.name)) {
+      return SortField.Type.LONG;
+    }
+    return super.sortFieldType(field);
+  }
+
+  // Fields shared by all passages of a report.
+  protected List<IndexableField> reportFields(GRDCPassageCollection.Document doc) {
+    List<IndexableField> fields = new ArrayList<>();
+
+    fields.add(new StringField(GRDCFields.PROJECT_NUMBER.name, doc.getProjectNumber(), Field.Store.YES));
+    fields.add(new StringField(GRDCFields.REPORT_TITLE.name, doc.getReportTitle(), Field.Store.YES));
+    fields.add(new StringField(GRDCFields.REGION_NAME.name, doc.getRegionName(), Field.Store.YES));
+    fields.add(new StringField(GRDCFields.CATEGORY_NAME.name, doc.getCategoryName(), Field.Store.YES));
+    fields.add(new StringField(GRDCFields.RESEARCH_THEME_NAME.name, doc.getResearchThemeName(), Field.Store.YES));
+    fields.add(new StringField(GRDCFields.ORGANISATION_NAME.name, doc.getOrganisationName(), Field.Store.YES));
+    fields.add(new StringField(GRDCFields.COMPLETE_DATE.name, doc.getCompleteDate(), Field.Store.YES));
+    fields.add(new StringField(GRDCFields.SUPERVISOR_NAME.name, doc.getSupervisorName(), Field.Store.YES));
+    fields.add(new StringField(GRDCFields.PUBLISH_DATE.name, doc.getPublishDate(), Field.Store.YES));
+    fields.add(new StringField(GRDCFields.REPORT_PATH.name, doc.getReportPath(), Field.Store.YES));
+    fields.add(new StringField(GRDCFields.PDF_URL.name, doc.getPDFURL(), Field.Store.YES));
+    fields.add(new StringField(GRDCFields.WEB_URL.name, doc.getWebURL(), Field.Store.YES));
+    fields.add(new StringField(GRDCFields.SUMMARY.name, doc.getSummary(), Field.Store.YES));
+
+    // indexing the keywords
+    String[] keywords = doc.getKeywords();
+    for (String keyword : keywords) {
+      fields.add(new StringField(GRDCFields.KEYWORDS.name, keyword, Field.Store.YES));
+    }
+
+    return fields;
+  }
+
+  // Stores the raw JSON of a passage with the value of its text cut out, and the offset at which to splice it back
+  // in. Should the text not be found as serialized, the raw JSON is stored whole.
+  private static void addRawWithoutText(Document document, GRDCPassageCollection.Document doc) {
+    String raw = doc.raw();
+    String name = quote(GRDCFields.TEXT.name) + ":";
+    String value = quote(doc.getText());
+    int start = raw.indexOf(name + value);
+    if (start < 0) {
+      document.add(new StoredField(IndexArgs.RAW, raw));
+      return;
+    }
+
+    int offset = start + name.length();
+    document.add(new StoredField(GRDCFields.RAW_WITHOUT_TEXT.name,
+        raw.substring(0, offset) + raw.substring(offset + value.length())));
+    document.add(new StoredField(GRDCFields.RAW_TEXT_OFFSET.name, offset));
+  }
+
+  // Serializes a string as a JSON string, as it is serialized in the raw JSON of a passage.
+  private static String quote(String s) {
+    try {
+      return MAPPER.writeValueAsString(s);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Restores the "contents" and "text" views of a passage indexed with {@code -grdc.storeTextOnce} from the single
+   * stored copy of its text, and its "raw" view if it was indexed with {@code -storeRaw}, by splicing the text back
+   * into the stored raw JSON. Documents not indexed in this mode are returned unchanged.
+   *
+   * @param passage passage document, as loaded from the passage index
+   * @return the passage document, for chaining
+   */
+  public static Document restoreTextViews(Document passage) {
+    String storedAs = passage.get(GRDCFields.TEXT_STORED_AS.name);
+    String text = storedAs == null ? null : passage.get(storedAs);
+    if (text == null) {
+      return passage;
+    }
+
+    if (passage.get(IndexArgs.CONTENTS) == null) {
+      passage.add(new StoredField(IndexArgs.CONTENTS, text));
+    }
+    if (passage.get(GRDCFields.TEXT.name) == null) {
+      passage.add(new StoredField(GRDCFields.TEXT.name, text));
+    }
+    String rawWithoutText = passage.get(GRDCFields.RAW_WITHOUT_TEXT.name);
+    IndexableField offset = passage.getField(GRDCFields.RAW_TEXT_OFFSET.name);
+    if (passage.get(IndexArgs.RAW) == null && rawWithoutText != null && offset != null) {
+      int i = offset.numericValue().intValue();
+      passage.add(new StoredField(IndexArgs.RAW,
+          rawWithoutText.substring(0, i) + quote(text) + rawWithoutText.substring(i)));
+    }
+
+    return passage;
+  }
 }
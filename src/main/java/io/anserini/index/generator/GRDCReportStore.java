@@ -0,0 +1,277 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.anserini.index.generator;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A small side index that holds GRDC report-level metadata exactly once per report, keyed by {@code report_id}.
+ * When passages are indexed with a report store, they only carry the report key, and the metadata is joined back
+ * at fetch time (see {@link #join(IndexReader, List)}). All indexing threads writing to the same path share a
+ * single store, which must be closed via {@link #closeAll()} once indexing completes. When the passage index is
+ * built incrementally, the store is appended to, reports seen in the new input replace their earlier versions, and
+ * reports left without passages are deleted via {@link #deleteOrphans(IndexReader)}.
+ */
+public class GRDCReportStore implements Closeable {
+  private static final Map<Path, GRDCReportStore> STORES = new ConcurrentHashMap<>();
+
+  private final IndexWriter writer;
+  private final boolean append;
+  private final Set<String> written = ConcurrentHashMap.newKeySet();
+
+  private GRDCReportStore(Path path, boolean append) throws IOException {
+    this.append = append;
+    IndexWriterConfig config = new IndexWriterConfig();
+    config.setOpenMode(append ? IndexWriterConfig.OpenMode.CREATE_OR_APPEND : IndexWriterConfig.OpenMode.CREATE);
+    config.setUseCompoundFile(false);
+    this.writer = new IndexWriter(FSDirectory.open(path), config);
+  }
+
+  /**
+   * Returns the report store at the given path, creating it if this is the first request for the path.
+   *
+   * @param path index path of the report store
+   * @return the shared report store
+   */
+  public static GRDCReportStore open(Path path) {
+    return open(path, false);
+  }
+
+  /**
+   * Returns the report store at the given path, creating it if this is the first request for the path.
+   *
+   * @param path index path of the report store
+   * @param append whether to keep the reports of an existing store, rather than starting from an empty one
+   * @return the shared report store
+   */
+  public static GRDCReportStore open(Path path, boolean append) {
+    return STORES.computeIfAbsent(path.toAbsolutePath().normalize(), p -> {
+      try {
+        return new GRDCReportStore(p, append);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  /**
+   * Closes all report stores opened in this JVM.
+   *
+   * @throws IOException if errors encountered closing the underlying index writers
+   */
+  public static void closeAll() throws IOException {
+    for (Path path : new ArrayList<>(STORES.keySet())) {
+      GRDCReportStore store = STORES.remove(path);
+      if (store != null) {
+        store.close();
+      }
+    }
+  }
+
+  /**
+   * Writes the metadata of a report, unless it has already been written. The fields are only materialized the first
+   * time a report is seen. If writing fails, the report is not recorded as written, so that it is written along with
+   * one of its next passages.
+   *
+   * @param reportId report id
+   * @param fields supplier of the report-level fields
+   * @throws IOException if errors encountered writing to the store
+   */
+  public void add(String reportId, Supplier<List<IndexableField>> fields) throws IOException {
+    if (!written.add(reportId)) {
+      return;
+    }
+
+    try {
+      Document document = new Document();
+      document.add(new StringField(GRDCPassageGenerator.GRDCFields.REPORT_ID.name, reportId, Field.Store.YES));
+      fields.get().forEach(document::add);
+      if (append) {
+        writer.updateDocument(new Term(GRDCPassageGenerator.GRDCFields.REPORT_ID.name, reportId), document);
+      } else {
+        writer.addDocument(document);
+      }
+    } catch (IOException | RuntimeException e) {
+      written.remove(reportId);
+      throw e;
+    }
+  }
+
+  /**
+   * Deletes, from all report stores opened in this JVM, the reports that no longer have any passage in the passage
+   * index. Call once all passages have been written and deleted, before {@link #closeAll()}.
+   *
+   * @param passages reader over the passage index, including its uncommitted changes
+   * @return number of deleted reports
+   * @throws IOException if errors encountered reading or writing the indexes
+   */
+  public static long deleteOrphans(IndexReader passages) throws IOException {
+    Set<String> reportIds = liveTerms(passages, GRDCPassageGenerator.GRDCFields.REPORT_ID.name);
+    long deleted = 0;
+    for (GRDCReportStore store : STORES.values()) {
+      List<Term> orphans = new ArrayList<>();
+      try (DirectoryReader reports = DirectoryReader.open(store.writer)) {
+        for (String reportId : liveTerms(reports, GRDCPassageGenerator.GRDCFields.REPORT_ID.name)) {
+          if (!reportIds.contains(reportId)) {
+            orphans.add(new Term(GRDCPassageGenerator.GRDCFields.REPORT_ID.name, reportId));
+          }
+        }
+      }
+      store.writer.deleteDocuments(orphans.toArray(new Term[0]));
+      deleted += orphans.size();
+    }
+    return deleted;
+  }
+
+  // Returns the terms of a field that occur in at least one live document.
+  private static Set<String> liveTerms(IndexReader reader, String field) throws IOException {
+    Set<String> values = new HashSet<>();
+    for (LeafReaderContext context : reader.leaves()) {
+      Terms terms = context.reader().terms(field);
+      if (terms == null) {
+        continue;
+      }
+
+      Bits liveDocs = context.reader().getLiveDocs();
+      TermsEnum termsEnum = terms.iterator();
+      PostingsEnum postings = null;
+      BytesRef term;
+      while ((term = termsEnum.next()) != null) {
+        if (liveDocs == null) {
+          values.add(term.utf8ToString());
+          continue;
+        }
+        postings = termsEnum.postings(postings, PostingsEnum.NONE);
+        for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+          if (liveDocs.get(doc)) {
+            values.add(term.utf8ToString());
+            break;
+          }
+        }
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+
+  /**
+   * Adds the stored report-level metadata to a passage document, keyed by the passage's {@code report_id}. The
+   * passage document is left unchanged if it has no report id or the report is not in the store.
+   *
+   * @param reports reader over the report store
+   * @param passage passage document, as loaded from the passage index
+   * @return the passage document, for chaining
+   */
+  public static Document join(IndexReader reports, Document passage) {
+    try {
+      join(reports, Collections.singletonList(passage));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return passage;
+  }
+
+  /**
+   * Adds the stored report-level metadata to passage documents, e.g., the hits of a search. Each distinct report is
+   * looked up and loaded once, however many of the passages belong to it. Passage documents without a report id, or
+   * whose report is not in the store, are left unchanged.
+   *
+   * @param reports reader over the report store
+   * @param passages passage documents, as loaded from the passage index; may contain {@code null}s
+   * @throws IOException if errors encountered reading the report store
+   */
+  public static void join(IndexReader reports, List<Document> passages) throws IOException {
+    Map<String, List<Document>> byReport = new HashMap<>();
+    for (Document passage : passages) {
+      String reportId = passage == null ? null : passage.get(GRDCPassageGenerator.GRDCFields.REPORT_ID.name);
+      if (reportId != null) {
+        byReport.computeIfAbsent(reportId, k -> new ArrayList<>()).add(passage);
+      }
+    }
+
+    for (LeafReaderContext context : reports.leaves()) {
+      if (byReport.isEmpty()) {
+        break;
+      }
+      Terms terms = context.reader().terms(GRDCPassageGenerator.GRDCFields.REPORT_ID.name);
+      if (terms == null) {
+        continue;
+      }
+
+      Bits liveDocs = context.reader().getLiveDocs();
+      TermsEnum termsEnum = terms.iterator();
+      PostingsEnum postings = null;
+      Iterator<Map.Entry<String, List<Document>>> iterator = byReport.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<String, List<Document>> entry = iterator.next();
+        if (!termsEnum.seekExact(new BytesRef(entry.getKey()))) {
+          continue;
+        }
+        postings = termsEnum.postings(postings, PostingsEnum.NONE);
+        for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+          if (liveDocs == null || liveDocs.get(doc)) {
+            Document report = context.reader().document(doc);
+            for (Document passage : entry.getValue()) {
+              for (IndexableField field : report.getFields()) {
+                if (!field.name().equals(GRDCPassageGenerator.GRDCFields.REPORT_ID.name)) {
+                  passage.add(field);
+                }
+              }
+            }
+            iterator.remove();
+            break;
+          }
+        }
+      }
+    }
+  }
+}
@@ -18,6 +18,7 @@ package io.anserini.index.generator;
 
 import io.anserini.collection.SourceDocument;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.search.SortField;
 
 /**
  * Converts a {@link SourceDocument} into a Lucene {@link Document}, ready to be indexed.
@@ -26,4 +27,15 @@ import org.apache.lucene.document.Document;
  */
 public interface LuceneDocumentGenerator<T extends SourceDocument> {
   Document createDocument(T src) throws GeneratorException;
+
+  /**
+   * Returns the sort type of a doc values field that every generated document carries at most once, so that an index
+   * can be sorted on it (see {@code -indexSort}).
+   *
+   * @param field field name
+   * @return sort type of the field, or {@code null} if the index cannot be sorted on the field
+   */
+  default SortField.Type sortFieldType(String field) {
+    return null;
+  }
 }
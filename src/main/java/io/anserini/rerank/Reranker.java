@@ -19,4 +19,15 @@ package io.anserini.rerank;
 public interface Reranker<T> {
   ScoredDocuments rerank(ScoredDocuments docs, RerankerContext<T> context);
   String tag();
+
+  /**
+   * Returns a description of the full configuration of this reranker, such that rerankers with equal descriptions
+   * rerank the same input identically (e.g., to share cached results). The default covers rerankers whose tag holds all
+   * their parameters.
+   *
+   * @return description of the full configuration of this reranker
+   */
+  default String describe() {
+    return getClass().getName() + "[" + tag() + "]";
+  }
 }
@@ -38,6 +38,23 @@ public class RerankerCascade {
     return tag;
   }
 
+  /**
+   * Returns a description of the rerankers in this cascade, in order, with their full configuration (see
+   * {@link Reranker#describe()}), so that cascades that may rerank the same input differently can be told apart.
+   *
+   * @return description of the rerankers in this cascade
+   */
+  public String describe() {
+    StringBuilder description = new StringBuilder();
+    for (Reranker reranker : rerankers) {
+      if (description.length() > 0) {
+        description.append(',');
+      }
+      description.append(reranker.describe());
+    }
+    return description.toString();
+  }
+
   /**
    * Adds a reranker to this cascade.
    *
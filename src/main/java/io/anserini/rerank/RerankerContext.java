@@ -17,11 +17,16 @@
 package io.anserini.rerank;
 
 import io.anserini.search.SearchArgs;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class RerankerContext<K> {
   private final IndexSearcher searcher;
@@ -32,6 +37,10 @@ public class RerankerContext<K> {
   private final List<String> queryTokens;
   private final Query filter;
   private final SearchArgs searchArgs;
+  // Lookups by rerankers, shared by the cascades that rerank the same results with this context. Note that a context
+  // is used by one thread at a time.
+  private final Map<String, Map<Integer, Terms>> termVectors = new HashMap<>();
+  private final Map<Term, Integer> docFreqs = new HashMap<>();
 
   public RerankerContext(IndexSearcher searcher, K queryId, Query query, String queryDocId, String queryText,
       List<String> queryTokens, Query filter, SearchArgs searchArgs) throws IOException {
@@ -76,4 +85,39 @@ public class RerankerContext<K> {
   public SearchArgs getSearchArgs() {
     return searchArgs;
   }
+
+  /**
+   * Returns the term vector of a document in the index searched, as {@link IndexReader#getTermVector}.
+   * Term vectors are read once per context, so that cascades that rerank the same results (e.g., in a sweep over RM3
+   * parameters) share the term vectors of feedback documents.
+   *
+   * @param docid internal Lucene docid
+   * @param field field
+   * @return the term vector, or {@code null} if the document has none for the field
+   * @throws IOException if error encountered reading the term vector
+   */
+  public Terms getTermVector(int docid, String field) throws IOException {
+    Map<Integer, Terms> fieldTermVectors = termVectors.computeIfAbsent(field, f -> new HashMap<>());
+    if (!fieldTermVectors.containsKey(docid)) {
+      fieldTermVectors.put(docid, searcher.getIndexReader().getTermVector(docid, field));
+    }
+    return fieldTermVectors.get(docid);
+  }
+
+  /**
+   * Returns the number of documents in the index searched that contain a term, as
+   * {@link IndexReader#docFreq}. Document frequencies are looked up once per context.
+   *
+   * @param term term
+   * @return the number of documents containing the term
+   * @throws IOException if error encountered looking up the term
+   */
+  public int docFreq(Term term) throws IOException {
+    Integer df = docFreqs.get(term);
+    if (df == null) {
+      df = searcher.getIndexReader().docFreq(term);
+      docFreqs.put(term, df);
+    }
+    return df;
+  }
 }
@@ -16,6 +16,7 @@
 
 package io.anserini.rerank;
 
+import io.anserini.index.DocidMap;
 import io.anserini.index.IndexArgs;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
@@ -40,37 +41,141 @@ import org.elasticsearch.search.SearchHits;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.Set;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 
 /**
- * ScoredDocuments object that converts TopDocs from the searcher into an Anserini format
+ * ScoredDocuments object that converts TopDocs from the searcher into an Anserini format. Only the Lucene docids,
+ * scores, and collection docids (through a {@link DocidMap}) are resolved up front; stored fields are loaded on
+ * demand, in full or for a subset of fields, since most runs only ever print the collection docids.
  */
 public class ScoredDocuments {
   private static final Logger LOG = LogManager.getLogger(ScoredDocuments.class);
-  // Array of document objects
-  public Document[] documents;
+
   // The docIds as used by the index reader
   public int[] ids;
   // Scores returned from the searcher's similarity
   public float[] scores;
-  
+  // The collection docids
+  public String[] docids;
+
+  /**
+   * Documents with all their stored fields. For results from a local index, entries are only filled in as they are
+   * loaded by {@link #document(int)}.
+   *
+   * @deprecated Use {@link #document(int)} or {@link #document(int, Set)}, which load stored fields on demand; this
+   * field will stop being public in the next release.
+   */
+  @Deprecated
+  public Document[] documents;
+
+  // Reader to load stored fields from, or null for results that do not come from a local index (e.g., Solr)
+  private IndexReader reader;
+
+  /**
+   * Returns a copy of these results, for rerankers that modify their input in place (e.g., adjusting score ties). The
+   * arrays are copied; the documents are shared.
+   *
+   * @return copy of these results
+   */
+  public ScoredDocuments copy() {
+    ScoredDocuments scoredDocs = new ScoredDocuments();
+    scoredDocs.ids = ids.clone();
+    scoredDocs.scores = scores.clone();
+    scoredDocs.docids = docids.clone();
+    scoredDocs.reader = reader;
+    scoredDocs.documents = documents.clone();
+
+    return scoredDocs;
+  }
+
+  /**
+   * Returns the results at the given positions, in the given order (e.g., to drop some of them).
+   *
+   * @param positions positions of the results to keep
+   * @return the selected results
+   */
+  public ScoredDocuments select(int[] positions) {
+    ScoredDocuments scoredDocs = new ScoredDocuments();
+    scoredDocs.ids = new int[positions.length];
+    scoredDocs.scores = new float[positions.length];
+    scoredDocs.docids = new String[positions.length];
+    scoredDocs.reader = reader;
+    scoredDocs.documents = new Document[positions.length];
+    for (int i = 0; i < positions.length; i++) {
+      scoredDocs.ids[i] = ids[positions[i]];
+      scoredDocs.scores[i] = scores[positions[i]];
+      scoredDocs.docids[i] = docids[positions[i]];
+      scoredDocs.documents[i] = documents[positions[i]];
+    }
+
+    return scoredDocs;
+  }
+
+  /**
+   * Returns the number of results.
+   *
+   * @return number of results
+   */
+  public int size() {
+    return ids.length;
+  }
+
+  /**
+   * Returns the document of a result with all its stored fields, loading them on first access.
+   *
+   * @param i position of the result
+   * @return the document, or null if it cannot be loaded
+   */
+  public Document document(int i) {
+    if (documents[i] == null && reader != null) {
+      try {
+        documents[i] = reader.document(ids[i]);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return documents[i];
+  }
+
+  /**
+   * Returns the document of a result with (at least) the given stored fields. Unless all stored fields have already
+   * been loaded, only the given ones are read, and they are not kept.
+   *
+   * @param i position of the result
+   * @param fields stored fields to load
+   * @return the document, or null if it cannot be loaded
+   */
+  public Document document(int i, Set<String> fields) {
+    if (documents[i] != null || reader == null) {
+      return documents[i];
+    }
+    try {
+      return reader.document(ids[i], fields);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   public static ScoredDocuments fromTopDocs(TopDocs rs, IndexSearcher searcher) {
     ScoredDocuments scoredDocs = new ScoredDocuments();
-    scoredDocs.documents = new Document[rs.scoreDocs.length];
     scoredDocs.ids = new int[rs.scoreDocs.length];
     scoredDocs.scores = new float[rs.scoreDocs.length];
+    scoredDocs.reader = searcher.getIndexReader();
+    scoredDocs.documents = new Document[rs.scoreDocs.length];
 
     for (int i=0; i<rs.scoreDocs.length; i++) {
-      try {
-        scoredDocs.documents[i] = searcher.doc(rs.scoreDocs[i].doc);
-      } catch (IOException e) {
-        e.printStackTrace();
-        scoredDocs.documents[i] = null;
-      }
       scoredDocs.scores[i] = rs.scoreDocs[i].score;
       scoredDocs.ids[i] = rs.scoreDocs[i].doc;
     }
 
+    try {
+      scoredDocs.docids = DocidMap.of(scoredDocs.reader).toDocids(scoredDocs.ids);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
     return scoredDocs;
   }
 
@@ -82,6 +187,7 @@ public class ScoredDocuments {
     scoredDocs.documents = new Document[length];
     scoredDocs.ids = new int[length];
     scoredDocs.scores = new float[length];
+    scoredDocs.docids = new String[length];
 
     for (int i = 0; i < length; i++) {
 
@@ -99,6 +205,7 @@ public class ScoredDocuments {
       // This is needed to break score ties by docid.
       document.add(new SortedDocValuesField(IndexArgs.ID, new BytesRef(id)));
       scoredDocs.documents[i] = document;
+      scoredDocs.docids[i] = id;
       scoredDocs.scores[i] = score;
       scoredDocs.ids[i] = i; // no internal Lucene ID available, use index as placeholder
     }
@@ -115,6 +222,7 @@ public class ScoredDocuments {
     scoredDocs.documents = new Document[length];
     scoredDocs.ids = new int[length];
     scoredDocs.scores = new float[length];
+    scoredDocs.docids = new String[length];
 
     for (int i = 0; i < length; i++) {
 
@@ -132,6 +240,7 @@ public class ScoredDocuments {
       // This is needed to break score ties by docid.
       document.add(new SortedDocValuesField(IndexArgs.ID, new BytesRef(id)));
       scoredDocs.documents[i] = document;
+      scoredDocs.docids[i] = id;
       scoredDocs.scores[i] = score;
       scoredDocs.ids[i] = i; // no internal Lucene ID available, use index as placeholder
     }
@@ -142,38 +251,30 @@ public class ScoredDocuments {
   public static ScoredDocuments fromQrels(Map<String, Integer> qrels, IndexReader reader) throws IOException {
     ScoredDocuments scoredDocs = new ScoredDocuments();
 
-    List<Document> documentList = new ArrayList<>();
+    List<String> docidList = new ArrayList<>();
     List<Integer> idList = new ArrayList<>();
     List<Float> scoreList = new ArrayList<>();
 
-    IndexSearcher searcher;
-    int i = 0;
+    IndexSearcher searcher = new IndexSearcher(reader);
     for (Map.Entry<String, Integer> qrelsDocScorePair : qrels.entrySet()) {
       String externalDocid = qrelsDocScorePair.getKey();
-      searcher = new IndexSearcher(reader);
       Query q = new TermQuery(new Term(IndexArgs.ID, externalDocid));
       TopDocs rs = searcher.search(q, 1);
-      try {
-        documentList.add(searcher.doc(rs.scoreDocs[0].doc));
-        idList.add(rs.scoreDocs[0].doc);
-        scoreList.add(Float.valueOf(qrelsDocScorePair.getValue().floatValue()));
-        i++;
-      } catch (IOException e) {
-        e.printStackTrace();
-        documentList.add(null);
-      } catch (ArrayIndexOutOfBoundsException e){
-        // e.printStackTrace();
+      if (rs.scoreDocs.length == 0) {
         LOG.warn("Cannot find document " + externalDocid);
+        continue;
       }
+      docidList.add(externalDocid);
+      idList.add(rs.scoreDocs[0].doc);
+      scoreList.add(Float.valueOf(qrelsDocScorePair.getValue().floatValue()));
     }
 
-    int length = documentList.size();
-    scoredDocs.documents = new Document[length];
-    scoredDocs.ids = new int[length];
-    scoredDocs.scores = new float[length];
-    scoredDocs.documents = documentList.toArray(scoredDocs.documents);
+    int length = idList.size();
     scoredDocs.ids = ArrayUtils.toPrimitive(idList.toArray(new Integer[length]));
     scoredDocs.scores = ArrayUtils.toPrimitive(scoreList.toArray(new Float[length]), Float.NaN);
+    scoredDocs.docids = docidList.toArray(new String[length]);
+    scoredDocs.reader = reader;
+    scoredDocs.documents = new Document[length];
 
     return scoredDocs;
   }
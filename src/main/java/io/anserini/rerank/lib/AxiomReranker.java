@@ -22,6 +22,7 @@ import io.anserini.rerank.Reranker;
 import io.anserini.rerank.RerankerContext;
 import io.anserini.rerank.ScoredDocuments;
 import io.anserini.search.SearchArgs;
+import io.anserini.search.TieBreakingTopDocsCollector;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.io.IOUtils;
@@ -141,7 +142,7 @@ public class AxiomReranker<T> implements Reranker<T> {
 
   @Override
   public ScoredDocuments rerank(ScoredDocuments docs, RerankerContext<T> context) {
-    assert(docs.documents.length == docs.scores.length);
+    assert(docs.ids.length == docs.scores.length);
 
     try {
       // First to search against external index if it is not null
@@ -209,7 +210,7 @@ public class AxiomReranker<T> implements Reranker<T> {
     } else if (context.getSearchArgs().searchtweets) {
       rs = searcher.search(finalQuery, context.getSearchArgs().hits, BREAK_SCORE_TIES_BY_TWEETID, true);
     } else {
-      rs = searcher.search(finalQuery, context.getSearchArgs().hits, BREAK_SCORE_TIES_BY_DOCID, true);
+      rs = TieBreakingTopDocsCollector.search(searcher, finalQuery, context.getSearchArgs().hits);
     }
 
     return ScoredDocuments.fromTopDocs(rs, searcher);
@@ -385,7 +386,10 @@ public class AxiomReranker<T> implements Reranker<T> {
     }
     Map<String, Set<Integer>> termDocidSets = new HashMap<>();
     for (int docid : docIds) {
-      Terms terms = reader.getTermVector(docid, IndexArgs.CONTENTS);
+      // Unless they come from an external index, term vectors come from the context, shared by all cascades reranking
+      // these results.
+      Terms terms = this.externalIndexPath == null ? context.getTermVector(docid, IndexArgs.CONTENTS) :
+          reader.getTermVector(docid, IndexArgs.CONTENTS);
       if (terms == null) {
         LOG.warn("Document vector not stored for docid: " + docid);
         continue;
@@ -562,4 +566,11 @@ public class AxiomReranker<T> implements Reranker<T> {
   public String tag() {
     return "AxiomaticRerank(R="+R+",N="+N+",K:"+K+",M:"+M+")";
   }
+
+  @Override
+  public String describe() {
+    return getClass().getName() + "[" + tag() + ",beta=" + beta + ",field=" + field + ",deterministic=" +
+        deterministic + ",seed=" + seed + ",originalIndexPath=" + originalIndexPath + ",externalIndexPath=" +
+        externalIndexPath + ",outputQuery=" + outputQuery + ",searchTweets=" + searchTweets + "]";
+  }
 }
@@ -20,6 +20,7 @@ import io.anserini.index.IndexArgs;
 import io.anserini.rerank.Reranker;
 import io.anserini.rerank.RerankerContext;
 import io.anserini.rerank.ScoredDocuments;
+import io.anserini.search.TieBreakingTopDocsCollector;
 import io.anserini.analysis.AnalyzerUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -48,7 +49,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import static io.anserini.search.SearchCollection.BREAK_SCORE_TIES_BY_DOCID;
 import static io.anserini.search.SearchCollection.BREAK_SCORE_TIES_BY_TWEETID;
 
 class BM25PrfSimilarity extends BM25Similarity {
@@ -90,15 +90,15 @@ public class BM25PrfReranker implements Reranker {
   @Override
   public ScoredDocuments rerank(ScoredDocuments docs, RerankerContext context) {
 
-    // set similarity to BM25PRF
-    IndexSearcher searcher = context.getIndexSearcher();
-    BM25Similarity originalSimilarity = (BM25Similarity) searcher.getSimilarity();
+    // Search with BM25PRF through a searcher of our own, as the searcher of the context may be shared by concurrent
+    // searches.
+    IndexReader reader = context.getIndexSearcher().getIndexReader();
+    IndexSearcher searcher = new IndexSearcher(reader);
     searcher.setSimilarity(new BM25PrfSimilarity(k1, b));
-    IndexReader reader = searcher.getIndexReader();
     List<String> originalQueryTerms = AnalyzerUtils.analyze(analyzer, context.getQueryText());
 
     boolean useRf = (context.getSearchArgs().rf_qrels != null);
-    PrfFeatures fv = expandQuery(originalQueryTerms, docs, reader, useRf);
+    PrfFeatures fv = expandQuery(originalQueryTerms, docs, reader, context, useRf);
     Query newQuery = fv.toQuery();
 
     if (this.outputQuery) {
@@ -117,18 +117,17 @@ public class BM25PrfReranker implements Reranker {
       } else if (context.getSearchArgs().searchtweets) {
         rs = searcher.search(newQuery, context.getSearchArgs().hits, BREAK_SCORE_TIES_BY_TWEETID, true);
       } else {
-        rs = searcher.search(newQuery, context.getSearchArgs().hits, BREAK_SCORE_TIES_BY_DOCID, true);
+        rs = TieBreakingTopDocsCollector.search(searcher, newQuery, context.getSearchArgs().hits);
       }
     } catch (IOException e) {
       e.printStackTrace();
       return docs;
     }
-    // set similarity back
-    searcher.setSimilarity(originalSimilarity);
     return ScoredDocuments.fromTopDocs(rs, searcher);
   }
 
-  private PrfFeatures expandQuery(List<String> originalTerms, ScoredDocuments docs, IndexReader reader, boolean useRf) {
+  private PrfFeatures expandQuery(List<String> originalTerms, ScoredDocuments docs, IndexReader reader,
+                                  RerankerContext context, boolean useRf) {
     PrfFeatures newFeatures = new PrfFeatures();
 
     Set<String> vocab = new HashSet<>();
@@ -136,9 +135,9 @@ public class BM25PrfReranker implements Reranker {
     Map<Integer, Set<String>> docToTermsMap = new HashMap<>();
     int numFbDocs;
     if (useRf){
-      numFbDocs = docs.documents.length;
+      numFbDocs = docs.size();
     } else {
-      numFbDocs = docs.documents.length < fbDocs ? docs.documents.length : fbDocs;
+      numFbDocs = docs.size() < fbDocs ? docs.size() : fbDocs;
     }
     int numDocs = reader.numDocs();
 
@@ -147,7 +146,8 @@ public class BM25PrfReranker implements Reranker {
         if (useRf && docs.scores[i] <= 0){
           continue;
         }
-        Terms terms = reader.getTermVector(docs.ids[i], field);
+        // Term vectors and document frequencies come from the context, shared by all cascades reranking these results.
+        Terms terms = context.getTermVector(docs.ids[i], field);
         Set<String> termsStr = getTermsStr(terms);
         docToTermsMap.put(docs.ids[i], termsStr);
         vocab.addAll(termsStr);
@@ -168,7 +168,7 @@ public class BM25PrfReranker implements Reranker {
       if (term.matches("[0-9]+")) continue;
 
       try {
-        int df = reader.docFreq(new Term(IndexArgs.CONTENTS, term));
+        int df = context.docFreq(new Term(IndexArgs.CONTENTS, term));
         int dfRel = 0;
 
         for (Map.Entry<Integer, Set<String>> entry : docToTermsMap.entrySet()) {
@@ -191,7 +191,7 @@ public class BM25PrfReranker implements Reranker {
 
     for (String term : originalTerms) {
       try {
-        int df = reader.docFreq(new Term(IndexArgs.CONTENTS, term));
+        int df = context.docFreq(new Term(IndexArgs.CONTENTS, term));
         int dfRel = 0;
 
         for (Map.Entry<Integer, Set<String>> entry : docToTermsMap.entrySet()) {
@@ -213,6 +213,13 @@ public class BM25PrfReranker implements Reranker {
     return "BM25PRF(fbDocs=" + fbDocs + ",fbTerms=" + fbTerms + ",k1=" + k1 + ",b=" + b + ",newTermWeight=" + newTermWeight;
   }
 
+  @Override
+  public String describe() {
+    // The analyzer is told apart by instance, as its configuration is not exposed.
+    return getClass().getName() + "[" + tag() + ",outputQuery=" + outputQuery + ",field=" + field + ",analyzer=" +
+        analyzer.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(analyzer)) + "]";
+  }
+
   private Set<String> getTermsStr(Terms terms) {
     Set<String> termsStr = new HashSet<>();
 
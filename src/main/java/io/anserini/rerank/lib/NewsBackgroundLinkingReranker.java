@@ -27,6 +27,7 @@ import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -34,7 +35,6 @@ import java.util.Map;
 import java.util.Set;
 
 import static io.anserini.index.IndexArgs.CONTENTS;
-import static io.anserini.index.IndexArgs.ID;
 import static io.anserini.index.generator.WashingtonPostGenerator.WashingtonPostField.PUBLISHED_DATE;
 
 /*
@@ -47,23 +47,23 @@ public class NewsBackgroundLinkingReranker implements Reranker {
   public ScoredDocuments rerank(ScoredDocuments docs, RerankerContext context) {
     IndexReader reader = context.getIndexSearcher().getIndexReader();
     String queryDocId = context.getQueryDocId();
-    final Map<String, Long> queryTermsMap = convertDocVectorToMap(reader, queryDocId);
+    final int queryLuceneId = IndexReaderUtils.convertDocidToLuceneDocid(reader, queryDocId);
+    final Map<String, Long> queryTermsMap = convertDocVectorToMap(reader, queryLuceneId);
     
     List<Map<String, Long>> docsVectorsMap = new ArrayList<>();
-    for (int i = 0; i < docs.documents.length; i++) {
-      String docid = docs.documents[i].getField(ID).stringValue();
-      docsVectorsMap.add(convertDocVectorToMap(reader, docid));
+    for (int i = 0; i < docs.size(); i++) {
+      docsVectorsMap.add(convertDocVectorToMap(reader, docs.ids[i]));
     }
     
     // remove the duplicates: 1. the same doc with the query doc 2. duplicated docs in the results
     Set<Integer> toRemove = new HashSet<>();
-    for (int i = 0; i < docs.documents.length; i++) {
+    for (int i = 0; i < docs.size(); i++) {
       if (toRemove.contains(i)) continue;
       if (computeCosineSimilarity(queryTermsMap, docsVectorsMap.get(i)) >= 0.9) {
         toRemove.add(i);
         continue;
       }
-      for (int j = i+1; j < docs.documents.length; j++) {
+      for (int j = i+1; j < docs.size(); j++) {
         if (computeCosineSimilarity(docsVectorsMap.get(i), docsVectorsMap.get(j)) >= 0.9) {
           toRemove.add(j);
         }
@@ -72,11 +72,11 @@ public class NewsBackgroundLinkingReranker implements Reranker {
 
     if (context.getSearchArgs().backgroundlinking_datefilter) {
       try {
-        int luceneId = IndexReaderUtils.convertDocidToLuceneDocid(reader, queryDocId);
-        Document queryDoc = reader.document(luceneId);
+        Set<String> dateField = Collections.singleton(PUBLISHED_DATE.name);
+        Document queryDoc = reader.document(queryLuceneId, dateField);
         long queryDocDate = Long.parseLong(queryDoc.getField(PUBLISHED_DATE.name).stringValue());
-        for (int i = 0; i < docs.documents.length; i++) {
-          long date = Long.parseLong(docs.documents[i].getField(PUBLISHED_DATE.name).stringValue());
+        for (int i = 0; i < docs.size(); i++) {
+          long date = Long.parseLong(docs.document(i, dateField).getField(PUBLISHED_DATE.name).stringValue());
           if (date > queryDocDate) {
             toRemove.add(i);
           }
@@ -86,29 +86,21 @@ public class NewsBackgroundLinkingReranker implements Reranker {
       }
     }
   
-    ScoredDocuments scoredDocs = new ScoredDocuments();
-    int resSize = docs.documents.length - toRemove.size();
-    scoredDocs.documents = new Document[resSize];
-    scoredDocs.ids = new int[resSize];
-    scoredDocs.scores = new float[resSize];
+    int[] toKeep = new int[docs.size() - toRemove.size()];
     int idx = 0;
-    for (int i = 0; i < docs.documents.length; i++) {
+    for (int i = 0; i < docs.size(); i++) {
       if (!toRemove.contains(i)) {
-        scoredDocs.documents[idx] = docs.documents[i];
-        scoredDocs.scores[idx] = docs.scores[i];
-        scoredDocs.ids[idx] = docs.ids[i];
-        idx++;
+        toKeep[idx++] = i;
       }
     }
   
-    return scoredDocs;
+    return docs.select(toKeep);
   }
   
-  private Map<String, Long> convertDocVectorToMap(IndexReader reader, String docid) {
+  private Map<String, Long> convertDocVectorToMap(IndexReader reader, int luceneId) {
     Map<String, Long> m = new HashMap<>();
     try {
-      Terms terms = reader.getTermVector(
-          IndexReaderUtils.convertDocidToLuceneDocid(reader, docid), CONTENTS);
+      Terms terms = reader.getTermVector(luceneId, CONTENTS);
       TermsEnum it = terms.iterator();
       while (it.next() != null) {
         String term = it.term().utf8ToString();
@@ -20,6 +20,7 @@ import io.anserini.index.IndexArgs;
 import io.anserini.rerank.Reranker;
 import io.anserini.rerank.RerankerContext;
 import io.anserini.rerank.ScoredDocuments;
+import io.anserini.search.TieBreakingTopDocsCollector;
 import io.anserini.analysis.AnalyzerUtils;
 import io.anserini.util.FeatureVector;
 import org.apache.logging.log4j.LogManager;
@@ -45,7 +46,6 @@ import java.util.List;
 import java.util.Iterator;
 import java.util.Set;
 
-import static io.anserini.search.SearchCollection.BREAK_SCORE_TIES_BY_DOCID;
 import static io.anserini.search.SearchCollection.BREAK_SCORE_TIES_BY_TWEETID;
 
 public class Rm3Reranker implements Reranker {
@@ -70,7 +70,7 @@ public class Rm3Reranker implements Reranker {
 
   @Override
   public ScoredDocuments rerank(ScoredDocuments docs, RerankerContext context) {
-    assert(docs.documents.length == docs.scores.length);
+    assert(docs.ids.length == docs.scores.length);
 
     IndexSearcher searcher = context.getIndexSearcher();
     IndexReader reader = searcher.getIndexReader();
@@ -78,7 +78,7 @@ public class Rm3Reranker implements Reranker {
     FeatureVector qfv = FeatureVector.fromTerms(AnalyzerUtils.analyze(analyzer, context.getQueryText())).scaleToUnitL1Norm();
 
     boolean useRf = (context.getSearchArgs().rf_qrels != null);
-    FeatureVector rm = estimateRelevanceModel(docs, reader, context.getSearchArgs().searchtweets, useRf);
+    FeatureVector rm = estimateRelevanceModel(docs, reader, context, context.getSearchArgs().searchtweets, useRf);
 
     rm = FeatureVector.interpolate(qfv, rm, originalQueryWeight);
 
@@ -117,7 +117,7 @@ public class Rm3Reranker implements Reranker {
       } else if (context.getSearchArgs().searchtweets) {
         rs = searcher.search(finalQuery, context.getSearchArgs().hits, BREAK_SCORE_TIES_BY_TWEETID, true);
       } else {
-        rs = searcher.search(finalQuery, context.getSearchArgs().hits, BREAK_SCORE_TIES_BY_DOCID, true);
+        rs = TieBreakingTopDocsCollector.search(searcher, finalQuery, context.getSearchArgs().hits);
       }
     } catch (IOException e) {
       e.printStackTrace();
@@ -127,16 +127,17 @@ public class Rm3Reranker implements Reranker {
     return ScoredDocuments.fromTopDocs(rs, searcher);
   }
 
-  private FeatureVector estimateRelevanceModel(ScoredDocuments docs, IndexReader reader, boolean tweetsearch, boolean useRf) {
+  private FeatureVector estimateRelevanceModel(ScoredDocuments docs, IndexReader reader, RerankerContext context,
+                                               boolean tweetsearch, boolean useRf) {
     FeatureVector f = new FeatureVector();
 
     Set<String> vocab = new HashSet<>();
     int numdocs;
     if (useRf) {
-      numdocs = docs.documents.length;
+      numdocs = docs.size();
     }
     else {
-      numdocs = docs.documents.length < fbDocs ? docs.documents.length : fbDocs;
+      numdocs = docs.size() < fbDocs ? docs.size() : fbDocs;
     }
 
     List<FeatureVector> docvectors = new ArrayList<>();
@@ -146,8 +147,9 @@ public class Rm3Reranker implements Reranker {
         continue;
       }
       try {
+        // Term vectors and document frequencies come from the context, shared by all cascades reranking these results.
         FeatureVector docVector = createdFeatureVector(
-            reader.getTermVector(docs.ids[i], field), reader, tweetsearch);
+            context.getTermVector(docs.ids[i], field), reader, context, tweetsearch);
         docVector.pruneToSize(fbTerms);
         vocab.addAll(docVector.getFeatures());
         docvectors.add(docVector);
@@ -184,7 +186,8 @@ public class Rm3Reranker implements Reranker {
     return f;
   }
 
-  private FeatureVector createdFeatureVector(Terms terms, IndexReader reader, boolean tweetsearch) {
+  private FeatureVector createdFeatureVector(Terms terms, IndexReader reader, RerankerContext context,
+                                             boolean tweetsearch) {
     FeatureVector f = new FeatureVector();
 
     try {
@@ -232,7 +235,7 @@ public class Rm3Reranker implements Reranker {
         //
         // With both values, we obtained effectiveness pretty close to the old values with the
         // custom stopwords list.
-        int df = reader.docFreq(new Term(IndexArgs.CONTENTS, term));
+        int df = context.docFreq(new Term(IndexArgs.CONTENTS, term));
         float ratio = (float) df / numDocs;
         if (tweetsearch) {
           if (numDocs > 100000000) { // Probably Tweets2013
@@ -258,4 +261,11 @@ public class Rm3Reranker implements Reranker {
   public String tag() {
     return "Rm3(fbDocs="+fbDocs+",fbTerms="+fbTerms+",originalQueryWeight:"+originalQueryWeight+")";
   }
+
+  @Override
+  public String describe() {
+    // The analyzer is told apart by instance, as its configuration is not exposed.
+    return getClass().getName() + "[" + tag() + ",outputQuery=" + outputQuery + ",field=" + field + ",analyzer=" +
+        analyzer.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(analyzer)) + "]";
+  }
 }
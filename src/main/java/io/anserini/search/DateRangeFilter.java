@@ -0,0 +1,75 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.search;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.Query;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Builds filters on date fields indexed as a {@link LongPoint} plus a {@link NumericDocValuesField} holding the epoch
+ * day, as the GRDC generators do for {@code commence_date}, {@code complete_date} and {@code publish_date}. The
+ * filter is meant to be added as a {@code FILTER} clause: it walks the point tree when it leads the search, checks
+ * doc values when a selective query leads, and can be cached like any other filter.
+ */
+public final class DateRangeFilter {
+  private DateRangeFilter() {
+  }
+
+  /**
+   * Returns a filter matching documents dated between two dates, both inclusive. A bound may be a day
+   * ("2015-06-30"), a month ("2015-06") or a year ("2015"), which includes the whole month or year; a {@code null}
+   * or empty bound leaves the range open on that side.
+   *
+   * @param field date field
+   * @param from earliest date
+   * @param to latest date
+   * @return filter
+   * @throws IllegalArgumentException if a bound can't be parsed
+   */
+  public static Query newRangeQuery(String field, String from, String to) {
+    long lower = from == null || from.isEmpty() ? Long.MIN_VALUE : parse(from, true);
+    long upper = to == null || to.isEmpty() ? Long.MAX_VALUE : parse(to, false);
+    return new IndexOrDocValuesQuery(LongPoint.newRangeQuery(field, lower, upper),
+        NumericDocValuesField.newSlowRangeQuery(field, lower, upper));
+  }
+
+  // Returns the first (or last) epoch day of a day, month or year.
+  private static long parse(String date, boolean first) {
+    try {
+      switch (date.length()) {
+        case 4:
+          Year year = Year.parse(date);
+          return (first ? year.atDay(1) : year.atMonth(12).atEndOfMonth()).toEpochDay();
+        case 7:
+          YearMonth month = YearMonth.parse(date);
+          return (first ? month.atDay(1) : month.atEndOfMonth()).toEpochDay();
+        default:
+          return LocalDate.parse(date).toEpochDay();
+      }
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid date \"" + date + "\", expected yyyy, yyyy-MM or yyyy-MM-dd");
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.search;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link QueryCachingPolicy} that always caches the facet drill-down filters it has built, so that the bitset of
+ * a filter is computed once per segment and reused by every later search drilling down on the same values. Other
+ * queries are left to a {@link UsageTrackingQueryCachingPolicy}, as with a default {@code IndexSearcher}. Filters
+ * match on {@code SortedSetDocValues}, so they work on fields that are not indexed; the per-segment scan this costs
+ * is only paid until the filter is cached. Only the most recently used filters are remembered, as many as the default
+ * query cache of an {@code IndexSearcher} holds, so that the policy does not grow with every combination of values
+ * ever drilled down on.
+ */
+public class DrillDownCachingPolicy implements QueryCachingPolicy {
+  /** Default maximum number of filters remembered (as the default query cache of Lucene). */
+  public static final int DEFAULT_MAX_FILTERS = 1000;
+
+  private final QueryCachingPolicy delegate = new UsageTrackingQueryCachingPolicy();
+  private final Cache<Query, Boolean> filters;
+
+  public DrillDownCachingPolicy() {
+    this(DEFAULT_MAX_FILTERS);
+  }
+
+  /**
+   * @param maxFilters maximum number of filters remembered; the least recently used ones are forgotten first
+   */
+  public DrillDownCachingPolicy(int maxFilters) {
+    this.filters = CacheBuilder.newBuilder().maximumSize(maxFilters).build();
+  }
+
+  /**
+   * Builds a filter matching documents with any of the given values in a field.
+   *
+   * @param field name of the {@code SortedSetDocValues} field
+   * @param values values to match
+   * @return filter, to be added as a {@link BooleanClause.Occur#FILTER} clause
+   */
+  public Query filter(String field, Collection<String> values) {
+    List<String> distinct = values.stream().distinct().collect(Collectors.toList());
+    if (distinct.isEmpty()) {
+      throw new IllegalArgumentException("No values to drill down on in field " + field);
+    }
+
+    // Built in the form it rewrites to, so that the cache sees the same query.
+    Query filter;
+    if (distinct.size() == 1) {
+      filter = SortedSetDocValuesField.newSlowExactQuery(field, new BytesRef(distinct.get(0)));
+    } else {
+      BooleanQuery.Builder builder = new BooleanQuery.Builder();
+      for (String value : distinct) {
+        builder.add(SortedSetDocValuesField.newSlowExactQuery(field, new BytesRef(value)), BooleanClause.Occur.SHOULD);
+      }
+      filter = builder.build();
+    }
+    filters.put(filter, Boolean.TRUE);
+    return filter;
+  }
+
+  @Override
+  public void onUse(Query query) {
+    delegate.onUse(query);
+  }
+
+  @Override
+  public boolean shouldCache(Query query) throws IOException {
+    return filters.getIfPresent(query) != null || delegate.shouldCache(query);
+  }
+}
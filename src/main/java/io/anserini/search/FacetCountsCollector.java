@@ -0,0 +1,119 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.search;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link org.apache.lucene.search.Collector} that counts the values of {@code SortedSetDocValues} fields over all
+ * matching documents, so that facet counts come out of the same pass as the top hits (e.g., by wrapping both in a
+ * {@link org.apache.lucene.search.MultiCollector}), without loading any stored fields. Counts are kept per segment
+ * ordinal and only resolved to values when moving on to the next segment.
+ */
+public class FacetCountsCollector extends SimpleCollector {
+  private final String[] fields;
+  private final List<Map<String, Integer>> counts = new ArrayList<>();
+
+  private SortedSetDocValues[] values;
+  private int[][] segmentCounts;
+
+  /**
+   * Creates a collector counting the values of the given fields.
+   *
+   * @param fields names of the {@code SortedSetDocValues} fields
+   */
+  public FacetCountsCollector(List<String> fields) {
+    this.fields = fields.toArray(new String[0]);
+    for (int i = 0; i < this.fields.length; i++) {
+      counts.add(new HashMap<>());
+    }
+  }
+
+  @Override
+  protected void doSetNextReader(LeafReaderContext context) throws IOException {
+    flush();
+    values = new SortedSetDocValues[fields.length];
+    segmentCounts = new int[fields.length][];
+    for (int i = 0; i < fields.length; i++) {
+      values[i] = DocValues.getSortedSet(context.reader(), fields[i]);
+      segmentCounts[i] = new int[(int) values[i].getValueCount()];
+    }
+  }
+
+  @Override
+  public void collect(int doc) throws IOException {
+    for (int i = 0; i < fields.length; i++) {
+      if (values[i].advanceExact(doc)) {
+        for (long ord = values[i].nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = values[i].nextOrd()) {
+          segmentCounts[i][(int) ord]++;
+        }
+      }
+    }
+  }
+
+  @Override
+  public ScoreMode scoreMode() {
+    return ScoreMode.COMPLETE_NO_SCORES;
+  }
+
+  // Resolves the ordinal counts of the current segment into values.
+  private void flush() throws IOException {
+    if (values == null) {
+      return;
+    }
+    for (int i = 0; i < fields.length; i++) {
+      for (int ord = 0; ord < segmentCounts[i].length; ord++) {
+        if (segmentCounts[i][ord] > 0) {
+          counts.get(i).merge(values[i].lookupOrd(ord).utf8ToString(), segmentCounts[i][ord], Integer::sum);
+        }
+      }
+    }
+    values = null;
+    segmentCounts = null;
+  }
+
+  /**
+   * Returns the facet counts, once collection is done.
+   *
+   * @return map from field to its values and their counts, in decreasing order of counts (ties by value)
+   * @throws IOException if error encountered reading doc values
+   */
+  public Map<String, Map<String, Integer>> getCounts() throws IOException {
+    flush();
+    Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+    for (int i = 0; i < fields.length; i++) {
+      Map<String, Integer> sorted = new LinkedHashMap<>();
+      counts.get(i).entrySet().stream()
+          .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+          .forEachOrdered(e -> sorted.put(e.getKey(), e.getValue()));
+      facets.put(fields[i], sorted);
+    }
+    return facets;
+  }
+}
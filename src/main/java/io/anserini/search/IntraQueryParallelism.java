@@ -0,0 +1,136 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.search;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates {@link IndexSearcher}s that score the segments of a single query in parallel. Segments are grouped into
+ * slices, each of which is searched by a task on a shared executor, and the per-slice top hits are merged. This cuts
+ * the latency of a query, which would otherwise be bound by scoring every segment on one core, at the cost of some
+ * overhead per query: it pays off for interactive searches on large indexes, rather than for batch runs that already
+ * keep every core busy with a query each.
+ */
+public final class IntraQueryParallelism {
+  /** Default maximum number of documents in a slice (as Lucene). */
+  public static final int DEFAULT_MAX_DOCS_PER_SLICE = 250_000;
+  /** Default maximum number of segments in a slice (as Lucene). */
+  public static final int DEFAULT_MAX_SEGMENTS_PER_SLICE = 5;
+
+  private IntraQueryParallelism() {
+  }
+
+  /**
+   * Creates an executor to share between searchers. Its threads are daemons, so an executor that is not shut down
+   * does not keep the JVM alive.
+   *
+   * @param threads number of threads
+   * @return executor to score slices on
+   */
+  public static ExecutorService newExecutor(int threads) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Number of intra-query threads must be positive, got " + threads + ".");
+    }
+    return Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setNameFormat("intra-query-%d").setDaemon(true).build());
+  }
+
+  /**
+   * Creates a searcher that scores the slices of a query in parallel on an executor. Segments larger than
+   * {@code maxDocsPerSlice} get a slice of their own; smaller ones are grouped, up to {@code maxDocsPerSlice} documents
+   * and {@code maxSegmentsPerSlice} segments per slice. Slices that the executor rejects (e.g., because it was shut
+   * down while the search was in flight) are scored on the calling thread, so the executor can be replaced at any time.
+   *
+   * @param reader reader to search
+   * @param executor executor to score slices on, or {@code null} to score them on the calling thread
+   * @param maxDocsPerSlice maximum number of documents in a slice
+   * @param maxSegmentsPerSlice maximum number of segments in a slice
+   * @return searcher over the reader
+   */
+  public static IndexSearcher newSearcher(IndexReader reader, ExecutorService executor, int maxDocsPerSlice,
+                                          int maxSegmentsPerSlice) {
+    if (executor == null) {
+      return new IndexSearcher(reader);
+    }
+    if (maxDocsPerSlice <= 0 || maxSegmentsPerSlice <= 0) {
+      throw new IllegalArgumentException("Slices must allow at least one document and one segment.");
+    }
+
+    // Note that IndexSearcher computes its slices in its constructor, before fields of a subclass are assigned; the
+    // parameters captured by this anonymous class are assigned before, and are therefore safe to use.
+    return new IndexSearcher(reader, new CallerRunsOnRejection(executor)) {
+      @Override
+      protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        return slices(leaves, maxDocsPerSlice, maxSegmentsPerSlice);
+      }
+    };
+  }
+
+  // Runs the tasks rejected by an executor on the calling thread.
+  private static final class CallerRunsOnRejection extends AbstractExecutorService {
+    private final ExecutorService executor;
+
+    private CallerRunsOnRejection(ExecutorService executor) {
+      this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+      try {
+        executor.execute(task);
+      } catch (RejectedExecutionException e) {
+        task.run();
+      }
+    }
+
+    @Override
+    public void shutdown() {
+      executor.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      return executor.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return executor.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return executor.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      return executor.awaitTermination(timeout, unit);
+    }
+  }
+}
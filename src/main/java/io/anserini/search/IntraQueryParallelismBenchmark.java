@@ -0,0 +1,177 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.search;
+
+import io.anserini.search.topicreader.TopicReader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+import org.kohsuke.args4j.OptionHandlerFilter;
+import org.kohsuke.args4j.ParserProperties;
+import org.kohsuke.args4j.spi.StringArrayOptionHandler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures query latency and throughput of {@link SimpleSearcher} with and without intra-query parallelism (see
+ * {@link IntraQueryParallelism}), at different numbers of concurrent clients. Every combination of intra-query
+ * threads and concurrency runs the topics (titles) for a number of rounds, after a warm-up pass; the results of every
+ * configuration are checked against those of the first.
+ */
+public final class IntraQueryParallelismBenchmark {
+  private static final Logger LOG = LogManager.getLogger(IntraQueryParallelismBenchmark.class);
+
+  public static final class Args {
+    @Option(name = "-index", metaVar = "[path]", required = true, usage = "Path to Lucene index.")
+    public String index;
+
+    @Option(name = "-topics", metaVar = "[file]", required = true, usage = "Topics file.")
+    public String topics;
+
+    @Option(name = "-hits", metaVar = "[number]", usage = "Max number of hits to return.")
+    public int hits = 1000;
+
+    @Option(name = "-concurrency", metaVar = "[number]", handler = StringArrayOptionHandler.class,
+        usage = "Numbers of concurrent clients issuing queries.")
+    public String[] concurrency = new String[] {"1", "4", "16"};
+
+    @Option(name = "-intraquery.threads", metaVar = "[number]", handler = StringArrayOptionHandler.class,
+        usage = "Numbers of intra-query threads; 0 scores segments on the client thread.")
+    public String[] intraQueryThreads = new String[] {"0", "8"};
+
+    @Option(name = "-intraquery.maxDocsPerSlice", metaVar = "[number]",
+        usage = "Maximum number of documents in a slice.")
+    public int maxDocsPerSlice = IntraQueryParallelism.DEFAULT_MAX_DOCS_PER_SLICE;
+
+    @Option(name = "-intraquery.maxSegmentsPerSlice", metaVar = "[number]",
+        usage = "Maximum number of segments in a slice.")
+    public int maxSegmentsPerSlice = IntraQueryParallelism.DEFAULT_MAX_SEGMENTS_PER_SLICE;
+
+    @Option(name = "-rounds", metaVar = "[number]", usage = "Number of times to run the topics per configuration.")
+    public int rounds = 3;
+  }
+
+  private IntraQueryParallelismBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    Args benchmarkArgs = new Args();
+    CmdLineParser parser = new CmdLineParser(benchmarkArgs, ParserProperties.defaults().withUsageWidth(100));
+
+    try {
+      parser.parseArgument(args);
+    } catch (CmdLineException e) {
+      System.err.println(e.getMessage());
+      parser.printUsage(System.err);
+      System.err.println("Example: IntraQueryParallelismBenchmark" +
+          parser.printExample(OptionHandlerFilter.REQUIRED));
+      return;
+    }
+
+    SortedMap<Object, Map<String, String>> topics = TopicReader.getTopicsByFile(benchmarkArgs.topics);
+    List<String> queries = new ArrayList<>();
+    for (Map<String, String> topic : topics.values()) {
+      queries.add(topic.get("title"));
+    }
+    LOG.info(String.format("Benchmarking %d queries, %d hits each", queries.size(), benchmarkArgs.hits));
+
+    System.out.println(String.format(Locale.US, "%-14s %-12s %12s %12s %12s %12s",
+        "intra-threads", "concurrency", "mean (ms)", "p50 (ms)", "p99 (ms)", "queries/s"));
+
+    Map<String, List<String>> expected = null;
+    try (SimpleSearcher searcher = new SimpleSearcher(benchmarkArgs.index)) {
+      for (String intraQueryThreads : benchmarkArgs.intraQueryThreads) {
+        int threads = Integer.parseInt(intraQueryThreads);
+        if (threads > 0) {
+          searcher.setIntraQueryParallelism(threads, benchmarkArgs.maxDocsPerSlice, benchmarkArgs.maxSegmentsPerSlice);
+        } else {
+          searcher.unsetIntraQueryParallelism();
+        }
+
+        // Warm up (loading postings into the page cache, JIT compilation, etc.), and check results.
+        Map<String, List<String>> docids = new HashMap<>();
+        for (String query : queries) {
+          List<String> ids = new ArrayList<>();
+          for (SimpleSearcher.Result result : searcher.search(query, benchmarkArgs.hits)) {
+            ids.add(result.docid);
+          }
+          docids.put(query, ids);
+        }
+        if (expected == null) {
+          expected = docids;
+        } else if (!expected.equals(docids)) {
+          LOG.warn(String.format("Results with %d intra-query threads differ from those with %s.", threads,
+              benchmarkArgs.intraQueryThreads[0]));
+        }
+
+        for (String concurrency : benchmarkArgs.concurrency) {
+          run(searcher, queries, benchmarkArgs.hits, benchmarkArgs.rounds, threads, Integer.parseInt(concurrency));
+        }
+      }
+    }
+  }
+
+  // Runs the queries from a number of concurrent clients, and prints latency percentiles and throughput.
+  private static void run(SimpleSearcher searcher, List<String> queries, int hits, int rounds, int intraQueryThreads,
+                          int concurrency) throws Exception {
+    ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+    List<Future<Long>> latencies = new ArrayList<>();
+
+    long start = System.nanoTime();
+    for (int round = 0; round < rounds; round++) {
+      for (String query : queries) {
+        latencies.add(clients.submit(() -> {
+          long queryStart = System.nanoTime();
+          searcher.search(query, hits);
+          return System.nanoTime() - queryStart;
+        }));
+      }
+    }
+
+    long[] nanos = new long[latencies.size()];
+    for (int i = 0; i < nanos.length; i++) {
+      nanos[i] = latencies.get(i).get();
+    }
+    long elapsed = System.nanoTime() - start;
+    clients.shutdown();
+
+    Arrays.sort(nanos);
+    double mean = Arrays.stream(nanos).average().orElse(0) / 1e6;
+    System.out.println(String.format(Locale.US, "%-14d %-12d %12.2f %12.2f %12.2f %12.1f",
+        intraQueryThreads, concurrency, mean, percentile(nanos, 0.5) / 1e6, percentile(nanos, 0.99) / 1e6,
+        nanos.length / (elapsed / 1e9)));
+  }
+
+  private static long percentile(long[] sorted, double p) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+  }
+}
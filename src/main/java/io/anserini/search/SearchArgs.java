@@ -40,6 +40,18 @@ public class SearchArgs {
   @Option(name = "-threads", metaVar = "[Number]", usage = "Number of Threads")
   public int threads = 1;
 
+  @Option(name = "-intraquery.threads", metaVar = "[Number]", usage = "Number of threads (shared by all queries) " +
+      "to score the segments of each query in parallel; 0 scores them on the thread running the query")
+  public int intraQueryThreads = 0;
+
+  @Option(name = "-intraquery.maxDocsPerSlice", metaVar = "[Number]", usage = "Maximum number of documents in a " +
+      "slice of segments scored in parallel")
+  public int intraQueryMaxDocsPerSlice = IntraQueryParallelism.DEFAULT_MAX_DOCS_PER_SLICE;
+
+  @Option(name = "-intraquery.maxSegmentsPerSlice", metaVar = "[Number]", usage = "Maximum number of segments in a " +
+      "slice of segments scored in parallel")
+  public int intraQueryMaxSegmentsPerSlice = IntraQueryParallelism.DEFAULT_MAX_SEGMENTS_PER_SLICE;
+
   @Option(name = "-language", usage = "Analyzer Language")
   public String language = "en";
 
@@ -77,6 +89,20 @@ public class SearchArgs {
       "for the TREC News Track Background Linking task.")
   public boolean backgroundlinking_datefilter = false;
 
+  @Option(name = "-datefilter.field", metaVar = "[field]", usage = "Date field to restrict results to a range of " +
+      "dates; the field must be indexed as a LongPoint of epoch days, as GRDC dates are")
+  public String datefilter_field = "publish_date";
+
+  @Option(name = "-datefilter.from", metaVar = "[date]", forbids = {"-searchtweets", "-backgroundlinking"},
+      usage = "Earliest date (yyyy, yyyy-MM or yyyy-MM-dd, inclusive) of the results; not supported for tweets and " +
+          "background linking")
+  public String datefilter_from = null;
+
+  @Option(name = "-datefilter.to", metaVar = "[date]", forbids = {"-searchtweets", "-backgroundlinking"},
+      usage = "Latest date (yyyy, yyyy-MM or yyyy-MM-dd, inclusive) of the results; not supported for tweets and " +
+          "background linking")
+  public String datefilter_to = null;
+
   @Option(name = "-stemmer", usage = "Stemmer: one of the following porter,krovetz,none. Default porter")
   public String stemmer = "porter";
 
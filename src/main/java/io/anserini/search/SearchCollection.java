@@ -91,6 +91,7 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.BufferedReader;
@@ -100,8 +101,10 @@ import java.nio.file.StandardOpenOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -110,6 +113,7 @@ import java.util.HashMap;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -128,6 +132,7 @@ public final class SearchCollection implements Closeable {
 
   private final SearchArgs args;
   private final IndexReader reader;
+  private final ExecutorService sliceExecutor;
   private final Analyzer analyzer;
   private List<TaggedSimilarity> similarities;
   private List<RerankerCascade> cascades;
@@ -135,117 +140,181 @@ public final class SearchCollection implements Closeable {
   private Map<String, ScoredDocuments> qrels;
   private Set<String> queriesWithRel; 
 
-  private final class SearcherThread<K> extends Thread {
-    final private IndexReader reader;
-    final private IndexSearcher searcher;
-    final private SortedMap<K, Map<String, String>> topics;
-    final private TaggedSimilarity taggedSimilarity;
-    final private RerankerCascade cascade;
-    final private String outputPath;
-    final private String runTag;
-
-    private SearcherThread(IndexReader reader, SortedMap<K, Map<String, String>> topics, TaggedSimilarity taggedSimilarity,
-                           RerankerCascade cascade, Map<String, ScoredDocuments> qrels, String outputPath, 
-                           String runTag) {
-      this.reader = reader;
-      this.topics = topics;
-      this.taggedSimilarity = taggedSimilarity;
-      this.cascade = cascade;
-      this.runTag = runTag;
-      this.outputPath = outputPath;
-      this.searcher = new IndexSearcher(this.reader);
-      this.searcher.setSimilarity(this.taggedSimilarity.getSimilarity());
-      setName(outputPath);
-    }
-
-    @Override
-    public void run() {
+  // Writes the results of the topics of a run in topic order, as their searches complete in any order, so that the run
+  // file is the same regardless of the number of threads. Results go to a temporary file next to the run file, which
+  // is renamed to the run file once all topics are written, so that a run that fails leaves no partial run file (and
+  // -skipexists does not take one for a complete run).
+  private final class RunWriter<K> {
+    final private String id;
+    final private int topicCount;
+    final private Path outputPath;
+    final private Path tempPath;
+    final private PrintWriter out;
+    final private long start = System.nanoTime();
+    // Results of topics that completed before some topic preceding them, by topic index.
+    final private Map<Integer, String> pending = new HashMap<>();
+    private int next = 0;
+    private boolean failed = false;
+    private boolean completed = false;
+
+    private RunWriter(String id, String outputPath, int topicCount) throws IOException {
+      this.id = id;
+      this.topicCount = topicCount;
+      this.outputPath = Paths.get(outputPath).toAbsolutePath();
+      this.tempPath = Files.createTempFile(this.outputPath.getParent(), this.outputPath.getFileName().toString(), ".tmp");
+      this.out = new PrintWriter(Files.newBufferedWriter(tempPath, StandardCharsets.US_ASCII));
+      LOG.info("[Start] " + id);
+      if (topicCount == 0) {
+        finish();
+      }
+    }
+
+    private synchronized boolean isFailed() {
+      return failed;
+    }
+
+    private synchronized boolean isCompleted() {
+      return completed;
+    }
+
+    private synchronized void write(int index, String results) throws IOException {
+      if (failed) {
+        return;
+      }
+
+      pending.put(index, results);
+      while (pending.containsKey(next)) {
+        out.print(pending.remove(next));
+        next++;
+        if (next % 100 == 0) {
+          LOG.info(String.format("%d queries processed", next));
+        }
+      }
+      if (next == topicCount) {
+        finish();
+      }
+    }
+
+    // As when topics were searched one after another, the run stops at the first topic that fails.
+    private synchronized void fail(K qid, Exception e) {
+      LOG.error(String.format("%s: Unexpected Exception on topic %s:", id, qid), e);
+      discard();
+    }
+
+    // Drops the results of a run that failed or did not complete.
+    private synchronized void discard() {
+      if (failed || completed) {
+        return;
+      }
+      failed = true;
+      pending.clear();
+      out.close();
       try {
-        String id = String.format("ranker: %s, reranker: %s", taggedSimilarity.getTag(), cascade.getTag());
-        LOG.info("[Start] " + id);
-
-        int cnt = 0;
-        final long start = System.nanoTime();
-        PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(outputPath), StandardCharsets.US_ASCII));
-        for (Map.Entry<K, Map<String, String>> entry : topics.entrySet()) {
-          K qid = entry.getKey();
-
-          String queryString = "";
-          if (args.topicfield.contains("+")) {
-            for (String field : args.topicfield.split("\\+")) {
-              queryString += " " + entry.getValue().get(field);
-            }
-          } else {
-            queryString = entry.getValue().get(args.topicfield);
-          }
+        Files.deleteIfExists(tempPath);
+      } catch (IOException e) {
+        LOG.warn(String.format("%s: Unable to delete %s", id, tempPath), e);
+      }
+    }
 
-          ScoredDocuments queryQrels = null;
-          boolean hasRelDocs = false;
-          String qidString = qid.toString();
-          if (qrels != null){
-            queryQrels = qrels.get(qidString);
-            if (queriesWithRel.contains(qidString)) {
-              hasRelDocs = true;
-            }
-          }
-          ScoredDocuments docs;
-          if (args.searchtweets) {
-            docs = searchTweets(this.searcher, qid, queryString, Long.parseLong(entry.getValue().get("time")), cascade, queryQrels, hasRelDocs);
-          } else if (args.backgroundlinking) {
-            docs = searchBackgroundLinking(this.searcher, qid, queryString, cascade);
-          } else {
-            docs = search(this.searcher, qid, queryString, cascade, queryQrels, hasRelDocs);
-          }
+    private void finish() throws IOException {
+      out.flush();
+      out.close();
+      if (out.checkError()) {
+        discard();
+        throw new IOException("Unable to write " + tempPath);
+      }
+      try {
+        Files.move(tempPath, outputPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        discard();
+        throw e;
+      }
+      completed = true;
+      final long durationMillis = TimeUnit.MILLISECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 
-          // For removing duplicate docids.
-          Set<String> docids = new HashSet<>();
-
-          /*
-           * the first column is the topic number.
-           * the second column is currently unused and should always be "Q0".
-           * the third column is the official document identifier of the retrieved document.
-           * the fourth column is the rank the document is retrieved.
-           * the fifth column shows the score (integer or floating point) that generated the ranking.
-           * the sixth column is called the "run tag" and should be a unique identifier for your
-           */
-          int rank = 1;
-          for (int i = 0; i < docs.documents.length; i++) {
-            String docid = docs.documents[i].get(IndexArgs.ID);
-
-            if (args.strip_segment_id) {
-              docid = docid.split("\\.")[0];
-            }
+      LOG.info("[End  ] " + id);
+      LOG.info(topicCount + " topics processed in " + DurationFormatUtils.formatDuration(durationMillis, "HH:mm:ss"));
+    }
+  }
 
-            if (docids.contains(docid))
-              continue;
+  // Searches a topic, reranks the results with each cascade, and returns the results of each in the format of a run
+  // file.
+  private <K> List<String> searchTopic(IndexSearcher searcher, K qid, Map<String, String> topic,
+                                       List<RerankerCascade> cascades, String runTag) throws IOException {
+    String queryString = "";
+    if (args.topicfield.contains("+")) {
+      for (String field : args.topicfield.split("\\+")) {
+        queryString += " " + topic.get(field);
+      }
+    } else {
+      queryString = topic.get(args.topicfield);
+    }
 
-            out.println(String.format(Locale.US, "%s Q0 %s %d %f %s",
-                qid, docid, rank, docs.scores[i], runTag));
+    ScoredDocuments queryQrels = null;
+    boolean hasRelDocs = false;
+    String qidString = qid.toString();
+    if (qrels != null){
+      queryQrels = qrels.get(qidString);
+      if (queriesWithRel.contains(qidString)) {
+        hasRelDocs = true;
+      }
+    }
+    List<ScoredDocuments> results;
+    if (args.searchtweets) {
+      results = searchTweets(searcher, qid, queryString, Long.parseLong(topic.get("time")), cascades, queryQrels,
+          hasRelDocs);
+    } else if (args.backgroundlinking) {
+      results = searchBackgroundLinking(searcher, qid, queryString, cascades);
+    } else {
+      results = search(searcher, qid, queryString, cascades, queryQrels, hasRelDocs);
+    }
 
-            // Note that this option is set to false by default because duplicate documents usually indicate some
-            // underlying indexing issues, and we don't want to just eat errors silently.
-            if (args.removedups) {
-              docids.add(docid);
-            }
+    List<String> runs = new ArrayList<>(results.size());
+    for (ScoredDocuments docs : results) {
+      runs.add(formatResults(qid, docs, runTag));
+    }
+    return runs;
+  }
 
-            rank++;
-          }
-          cnt++;
-          if (cnt % 100 == 0) {
-            LOG.info(String.format("%d queries processed", cnt));
-          }
-        }
-        out.flush();
-        out.close();
-        final long durationMillis = TimeUnit.MILLISECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+  private <K> String formatResults(K qid, ScoredDocuments docs, String runTag) {
+    // For removing duplicate docids.
+    Set<String> docids = new HashSet<>();
+
+    /*
+     * the first column is the topic number.
+     * the second column is currently unused and should always be "Q0".
+     * the third column is the official document identifier of the retrieved document.
+     * the fourth column is the rank the document is retrieved.
+     * the fifth column shows the score (integer or floating point) that generated the ranking.
+     * the sixth column is called the "run tag" and should be a unique identifier for your
+     */
+    StringWriter results = new StringWriter();
+    PrintWriter out = new PrintWriter(results);
+    int rank = 1;
+    for (int i = 0; i < docs.size(); i++) {
+      String docid = docs.docids[i];
+
+      if (args.strip_segment_id) {
+        docid = docid.split("\\.")[0];
+      }
 
-        LOG.info("[End  ] " + id);
-        LOG.info(topics.size() + " topics processed in "
-            + DurationFormatUtils.formatDuration(durationMillis, "HH:mm:ss"));
-      } catch (Exception e) {
-        LOG.error(Thread.currentThread().getName() + ": Unexpected Exception:", e);
+      if (docids.contains(docid))
+        continue;
+
+      out.println(String.format(Locale.US, "%s Q0 %s %d %f %s",
+          qid, docid, rank, docs.scores[i], runTag));
+
+      // Note that this option is set to false by default because duplicate documents usually indicate some
+      // underlying indexing issues, and we don't want to just eat errors silently.
+      if (args.removedups) {
+        docids.add(docid);
       }
+
+      rank++;
     }
+    out.flush();
+
+    return results.toString();
   }
 
   public SearchCollection(SearchArgs args) throws IOException {
@@ -255,6 +324,12 @@ public final class SearchCollection implements Closeable {
     if (!Files.exists(indexPath) || !Files.isDirectory(indexPath) || !Files.isReadable(indexPath)) {
       throw new IllegalArgumentException(String.format("Index path '%s' does not exist or is not a directory.", args.index));
     }
+    // The date range filter applies to dates indexed as epoch days (e.g., of GRDC reports), which tweets and Washington
+    // Post articles do not have; their searches have time filters of their own.
+    if ((args.searchtweets || args.backgroundlinking) && (args.datefilter_from != null || args.datefilter_to != null)) {
+      throw new IllegalArgumentException("-datefilter.from and -datefilter.to are not supported with -searchtweets or " +
+          "-backgroundlinking");
+    }
 
     LOG.info("============ Initializing Searcher ============");
     LOG.info("Index: " + indexPath);
@@ -264,6 +339,15 @@ public final class SearchCollection implements Closeable {
       this.reader = DirectoryReader.open(FSDirectory.open(indexPath));
     }
 
+    // Queries are searched by a pool of -threads threads, and their segments by a pool of -intraquery.threads threads
+    // shared by all queries.
+    if (args.intraQueryThreads > 0) {
+      LOG.info("Intra-query threads: " + args.intraQueryThreads);
+      this.sliceExecutor = IntraQueryParallelism.newExecutor(args.intraQueryThreads);
+    } else {
+      this.sliceExecutor = null;
+    }
+
     // Are we searching tweets?
     if (args.searchtweets) {
       LOG.info("Searching tweets? true");
@@ -309,6 +393,9 @@ public final class SearchCollection implements Closeable {
 
   @Override
   public void close() throws IOException {
+    if (sliceExecutor != null) {
+      sliceExecutor.shutdown();
+    }
     reader.close();
   }
 
@@ -512,7 +599,14 @@ public final class SearchCollection implements Closeable {
 
     LOG.info("============ Launching Search Threads ============");
 
+    // Work is split into a task per topic, rather than per run, so that all threads are busy even with a single run.
+    // A task searches a topic once per similarity, and reranks the results with every cascade, so that a sweep over
+    // reranker parameters shares first-stage retrieval. Tasks are queued in topic order, so that few results wait to
+    // be written at any time.
+    List<RunWriter<K>> allWriters = new ArrayList<>();
     for (TaggedSimilarity taggedSimilarity : similarities) {
+      List<RerankerCascade> runCascades = new ArrayList<>();
+      List<RunWriter<K>> writers = new ArrayList<>();
       for (RerankerCascade cascade : cascades) {
         final String outputPath;
 
@@ -526,8 +620,48 @@ public final class SearchCollection implements Closeable {
           LOG.info("Run already exists, skipping: " + outputPath);
           continue;
         }
-        executor.execute(new SearcherThread<>(reader, topics, taggedSimilarity, cascade, this.qrels, outputPath, runTag));
+
+        String id = String.format("ranker: %s, reranker: %s", taggedSimilarity.getTag(), cascade.getTag());
+        runCascades.add(cascade);
+        writers.add(new RunWriter<>(id, outputPath, topics.size()));
+      }
+      if (runCascades.isEmpty()) {
+        continue;
       }
+
+      // IndexSearcher is thread safe, so all topics share one.
+      IndexSearcher searcher = IntraQueryParallelism.newSearcher(reader, sliceExecutor,
+          args.intraQueryMaxDocsPerSlice, args.intraQueryMaxSegmentsPerSlice);
+      searcher.setSimilarity(taggedSimilarity.getSimilarity());
+
+      int index = 0;
+      for (Map.Entry<K, Map<String, String>> entry : topics.entrySet()) {
+        final int topicIndex = index++;
+        executor.execute(() -> {
+          // Topics of runs that already failed need not be searched.
+          if (writers.stream().allMatch(RunWriter::isFailed)) {
+            return;
+          }
+
+          List<String> results;
+          try {
+            results = searchTopic(searcher, entry.getKey(), entry.getValue(), runCascades, runTag);
+          } catch (Exception e) {
+            for (RunWriter<K> writer : writers) {
+              writer.fail(entry.getKey(), e);
+            }
+            return;
+          }
+          for (int i = 0; i < writers.size(); i++) {
+            try {
+              writers.get(i).write(topicIndex, results.get(i));
+            } catch (IOException e) {
+              writers.get(i).fail(entry.getKey(), e);
+            }
+          }
+        });
+      }
+      allWriters.addAll(writers);
     }
     executor.shutdown();
 
@@ -541,10 +675,34 @@ public final class SearchCollection implements Closeable {
       // Preserve interrupt status
       Thread.currentThread().interrupt();
     }
+
+    // A run that failed, or was cut short by an interrupt, leaves no run file behind, and fails the whole search.
+    List<String> failedRuns = new ArrayList<>();
+    for (RunWriter<K> writer : allWriters) {
+      if (!writer.isCompleted()) {
+        writer.discard();
+        failedRuns.add(writer.id);
+      }
+    }
+    if (!failedRuns.isEmpty()) {
+      throw new IOException(String.format("%d of %d runs failed: %s", failedRuns.size(), allWriters.size(),
+          String.join("; ", failedRuns)));
+    }
   }
 
   public <K> ScoredDocuments search(IndexSearcher searcher, K qid, String queryString, RerankerCascade cascade, ScoredDocuments queryQrels,
                                     boolean hasRelDocs) throws IOException {
+    return search(searcher, qid, queryString, List.of(cascade), queryQrels, hasRelDocs).get(0);
+  }
+
+  /**
+   * Searches a topic once, and reranks the results with each of the cascades, e.g., for a sweep over RM3 parameters.
+   * The cascades share the first-stage results, and the term vectors and document frequencies looked up by their
+   * rerankers.
+   */
+  public <K> List<ScoredDocuments> search(IndexSearcher searcher, K qid, String queryString,
+                                          List<RerankerCascade> cascades, ScoredDocuments queryQrels,
+                                          boolean hasRelDocs) throws IOException {
     Query query = null;
 
     if (args.sdm) {
@@ -560,18 +718,30 @@ public final class SearchCollection implements Closeable {
       }
     }
 
+    // Restrict results to a range of dates, like the tweet time filter in searchTweets().
+    Query filter = null;
+    Query compositeQuery = query;
+    if (args.datefilter_from != null || args.datefilter_to != null) {
+      filter = DateRangeFilter.newRangeQuery(args.datefilter_field, args.datefilter_from, args.datefilter_to);
+      compositeQuery = new BooleanQuery.Builder()
+          .add(filter, BooleanClause.Occur.FILTER)
+          .add(query, BooleanClause.Occur.MUST)
+          .build();
+    }
+
     TopDocs rs = new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[]{});
     if (!isRerank || (args.rerankcutoff > 0 && args.rf_qrels == null) || (args.rf_qrels != null && !hasRelDocs)) {
       if (args.arbitraryScoreTieBreak) {// Figure out how to break the scoring ties.
-        rs = searcher.search(query, (isRerank && args.rf_qrels == null) ? args.rerankcutoff : args.hits);
+        rs = searcher.search(compositeQuery, (isRerank && args.rf_qrels == null) ? args.rerankcutoff : args.hits);
       } else {
-        rs = searcher.search(query, (isRerank && args.rf_qrels == null) ? args.rerankcutoff : args.hits, BREAK_SCORE_TIES_BY_DOCID, true);
+        rs = TieBreakingTopDocsCollector.search(searcher, compositeQuery,
+            (isRerank && args.rf_qrels == null) ? args.rerankcutoff : args.hits);
       }
     }
 
     List<String> queryTokens = AnalyzerUtils.analyze(analyzer, queryString);
 
-    RerankerContext context = new RerankerContext<>(searcher, qid, query, null, queryString, queryTokens, null, args);
+    RerankerContext context = new RerankerContext<>(searcher, qid, query, null, queryString, queryTokens, filter, args);
     ScoredDocuments scoredFbDocs; 
     if ( isRerank && args.rf_qrels != null) {
       if (hasRelDocs){
@@ -579,18 +749,33 @@ public final class SearchCollection implements Closeable {
       } else{//if no relevant documents, only perform score based tie breaking next
         LOG.info("No relevant documents for " + qid.toString());
         scoredFbDocs = ScoredDocuments.fromTopDocs(rs, searcher);
-        cascade = new RerankerCascade();
-        cascade.add(new ScoreTiesAdjusterReranker());
+        cascades = Collections.nCopies(cascades.size(), new RerankerCascade().add(new ScoreTiesAdjusterReranker()));
       }
     } else {
       scoredFbDocs = ScoredDocuments.fromTopDocs(rs, searcher);
     }
 
-    return cascade.run(scoredFbDocs, context);
+    return rerank(scoredFbDocs, cascades, context);
+  }
+
+  // Reranks the same results with each cascade. The cascades share the context, which caches what rerankers look up in
+  // the index, and each gets a copy of the results, as rerankers may modify them in place.
+  private List<ScoredDocuments> rerank(ScoredDocuments docs, List<RerankerCascade> cascades,
+                                       RerankerContext context) {
+    List<ScoredDocuments> results = new ArrayList<>(cascades.size());
+    for (RerankerCascade cascade : cascades) {
+      results.add(cascade.run(docs.copy(), context));
+    }
+    return results;
   }
 
   public <K> ScoredDocuments searchBackgroundLinking(IndexSearcher searcher, K qid, String docid,
                                                      RerankerCascade cascade) throws IOException {
+    return searchBackgroundLinking(searcher, qid, docid, List.of(cascade)).get(0);
+  }
+
+  public <K> List<ScoredDocuments> searchBackgroundLinking(IndexSearcher searcher, K qid, String docid,
+                                                           List<RerankerCascade> cascades) throws IOException {
     // Extract a list of analyzed terms from the document to compose a query.
     List<String> terms = BackgroundLinkingTopicReader.extractTerms(reader, docid, args.backgroundlinking_k, analyzer);
     // Since the terms are already analyzed, we just join them together and use the StandardQueryParser.
@@ -616,22 +801,31 @@ public final class SearchCollection implements Closeable {
     if (args.arbitraryScoreTieBreak) {
       rs = searcher.search(query, (isRerank && args.rf_qrels == null) ? args.rerankcutoff : args.hits);
     } else {
-      rs = searcher.search(query, (isRerank && args.rf_qrels == null) ? args.rerankcutoff :
-          args.hits, BREAK_SCORE_TIES_BY_DOCID, true);
+      rs = TieBreakingTopDocsCollector.search(searcher, query,
+          (isRerank && args.rf_qrels == null) ? args.rerankcutoff : args.hits);
     }
 
     RerankerContext context = new RerankerContext<>(searcher, qid, query, docid,
         StringUtils.join(", ", terms), terms, null, args);
 
-    // Run the existing cascade.
-    ScoredDocuments docs = cascade.run(ScoredDocuments.fromTopDocs(rs, searcher), context);
+    // Run the existing cascades.
+    List<ScoredDocuments> results = rerank(ScoredDocuments.fromTopDocs(rs, searcher), cascades, context);
 
     // Perform post-processing (e.g., date filter, dedupping, etc.) as a final step.
-    return new NewsBackgroundLinkingReranker().rerank(docs, context);
+    for (int i = 0; i < results.size(); i++) {
+      results.set(i, new NewsBackgroundLinkingReranker().rerank(results.get(i), context));
+    }
+    return results;
   }
 
   public <K> ScoredDocuments searchTweets(IndexSearcher searcher, K qid, String queryString, long t, RerankerCascade cascade, 
                                           ScoredDocuments queryQrels, boolean hasRelDocs) throws IOException {
+    return searchTweets(searcher, qid, queryString, t, List.of(cascade), queryQrels, hasRelDocs).get(0);
+  }
+
+  public <K> List<ScoredDocuments> searchTweets(IndexSearcher searcher, K qid, String queryString, long t,
+                                                List<RerankerCascade> cascades, ScoredDocuments queryQrels,
+                                                boolean hasRelDocs) throws IOException {
     Query keywordQuery;
     if (args.sdm) {
       keywordQuery = new SdmQueryGenerator(args.sdm_tw, args.sdm_ow, args.sdm_uw).buildQuery(IndexArgs.CONTENTS, analyzer, queryString);
@@ -674,14 +868,13 @@ public final class SearchCollection implements Closeable {
         scoredFbDocs = queryQrels;
       } else{//if no relevant documents, only perform score based tie breaking next
         scoredFbDocs = ScoredDocuments.fromTopDocs(rs, searcher);
-        cascade = new RerankerCascade();
-        cascade.add(new ScoreTiesAdjusterReranker());
+        cascades = Collections.nCopies(cascades.size(), new RerankerCascade().add(new ScoreTiesAdjusterReranker()));
       }
     } else {
       scoredFbDocs = ScoredDocuments.fromTopDocs(rs, searcher);
     }
 
-    return cascade.run(scoredFbDocs,  context);
+    return rerank(scoredFbDocs, cascades, context);
   }
 
   public static void main(String[] args) throws Exception {
@@ -709,8 +902,11 @@ public final class SearchCollection implements Closeable {
       return;
     }
 
-    searcher.runTopics();
-    searcher.close();
+    try {
+      searcher.runTopics();
+    } finally {
+      searcher.close();
+    }
     final long durationMillis = TimeUnit.MILLISECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS);
     LOG.info("Total run time: " + DurationFormatUtils.formatDuration(durationMillis, "HH:mm:ss"));
   }
@@ -142,9 +142,9 @@ public final class SearchSolr implements Closeable {
            * the fifth column shows the score (integer or floating point) that generated the ranking.
            * the sixth column is called the "run tag" and should be a unique identifier for your
            */
-          for (int i = 0; i < docs.documents.length; i++) {
+          for (int i = 0; i < docs.size(); i++) {
             out.println(String.format(Locale.US, "%s Q0 %s %d %f %s", qid,
-                    docs.documents[i].getField(IndexArgs.ID).stringValue(), (i + 1), docs.scores[i], runTag));
+                    docs.docids[i], (i + 1), docs.scores[i], runTag));
           }
         }
         out.flush();
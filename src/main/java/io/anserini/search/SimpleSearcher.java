@@ -16,10 +16,16 @@
 
 package io.anserini.search;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import io.anserini.analysis.AnalyzerUtils;
 import io.anserini.index.IndexArgs;
 import io.anserini.index.IndexCollection;
 import io.anserini.index.IndexReaderUtils;
+import io.anserini.index.generator.GRDCGenerator;
+import io.anserini.index.generator.GRDCPassageGenerator;
+import io.anserini.index.generator.GRDCReportStore;
 import io.anserini.rerank.RerankerCascade;
 import io.anserini.rerank.RerankerContext;
 import io.anserini.rerank.ScoredDocuments;
@@ -40,21 +46,28 @@ import org.apache.lucene.analysis.es.SpanishAnalyzer;
 import org.apache.lucene.analysis.fr.FrenchAnalyzer;
 import org.apache.lucene.analysis.hi.HindiAnalyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.ReaderManager;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.similarities.BM25Similarity;
 import org.apache.lucene.search.similarities.LMDirichletSimilarity;
 import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
@@ -64,6 +77,7 @@ import org.kohsuke.args4j.ParserProperties;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -74,9 +88,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.SortedMap;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -135,13 +152,21 @@ public class SimpleSearcher implements Closeable {
     public int threads = 1;
   }
 
-  protected IndexReader reader;
+  // Readers are reference counted, so that searches in flight finish on the reader they started with when the index
+  // is refreshed or reopened; a reader is closed once the last of them releases it.
+  protected volatile ReaderManager readerManager;
   protected Similarity similarity;
   protected Analyzer analyzer;
   protected RerankerCascade cascade;
   protected boolean useRM3;
 
-  protected IndexSearcher searcher = null;
+  protected IndexReader reportReader = null;
+  protected final DrillDownCachingPolicy drillDownPolicy = new DrillDownCachingPolicy();
+  protected volatile Query dateFilter = null;
+  protected Cache<ResultCacheKey, Result[]> resultCache = null;
+  protected volatile ExecutorService sliceExecutor = null;
+  protected volatile int maxDocsPerSlice = IntraQueryParallelism.DEFAULT_MAX_DOCS_PER_SLICE;
+  protected volatile int maxSegmentsPerSlice = IntraQueryParallelism.DEFAULT_MAX_SEGMENTS_PER_SLICE;
 
   /**
    * This class is meant to serve as the bridge between Anserini and Pyserini.
@@ -165,6 +190,54 @@ public class SimpleSearcher implements Closeable {
     }
   }
 
+  /**
+   * Search results together with the facet counts over all documents matching the query.
+   */
+  public class FacetedResults {
+    public Result[] results;
+    public Map<String, Map<String, Integer>> facets;
+
+    public FacetedResults(Result[] results, Map<String, Map<String, Integer>> facets) {
+      this.results = results;
+      this.facets = facets;
+    }
+  }
+
+  // Everything that determines the results of a search, so that equal keys can share cached results: the query holds
+  // the analyzed query terms, and the reader is identified by its cache key.
+  protected static final class ResultCacheKey {
+    private final IndexReader.CacheKey reader;
+    private final Query query;
+    private final int k;
+    private final String similarity;
+    private final String rerankers;
+    private final Query filter;
+
+    ResultCacheKey(IndexReader.CacheKey reader, Query query, int k, String similarity, String rerankers, Query filter) {
+      this.reader = reader;
+      this.query = query;
+      this.k = k;
+      this.similarity = similarity;
+      this.rerankers = rerankers;
+      this.filter = filter;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof ResultCacheKey)) {
+        return false;
+      }
+      ResultCacheKey other = (ResultCacheKey) o;
+      return reader == other.reader && k == other.k && query.equals(other.query) && similarity.equals(other.similarity) &&
+          rerankers.equals(other.rerankers) && Objects.equals(filter, other.filter);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(reader, query, k, similarity, rerankers, filter);
+    }
+  }
+
   protected SimpleSearcher() {
   }
 
@@ -186,15 +259,9 @@ public class SimpleSearcher implements Closeable {
    * @throws IOException if errors encountered during initialization
    */
   public SimpleSearcher(String indexDir, Analyzer analyzer) throws IOException {
-    Path indexPath = Paths.get(indexDir);
-
-    if (!Files.exists(indexPath) || !Files.isDirectory(indexPath) || !Files.isReadable(indexPath)) {
-      throw new IllegalArgumentException(indexDir + " does not exist or is not a directory.");
-    }
-
     SearchArgs defaults = new SearchArgs();
 
-    this.reader = DirectoryReader.open(FSDirectory.open(indexPath));
+    this.readerManager = openReaderManager(indexDir);
     // Default to using BM25.
     this.similarity = new BM25Similarity(Float.parseFloat(defaults.bm25_k1[0]), Float.parseFloat(defaults.bm25_b[0]));
     this.analyzer = analyzer;
@@ -203,6 +270,92 @@ public class SimpleSearcher implements Closeable {
     cascade.add(new ScoreTiesAdjusterReranker());
   }
 
+  // Opens the index for searching, through a manager that hands out its latest reader.
+  protected ReaderManager openReaderManager(String indexDir) throws IOException {
+    Path indexPath = Paths.get(indexDir);
+
+    if (!Files.exists(indexPath) || !Files.isDirectory(indexPath) || !Files.isReadable(indexPath)) {
+      throw new IllegalArgumentException(indexDir + " does not exist or is not a directory.");
+    }
+
+    ReaderManager manager = new ReaderManager(FSDirectory.open(indexPath));
+    manager.addListener(new ReferenceManager.RefreshListener() {
+      @Override
+      public void beforeRefresh() {
+      }
+
+      @Override
+      public void afterRefresh(boolean didRefresh) {
+        if (didRefresh) {
+          invalidateResultCache();
+        }
+      }
+    });
+    return manager;
+  }
+
+  /**
+   * Makes changes committed to the index since it was opened or last refreshed (e.g., newly published segments)
+   * visible to subsequent searches. The switch is atomic: searches in flight finish on the previous reader, which is
+   * closed once they complete. Note that internal Lucene docids are only stable between refreshes.
+   *
+   * @return whether the index has changed
+   * @throws IOException if error encountered while opening the new segments
+   */
+  public boolean refresh() throws IOException {
+    DirectoryReader before = acquireReader();
+    try {
+      readerManager.maybeRefreshBlocking();
+      DirectoryReader after = acquireReader();
+      try {
+        return after != before;
+      } finally {
+        releaseReader(after);
+      }
+    } finally {
+      releaseReader(before);
+    }
+  }
+
+  /**
+   * Switches to searching another index (e.g., a newly built one published alongside the current one), without
+   * having to create a new searcher. As with {@link #refresh()}, searches in flight finish on the previous index,
+   * which is closed once they complete. Cached results are dropped.
+   *
+   * @param indexDir index directory
+   * @throws IOException if errors encountered while opening the index
+   */
+  public void reopen(String indexDir) throws IOException {
+    ReaderManager previous;
+    synchronized (this) {
+      previous = readerManager;
+      readerManager = openReaderManager(indexDir);
+    }
+    invalidateResultCache();
+    previous.close();
+  }
+
+  // Acquires the current reader, which must be released with releaseReader once done with.
+  protected DirectoryReader acquireReader() throws IOException {
+    while (true) {
+      ReaderManager manager = readerManager;
+      try {
+        return manager.acquire();
+      } catch (AlreadyClosedException e) {
+        // The index was reopened between reading the manager and acquiring from it: try the new one.
+        if (manager == readerManager) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  // Releases an acquired reader. A manager only decrements the count of references of the readers it hands out, so
+  // readers acquired before the index was reopened are released in the same way.
+  protected void releaseReader(DirectoryReader reader) throws IOException {
+    reader.decRef();
+  }
+
   /**
    * Sets the analyzer used.
    *
@@ -298,6 +451,138 @@ public class SimpleSearcher implements Closeable {
     cascade.add(new ScoreTiesAdjusterReranker());
   }
 
+  /**
+   * Sets the GRDC report index (see {@link GRDCReportStore}) whose report-level metadata is joined back into the
+   * documents returned by this searcher.
+   *
+   * @param reportIndexDir report index directory
+   * @throws IOException if errors encountered opening the report index
+   */
+  public void setReportIndex(String reportIndexDir) throws IOException {
+    Path reportIndexPath = Paths.get(reportIndexDir);
+    if (!Files.exists(reportIndexPath) || !Files.isDirectory(reportIndexPath) || !Files.isReadable(reportIndexPath)) {
+      throw new IllegalArgumentException(reportIndexDir + " does not exist or is not a directory.");
+    }
+
+    unsetReportIndex();
+    this.reportReader = DirectoryReader.open(FSDirectory.open(reportIndexPath));
+    invalidateResultCache();
+  }
+
+  /**
+   * Stops joining report-level metadata into returned documents.
+   */
+  public void unsetReportIndex() {
+    if (reportReader != null) {
+      try {
+        reportReader.close();
+      } catch (IOException e) {
+        // Eat any exceptions.
+      }
+      reportReader = null;
+      invalidateResultCache();
+    }
+  }
+
+  /**
+   * Caches the results of searches, so that repeating a search (with the same analyzed query, number of hits, scoring
+   * function, rerankers and date filter) skips scoring, reranking and loading stored documents. The least recently
+   * used results are evicted once their estimated size exceeds the given budget. The cache is cleared whenever the
+   * documents returned could change, e.g., when a report index is set.
+   *
+   * @param maxMegabytes memory budget of the cache (in MB)
+   */
+  public void setResultCache(int maxMegabytes) {
+    this.resultCache = CacheBuilder.newBuilder()
+        .maximumWeight((long) maxMegabytes * 1024 * 1024)
+        .weigher((ResultCacheKey key, Result[] results) -> estimateSize(results))
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Stops caching the results of searches, and drops cached results.
+   */
+  public void unsetResultCache() {
+    this.resultCache = null;
+  }
+
+  /**
+   * Returns the statistics of the result cache: hits, misses, evictions, etc.
+   *
+   * @return statistics of the result cache, or {@code null} if results are not cached
+   */
+  public CacheStats getResultCacheStats() {
+    return resultCache == null ? null : resultCache.stats();
+  }
+
+  // Drops cached results, as the documents they hold could have changed.
+  protected void invalidateResultCache() {
+    if (resultCache != null) {
+      resultCache.invalidateAll();
+    }
+  }
+
+  // Estimates the memory held by results (in bytes), dominated by their stored fields.
+  private static int estimateSize(Result[] results) {
+    long size = 64;
+    for (Result result : results) {
+      size += 128;
+      for (IndexableField field : result.lucene_document.getFields()) {
+        size += 64;
+        if (field.stringValue() != null) {
+          size += 2L * field.stringValue().length();
+        } else if (field.binaryValue() != null) {
+          size += field.binaryValue().length;
+        }
+      }
+    }
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Restricts results to documents dated within a range (e.g., GRDC reports published since 2015). The field must be
+   * indexed as a {@code LongPoint} of epoch days, as the GRDC dates are. Bounds are inclusive, may be a day
+   * ("2015-06-30"), a month ("2015-06") or a year ("2015"), and may be {@code null} to leave the range open.
+   *
+   * @param field date field, e.g., "publish_date"
+   * @param from earliest date
+   * @param to latest date
+   */
+  public void setDateFilter(String field, String from, String to) {
+    this.dateFilter = DateRangeFilter.newRangeQuery(field, from, to);
+  }
+
+  /**
+   * Stops restricting results to a range of dates.
+   */
+  public void unsetDateFilter() {
+    this.dateFilter = null;
+  }
+
+  // Adds a date filter, if any, to a query.
+  protected static Query withDateFilter(Query query, Query dateFilter) {
+    if (dateFilter == null) {
+      return query;
+    }
+    return new BooleanQuery.Builder()
+        .add(dateFilter, BooleanClause.Occur.FILTER)
+        .add(query, BooleanClause.Occur.MUST)
+        .build();
+  }
+
+  // Joins report-level metadata into a document, if a report index has been set, and restores the stored views of
+  // GRDC passages indexed with their text stored once.
+  protected Document resolveDocument(Document doc) {
+    if (doc == null) {
+      return null;
+    }
+    if (reportReader != null) {
+      GRDCReportStore.join(reportReader, doc);
+    }
+    return GRDCPassageGenerator.restoreTextViews(doc);
+  }
+
   /**
    * Specifies use of query likelihood with Dirichlet smoothing as the scoring function.
    *
@@ -305,10 +590,6 @@ public class SimpleSearcher implements Closeable {
    */
   public void setQLD(float mu) {
     this.similarity = new LMDirichletSimilarity(mu);
-
-    // We need to re-initialize the searcher
-    searcher = new IndexSearcher(reader);
-    searcher.setSimilarity(similarity);
   }
 
   /**
@@ -319,10 +600,63 @@ public class SimpleSearcher implements Closeable {
    */
   public void setBM25(float k1, float b) {
     this.similarity = new BM25Similarity(k1, b);
+  }
+
+  /**
+   * Scores the segments of each query in parallel, on a pool of threads shared by all searches, with Lucene's default
+   * slicing of segments. See {@link IntraQueryParallelism}.
+   *
+   * @param threads number of threads
+   */
+  public void setIntraQueryParallelism(int threads) {
+    setIntraQueryParallelism(threads, IntraQueryParallelism.DEFAULT_MAX_DOCS_PER_SLICE,
+        IntraQueryParallelism.DEFAULT_MAX_SEGMENTS_PER_SLICE);
+  }
+
+  /**
+   * Scores the segments of each query in parallel, on a pool of threads shared by all searches. Segments are grouped
+   * into slices (one task each) of up to {@code maxDocsPerSlice} documents and {@code maxSegmentsPerSlice} segments;
+   * larger segments get a slice of their own.
+   *
+   * @param threads number of threads
+   * @param maxDocsPerSlice maximum number of documents in a slice
+   * @param maxSegmentsPerSlice maximum number of segments in a slice
+   */
+  public void setIntraQueryParallelism(int threads, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+    if (maxDocsPerSlice <= 0 || maxSegmentsPerSlice <= 0) {
+      throw new IllegalArgumentException("Slices must allow at least one document and one segment.");
+    }
+    // The new executor is published before the previous one is retired (see unsetIntraQueryParallelism()).
+    ExecutorService previous = sliceExecutor;
+    this.maxDocsPerSlice = maxDocsPerSlice;
+    this.maxSegmentsPerSlice = maxSegmentsPerSlice;
+    this.sliceExecutor = IntraQueryParallelism.newExecutor(threads);
+    if (previous != null) {
+      previous.shutdown();
+    }
+  }
+
+  /**
+   * Scores the segments of each query on the thread that issues it (the default).
+   */
+  public void unsetIntraQueryParallelism() {
+    ExecutorService previous = sliceExecutor;
+    sliceExecutor = null;
+    if (previous != null) {
+      // Slices already submitted still run, and searches in flight score their remaining slices on their own thread
+      // (see IntraQueryParallelism.newSearcher()), so they complete.
+      previous.shutdown();
+    }
+  }
 
-    // We need to re-initialize the searcher
-    searcher = new IndexSearcher(reader);
+  // Creates a searcher over a reader with the current scoring function. Searchers are cheap to create, so each search
+  // creates one over the reader it acquired.
+  protected IndexSearcher newSearcher(IndexReader reader) {
+    IndexSearcher searcher = IntraQueryParallelism.newSearcher(reader, sliceExecutor, maxDocsPerSlice,
+        maxSegmentsPerSlice);
     searcher.setSimilarity(similarity);
+    searcher.setQueryCachingPolicy(drillDownPolicy);
+    return searcher;
   }
 
   /**
@@ -340,13 +674,16 @@ public class SimpleSearcher implements Closeable {
    * @return the number of documents in the index
    */
    public int getTotalNumDocuments(){
-     // Create an IndexSearch only once. Note that the object is thread safe.
-     if (searcher == null) {
-       searcher = new IndexSearcher(reader);
-       searcher.setSimilarity(similarity);
+     try {
+       DirectoryReader reader = acquireReader();
+       try {
+         return reader.maxDoc();
+       } finally {
+         releaseReader(reader);
+       }
+     } catch (IOException e) {
+       throw new UncheckedIOException(e);
      }
-
-     return searcher.getIndexReader().maxDoc();
    }
 
   /**
@@ -354,8 +691,10 @@ public class SimpleSearcher implements Closeable {
    */
   @Override
   public void close() throws IOException {
+    unsetReportIndex();
+    unsetIntraQueryParallelism();
     try {
-      reader.close();
+      readerManager.close();
     } catch (Exception e) {
       // Eat any exceptions.
       return;
@@ -388,13 +727,6 @@ public class SimpleSearcher implements Closeable {
    */
   public Map<String, Result[]> batchSearchFields(List<String> queries, List<String> qids, int k, int threads,
                                                  Map<String, Float> fields) {
-    // Create the IndexSearcher here, if needed. We do it here because if we leave the creation to the search
-    // method, we might end up with a race condition as multiple threads try to concurrently create the IndexSearcher.
-    if (searcher == null) {
-      searcher = new IndexSearcher(reader);
-      searcher.setSimilarity(similarity);
-    }
-
     ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(threads);
     ConcurrentHashMap<String, Result[]> results = new ConcurrentHashMap<>();
 
@@ -501,11 +833,36 @@ public class SimpleSearcher implements Closeable {
 
   // internal implementation
   protected Result[] search(Query query, List<String> queryTokens, String queryString, int k) throws IOException {
-    // Create an IndexSearch only once. Note that the object is thread safe.
-    if (searcher == null) {
-      searcher = new IndexSearcher(reader);
-      searcher.setSimilarity(similarity);
+    DirectoryReader reader = acquireReader();
+    // The date filter may be changed by another thread; a search sticks to the one it started with.
+    Query filter = dateFilter;
+    try {
+      Cache<ResultCacheKey, Result[]> cache = resultCache;
+      if (cache == null) {
+        return searchUncached(reader, query, filter, queryTokens, queryString, k);
+      }
+
+      // Results are only valid for the reader they were computed on.
+      ResultCacheKey key = new ResultCacheKey(reader.getReaderCacheHelper().getKey(), query, k, similarity.toString(),
+          cascade.describe(), filter);
+      try {
+        // Concurrent searches for the same key wait for a single computation. Results are copied, down to their
+        // documents, so that callers can't change the cached ones.
+        return copyOf(cache.get(key, () -> searchUncached(reader, query, filter, queryTokens, queryString, k)));
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new RuntimeException(e.getCause());
+      }
+    } finally {
+      releaseReader(reader);
     }
+  }
+
+  protected Result[] searchUncached(IndexReader reader, Query query, Query filter, List<String> queryTokens,
+                                    String queryString, int k) throws IOException {
+    IndexSearcher searcher = newSearcher(reader);
 
     SearchArgs searchArgs = new SearchArgs();
     searchArgs.arbitraryScoreTieBreak = false;
@@ -513,15 +870,143 @@ public class SimpleSearcher implements Closeable {
 
     TopDocs rs;
     RerankerContext context;
-    rs = searcher.search(query, useRM3 ? searchArgs.rerankcutoff : k, BREAK_SCORE_TIES_BY_DOCID, true);
+    rs = TieBreakingTopDocsCollector.search(searcher, withDateFilter(query, filter),
+        useRM3 ? searchArgs.rerankcutoff : k);
     context = new RerankerContext<>(searcher, null, query, null,
-          queryString, queryTokens, null, searchArgs);
+          queryString, queryTokens, filter, searchArgs);
+
+    ScoredDocuments hits = cascade.run(ScoredDocuments.fromTopDocs(rs, searcher), context);
+
+    return toResults(hits);
+  }
+
+  /**
+   * Searches the collection, returning a specified number of hits together with facet counts over all matching
+   * documents. Facet fields must be indexed as {@code SortedSetDocValues} (e.g., {@link GRDCGenerator#FACET_FIELDS}).
+   *
+   * @param q query
+   * @param k number of hits
+   * @param facetFields fields to count values of
+   * @return search results and facet counts
+   * @throws IOException if error encountered during search
+   */
+  public FacetedResults searchFacets(String q, int k, List<String> facetFields) throws IOException {
+    return searchFacets(q, k, facetFields, Map.of());
+  }
+
+  /**
+   * Searches the collection restricted to documents with given facet values, returning a specified number of hits
+   * together with facet counts over all matching documents. A document must match one of the values of every
+   * drill-down field. Hits and counts come from a single pass over the matching documents, and the drill-down
+   * filters are cached, so that refining the same selection with different queries is cheap.
+   *
+   * @param q query
+   * @param k number of hits
+   * @param facetFields fields to count values of
+   * @param drillDowns map of fields to the values to restrict the search to
+   * @return search results and facet counts
+   * @throws IOException if error encountered during search
+   */
+  public FacetedResults searchFacets(String q, int k, List<String> facetFields, Map<String, List<String>> drillDowns)
+      throws IOException {
+    DirectoryReader reader = acquireReader();
+    try {
+      return searchFacets(newSearcher(reader), q, k, facetFields, drillDowns);
+    } finally {
+      releaseReader(reader);
+    }
+  }
+
+  protected FacetedResults searchFacets(IndexSearcher searcher, String q, int k, List<String> facetFields,
+                                        Map<String, List<String>> drillDowns) throws IOException {
+    Query keywordQuery = new BagOfWordsQueryGenerator().buildQuery(IndexArgs.CONTENTS, analyzer, q);
+    List<Query> filters = new ArrayList<>();
+    for (Map.Entry<String, List<String>> entry : drillDowns.entrySet()) {
+      filters.add(drillDownPolicy.filter(entry.getKey(), entry.getValue()));
+    }
+    Query dateFilter = this.dateFilter;
+    if (dateFilter != null) {
+      filters.add(dateFilter);
+    }
+
+    BooleanQuery.Builder builder = new BooleanQuery.Builder().add(keywordQuery, BooleanClause.Occur.MUST);
+    BooleanQuery.Builder filterBuilder = new BooleanQuery.Builder();
+    for (Query filter : filters) {
+      builder.add(filter, BooleanClause.Occur.FILTER);
+      filterBuilder.add(filter, BooleanClause.Occur.FILTER);
+    }
+    Query query = builder.build();
+    // Rerankers that issue queries of their own (e.g., RM3) apply the same filters.
+    Query filter = filters.isEmpty() ? null : filterBuilder.build();
+    List<String> queryTokens = AnalyzerUtils.analyze(analyzer, q);
 
+    SearchArgs searchArgs = new SearchArgs();
+    searchArgs.arbitraryScoreTieBreak = false;
+    searchArgs.hits = k;
+
+    // Facets need every match, so the top hits are collected without skipping non-competitive documents.
+    TopFieldCollector topCollector = TopFieldCollector.create(BREAK_SCORE_TIES_BY_DOCID,
+        useRM3 ? searchArgs.rerankcutoff : k, Integer.MAX_VALUE);
+    FacetCountsCollector facetCollector = new FacetCountsCollector(facetFields);
+    searcher.search(query, MultiCollector.wrap(topCollector, facetCollector));
+
+    TopDocs rs = topCollector.topDocs();
+    TopFieldCollector.populateScores(rs.scoreDocs, searcher, query);
+    RerankerContext context = new RerankerContext<>(searcher, null, keywordQuery, null, q, queryTokens, filter,
+        searchArgs);
     ScoredDocuments hits = cascade.run(ScoredDocuments.fromTopDocs(rs, searcher), context);
 
+    return new FacetedResults(toResults(hits), facetCollector.getCounts());
+  }
+
+  // Copies results, along with their documents and the fields of their documents.
+  private Result[] copyOf(Result[] results) {
+    Result[] copies = new Result[results.length];
+    for (int i = 0; i < results.length; i++) {
+      Result result = results[i];
+      Document document = null;
+      if (result.lucene_document != null) {
+        document = new Document();
+        for (IndexableField field : result.lucene_document) {
+          document.add(copyOf(field));
+        }
+      }
+      copies[i] = new Result(result.docid, result.lucene_docid, result.score, result.contents, result.raw, document);
+    }
+    return copies;
+  }
+
+  // Copies a field of a document loaded from the index, which only holds stored values.
+  private static IndexableField copyOf(IndexableField field) {
+    Number number = field.numericValue();
+    if (number instanceof Integer) {
+      return new StoredField(field.name(), number.intValue());
+    } else if (number instanceof Long) {
+      return new StoredField(field.name(), number.longValue());
+    } else if (number instanceof Float) {
+      return new StoredField(field.name(), number.floatValue());
+    } else if (number instanceof Double) {
+      return new StoredField(field.name(), number.doubleValue());
+    } else if (field.binaryValue() != null) {
+      return new StoredField(field.name(), BytesRef.deepCopyOf(field.binaryValue()));
+    }
+    return new StoredField(field.name(), field.stringValue());
+  }
+
+  // Turns reranked hits into results, with their documents resolved. Report-level metadata is joined into all the
+  // documents at once, so that a report shared by several hits is looked up once.
+  protected Result[] toResults(ScoredDocuments hits) throws IOException {
+    List<Document> docs = new ArrayList<>(hits.ids.length);
+    for (int i = 0; i < hits.ids.length; i++) {
+      docs.add(hits.document(i));
+    }
+    if (reportReader != null) {
+      GRDCReportStore.join(reportReader, docs);
+    }
+
     Result[] results = new Result[hits.ids.length];
     for (int i = 0; i < hits.ids.length; i++) {
-      Document doc = hits.documents[i];
+      Document doc = GRDCPassageGenerator.restoreTextViews(docs.get(i));
       String docid = doc.getField(IndexArgs.ID).stringValue();
 
       IndexableField field;
@@ -548,9 +1033,6 @@ public class SimpleSearcher implements Closeable {
    */
   public Result[] searchFields(String q, Map<String, Float> fields, int k) throws IOException {
     // Note that this is used for MS MARCO experiments with document expansion.
-    IndexSearcher searcher = new IndexSearcher(reader);
-    searcher.setSimilarity(similarity);
-
     Query queryContents = new BagOfWordsQueryGenerator().buildQuery(IndexArgs.CONTENTS, analyzer, q);
     BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder()
         .add(queryContents, BooleanClause.Occur.SHOULD);
@@ -576,7 +1058,12 @@ public class SimpleSearcher implements Closeable {
    */
   public Document document(int ldocid) {
     try {
-      return reader.document(ldocid);
+      DirectoryReader reader = acquireReader();
+      try {
+        return resolveDocument(reader.document(ldocid));
+      } finally {
+        releaseReader(reader);
+      }
     } catch (Exception e) {
       // Eat any exceptions and just return null.
       return null;
@@ -592,7 +1079,16 @@ public class SimpleSearcher implements Closeable {
    * @return corresponding Lucene {@link Document}
    */
   public Document document(String docid) {
-    return IndexReaderUtils.document(reader, docid);
+    try {
+      DirectoryReader reader = acquireReader();
+      try {
+        return resolveDocument(IndexReaderUtils.document(reader, docid));
+      } finally {
+        releaseReader(reader);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
   /**
@@ -606,7 +1102,16 @@ public class SimpleSearcher implements Closeable {
    * @return corresponding Lucene {@link Document} based on the value of a specific field
    */
   public Document documentByField(String field, String id) {
-    return IndexReaderUtils.documentByField(reader, field, id);
+    try {
+      DirectoryReader reader = acquireReader();
+      try {
+        return IndexReaderUtils.documentByField(reader, field, id);
+      } finally {
+        releaseReader(reader);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
   /**
@@ -618,12 +1123,8 @@ public class SimpleSearcher implements Closeable {
    * @return the "contents" field the document
    */
   public String documentContents(int ldocid) {
-    try {
-      return reader.document(ldocid).get(IndexArgs.CONTENTS);
-    } catch (Exception e) {
-      // Eat any exceptions and just return null.
-      return null;
-    }
+    Document doc = document(ldocid);
+    return doc == null ? null : doc.get(IndexArgs.CONTENTS);
   }
 
   /**
@@ -635,7 +1136,8 @@ public class SimpleSearcher implements Closeable {
    * @return the "contents" field the document
    */
   public String documentContents(String docid) {
-    return IndexReaderUtils.documentContents(reader, docid);
+    Document doc = document(docid);
+    return doc == null ? null : doc.get(IndexArgs.CONTENTS);
   }
 
   /**
@@ -647,12 +1149,8 @@ public class SimpleSearcher implements Closeable {
    * @return the "raw" field the document
    */
   public String documentRaw(int ldocid) {
-    try {
-      return reader.document(ldocid).get(IndexArgs.RAW);
-    } catch (Exception e) {
-      // Eat any exceptions and just return null.
-      return null;
-    }
+    Document doc = document(ldocid);
+    return doc == null ? null : doc.get(IndexArgs.RAW);
   }
 
   /**
@@ -664,7 +1162,8 @@ public class SimpleSearcher implements Closeable {
    * @return the "raw" field the document
    */
   public String documentRaw(String docid) {
-    return IndexReaderUtils.documentRaw(reader, docid);
+    Document doc = document(docid);
+    return doc == null ? null : doc.get(IndexArgs.RAW);
   }
 
   // Note that this class is primarily meant to be used by automated regression scripts, not humans!
@@ -29,6 +29,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
@@ -91,7 +92,8 @@ public class SimpleTweetSearcher extends SimpleSearcher implements Closeable {
 
   @Override
   public void close() throws IOException {
-    reader.close();
+    unsetIntraQueryParallelism();
+    readerManager.close();
   }
 
   public Result[] searchTweets(String q, int k, long t) throws IOException {
@@ -103,12 +105,16 @@ public class SimpleTweetSearcher extends SimpleSearcher implements Closeable {
 
   protected Result[] searchTweets(Query query, List<String> queryTokens, String queryString, int k, long t)
       throws IOException {
-    // Create an IndexSearch only once. Note that the object is thread safe.
-    if (searcher == null) {
-      searcher = new IndexSearcher(reader);
-      searcher.setSimilarity(similarity);
+    DirectoryReader reader = acquireReader();
+    try {
+      return searchTweets(newSearcher(reader), query, queryTokens, queryString, k, t);
+    } finally {
+      releaseReader(reader);
     }
+  }
 
+  protected Result[] searchTweets(IndexSearcher searcher, Query query, List<String> queryTokens, String queryString,
+                                  int k, long t) throws IOException {
     SearchArgs searchArgs = new SearchArgs();
     searchArgs.arbitraryScoreTieBreak = false;
     searchArgs.hits = k;
@@ -134,7 +140,7 @@ public class SimpleTweetSearcher extends SimpleSearcher implements Closeable {
 
     Result[] results = new Result[hits.ids.length];
     for (int i = 0; i < hits.ids.length; i++) {
-      Document doc = hits.documents[i];
+      Document doc = hits.document(i);
       String docid = doc.getField(IndexArgs.ID).stringValue();
 
       IndexableField field;
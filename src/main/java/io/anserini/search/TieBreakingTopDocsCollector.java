@@ -0,0 +1,241 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.search;
+
+import io.anserini.index.IndexArgs;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorable;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A {@link Collector} of the top hits of a query that ranks them exactly as sorting by
+ * {@link SearchCollection#BREAK_SCORE_TIES_BY_DOCID} does, i.e., by score descending and then by external docid
+ * ascending, but that still lets the scorer skip over documents that cannot make it into the top hits. Sorting with a
+ * {@link org.apache.lucene.search.TopFieldCollector} has to look at every match, since a match that ties the current
+ * bottom score might still win on its docid. Here, the scorer is only told to skip documents that score strictly
+ * below the bottom hit, and docids are only read (from the {@code SortedDocValues} of the id field) for matches that
+ * score at least as high, so ties are resolved among the final candidates alone.
+ */
+public class TieBreakingTopDocsCollector implements Collector {
+  // Orders hits from worst to best: by score ascending, then by docid descending (documents without one rank first, as
+  // in the sort), and finally by Lucene docid descending.
+  private static final Comparator<Hit> WORST_FIRST = (a, b) -> {
+    int c = Float.compare(a.score, b.score);
+    if (c != 0) {
+      return c;
+    }
+    if (a.id != b.id) {
+      if (a.id == null) {
+        return 1;
+      }
+      if (b.id == null) {
+        return -1;
+      }
+      c = b.id.compareTo(a.id);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return Integer.compare(b.doc, a.doc);
+  };
+
+  private final String field;
+  private final int numHits;
+  private final PriorityQueue<Hit> queue = new PriorityQueue<>(WORST_FIRST);
+  private int totalHits = 0;
+  private boolean skipping = false;
+
+  /**
+   * Creates a collector of the top hits, breaking score ties by the {@link IndexArgs#ID} field.
+   *
+   * @param numHits number of hits to collect
+   */
+  public TieBreakingTopDocsCollector(int numHits) {
+    this(IndexArgs.ID, numHits);
+  }
+
+  /**
+   * Creates a collector of the top hits, breaking score ties by a {@code SortedDocValues} field.
+   *
+   * @param field field to break score ties by
+   * @param numHits number of hits to collect
+   */
+  public TieBreakingTopDocsCollector(String field, int numHits) {
+    if (numHits <= 0) {
+      throw new IllegalArgumentException("Number of hits must be positive, got " + numHits + ".");
+    }
+    this.field = field;
+    this.numHits = numHits;
+  }
+
+  /**
+   * Searches for the top hits of a query, ranked by score descending and then by external docid ascending. This is
+   * a drop-in replacement for {@code searcher.search(query, n, BREAK_SCORE_TIES_BY_DOCID, true)}, and slices the
+   * search across the searcher's executor in the same way.
+   *
+   * @param searcher searcher
+   * @param query query
+   * @param n number of hits
+   * @return top hits
+   * @throws IOException if error encountered during search
+   */
+  public static TopDocs search(IndexSearcher searcher, Query query, int n) throws IOException {
+    // As IndexSearcher, never ask for more hits than there are documents.
+    final int numHits = Math.min(n, Math.max(1, searcher.getIndexReader().maxDoc()));
+    return searcher.search(query, new CollectorManager<TieBreakingTopDocsCollector, TopDocs>() {
+      @Override
+      public TieBreakingTopDocsCollector newCollector() {
+        return new TieBreakingTopDocsCollector(numHits);
+      }
+
+      @Override
+      public TopDocs reduce(Collection<TieBreakingTopDocsCollector> collectors) {
+        return merge(numHits, collectors);
+      }
+    });
+  }
+
+  /**
+   * Merges the hits of collectors that each searched a disjoint part of an index (e.g., a slice of its segments).
+   *
+   * @param numHits number of hits to keep
+   * @param collectors collectors
+   * @return top hits over all collectors
+   */
+  public static TopDocs merge(int numHits, Collection<TieBreakingTopDocsCollector> collectors) {
+    List<Hit> hits = new ArrayList<>();
+    long totalHits = 0;
+    boolean skipping = false;
+    for (TieBreakingTopDocsCollector collector : collectors) {
+      hits.addAll(collector.queue);
+      totalHits += collector.totalHits;
+      skipping |= collector.skipping;
+    }
+    hits.sort(WORST_FIRST.reversed());
+    return toTopDocs(hits.subList(0, Math.min(numHits, hits.size())), totalHits, skipping);
+  }
+
+  /**
+   * Returns the top hits, ranked by score descending and then by docid ascending. The total hit count is a lower
+   * bound once the scorer has been allowed to skip documents.
+   *
+   * @return top hits
+   */
+  public TopDocs topDocs() {
+    List<Hit> hits = new ArrayList<>(queue);
+    hits.sort(WORST_FIRST.reversed());
+    return toTopDocs(hits, totalHits, skipping);
+  }
+
+  @Override
+  public ScoreMode scoreMode() {
+    return ScoreMode.TOP_SCORES;
+  }
+
+  @Override
+  public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+    final int docBase = context.docBase;
+    final SortedDocValues ids = DocValues.getSorted(context.reader(), field);
+    return new LeafCollector() {
+      private Scorable scorer;
+
+      @Override
+      public void setScorer(Scorable scorer) throws IOException {
+        this.scorer = scorer;
+        updateMinCompetitiveScore(scorer);
+      }
+
+      @Override
+      public void collect(int doc) throws IOException {
+        totalHits++;
+        float score = scorer.score();
+        if (queue.size() < numHits) {
+          queue.add(new Hit(docBase + doc, score, id(ids, doc)));
+          updateMinCompetitiveScore(scorer);
+          return;
+        }
+
+        // Only matches that tie or beat the bottom hit are worth looking up the docid of.
+        Hit bottom = queue.peek();
+        if (score < bottom.score) {
+          return;
+        }
+        Hit hit = new Hit(docBase + doc, score, id(ids, doc));
+        if (WORST_FIRST.compare(hit, bottom) < 0) {
+          return;
+        }
+        queue.poll();
+        queue.add(hit);
+        updateMinCompetitiveScore(scorer);
+      }
+    };
+  }
+
+  // Documents that tie the bottom hit must still be collected, so this is the bottom score itself rather than the
+  // next float up, as TopScoreDocCollector would use.
+  private void updateMinCompetitiveScore(Scorable scorer) throws IOException {
+    if (queue.size() == numHits) {
+      scorer.setMinCompetitiveScore(queue.peek().score);
+      skipping = true;
+    }
+  }
+
+  private static BytesRef id(SortedDocValues ids, int doc) throws IOException {
+    // The returned bytes may be reused by the next lookup, so keep a copy.
+    return ids.advanceExact(doc) ? BytesRef.deepCopyOf(ids.binaryValue()) : null;
+  }
+
+  private static TopDocs toTopDocs(List<Hit> hits, long totalHits, boolean skipping) {
+    ScoreDoc[] scoreDocs = new ScoreDoc[hits.size()];
+    for (int i = 0; i < scoreDocs.length; i++) {
+      scoreDocs[i] = new ScoreDoc(hits.get(i).doc, hits.get(i).score);
+    }
+    return new TopDocs(new TotalHits(totalHits,
+        skipping ? TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO : TotalHits.Relation.EQUAL_TO), scoreDocs);
+  }
+
+  private static final class Hit {
+    final int doc;
+    final float score;
+    final BytesRef id;
+
+    Hit(int doc, float score, BytesRef id) {
+      this.doc = doc;
+      this.score = score;
+      this.id = id;
+    }
+  }
+}
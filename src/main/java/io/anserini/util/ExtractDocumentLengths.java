@@ -16,8 +16,8 @@
 
 package io.anserini.util;
 
+import io.anserini.index.DocidMap;
 import io.anserini.index.IndexArgs;
-import io.anserini.index.IndexReaderUtils;
 import io.anserini.index.NotStoredException;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
@@ -70,6 +70,7 @@ public class ExtractDocumentLengths {
     PrintStream out = new PrintStream(new FileOutputStream(new File(myArgs.output)));
 
     int numDocs = reader.numDocs();
+    DocidMap docids = DocidMap.of(reader);
     long lossyTotalTerms = 0;
     long exactTotalTerms = 0;
 
@@ -79,7 +80,7 @@ public class ExtractDocumentLengths {
       if (terms == null) {
         // It could be the case that TermVectors weren't stored when constructing the index, or we're just missing a
         // TermVector for a zero-length document. Warn, but don't throw exception.
-        String external_did = IndexReaderUtils.convertLuceneDocidToDocid(reader, i);
+        String external_did = docids.toDocid(i);
         System.err.println(String.format("Warning: TermVector not available for docid %s.", external_did));
         out.println(String.format("%d\t%s\t0\t0\t0\t0", i, external_did));
         continue;
@@ -92,7 +93,7 @@ public class ExtractDocumentLengths {
       // See https://github.com/apache/lucene-solr/blob/master/lucene/core/src/java/org/apache/lucene/search/similarities/BM25Similarity.java
       int lossyDoclength = SmallFloat.byte4ToInt(SmallFloat.intToByte4((int) exactDoclength));
       int lossyTermCount = SmallFloat.byte4ToInt(SmallFloat.intToByte4((int) exactTermCount));
-      out.println(String.format("%d\t%s\t%d\t%d\t%d\t%d", i, IndexReaderUtils.convertLuceneDocidToDocid(reader, i),
+      out.println(String.format("%d\t%s\t%d\t%d\t%d\t%d", i, docids.toDocid(i),
               exactDoclength, exactTermCount, lossyDoclength, lossyTermCount));
       lossyTotalTerms += lossyDoclength;
       exactTotalTerms += exactDoclength;
@@ -0,0 +1,83 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.anserini;
+
+import io.anserini.collection.GRDCPassageCollection;
+import io.anserini.index.IndexCollection;
+import io.anserini.index.generator.GRDCPassageGenerator;
+import org.apache.lucene.util.LuceneTestCase;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds test indexes over the sample GRDC collections in {@code src/test/resources/sample_docs/grdc}, in temporary
+ * directories of the calling test.
+ */
+public final class GRDCTestIndexes {
+  private GRDCTestIndexes() {
+  }
+
+  /**
+   * Returns the path of a sample GRDC collection.
+   *
+   * @param name name of the collection (e.g., {@code passages1})
+   * @return path of the collection
+   */
+  public static Path collection(String name) {
+    return Paths.get("src/test/resources/sample_docs/grdc", name);
+  }
+
+  /**
+   * Indexes a sample GRDC passage collection.
+   *
+   * @param name name of the collection (e.g., {@code passages1})
+   * @param args additional arguments to {@link IndexCollection}
+   * @return path of the index
+   * @throws Exception if errors encountered indexing
+   */
+  public static Path passages(String name, String... args) throws Exception {
+    return index(collection(name), GRDCPassageCollection.class, GRDCPassageGenerator.class, args);
+  }
+
+  /**
+   * Indexes a collection with a single thread.
+   *
+   * @param input path of the collection
+   * @param collection collection class
+   * @param generator generator class
+   * @param args additional arguments to {@link IndexCollection}
+   * @return path of the index
+   * @throws Exception if errors encountered indexing
+   */
+  public static Path index(Path input, Class<?> collection, Class<?> generator, String... args) throws Exception {
+    Path indexPath = LuceneTestCase.createTempDir();
+    List<String> allArgs = new ArrayList<>(List.of(
+        "-index", indexPath.toString(),
+        "-input", input.toString(),
+        "-threads", "1",
+        "-collection", collection.getSimpleName(),
+        "-generator", generator.getSimpleName(),
+        "-quiet"));
+    allArgs.addAll(Arrays.asList(args));
+    IndexCollection.main(allArgs.toArray(new String[0]));
+    return indexPath;
+  }
+}
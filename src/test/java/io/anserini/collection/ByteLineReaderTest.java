@@ -0,0 +1,116 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.collection;
+
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class ByteLineReaderTest extends LuceneTestCase {
+
+  private static ByteLineReader reader(String s) {
+    return new ByteLineReader(new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testLines() throws IOException {
+    ByteLineReader reader = reader("first\r\n  <TEXT> caf\u00e9  \n\nlast");
+    assertTrue(reader.nextLine());
+    assertEquals("first", reader.lineString());
+
+    assertTrue(reader.nextLine());
+    assertFalse(reader.lineStartsWith(bytes("<TEXT>")));
+    reader.trimLine();
+    assertTrue(reader.lineStartsWith(bytes("<TEXT>")));
+    assertTrue(reader.lineEndsWith(bytes("caf\u00e9")));
+    assertEquals("<TEXT> caf\u00e9", reader.lineString());
+
+    assertTrue(reader.nextLine());
+    assertEquals(0, reader.lineLength());
+
+    assertTrue(reader.nextLine());
+    assertEquals("last", reader.lineString());
+    assertFalse(reader.nextLine());
+    assertFalse(reader.nextLine());
+  }
+
+  @Test
+  public void testCarriageReturns() throws IOException {
+    // By default, only \n ends a line.
+    ByteLineReader reader = reader("first\rstill first\n");
+    assertTrue(reader.nextLine());
+    assertEquals("first\rstill first", reader.lineString());
+    assertFalse(reader.nextLine());
+
+    // As with a BufferedReader, a lone \r can also end a line, and \r\n is a single line end.
+    reader = new ByteLineReader(new ByteArrayInputStream(bytes("first\rsecond\r\nthird\r\rfifth\r")),
+        StandardCharsets.UTF_8, true);
+    for (String line : new String[] {"first", "second", "third", "", "fifth"}) {
+      assertTrue(reader.nextLine());
+      assertEquals(line, reader.lineString());
+    }
+    assertFalse(reader.nextLine());
+
+    // A \r\n split across reads of the underlying stream is still a single line end.
+    String longLine = "x".repeat((1 << 20) - 1);
+    reader = new ByteLineReader(new ByteArrayInputStream(bytes(longLine + "\r\nnext")), StandardCharsets.UTF_8, true);
+    assertTrue(reader.nextLine());
+    assertEquals(longLine.length(), reader.lineLength());
+    assertTrue(reader.nextLine());
+    assertEquals("next", reader.lineString());
+    assertFalse(reader.nextLine());
+  }
+
+  @Test
+  public void testLongLine() throws IOException {
+    // Longer than the buffer, so that the buffer has to grow.
+    String longLine = "x".repeat(3 << 20);
+    ByteLineReader reader = reader("short\n" + longLine + "\nafter\n");
+    assertTrue(reader.nextLine());
+    assertTrue(reader.nextLine());
+    assertEquals(longLine.length(), reader.lineLength());
+
+    BytesRefBuilder builder = new BytesRefBuilder();
+    reader.appendLine(builder);
+    assertEquals(longLine + "\n", builder.get().utf8ToString());
+
+    assertTrue(reader.nextLine());
+    assertEquals("after", reader.lineString());
+  }
+
+  @Test
+  public void testReadBytes() throws IOException {
+    String content = "\u00e9".repeat(1 << 20);
+    ByteLineReader reader = reader("Content-Length: 2097152\n" + content + "next\n");
+    assertTrue(reader.nextLine());
+    assertEquals(content, new String(reader.readBytes(2 << 20), StandardCharsets.UTF_8));
+    assertTrue(reader.nextLine());
+    assertEquals("next", reader.lineString());
+
+    // At the end of the stream, fewer bytes are returned.
+    assertEquals(0, reader.readBytes(10).length);
+  }
+}
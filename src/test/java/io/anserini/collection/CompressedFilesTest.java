@@ -0,0 +1,201 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.collection;
+
+import com.google.common.io.ByteStreams;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+public class CompressedFilesTest extends LuceneTestCase {
+  private static final int NUM_DOCS = 20000;
+  private static final int BLOCK_SIZE = 60000;
+
+  private static byte[] jsonl() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < NUM_DOCS; i++) {
+      sb.append("{\"id\": \"doc").append(i).append("\", \"contents\": \"contents of document ").append(i)
+          .append("\"}\n");
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] read(Path path) throws IOException {
+    try (InputStream in = CompressedFiles.open(path)) {
+      return ByteStreams.toByteArray(in);
+    }
+  }
+
+  // Writes a BGZF member, i.e., a gzip member with a "BC" extra subfield holding the size of the member.
+  private static void writeBgzfBlock(OutputStream out, byte[] data, int offset, int length) throws IOException {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    deflater.setInput(data, offset, length);
+    deflater.finish();
+    byte[] compressed = new byte[length + 1024];
+    int n = deflater.deflate(compressed);
+    deflater.end();
+
+    int size = 18 + n + 8;
+    out.write(new byte[] {0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0,
+        (byte) (size - 1), (byte) ((size - 1) >> 8)});
+    out.write(compressed, 0, n);
+    CRC32 crc = new CRC32();
+    crc.update(data, offset, length);
+    writeInt(out, crc.getValue());
+    writeInt(out, length);
+  }
+
+  private static void writeInt(OutputStream out, long value) throws IOException {
+    for (int i = 0; i < 4; i++) {
+      out.write((int) (value >> (8 * i)));
+    }
+  }
+
+  private Path writeBgzf(byte[] data) throws IOException {
+    Path file = createTempDir().resolve("docs.jsonl.gz");
+    try (OutputStream out = Files.newOutputStream(file)) {
+      for (int offset = 0; offset < data.length; offset += BLOCK_SIZE) {
+        writeBgzfBlock(out, data, offset, Math.min(BLOCK_SIZE, data.length - offset));
+      }
+      writeBgzfBlock(out, new byte[0], 0, 0); // the empty end-of-file block
+    }
+    return file;
+  }
+
+  @Test
+  public void testBgzf() throws IOException {
+    byte[] data = jsonl();
+    assertArrayEquals(data, read(writeBgzf(data)));
+  }
+
+  @Test
+  public void testCorruptBgzf() throws IOException {
+    Path file = writeBgzf(jsonl());
+    byte[] bytes = Files.readAllBytes(file);
+    bytes[40] ^= 0x55;
+    Files.write(file, bytes);
+    expectThrows(IOException.class, () -> read(file));
+  }
+
+  @Test
+  public void testMultiMemberGzip() throws IOException {
+    byte[] data = jsonl();
+    Path file = createTempDir().resolve("docs.jsonl.gz");
+    try (OutputStream out = Files.newOutputStream(file)) {
+      // Plain gzip members carry no size, so this file is decompressed sequentially.
+      for (int offset = 0; offset < data.length; offset += BLOCK_SIZE) {
+        ByteArrayOutputStream member = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(member)) {
+          gzip.write(data, offset, Math.min(BLOCK_SIZE, data.length - offset));
+        }
+        member.writeTo(out);
+      }
+    }
+    assertArrayEquals(data, read(file));
+  }
+
+  @Test
+  public void testBzip2() throws IOException {
+    byte[] data = jsonl();
+    Path file = createTempDir().resolve("docs.jsonl.bz2");
+    try (OutputStream out = new BZip2CompressorOutputStream(Files.newOutputStream(file))) {
+      out.write(data);
+    }
+    assertArrayEquals(data, read(file));
+  }
+
+  @Test
+  public void testMultiBlockXz() throws IOException {
+    byte[] data = jsonl();
+    Path file = createTempDir().resolve("docs.jsonl.xz");
+    try (XZOutputStream out = new XZOutputStream(Files.newOutputStream(file), new LZMA2Options())) {
+      for (int offset = 0; offset < data.length; offset += BLOCK_SIZE) {
+        out.write(data, offset, Math.min(BLOCK_SIZE, data.length - offset));
+        out.endBlock();
+      }
+    }
+    assertArrayEquals(data, read(file));
+  }
+
+  @Test
+  public void testUncompressed() throws IOException {
+    byte[] data = jsonl();
+    Path file = createTempDir().resolve("docs.jsonl");
+    Files.write(file, data);
+    assertFalse(CompressedFiles.isCompressed(file));
+    assertArrayEquals(data, read(file));
+  }
+
+  @Test
+  public void testReadAheadFailure() throws IOException {
+    // A failure other than an IOException on the reading thread must reach the reader rather than leave it waiting.
+    InputStream failing = new InputStream() {
+      @Override
+      public int read() {
+        throw new UnsatisfiedLinkError("no codec");
+      }
+    };
+
+    try (InputStream in = new CompressedFiles.ReadAheadInputStream(failing, "failing")) {
+      IOException e = expectThrows(IOException.class, in::read);
+      assertTrue(e.getCause() instanceof UnsatisfiedLinkError);
+      // The failure is rethrown on later reads.
+      expectThrows(IOException.class, in::read);
+    }
+  }
+
+  @Test
+  public void testJsonCollection() throws IOException {
+    Path dir = createTempDir();
+    byte[] data = jsonl();
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(dir.resolve("docs.jsonl.gz")))) {
+      out.write(data);
+    }
+
+    JsonCollection collection = new JsonCollection(dir);
+    List<Path> paths = collection.getSegmentPaths();
+    assertEquals(1, paths.size());
+    assertTrue(CompressedFiles.isCompressed(paths.get(0)));
+
+    Set<String> ids = new HashSet<>();
+    try (FileSegment<JsonCollection.Document> segment = collection.createFileSegment(paths.get(0))) {
+      for (JsonCollection.Document doc : segment) {
+        ids.add(doc.id());
+      }
+    }
+    assertEquals(NUM_DOCS, ids.size());
+    assertTrue(ids.containsAll(Arrays.asList("doc0", "doc" + (NUM_DOCS - 1))));
+  }
+}
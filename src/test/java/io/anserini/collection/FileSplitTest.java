@@ -0,0 +1,148 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.anserini.collection;
+
+import com.google.common.io.ByteStreams;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class FileSplitTest extends LuceneTestCase {
+
+  private Path writeJsonl(int numDocs) throws IOException {
+    Path file = createTempFile("docs", ".jsonl");
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < numDocs; i++) {
+      sb.append("{\"id\": \"doc").append(i).append("\", \"contents\": \"contents of document ").append(i)
+          .append("\"}\n");
+    }
+    Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  @Test
+  public void testSplitsAreLineAligned() throws IOException {
+    Path file = writeJsonl(100);
+    List<FileSplit> splits = FileSplit.split(file, 256);
+    assertTrue(splits.size() > 1);
+
+    long expectedStart = 0;
+    StringBuilder all = new StringBuilder();
+    for (FileSplit split : splits) {
+      assertFalse(split.isWholeFile());
+      assertEquals(expectedStart, split.getStart());
+      expectedStart = split.getEnd();
+
+      try (InputStream in = split.newInputStream()) {
+        String text = new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+        assertEquals(split.length(), text.getBytes(StandardCharsets.UTF_8).length);
+        assertTrue(text.startsWith("{"));
+        assertTrue(text.endsWith("\n"));
+        all.append(text);
+      }
+    }
+    assertEquals(Files.size(file), expectedStart);
+    assertEquals(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), all.toString());
+  }
+
+  @Test
+  public void testSmallFileIsNotSplit() throws IOException {
+    Path file = writeJsonl(3);
+    List<FileSplit> splits = FileSplit.split(file, Files.size(file));
+    assertEquals(1, splits.size());
+    assertTrue(splits.get(0).isWholeFile());
+    assertEquals(Files.size(file), splits.get(0).length());
+  }
+
+  @Test
+  public void testProgress() throws IOException {
+    Path file = writeJsonl(100);
+    FileSplit split = FileSplit.split(file, 256).get(1);
+    AtomicLong read = new AtomicLong();
+    try (InputStream in = split.reportingTo(read::addAndGet).newInputStream()) {
+      in.read(new byte[10]);
+      assertEquals(10, read.get());
+      ByteStreams.exhaust(in);
+    }
+    assertEquals(split.length(), read.get());
+  }
+
+  @Test
+  public void testJsonCollectionOverSplits() throws IOException {
+    Path file = writeJsonl(100);
+    JsonCollection collection = new JsonCollection(file.getParent());
+    assertTrue(collection.isSplittable(file));
+
+    Set<String> ids = new HashSet<>();
+    int count = 0;
+    for (FileSplit split : FileSplit.split(file, 300)) {
+      try (FileSegment<JsonCollection.Document> segment = collection.createFileSegment(split)) {
+        for (JsonCollection.Document doc : segment) {
+          ids.add(doc.id());
+          count++;
+        }
+      }
+    }
+    assertEquals(100, count);
+    assertEquals(100, ids.size());
+  }
+
+  @Test
+  public void testFeverCollectionsOverSplits() throws IOException {
+    Path file = createTempFile("wiki", ".jsonl");
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 50; i++) {
+      sb.append("{\"id\": \"Café_").append(i).append("\", \"text\": \"Ångström café naïve ").append(i)
+          .append("\", \"lines\": \"0\\tÅngström café naïve ").append(i).append("\"}\n");
+    }
+    Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+    FeverParagraphCollection paragraphs = new FeverParagraphCollection(file.getParent());
+    assertTrue(paragraphs.isSplittable(file));
+    assertFalse(paragraphs.isSplittable(file.resolveSibling("wiki.jsonl.gz")));
+    assertFalse(new FeverSentenceCollection(file.getParent()).isSplittable(file.resolveSibling("wiki.jsonl.bz2")));
+
+    // The same documents come out of the whole file and of its splits.
+    List<String> whole = new ArrayList<>();
+    try (FileSegment<FeverParagraphCollection.Document> segment = paragraphs.createFileSegment(file)) {
+      for (FeverParagraphCollection.Document doc : segment) {
+        whole.add(doc.id() + " " + doc.contents());
+      }
+    }
+    List<String> split = new ArrayList<>();
+    for (FileSplit fileSplit : FileSplit.split(file, 300)) {
+      try (FileSegment<FeverParagraphCollection.Document> segment = paragraphs.createFileSegment(fileSplit)) {
+        for (FeverParagraphCollection.Document doc : segment) {
+          split.add(doc.id() + " " + doc.contents());
+        }
+      }
+    }
+    assertEquals(50, whole.size());
+    assertEquals("Café_0 Ångström café naïve 0", whole.get(0));
+    assertEquals(whole, split);
+  }
+}
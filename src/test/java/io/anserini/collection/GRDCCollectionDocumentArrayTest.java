@@ -0,0 +1,41 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.anserini.collection;
+
+import org.junit.Before;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// This is the test case for a file holding a single JSON array of reports.
+public class GRDCCollectionDocumentArrayTest extends GRDCCollectionTest {
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+
+    collectionPath = Paths.get("src/test/resources/sample_docs/grdc/collection2");
+    collection = new GRDCCollection(collectionPath);
+
+    Path segment1 = Paths.get("src/test/resources/sample_docs/grdc/collection2/segment1.json");
+
+    segmentPaths.clear();
+    segmentDocCounts.clear();
+    segmentPaths.add(segment1);
+    segmentDocCounts.put(segment1, 2);
+  }
+}
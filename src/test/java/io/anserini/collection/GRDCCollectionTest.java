@@ -0,0 +1,80 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.anserini.collection;
+
+import org.junit.Before;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+// A file in a GRDCCollection is either JSON Lines (one report per line) or a single array of reports.
+// This is the test case for JSON Lines; see GRDCCollectionDocumentArrayTest for the array case.
+public class GRDCCollectionTest extends DocumentCollectionTest<GRDCCollection.Document> {
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+
+    collectionPath = Paths.get("src/test/resources/sample_docs/grdc/collection1");
+    collection = new GRDCCollection(collectionPath);
+
+    Path segment1 = Paths.get("src/test/resources/sample_docs/grdc/collection1/segment1.jsonl");
+
+    segmentPaths.add(segment1);
+    segmentDocCounts.put(segment1, 2);
+
+    totalSegments = 1;
+    totalDocs = 2;
+
+    expected.put("grdc1", Map.of("id", "grdc1",
+        "content", "Frost damage is a major constraint. sowing time matters",
+        "title", "Managing frost risk in wheat",
+        "state", "QLD",
+        "keywords", "frost wheat",
+        "attachments", "a1"));
+    expected.put("grdc2", Map.of("id", "grdc2",
+        "content", "Nitrogen rates for barley",
+        "title", "Nitrogen use in barley",
+        "state", "SA",
+        "keywords", "nitrogen",
+        "attachments", ""));
+  }
+
+  @Override
+  void checkDocument(SourceDocument doc, Map<String, String> expected) {
+    GRDCCollection.Document report = (GRDCCollection.Document) doc;
+
+    assertTrue(doc.indexable());
+    assertEquals(expected.get("id"), doc.id());
+    assertEquals(expected.get("content"), doc.contents());
+    assertEquals(expected.get("title"), report.getReportTitle());
+    assertEquals(expected.get("state"), report.getState());
+    assertEquals(expected.get("keywords"), String.join(" ", report.getKeywords()));
+
+    StringBuilder attachments = new StringBuilder();
+    for (GRDCCollection.Attachment attachment : report.getAttachments()) {
+      attachments.append(attachment.attachment_id);
+    }
+    assertEquals(expected.get("attachments"), attachments.toString());
+
+    // The raw document is the verbatim slice of the input holding the report.
+    assertTrue(doc.raw().startsWith("{"));
+    assertTrue(doc.raw().endsWith("}"));
+    assertTrue(doc.raw().contains("\"report_id\": \"" + expected.get("id") + "\""));
+  }
+}
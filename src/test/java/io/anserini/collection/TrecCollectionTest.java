@@ -17,10 +17,18 @@
 package io.anserini.collection;
 
 import org.junit.Before;
+import org.junit.Test;
 
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 public class TrecCollectionTest extends DocumentCollectionTest<TrecCollection.Document> {
 
@@ -54,6 +62,41 @@ public class TrecCollectionTest extends DocumentCollectionTest<TrecCollection.Do
         Map.of("id", "doc2","raw", "<TEXT>\nhere is some text.\n</TEXT>"));
   }
 
+  // Records are read from CR-only line ends, and plain text files are decoded in the platform charset, as by the
+  // BufferedReader that segments used to be read with; compressed files are decoded as UTF-8.
+  @Test
+  public void testLineEndsAndCharsets() throws Exception {
+    String record = "<DOC>\r<DOCNO> doc1 </DOCNO>\r<TEXT>\rcaf\u00e9\r</TEXT>\r</DOC>\r";
+    byte[] latin1 = record.getBytes(StandardCharsets.ISO_8859_1);
+
+    Path dir = createTempDir();
+    Files.write(dir.resolve("plain.txt"), latin1);
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(dir.resolve("compressed.gz")))) {
+      out.write(record.getBytes(StandardCharsets.UTF_8));
+    }
+
+    List<TrecCollection.Document> plain = documents(dir.resolve("plain.txt"));
+    assertEquals(1, plain.size());
+    assertEquals("doc1", plain.get(0).id());
+    String text = new String(latin1, Charset.defaultCharset());
+    assertEquals(text.substring(text.indexOf("<TEXT>"), text.indexOf("</TEXT>") + 7).replace('\r', '\n'),
+        plain.get(0).raw());
+
+    List<TrecCollection.Document> compressed = documents(dir.resolve("compressed.gz"));
+    assertEquals(1, compressed.size());
+    assertEquals("<TEXT>\ncaf\u00e9\n</TEXT>", compressed.get(0).raw());
+  }
+
+  private static List<TrecCollection.Document> documents(Path path) throws Exception {
+    List<TrecCollection.Document> documents = new ArrayList<>();
+    try (FileSegment<TrecCollection.Document> segment = new TrecCollection.Segment<>(path)) {
+      for (TrecCollection.Document doc : segment) {
+        documents.add(doc);
+      }
+    }
+    return documents;
+  }
+
   @Override
   void checkDocument(SourceDocument doc, Map<String, String> expected) {
     assertTrue(doc.indexable());
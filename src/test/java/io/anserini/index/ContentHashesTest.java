@@ -0,0 +1,208 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.index;
+
+import io.anserini.collection.GRDCPassageCollection;
+import io.anserini.collection.SourceDocument;
+import io.anserini.index.generator.GRDCPassageGenerator;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ContentHashesTest extends LuceneTestCase {
+
+  private static SourceDocument source(String id, String raw) {
+    return new SourceDocument() {
+      @Override
+      public String id() {
+        return id;
+      }
+
+      @Override
+      public String contents() {
+        return raw;
+      }
+
+      @Override
+      public String raw() {
+        return raw;
+      }
+
+      @Override
+      public boolean indexable() {
+        return true;
+      }
+    };
+  }
+
+  private static Document document(String id, SourceDocument source) {
+    Document doc = new Document();
+    doc.add(new StringField(IndexArgs.ID, id, Field.Store.YES));
+    if (source != null) {
+      doc.add(new BinaryDocValuesField(IndexArgs.CONTENT_HASH, ContentHashes.hash(source)));
+    }
+    return doc;
+  }
+
+  @Test
+  public void testChanges() throws IOException {
+    try (Directory dir = FSDirectory.open(createTempDir());
+         IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig())) {
+      writer.addDocument(document("doc1", source("doc1", "first")));
+      writer.addDocument(document("doc2", source("doc2", "second")));
+      writer.addDocument(document("doc3", source("doc3", "third")));
+      // Indexed without a hash, e.g., by a full rebuild.
+      writer.addDocument(document("doc4", null));
+      writer.commit();
+
+      ContentHashes hashes = ContentHashes.load(writer);
+      assertEquals(4, hashes.size());
+
+      assertEquals(ContentHashes.Change.UNCHANGED, hashes.check("doc1", ContentHashes.hash(source("doc1", "first"))));
+      assertEquals(ContentHashes.Change.UPDATED, hashes.check("doc2", ContentHashes.hash(source("doc2", "changed"))));
+      assertEquals(ContentHashes.Change.UPDATED, hashes.check("doc4", ContentHashes.hash(source("doc4", "fourth"))));
+      assertEquals(ContentHashes.Change.ADDED, hashes.check("doc5", ContentHashes.hash(source("doc5", "fifth"))));
+
+      // doc3 was not seen.
+      assertEquals(1, hashes.deleteUnseen(writer));
+      writer.commit();
+
+      try (DirectoryReader reader = DirectoryReader.open(dir)) {
+        assertEquals(3, reader.numDocs());
+        assertNull(IndexReaderUtils.documentByField(reader, IndexArgs.ID, "doc3"));
+        assertNotNull(IndexReaderUtils.documentByField(reader, IndexArgs.ID, "doc1"));
+      }
+    }
+  }
+
+  @Test
+  public void testSharedDocids() throws IOException {
+    try (Directory dir = FSDirectory.open(createTempDir());
+         IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig())) {
+      // Two passages of the same report, told apart by their keys.
+      for (String key : new String[] {"report1#a", "report1#b"}) {
+        Document doc = document("report1", source(key, key));
+        doc.add(new StringField(IndexArgs.KEY, key, Field.Store.NO));
+        writer.addDocument(doc);
+      }
+      writer.commit();
+
+      ContentHashes hashes = ContentHashes.load(writer);
+      assertEquals(2, hashes.size());
+      assertEquals(ContentHashes.Change.UNCHANGED, hashes.check("report1#a",
+          ContentHashes.hash(source("report1#a", "report1#a"))));
+
+      // Deleting the unseen passage leaves its sibling alone.
+      assertEquals(1, hashes.deleteUnseen(writer));
+      writer.commit();
+
+      try (DirectoryReader reader = DirectoryReader.open(dir)) {
+        assertEquals(1, reader.numDocs());
+        assertNotNull(IndexReaderUtils.documentByField(reader, IndexArgs.KEY, "report1#a"));
+      }
+    }
+  }
+
+  private static String passage(String reportId, String text) {
+    return "{\"report_id\": \"" + reportId + "\", \"type\": \"report\", \"project_number\": \"P1\", " +
+        "\"report_title\": \"Title\", \"region_name\": \"North\", \"category_name\": \"Final Report\", " +
+        "\"research_theme_name\": \"Theme\", \"organisation_name\": \"Org\", \"complete_date\": \"2018-06-30\", " +
+        "\"supervisor_name\": \"Jane Smith\", \"publish_date\": \"2015-01-01\", \"report_path\": \"r.pdf\", " +
+        "\"keywords\": [], \"pdf_url\": \"u\", \"web_url\": \"w\", \"summary\": \"s\", \"text\": \"" + text + "\"}";
+  }
+
+  private static void indexPassages(Path input, Path index, String... args) throws Exception {
+    List<String> allArgs = new ArrayList<>(List.of(
+        "-index", index.toString(),
+        "-input", input.toString(),
+        "-threads", "1",
+        "-collection", GRDCPassageCollection.class.getSimpleName(),
+        "-generator", GRDCPassageGenerator.class.getSimpleName(),
+        "-quiet"));
+    allArgs.addAll(Arrays.asList(args));
+    IndexCollection.main(allArgs.toArray(new String[0]));
+  }
+
+  @Test
+  public void testIdenticalPassages() throws Exception {
+    Path input = createTempDir();
+    Path index = createTempDir();
+    // Two passages of a report with the same text, e.g., a repeated header.
+    Files.write(input.resolve("segment1.jsonl"), List.of(
+        passage("r1", "header"), passage("r1", "header"), passage("r1", "frost damage"), passage("r2", "header")),
+        StandardCharsets.UTF_8);
+    indexPassages(input, index, "-incremental");
+
+    try (DirectoryReader reader = DirectoryReader.open(FSDirectory.open(index))) {
+      assertEquals(4, reader.numDocs());
+      assertNotNull(IndexReaderUtils.documentByField(reader, IndexArgs.KEY, "r1#0"));
+      assertNotNull(IndexReaderUtils.documentByField(reader, IndexArgs.KEY, "r1#1"));
+    }
+
+    // Changing the text of one of them updates that passage only.
+    Files.write(input.resolve("segment1.jsonl"), List.of(
+        passage("r1", "header"), passage("r1", "new header"), passage("r1", "frost damage"), passage("r2", "header")),
+        StandardCharsets.UTF_8);
+    indexPassages(input, index, "-incremental");
+
+    try (DirectoryReader reader = DirectoryReader.open(FSDirectory.open(index))) {
+      assertEquals(4, reader.numDocs());
+    }
+  }
+
+  @Test
+  public void testUniqueDocidKeepsOneDocumentPerDocid() throws Exception {
+    Path input = createTempDir();
+    Path index = createTempDir();
+    Files.write(input.resolve("segment1.jsonl"), List.of(
+        passage("r1", "header"), passage("r1", "frost damage"), passage("r2", "header")), StandardCharsets.UTF_8);
+    // -uniqueDocid dedupes on the docid even for collections whose documents carry their own key.
+    indexPassages(input, index, "-incremental", "-uniqueDocid");
+
+    try (DirectoryReader reader = DirectoryReader.open(FSDirectory.open(index))) {
+      assertEquals(2, reader.numDocs());
+    }
+  }
+
+  @Test
+  public void testEmptyIndex() throws IOException {
+    try (Directory dir = FSDirectory.open(createTempDir());
+         IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig())) {
+      ContentHashes hashes = ContentHashes.load(writer);
+      assertEquals(0, hashes.size());
+      assertEquals(ContentHashes.Change.ADDED, hashes.check("doc1", ContentHashes.hash(source("doc1", "first"))));
+      assertEquals(0, hashes.deleteUnseen(writer));
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.index;
+
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiBits;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class DocidMapTest extends LuceneTestCase {
+  private Path indexPath;
+
+  // Builds an index of several segments, with docids out of order, updated documents (so that a docid has a deleted
+  // copy in an earlier segment), and a segment without doc values for the id field.
+  @Before
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    indexPath = createTempDir();
+
+    IndexWriterConfig config = new IndexWriterConfig(new EnglishAnalyzer());
+    config.setMergePolicy(NoMergePolicy.INSTANCE);
+    try (Directory dir = FSDirectory.open(indexPath); IndexWriter writer = new IndexWriter(dir, config)) {
+      for (int i = 0; i < 30; i++) {
+        writer.addDocument(document(String.format("doc%02d", (i * 7) % 30), true));
+        if (i % 10 == 9) {
+          writer.commit();
+        }
+      }
+      writer.updateDocument(new Term(IndexArgs.ID, "doc03"), document("doc03", true));
+      writer.updateDocument(new Term(IndexArgs.ID, "doc14"), document("doc14", true));
+      writer.commit();
+      writer.addDocument(document("tweet1", false));
+      writer.addDocument(document("tweet2", false));
+      writer.commit();
+    }
+  }
+
+  private static Document document(String docid, boolean docValues) {
+    Document doc = new Document();
+    doc.add(new StringField(IndexArgs.ID, docid, Field.Store.YES));
+    if (docValues) {
+      doc.add(new SortedDocValuesField(IndexArgs.ID, new BytesRef(docid)));
+    }
+    return doc;
+  }
+
+  @Test
+  public void testToLuceneDocids() throws Exception {
+    try (DirectoryReader reader = DirectoryReader.open(FSDirectory.open(indexPath))) {
+      IndexSearcher searcher = new IndexSearcher(reader);
+      List<String> docids = new ArrayList<>();
+      for (int i = 0; i < 30; i++) {
+        docids.add(String.format("doc%02d", i));
+      }
+      docids.addAll(Arrays.asList("tweet1", "tweet2", "doc42", "doc03"));
+
+      int[] ldocids = DocidMap.of(reader).toLuceneDocids(docids);
+      assertEquals(docids.size(), ldocids.length);
+      for (int i = 0; i < docids.size(); i++) {
+        TopDocs rs = searcher.search(new TermQuery(new Term(IndexArgs.ID, docids.get(i))), 1);
+        int expected = rs.scoreDocs.length == 0 ? -1 : rs.scoreDocs[0].doc;
+        assertEquals(docids.get(i), expected, ldocids[i]);
+        assertEquals(expected, DocidMap.of(reader).toLuceneDocid(docids.get(i)));
+        assertEquals(expected, IndexReaderUtils.convertDocidToLuceneDocid(reader, docids.get(i)));
+      }
+
+      // Updated documents map to their live copies.
+      assertEquals("doc03", reader.document(ldocids[3]).get(IndexArgs.ID));
+      assertTrue(MultiBits.getLiveDocs(reader).get(ldocids[3]));
+      assertEquals(-1, ldocids[docids.indexOf("doc42")]);
+    }
+  }
+
+  @Test
+  public void testToDocids() throws Exception {
+    try (DirectoryReader reader = DirectoryReader.open(FSDirectory.open(indexPath))) {
+      int[] ldocids = new int[reader.maxDoc() + 2];
+      for (int i = 0; i < reader.maxDoc(); i++) {
+        // In reverse, with the last two out of range.
+        ldocids[i] = reader.maxDoc() - 1 - i;
+      }
+      ldocids[reader.maxDoc()] = reader.maxDoc();
+      ldocids[reader.maxDoc() + 1] = -1;
+
+      String[] docids = DocidMap.of(reader).toDocids(ldocids);
+      for (int i = 0; i < reader.maxDoc(); i++) {
+        String expected = reader.document(ldocids[i]).get(IndexArgs.ID);
+        assertEquals(expected, docids[i]);
+        assertEquals(expected, DocidMap.of(reader).toDocid(ldocids[i]));
+        assertEquals(expected, IndexReaderUtils.convertLuceneDocidToDocid(reader, ldocids[i]));
+      }
+      assertNull(docids[reader.maxDoc()]);
+      assertNull(docids[reader.maxDoc() + 1]);
+    }
+  }
+
+  @Test
+  public void testReopen() throws Exception {
+    try (DirectoryReader reader = DirectoryReader.open(FSDirectory.open(indexPath))) {
+      assertEquals(-1, DocidMap.of(reader).toLuceneDocid("doc99"));
+
+      IndexWriterConfig config = new IndexWriterConfig(new EnglishAnalyzer());
+      config.setMergePolicy(NoMergePolicy.INSTANCE);
+      try (Directory dir = FSDirectory.open(indexPath); IndexWriter writer = new IndexWriter(dir, config)) {
+        writer.updateDocument(new Term(IndexArgs.ID, "doc05"), document("doc05", true));
+        writer.addDocument(document("doc99", true));
+      }
+
+      // The maps of the segments shared with the old reader still resolve against the new reader's deletions.
+      try (DirectoryReader newReader = DirectoryReader.openIfChanged(reader)) {
+        int doc05 = DocidMap.of(newReader).toLuceneDocid("doc05");
+        assertTrue(MultiBits.getLiveDocs(newReader).get(doc05));
+        assertEquals("doc05", newReader.document(doc05).get(IndexArgs.ID));
+        assertEquals("doc99", DocidMap.of(newReader).toDocid(DocidMap.of(newReader).toLuceneDocid("doc99")));
+        assertEquals(-1, DocidMap.of(reader).toLuceneDocid("doc99"));
+      }
+    }
+  }
+}
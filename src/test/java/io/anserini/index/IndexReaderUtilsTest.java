@@ -21,6 +21,7 @@ import io.anserini.analysis.AnalyzerUtils;
 import io.anserini.analysis.DefaultEnglishAnalyzer;
 import io.anserini.search.SearchArgs;
 import io.anserini.search.SimpleSearcher;
+import io.anserini.search.query.BagOfWordsQueryGenerator;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.IndexReader;
@@ -29,6 +30,8 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.similarities.BM25Similarity;
@@ -40,6 +43,7 @@ import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -535,6 +539,47 @@ public class IndexReaderUtilsTest extends IndexerTestBase {
     dir.close();
   }
 
+  @Test
+  public void testComputeQueryDocumentScores() throws Exception {
+    Directory dir = FSDirectory.open(tempDir1);
+    IndexReader reader = DirectoryReader.open(dir);
+    Similarity similarity = new BM25Similarity(0.9f, 0.4f);
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setSimilarity(similarity);
+
+    // Out of docid order, with a duplicate and a docid that doesn't exist.
+    List<String> docids = Arrays.asList("doc3", "doc1", "doc42", "doc2", "doc1");
+    int[] ldocids = new int[] {2, 0, 42, 1, 0};
+
+    for (String q : new String[] {"text city", "text", "city", "here more", "nothing"}) {
+      float[] scores = IndexReaderUtils.computeQueryDocumentScoresWithSimilarity(reader, docids, q, similarity);
+      float[] internalScores = IndexReaderUtils.computeQueryDocumentScoresWithSimilarityAndAnalyzer(reader, ldocids,
+          q, similarity, IndexCollection.DEFAULT_ANALYZER);
+      assertEquals(docids.size(), scores.length);
+
+      // The scores are exactly those of a search with the query.
+      Query query = new BagOfWordsQueryGenerator().buildQuery(IndexArgs.CONTENTS, IndexCollection.DEFAULT_ANALYZER, q);
+      Map<Integer, Float> expected = new HashMap<>();
+      for (ScoreDoc hit : searcher.search(query, reader.maxDoc()).scoreDocs) {
+        expected.put(hit.doc, hit.score);
+      }
+
+      for (int i = 0; i < docids.size(); i++) {
+        assertEquals(expected.getOrDefault(ldocids[i], 0.0f), scores[i], 0.0f);
+        assertEquals(scores[i], internalScores[i], 0.0f);
+
+        // The single-document method removes the score of its docid filter from the score of a conjunction, which
+        // rounds to the precision of a float around 1 + score.
+        float single = IndexReaderUtils.computeQueryDocumentScoreWithSimilarity(reader, docids.get(i), q, similarity);
+        assertEquals(single, scores[i], Math.ulp(1.0f + scores[i]));
+      }
+      assertEquals(0.0f, scores[2], 0.0f);
+    }
+
+    reader.close();
+    dir.close();
+  }
+
   @Test
   public void testGetIndexStats() throws Exception {
     Directory dir = FSDirectory.open(tempDir1);
@@ -0,0 +1,86 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.index;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class IndexingCheckpointTest extends LuceneTestCase {
+
+  private static IndexingCheckpoint.SegmentCounts counts(long indexed, long skipped) {
+    IndexingCheckpoint.SegmentCounts counts = new IndexingCheckpoint.SegmentCounts();
+    counts.indexed = indexed;
+    counts.skipped = skipped;
+    return counts;
+  }
+
+  @Test
+  public void testResume() throws IOException {
+    Path indexPath = createTempDir().resolve("index");
+    Path journal = IndexingCheckpoint.pathFor(indexPath);
+    assertEquals(indexPath.getParent(), journal.getParent());
+
+    try (Directory dir = FSDirectory.open(indexPath);
+         IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig())) {
+      // An interval of 0 commits at every segment boundary.
+      try (IndexingCheckpoint checkpoint = new IndexingCheckpoint(journal, false, new IndexWriter[] {writer}, 0)) {
+        Document doc = new Document();
+        doc.add(new StringField(IndexArgs.ID, "doc1", Field.Store.YES));
+        writer.addDocument(doc);
+        checkpoint.segmentDone("segment1", counts(1, 2));
+        checkpoint.segmentDone("segment2", counts(3, 0));
+      }
+
+      // The document of the first segment was committed before the segment was recorded.
+      try (DirectoryReader reader = DirectoryReader.open(dir)) {
+        assertEquals(1, reader.numDocs());
+      }
+    }
+
+    // A record torn by a crash is ignored.
+    Files.write(journal, "{\"segment\": \"segm".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+    try (IndexingCheckpoint checkpoint = new IndexingCheckpoint(journal, true, new IndexWriter[0], 10)) {
+      assertEquals(2, checkpoint.completedCount());
+      assertTrue(checkpoint.isCompleted("segment1"));
+      assertTrue(checkpoint.isCompleted("segment2"));
+      assertFalse(checkpoint.isCompleted("segment3"));
+      assertEquals(4, checkpoint.completedTotals().indexed);
+      assertEquals(2, checkpoint.completedTotals().skipped);
+    }
+
+    // Starting over discards the journal.
+    try (IndexingCheckpoint checkpoint = new IndexingCheckpoint(journal, false, new IndexWriter[0], 10)) {
+      assertEquals(0, checkpoint.completedCount());
+    }
+  }
+}
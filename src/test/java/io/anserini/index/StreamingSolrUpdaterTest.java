@@ -0,0 +1,132 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.index;
+
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.NamedList;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class StreamingSolrUpdaterTest extends LuceneTestCase {
+
+  // Accepts update requests unless they contain a document with id "bad", like Solr rejecting a malformed document.
+  private static class StubSolrClient extends SolrClient {
+    final Set<String> received = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public NamedList<Object> request(SolrRequest request, String collection) throws SolrServerException {
+      UpdateRequest update = (UpdateRequest) request;
+      for (SolrInputDocument document : update.getDocuments()) {
+        if ("bad".equals(document.getFieldValue(IndexArgs.ID))) {
+          throw new SolrServerException("Malformed document");
+        }
+      }
+      for (SolrInputDocument document : update.getDocuments()) {
+        received.add((String) document.getFieldValue(IndexArgs.ID));
+      }
+      return new NamedList<>();
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static SolrInputDocument document(String id) {
+    SolrInputDocument document = new SolrInputDocument();
+    document.addField(IndexArgs.ID, id);
+    return document;
+  }
+
+  @Test
+  public void testRoutingAndFailures() throws Exception {
+    Map<String, StubSolrClient> shards = new HashMap<>();
+    shards.put("shard1", new StubSolrClient());
+    shards.put("shard2", new StubSolrClient());
+
+    // Documents with even numbers go to shard1, the rest to shard2; queues are tiny so that adds block.
+    StreamingSolrUpdater updater = new StreamingSolrUpdater(
+        document -> ((String) document.getFieldValue(IndexArgs.ID)).matches(".*[02468]") ? "shard1" : "shard2",
+        shards::get, 2, 2, 3, 1000);
+    for (int i = 0; i < 20; i++) {
+      updater.add(document("doc" + i));
+    }
+    updater.add(document("bad"));
+    updater.close();
+
+    assertEquals(20, updater.getIndexed());
+    assertEquals(1, updater.getErrors());
+
+    Set<String> expected1 = new HashSet<>();
+    Set<String> expected2 = new HashSet<>();
+    for (int i = 0; i < 20; i++) {
+      (i % 2 == 0 ? expected1 : expected2).add("doc" + i);
+    }
+    assertEquals(expected1, shards.get("shard1").received);
+    assertEquals(expected2, shards.get("shard2").received);
+  }
+
+  @Test
+  public void testRoutingFailures() throws Exception {
+    StubSolrClient client = new StubSolrClient();
+    // No leader for "orphan" documents, and the core of "down" documents cannot be reached.
+    StreamingSolrUpdater updater = new StreamingSolrUpdater(
+        document -> {
+          String id = (String) document.getFieldValue(IndexArgs.ID);
+          if (id.startsWith("orphan")) {
+            throw new IllegalStateException("No registered leader");
+          }
+          return id.startsWith("down") ? "down" : "shard1";
+        },
+        key -> {
+          if (key.equals("down")) {
+            throw new IllegalArgumentException("Cannot connect to " + key);
+          }
+          return client;
+        }, 2, 1, 3, 1000);
+    for (int i = 0; i < 5; i++) {
+      updater.add(document("doc" + i));
+      updater.add(document("orphan" + i));
+      updater.add(document("down" + i));
+    }
+    updater.close();
+
+    // Failures are counted per document, and do not hold back the other documents.
+    assertEquals(5, updater.getIndexed());
+    assertEquals(10, updater.getErrors());
+    assertEquals(Set.of("doc0", "doc1", "doc2", "doc3", "doc4"), client.received);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAddAfterClose() throws Exception {
+    StubSolrClient client = new StubSolrClient();
+    StreamingSolrUpdater updater = new StreamingSolrUpdater(document -> "shard1", key -> client, 2, 1, 1, 1000);
+    updater.close();
+    updater.add(document("doc1"));
+  }
+}
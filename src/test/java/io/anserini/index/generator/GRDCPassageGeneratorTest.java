@@ -0,0 +1,144 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.index.generator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.anserini.GRDCTestIndexes;
+import io.anserini.collection.GRDCPassageCollection;
+import io.anserini.index.IndexArgs;
+import io.anserini.index.IndexCollection;
+import io.anserini.index.IndexReaderUtils;
+import io.anserini.search.SimpleSearcher;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class GRDCPassageGeneratorTest extends LuceneTestCase {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final int PASSAGES = 5;
+
+  private Path input;
+  private List<String> texts;
+
+  // Passages with long texts (well under Lucene's term length limit, as the default mode indexes the text as a single
+  // term), with characters that must be escaped in JSON.
+  @Before
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    input = createTempDir();
+    texts = new ArrayList<>();
+    Random random = new Random(42);
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < PASSAGES; i++) {
+      StringBuilder text = new StringBuilder("frost \"damage\"\tin wheat, café\n");
+      while (text.length() < 16000) {
+        for (int j = 3 + random.nextInt(6); j > 0; j--) {
+          text.append((char) ('a' + random.nextInt(26)));
+        }
+        text.append(' ');
+      }
+      texts.add(text.toString());
+
+      ObjectNode passage = MAPPER.createObjectNode();
+      passage.put("report_id", "r" + i);
+      passage.put("type", "report");
+      for (String field : new String[] {"project_number", "report_title", "region_name", "category_name",
+          "research_theme_name", "organisation_name", "complete_date", "supervisor_name", "publish_date",
+          "report_path"}) {
+        passage.put(field, field + " of r" + i);
+      }
+      passage.putArray("keywords").add("wheat").add("frost");
+      passage.put("pdf_url", "u");
+      passage.put("web_url", "w");
+      passage.put("summary", "s");
+      passage.put("text", text.toString());
+      lines.add(MAPPER.writeValueAsString(passage));
+    }
+    Files.write(input.resolve("segment1.jsonl"), lines, StandardCharsets.UTF_8);
+  }
+
+  private Path index(String... args) throws Exception {
+    return GRDCTestIndexes.index(input, GRDCPassageCollection.class, GRDCPassageGenerator.class, args);
+  }
+
+  @Test
+  public void testStoreTextOnceRoundTrip() throws Exception {
+    Path normal = index("-storeContents", "-storeRaw");
+    Path once = index("-storeContents", "-storeRaw", "-grdc.storeTextOnce");
+    Path onceWithoutContents = index("-storeRaw", "-grdc.storeTextOnce");
+
+    try (SimpleSearcher normalSearcher = new SimpleSearcher(normal.toString());
+         SimpleSearcher onceSearcher = new SimpleSearcher(once.toString());
+         SimpleSearcher onceWithoutContentsSearcher = new SimpleSearcher(onceWithoutContents.toString())) {
+      for (int i = 0; i < PASSAGES; i++) {
+        Document expected = normalSearcher.document("r" + i);
+        assertEquals(texts.get(i), expected.get(IndexArgs.CONTENTS));
+        for (SimpleSearcher searcher : new SimpleSearcher[] {onceSearcher, onceWithoutContentsSearcher}) {
+          Document doc = searcher.document("r" + i);
+          assertEquals(expected.get(IndexArgs.CONTENTS), doc.get(IndexArgs.CONTENTS));
+          assertEquals(expected.get("text"), doc.get("text"));
+          // The raw JSON comes back byte for byte, with the same fields in the same order.
+          assertEquals(expected.get(IndexArgs.RAW), doc.get(IndexArgs.RAW));
+        }
+      }
+    }
+
+    // The text is not indexed as a single term when stored once.
+    try (Directory normalDir = FSDirectory.open(normal);
+         DirectoryReader normalReader = DirectoryReader.open(normalDir);
+         Directory onceDir = FSDirectory.open(once);
+         DirectoryReader onceReader = DirectoryReader.open(onceDir)) {
+      assertNotNull(IndexReaderUtils.documentByField(normalReader, "text", texts.get(0)));
+      assertNull(IndexReaderUtils.documentByField(onceReader, "text", texts.get(0)));
+    }
+  }
+
+  @Test
+  public void testStoreTextOnceWithoutRaw() throws Exception {
+    Path once = index("-storeContents", "-grdc.storeTextOnce");
+
+    try (SimpleSearcher searcher = new SimpleSearcher(once.toString())) {
+      Document doc = searcher.document("r0");
+      assertEquals(texts.get(0), doc.get(IndexArgs.CONTENTS));
+      assertEquals(texts.get(0), doc.get("text"));
+      // Raw was not asked for.
+      assertNull(doc.get(IndexArgs.RAW));
+    }
+  }
+
+  @Test
+  public void testIndexSize() throws Exception {
+    long normal = IndexCollection.indexSize(index("-storeContents", "-storeRaw")).get("stored fields");
+    long once = IndexCollection.indexSize(index("-storeContents", "-storeRaw", "-grdc.storeTextOnce"))
+        .get("stored fields");
+    assertTrue("stored fields: " + once + " bytes stored once, " + normal + " bytes by default", once < normal);
+  }
+}
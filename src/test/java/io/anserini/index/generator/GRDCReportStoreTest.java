@@ -0,0 +1,129 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.index.generator;
+
+import io.anserini.GRDCTestIndexes;
+import io.anserini.index.IndexReaderUtils;
+import io.anserini.search.SimpleSearcher;
+import io.anserini.search.SimpleSearcher.Result;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class GRDCReportStoreTest extends LuceneTestCase {
+  private static final Map<String, String> PUBLISH_DATES = Map.of(
+      "r1", "2017-03-01", "r2", "2019-01-05", "r3", "unknown");
+
+  private Path reportIndexPath;
+  private Path indexPath;
+
+  @Before
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    reportIndexPath = createTempDir();
+    // Six passages of three reports.
+    indexPath = GRDCTestIndexes.passages("passages3", "-grdc.reportIndex", reportIndexPath.toString());
+  }
+
+  @Test
+  public void testReportsStoredOnce() throws Exception {
+    try (Directory dir = FSDirectory.open(reportIndexPath);
+         DirectoryReader reports = DirectoryReader.open(dir)) {
+      assertEquals(3, reports.numDocs());
+      Document report = IndexReaderUtils.documentByField(reports, "report_id", "r2");
+      assertEquals("Title", report.get("report_title"));
+      assertEquals("2019-01-05", report.get("publish_date"));
+    }
+
+    try (Directory dir = FSDirectory.open(indexPath);
+         DirectoryReader passages = DirectoryReader.open(dir)) {
+      assertEquals(6, passages.numDocs());
+      // Passages keep their report id and type, but not the report-level metadata.
+      Document passage = passages.document(0);
+      assertNotNull(passage.get("report_id"));
+      assertEquals("report", passage.get("type"));
+      assertNull(passage.get("report_title"));
+      assertNull(passage.get("publish_date"));
+    }
+  }
+
+  @Test
+  public void testJoin() throws Exception {
+    try (SimpleSearcher searcher = new SimpleSearcher(indexPath.toString())) {
+      Result[] results = searcher.search("first", 10);
+      assertEquals(3, results.length);
+      for (Result result : results) {
+        assertNull(result.lucene_document.get("report_title"));
+      }
+
+      searcher.setReportIndex(reportIndexPath.toString());
+      // Six hits, with several passages per report.
+      results = searcher.search("r1 r2 r3", 10);
+      assertEquals(6, results.length);
+      for (Result result : results) {
+        Document doc = result.lucene_document;
+        assertEquals(result.docid, doc.get("report_id"));
+        assertEquals("Title", doc.get("report_title"));
+        assertEquals(PUBLISH_DATES.get(result.docid), doc.get("publish_date"));
+        assertArrayEquals(new String[] {"wheat"}, doc.getValues("keywords"));
+        // The report id is not repeated.
+        assertEquals(1, doc.getValues("report_id").length);
+      }
+
+      // Documents fetched by docid are joined too.
+      assertEquals("2017-03-01", searcher.document("r1").get("publish_date"));
+
+      searcher.unsetReportIndex();
+      assertNull(searcher.search("first", 10)[0].lucene_document.get("report_title"));
+    }
+  }
+
+  @Test
+  public void testBatchJoin() throws Exception {
+    try (Directory passagesDir = FSDirectory.open(indexPath);
+         DirectoryReader passages = DirectoryReader.open(passagesDir);
+         Directory reportsDir = FSDirectory.open(reportIndexPath);
+         IndexReader reports = DirectoryReader.open(reportsDir)) {
+      List<Document> docs = new ArrayList<>();
+      for (int i = 0; i < passages.maxDoc(); i++) {
+        docs.add(passages.document(i));
+      }
+      Document unknown = new Document();
+      docs.add(unknown);
+      docs.add(null);
+
+      GRDCReportStore.join(reports, docs);
+      for (Document doc : docs.subList(0, passages.maxDoc())) {
+        assertEquals(PUBLISH_DATES.get(doc.get("report_id")), doc.get("publish_date"));
+      }
+      // Documents without a report id are left alone.
+      assertTrue(unknown.getFields().isEmpty());
+    }
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.anserini.collection.TrecCollection;
+import io.anserini.index.IndexArgs;
+import io.anserini.index.IndexCollection;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+// Indexes into a stub Elasticsearch that only implements the bulk API, failing the documents it is told to.
+public class ElasticsearchBulkIndexingTest extends LuceneTestCase {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private HttpServer server;
+  // Number of times each document was received.
+  private final Map<String, AtomicInteger> received = new ConcurrentHashMap<>();
+  // Maps a document and its attempt (from 1) to the HTTP status of its bulk item.
+  private volatile BiFunction<String, Integer, Integer> status = (id, attempt) -> 201;
+  // Time (in ms) the stub takes to answer a bulk request.
+  private volatile long delay = 0;
+
+  @Before
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  @After
+  @Override
+  public void tearDown() throws Exception {
+    server.stop(0);
+    super.tearDown();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      Thread.sleep(delay);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    List<String> items = new ArrayList<>();
+    boolean errors = false;
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        JsonNode action = MAPPER.readTree(line).path("index");
+        if (action.isMissingNode()) {
+          continue; // document source
+        }
+        String id = action.path("_id").asText();
+        int code = status.apply(id, received.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet());
+        if (code == 201) {
+          items.add("{\"index\":{\"_index\":\"test\",\"_type\":\"_doc\",\"_id\":\"" + id + "\",\"_version\":1," +
+              "\"result\":\"created\",\"_shards\":{\"total\":1,\"successful\":1,\"failed\":0},\"_seq_no\":0," +
+              "\"_primary_term\":1,\"status\":201}}");
+        } else {
+          errors = true;
+          String type = code == 429 ? "es_rejected_execution_exception" : "mapper_parsing_exception";
+          items.add("{\"index\":{\"_index\":\"test\",\"_type\":\"_doc\",\"_id\":\"" + id + "\",\"status\":" + code +
+              ",\"error\":{\"type\":\"" + type + "\",\"reason\":\"stub failure\"}}}");
+        }
+      }
+    }
+
+    byte[] body = ("{\"took\":1,\"errors\":" + errors + ",\"items\":[" + String.join(",", items) + "]}")
+        .getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private IndexCollection.Counters index() throws Exception {
+    return index(new IndexArgs());
+  }
+
+  private IndexCollection.Counters index(IndexArgs args) throws Exception {
+    args.input = "src/test/resources/sample_docs/trec/collection2";
+    args.collectionClass = TrecCollection.class.getSimpleName();
+    args.threads = 2;
+    args.quiet = true;
+    args.es = true;
+    args.esIndex = "test";
+    args.esHostname = "localhost";
+    args.esPort = server.getAddress().getPort();
+    args.esBackoff = 10;
+    return new IndexCollection(args).run();
+  }
+
+  @Test
+  public void testRejectedDocumentsAreRetried() throws Exception {
+    status = (id, attempt) -> id.equals("WSJ_1") && attempt < 3 ? 429 : 201;
+
+    IndexCollection.Counters counters = index();
+    assertEquals(3, counters.indexed.get());
+    assertEquals(0, counters.errors.get());
+    assertEquals(3, received.get("WSJ_1").get());
+    assertEquals(1, received.get("DOC222").get());
+  }
+
+  @Test
+  public void testFailedDocumentsAreCounted() throws Exception {
+    status = (id, attempt) -> id.equals("DOC222") ? 400 : 201;
+
+    IndexCollection.Counters counters = index();
+    assertEquals(2, counters.indexed.get());
+    assertEquals(1, counters.errors.get());
+    // Only rejections are retried.
+    assertEquals(1, received.get("DOC222").get());
+  }
+
+  @Test
+  public void testRequestsNotCompletedAreCounted() throws Exception {
+    delay = 5000;
+
+    IndexArgs args = new IndexArgs();
+    args.esCloseTimeout = 200;
+    IndexCollection.Counters counters = index(args);
+    // The only bulk request is still in flight when the close timeout expires.
+    assertEquals(0, counters.indexed.get());
+    assertEquals(3, counters.errors.get());
+  }
+}
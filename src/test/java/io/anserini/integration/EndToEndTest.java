@@ -138,6 +138,15 @@ public abstract class EndToEndTest extends LuceneTestCase {
       args.add("-quiet");
     }
 
+    if (indexArgs.pipeline) {
+      args.add("-pipeline");
+      args.addAll(List.of(
+          "-pipeline.readers", indexArgs.pipelineReaders + "",
+          "-pipeline.generators", indexArgs.pipelineGenerators + "",
+          "-pipeline.writers", indexArgs.pipelineWriters + "",
+          "-pipeline.queueSize", indexArgs.pipelineQueueSize + ""));
+    }
+
     IndexCollection.main(args.toArray(new String[args.size()]));
   }
 
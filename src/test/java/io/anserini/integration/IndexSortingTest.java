@@ -0,0 +1,103 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.integration;
+
+import io.anserini.GRDCTestIndexes;
+import io.anserini.collection.GRDCCollection;
+import io.anserini.index.IndexCollection;
+import io.anserini.index.generator.DefaultLuceneDocumentGenerator;
+import io.anserini.index.generator.GRDCGenerator;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class IndexSortingTest extends LuceneTestCase {
+
+  private static List<String> values(Path indexPath, String field, Sort expectedSort) throws Exception {
+    List<String> values = new ArrayList<>();
+    try (IndexReader reader = DirectoryReader.open(FSDirectory.open(indexPath))) {
+      for (LeafReaderContext context : reader.leaves()) {
+        assertEquals(expectedSort, context.reader().getMetaData().getSort());
+      }
+      for (int i = 0; i < reader.maxDoc(); i++) {
+        values.add(reader.document(i).get(field));
+      }
+    }
+    return values;
+  }
+
+  @Test
+  public void testPassagesByReport() throws Exception {
+    // Passages of different reports are interleaved; r3 has no usable publication date.
+    Path indexPath = GRDCTestIndexes.passages("passages3", "-indexSort", "report_id,passage_position", "-optimize");
+
+    Sort sort = new Sort(new SortField("report_id", SortField.Type.STRING),
+        new SortField("passage_position", SortField.Type.LONG));
+    sort.getSort()[0].setMissingValue(SortField.STRING_LAST);
+    sort.getSort()[1].setMissingValue(Long.MAX_VALUE);
+    assertEquals(List.of("r1 first", "r1 second", "r2 first", "r2 second", "r2 third", "r3 first"),
+        values(indexPath, "text", sort));
+  }
+
+  @Test
+  public void testPassagesByDate() throws Exception {
+    Path indexPath = GRDCTestIndexes.passages("passages3", "-indexSort", "publish_date:desc, passage_position",
+        "-optimize");
+
+    Sort sort = new Sort(new SortField("publish_date", SortField.Type.LONG, true),
+        new SortField("passage_position", SortField.Type.LONG));
+    sort.getSort()[0].setMissingValue(Long.MIN_VALUE);
+    sort.getSort()[1].setMissingValue(Long.MAX_VALUE);
+    // The passage without a date comes last.
+    assertEquals(List.of("r2 first", "r2 second", "r2 third", "r1 first", "r1 second", "r3 first"),
+        values(indexPath, "text", sort));
+  }
+
+  @Test
+  public void testReportsByDate() throws Exception {
+    Path indexPath = GRDCTestIndexes.index(GRDCTestIndexes.collection("collection1"), GRDCCollection.class,
+        GRDCGenerator.class, "-indexSort", "publish_date:desc", "-optimize");
+
+    Sort sort = new Sort(new SortField("publish_date", SortField.Type.LONG, true));
+    sort.getSort()[0].setMissingValue(Long.MIN_VALUE);
+    assertEquals(List.of("grdc2", "grdc1"), values(indexPath, "report_id", sort));
+  }
+
+  @Test
+  public void testUnsupportedField() {
+    expectThrows(IllegalArgumentException.class, () ->
+        IndexCollection.parseIndexSort("report_id", new DefaultLuceneDocumentGenerator<>(null)));
+    expectThrows(IllegalArgumentException.class, () ->
+        IndexCollection.parseIndexSort("publish_date:sideways", new GRDCGenerator(null)));
+
+    SortField sortField = IndexCollection.parseIndexSort("id:desc", new DefaultLuceneDocumentGenerator<>(null))
+        .getSort()[0];
+    assertEquals("id", sortField.getField());
+    assertEquals(SortField.Type.STRING, sortField.getType());
+    assertTrue(sortField.getReverse());
+  }
+}
@@ -19,12 +19,18 @@ package io.anserini.integration;
 import io.anserini.collection.TrecCollection;
 import io.anserini.index.IndexArgs;
 import io.anserini.search.SearchArgs;
+import io.anserini.search.SearchCollection;
+import org.junit.Test;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -191,4 +197,96 @@ public class MultiThreadingSearchTest extends EndToEndTest {
       cleanup.add(runfile);
     }
   }
+
+  @Test
+  public void testTopicOrder() throws Exception {
+    // Enough topics that searches on different threads complete out of order.
+    String[] queries = {"text", "head", "simple", "content", "simple text", "head content", "enough", "missing"};
+    List<String> topics = new ArrayList<>();
+    for (int i = 1; i <= 200; i++) {
+      topics.add(i + "\t" + queries[i % queries.length]);
+    }
+    File topicFile = new File(searchOutputPrefix + "TopicOrder.tsv");
+    Files.write(topicFile.toPath(), topics, StandardCharsets.UTF_8);
+    cleanup.add(topicFile);
+
+    Map<String, byte[]> expected = new HashMap<>();
+    for (int threads : new int[] {1, 8}) {
+      SearchArgs searchArgs = createDefaultSearchArgs().bm25();
+      searchArgs.topicReader = "TsvInt";
+      searchArgs.topics = new String[] {topicFile.getPath()};
+      searchArgs.bm25_b = new String[] {"0.2", "0.8"};
+      searchArgs.output = searchOutputPrefix + "TopicOrder" + threads;
+      searchArgs.threads = threads;
+
+      SearchCollection searcher = new SearchCollection(searchArgs);
+      searcher.runTopics();
+      searcher.close();
+
+      // Each run file is written in topic order, regardless of the number of threads.
+      for (String b : searchArgs.bm25_b) {
+        File run = new File(String.format("%s_bm25(k1=0.9,b=%s)_default", searchArgs.output, b));
+        cleanup.add(run);
+        byte[] contents = Files.readAllBytes(run.toPath());
+        if (threads == 1) {
+          // Every topic but the ones without matches has results.
+          List<Integer> qids = new ArrayList<>();
+          for (String line : Files.readAllLines(run.toPath(), StandardCharsets.US_ASCII)) {
+            int qid = Integer.parseInt(line.split(" ")[0]);
+            if (qids.isEmpty() || qids.get(qids.size() - 1) != qid) {
+              qids.add(qid);
+            }
+          }
+          assertEquals(topics.size() - topics.size() / queries.length, qids.size());
+          expected.put(b, contents);
+        } else {
+          assertArrayEquals(expected.get(b), contents);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSharedFirstStage() throws Exception {
+    // A sweep over reranker parameters searches once, and reranks the same results with each cascade; its runs must
+    // be the same as those of each configuration on its own.
+    String[] weights = {"0.2", "0.5", "0.9"};
+    for (boolean bm25prf : new boolean[] {false, true}) {
+      SearchArgs sweepArgs = createDefaultSearchArgs().bm25();
+      sweepArgs.output = searchOutputPrefix + "Sweep";
+      if (bm25prf) {
+        sweepArgs.bm25prf = true;
+        sweepArgs.bm25prf_newTermWeight = weights;
+      } else {
+        sweepArgs.rm3 = true;
+        sweepArgs.rm3_originalQueryWeight = weights;
+      }
+      SearchCollection searcher = new SearchCollection(sweepArgs);
+      searcher.runTopics();
+      searcher.close();
+
+      for (String weight : weights) {
+        SearchArgs singleArgs = createDefaultSearchArgs().bm25();
+        singleArgs.output = searchOutputPrefix + "Single";
+        if (bm25prf) {
+          singleArgs.bm25prf = true;
+          singleArgs.bm25prf_newTermWeight = new String[] {weight};
+        } else {
+          singleArgs.rm3 = true;
+          singleArgs.rm3_originalQueryWeight = new String[] {weight};
+        }
+        searcher = new SearchCollection(singleArgs);
+        searcher.runTopics();
+        searcher.close();
+
+        File single = new File(singleArgs.output);
+        cleanup.add(single);
+        File[] sweep = new File(".").listFiles((dir, name) -> name.startsWith(sweepArgs.output + "_") &&
+            name.contains(bm25prf ? "newTermWeight=" + weight : "originalQueryWeight=" + weight));
+        assertEquals(1, sweep.length);
+        cleanup.add(sweep[0]);
+        assertArrayEquals(Files.readAllBytes(single.toPath()), Files.readAllBytes(sweep[0].toPath()));
+      }
+    }
+  }
 }
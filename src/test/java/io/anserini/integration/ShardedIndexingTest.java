@@ -0,0 +1,90 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.integration;
+
+import io.anserini.collection.TrecCollection;
+import io.anserini.index.IndexArgs;
+import io.anserini.index.IndexCollection;
+import io.anserini.index.generator.DefaultLuceneDocumentGenerator;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ShardedIndexingTest extends LuceneTestCase {
+  private static final String INPUT = "src/test/resources/sample_docs/trec/collection2";
+
+  private static void index(Path indexPath, String... shardArgs) throws Exception {
+    String[] args = new String[] {
+        "-index", indexPath.toString(),
+        "-input", INPUT,
+        "-threads", "2",
+        "-collection", TrecCollection.class.getSimpleName(),
+        "-generator", DefaultLuceneDocumentGenerator.class.getSimpleName(),
+        "-quiet"};
+    String[] all = new String[args.length + shardArgs.length];
+    System.arraycopy(args, 0, all, 0, args.length);
+    System.arraycopy(shardArgs, 0, all, args.length, shardArgs.length);
+    IndexCollection.main(all);
+  }
+
+  private static Set<String> docids(Path indexPath) throws Exception {
+    Set<String> docids = new HashSet<>();
+    try (IndexReader reader = DirectoryReader.open(FSDirectory.open(indexPath))) {
+      for (int i = 0; i < reader.maxDoc(); i++) {
+        docids.add(reader.document(i).get(IndexArgs.ID));
+      }
+    }
+    return docids;
+  }
+
+  @Test
+  public void testAllShardsInOnePass() throws Exception {
+    Path indexPath = createTempDir();
+    index(indexPath, "-shard.count", "2");
+
+    Set<String> all = new HashSet<>();
+    for (int shard = 0; shard < 2; shard++) {
+      Set<String> docids = docids(indexPath.resolve("shard" + shard));
+      for (String docid : docids) {
+        assertEquals(shard, IndexCollection.shardOf(docid, 2));
+      }
+      all.addAll(docids);
+
+      // Building a single shard yields the same documents.
+      Path single = createTempDir();
+      index(single, "-shard.count", "2", "-shard.current", String.valueOf(shard));
+      assertEquals(docids, docids(single));
+    }
+    assertEquals(Set.of("TREC_DOC_1", "WSJ_1", "DOC222"), all);
+  }
+
+  @Test
+  public void testShardOf() {
+    for (String docid : new String[] {"doc1", "doc2", "", "GRDC-ABC123-p17"}) {
+      int shard = IndexCollection.shardOf(docid, 7);
+      assertTrue(shard >= 0 && shard < 7);
+      assertEquals(shard, IndexCollection.shardOf(docid, 7));
+    }
+  }
+}
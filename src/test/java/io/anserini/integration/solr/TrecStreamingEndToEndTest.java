@@ -0,0 +1,49 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.integration.solr;
+
+import io.anserini.index.IndexArgs;
+import io.anserini.index.IndexCollection;
+import io.anserini.index.StreamingSolrUpdater;
+
+import java.lang.reflect.Field;
+
+public class TrecStreamingEndToEndTest extends TrecEndToEndTest {
+  @Override
+  protected IndexArgs getIndexArgs() {
+    IndexArgs indexArgs = super.getIndexArgs();
+    indexArgs.solrStreaming = true;
+    indexArgs.solrQueueSize = 1;
+    indexArgs.solrThreads = 2;
+    indexArgs.solrBatch = 2;
+    indexArgs.zkUrl = "localhost"; // never connected to; the updater is replaced below
+    return indexArgs;
+  }
+
+  @Override
+  protected IndexCollection getIndexRunner(IndexArgs args) throws Exception {
+    IndexCollection runner = super.getIndexRunner(args);
+    Field f = runner.getClass().getDeclaredField("solrUpdater");
+    f.setAccessible(true);
+    ((StreamingSolrUpdater) f.get(runner)).close(); // close the ZooKeeper-backed updater
+    // The embedded server has a single core, so every document is routed to it.
+    f.set(runner, new StreamingSolrUpdater(document -> getCollectionName(), key -> client,
+        args.solrQueueSize, args.solrThreads, args.solrBatch, args.solrCommitWithin * 1000));
+    return runner;
+  }
+}
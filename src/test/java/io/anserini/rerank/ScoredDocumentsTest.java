@@ -0,0 +1,115 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.rerank;
+
+import io.anserini.IndexerTestBase;
+import io.anserini.index.IndexArgs;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class ScoredDocumentsTest extends IndexerTestBase {
+
+  @Test
+  public void testFromTopDocs() throws Exception {
+    try (IndexReader reader = DirectoryReader.open(FSDirectory.open(tempDir1))) {
+      IndexSearcher searcher = new IndexSearcher(reader);
+      TopDocs rs = searcher.search(new TermQuery(new Term(IndexArgs.CONTENTS, "text")), 10);
+      ScoredDocuments docs = ScoredDocuments.fromTopDocs(rs, searcher);
+
+      assertEquals(2, docs.size());
+      for (int i = 0; i < docs.size(); i++) {
+        assertEquals(rs.scoreDocs[i].doc, docs.ids[i]);
+        assertEquals(rs.scoreDocs[i].score, docs.scores[i], 0.0f);
+        assertEquals(reader.document(docs.ids[i]).get(IndexArgs.ID), docs.docids[i]);
+      }
+
+      // Only the requested fields are loaded...
+      Document partial = docs.document(0, Collections.singleton(IndexArgs.ID));
+      assertEquals(docs.docids[0], partial.get(IndexArgs.ID));
+      assertNull(partial.get(IndexArgs.RAW));
+
+      // ... unless the whole document has been loaded already.
+      Document full = docs.document(0);
+      assertNotNull(full.get(IndexArgs.RAW));
+      assertSame(full, docs.document(0));
+      assertSame(full, docs.document(0, Collections.singleton(IndexArgs.ID)));
+    }
+  }
+
+  @Test
+  public void testDocidOrder() throws Exception {
+    // Hits out of docid order, as they come in a ranking, still get the right collection docids.
+    try (IndexReader reader = DirectoryReader.open(FSDirectory.open(tempDir1))) {
+      IndexSearcher searcher = new IndexSearcher(reader);
+      TopDocs rs = searcher.search(new MatchAllDocsQuery(), 10);
+      ScoreDoc[] hits = new ScoreDoc[] {rs.scoreDocs[2], rs.scoreDocs[0], rs.scoreDocs[1], rs.scoreDocs[0]};
+      ScoredDocuments docs = ScoredDocuments.fromTopDocs(new TopDocs(rs.totalHits, hits), searcher);
+
+      assertEquals(4, docs.size());
+      for (int i = 0; i < docs.size(); i++) {
+        assertEquals(reader.document(docs.ids[i]).get(IndexArgs.ID), docs.docids[i]);
+      }
+    }
+  }
+
+  @Test
+  public void testSelectAndCopy() throws Exception {
+    try (IndexReader reader = DirectoryReader.open(FSDirectory.open(tempDir1))) {
+      IndexSearcher searcher = new IndexSearcher(reader);
+      ScoredDocuments docs = ScoredDocuments.fromTopDocs(searcher.search(new MatchAllDocsQuery(), 10), searcher);
+      Document first = docs.document(0);
+
+      ScoredDocuments selected = docs.select(new int[] {2, 0});
+      assertEquals(2, selected.size());
+      assertEquals(docs.docids[2], selected.docids[0]);
+      assertEquals(docs.ids[0], selected.ids[1]);
+      assertSame(first, selected.document(1));
+      assertEquals(docs.docids[2], selected.document(0).get(IndexArgs.ID));
+
+      float score = docs.scores[0];
+      ScoredDocuments copy = docs.copy();
+      copy.scores[0] = -1.0f;
+      assertEquals(score, docs.scores[0], 0.0f);
+      assertSame(first, copy.document(0));
+    }
+  }
+
+  @Test
+  public void testFromQrels() throws Exception {
+    try (IndexReader reader = DirectoryReader.open(FSDirectory.open(tempDir1))) {
+      ScoredDocuments docs = ScoredDocuments.fromQrels(Map.of("doc2", 1, "doc4", 1), reader);
+
+      assertEquals(1, docs.size());
+      assertEquals("doc2", docs.docids[0]);
+      assertEquals(1.0f, docs.scores[0], 0.0f);
+      assertEquals("doc2", docs.document(0).get(IndexArgs.ID));
+    }
+  }
+}
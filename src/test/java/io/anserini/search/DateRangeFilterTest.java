@@ -0,0 +1,115 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.search;
+
+import io.anserini.GRDCTestIndexes;
+import io.anserini.search.SimpleSearcher.Result;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+public class DateRangeFilterTest extends LuceneTestCase {
+  private Path indexPath;
+
+  @Before
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    indexPath = GRDCTestIndexes.passages("passages1");
+  }
+
+  private static Set<String> docids(Result[] results) {
+    Set<String> docids = new TreeSet<>();
+    for (Result result : results) {
+      docids.add(result.docid);
+    }
+    return docids;
+  }
+
+  @Test
+  public void testSimpleSearcher() throws Exception {
+    try (SimpleSearcher searcher = new SimpleSearcher(indexPath.toString())) {
+      assertEquals(Set.of("r1", "r2", "r3", "r4", "r5"), docids(searcher.search("wheat frost", 10)));
+
+      searcher.setDateFilter("publish_date", "2015", null);
+      assertEquals(Set.of("r2", "r3", "r4"), docids(searcher.search("wheat frost", 10)));
+
+      searcher.setDateFilter("publish_date", "2015-01-02", "2015-06");
+      assertEquals(Set.of("r3"), docids(searcher.search("wheat frost", 10)));
+
+      searcher.setDateFilter("publish_date", null, "2015-01-01");
+      assertEquals(Set.of("r1", "r2"), docids(searcher.search("wheat frost", 10)));
+
+      // The filter also applies to faceted search.
+      assertEquals(Set.of("r1", "r2"), docids(searcher.searchFacets("wheat frost", 10, List.of("region_name")).results));
+      assertEquals(Map.of("North", 2), searcher.searchFacets("wheat frost", 10, List.of("region_name")).facets
+          .get("region_name"));
+
+      searcher.unsetDateFilter();
+      assertEquals(5, searcher.search("wheat frost", 10).length);
+    }
+  }
+
+  @Test
+  public void testSearchCollection() throws Exception {
+    Path topics = createTempFile("topics", ".tsv");
+    Files.write(topics, List.of("1\twheat frost"), StandardCharsets.UTF_8);
+    Path run = createTempFile("run", ".txt");
+
+    SearchCollection.main(new String[] {
+        "-index", indexPath.toString(),
+        "-topics", topics.toString(),
+        "-topicreader", "TsvInt",
+        "-output", run.toString(),
+        "-bm25",
+        "-datefilter.from", "2015",
+        "-datefilter.to", "2019-06"});
+
+    Set<String> docids = Files.readAllLines(run, StandardCharsets.UTF_8).stream()
+        .map(line -> line.split(" ")[2])
+        .collect(Collectors.toCollection(TreeSet::new));
+    assertEquals(Set.of("r2", "r3"), docids);
+  }
+
+  @Test
+  public void testSearchCollectionRejectsUnsupportedSearches() {
+    for (String search : new String[] {"searchtweets", "backgroundlinking"}) {
+      SearchArgs args = new SearchArgs();
+      args.index = indexPath.toString();
+      args.datefilter_from = "2015";
+      args.searchtweets = search.equals("searchtweets");
+      args.backgroundlinking = search.equals("backgroundlinking");
+      expectThrows(IllegalArgumentException.class, () -> new SearchCollection(args));
+    }
+  }
+
+  @Test
+  public void testInvalidDate() {
+    expectThrows(IllegalArgumentException.class, () ->
+        DateRangeFilter.newRangeQuery("publish_date", "since 2015", null));
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.search;
+
+import io.anserini.index.IndexArgs;
+import io.anserini.search.query.BagOfWordsQueryGenerator;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+
+public class IntraQueryParallelismTest extends LuceneTestCase {
+  private Path indexPath;
+
+  // Builds an index of many small segments, so that queries span several slices.
+  @Before
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    indexPath = createTempDir();
+
+    IndexWriterConfig config = new IndexWriterConfig(new EnglishAnalyzer());
+    config.setMergePolicy(NoMergePolicy.INSTANCE);
+    try (Directory dir = FSDirectory.open(indexPath); IndexWriter writer = new IndexWriter(dir, config)) {
+      for (int i = 0; i < 40; i++) {
+        String docid = String.format("doc%02d", i);
+        Document doc = new Document();
+        doc.add(new StringField(IndexArgs.ID, docid, Field.Store.YES));
+        doc.add(new SortedDocValuesField(IndexArgs.ID, new BytesRef(docid)));
+        // Ties in scores (every fifth document is the same) must be broken the same way as without slicing.
+        doc.add(new TextField(IndexArgs.CONTENTS, "city " + "text ".repeat(i % 5 + 1) + "filler ".repeat(i % 3),
+            Field.Store.YES));
+        writer.addDocument(doc);
+        if (i % 4 == 3) {
+          writer.commit();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSameResults() throws Exception {
+    try (SimpleSearcher searcher = new SimpleSearcher(indexPath.toString())) {
+      assertEquals(40, searcher.getTotalNumDocuments());
+      SimpleSearcher.Result[] expected = searcher.search("text city", 15);
+
+      // Every segment in a slice of its own, then the segments grouped into slices.
+      searcher.setIntraQueryParallelism(4, 1, 1);
+      assertSameResults(expected, searcher.search("text city", 15));
+      searcher.setIntraQueryParallelism(2, 10, 3);
+      assertSameResults(expected, searcher.search("text city", 15));
+
+      searcher.unsetIntraQueryParallelism();
+      assertSameResults(expected, searcher.search("text city", 15));
+    }
+  }
+
+  @Test
+  public void testShutDownExecutor() throws Exception {
+    try (SimpleSearcher searcher = new SimpleSearcher(indexPath.toString())) {
+      SimpleSearcher.Result[] expected = searcher.search("text city", 15);
+
+      // A search in flight when its executor is retired scores the remaining slices on its own thread.
+      ExecutorService executor = IntraQueryParallelism.newExecutor(2);
+      executor.shutdown();
+      DirectoryReader reader = searcher.acquireReader();
+      try {
+        IndexSearcher parallel = IntraQueryParallelism.newSearcher(reader, executor, 1, 1);
+        IndexSearcher serial = new IndexSearcher(reader);
+        Query query = new BagOfWordsQueryGenerator().buildQuery(IndexArgs.CONTENTS, new EnglishAnalyzer(), "text city");
+        assertEquals(serial.count(query), parallel.count(query));
+      } finally {
+        searcher.releaseReader(reader);
+      }
+
+      // Replacing the executor does not disturb the searches that follow.
+      searcher.setIntraQueryParallelism(2, 1, 1);
+      searcher.setIntraQueryParallelism(3, 1, 1);
+      assertSameResults(expected, searcher.search("text city", 15));
+    }
+  }
+
+  private static void assertSameResults(SimpleSearcher.Result[] expected, SimpleSearcher.Result[] results) {
+    assertEquals(expected.length, results.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i].docid, results[i].docid);
+      assertEquals(expected[i].score, results[i].score, 10e-6);
+    }
+  }
+
+  @Test
+  public void testInvalidSlicing() throws Exception {
+    expectThrows(IllegalArgumentException.class, () -> IntraQueryParallelism.newExecutor(0));
+
+    ExecutorService executor = IntraQueryParallelism.newExecutor(1);
+    try (SimpleSearcher searcher = new SimpleSearcher(indexPath.toString())) {
+      expectThrows(IllegalArgumentException.class, () -> searcher.setIntraQueryParallelism(2, 0, 5));
+      DirectoryReader reader = searcher.acquireReader();
+      try {
+        expectThrows(IllegalArgumentException.class, () -> IntraQueryParallelism.newSearcher(reader, executor, 10, 0));
+      } finally {
+        searcher.releaseReader(reader);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.anserini.search;
+
+import io.anserini.GRDCTestIndexes;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class SearchCollectionFailureTest extends LuceneTestCase {
+
+  @Test
+  public void testFailedTopicFailsRun() throws Exception {
+    Path indexPath = GRDCTestIndexes.passages("passages1");
+    Path dir = createTempDir();
+    Path topics = dir.resolve("topics.tsv");
+    Files.write(topics, List.of("1\twheat frost", "2\tfrost"), StandardCharsets.UTF_8);
+    Path run = dir.resolve("run.txt");
+    Files.write(run, List.of("previous run"), StandardCharsets.UTF_8);
+
+    SearchArgs args = new SearchArgs();
+    args.index = indexPath.toString();
+    args.topics = new String[] {topics.toString()};
+    args.topicReader = "TsvInt";
+    args.output = run.toString();
+    args.threads = 2;
+    args.bm25 = true;
+    // Tweet search needs a query time, which these topics lack, so every topic fails.
+    args.searchtweets = true;
+
+    try (SearchCollection searcher = new SearchCollection(args)) {
+      expectThrows(IOException.class, searcher::runTopics);
+    }
+
+    // The run file is left as it was, and no temporary file is left behind.
+    assertEquals(List.of("previous run"), Files.readAllLines(run, StandardCharsets.UTF_8));
+    try (Stream<Path> files = Files.list(dir)) {
+      assertEquals(List.of("run.txt", "topics.tsv"), files.map(p -> p.getFileName().toString()).sorted()
+          .collect(Collectors.toList()));
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.search;
+
+import io.anserini.GRDCTestIndexes;
+import io.anserini.index.generator.GRDCPassageGenerator;
+import io.anserini.search.SimpleSearcher.FacetedResults;
+import io.anserini.search.SimpleSearcher.Result;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class SimpleSearcherFacetsTest extends LuceneTestCase {
+  private Path indexPath;
+
+  @Before
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    indexPath = GRDCTestIndexes.passages("passages2", "-storeRaw");
+  }
+
+  private static List<String> docids(Result[] results) {
+    List<String> docids = new ArrayList<>();
+    for (Result result : results) {
+      docids.add(result.docid);
+    }
+    return docids;
+  }
+
+  @Test
+  public void testFacets() throws Exception {
+    try (SimpleSearcher searcher = new SimpleSearcher(indexPath.toString())) {
+      FacetedResults faceted = searcher.searchFacets("wheat", 10,
+          List.of("region_name", "research_theme_name", "state"));
+
+      // Hits are the same as without facets.
+      assertEquals(docids(searcher.search("wheat", 10)), docids(faceted.results));
+      assertEquals(3, faceted.results.length);
+
+      assertEquals(List.of("region_name", "research_theme_name", "state"), new ArrayList<>(faceted.facets.keySet()));
+      assertEquals(Map.of("North", 2, "South", 1), faceted.facets.get("region_name"));
+      // Values come in decreasing order of counts.
+      assertEquals(List.of("Nutrition", "Crop protection"),
+          new ArrayList<>(faceted.facets.get("research_theme_name").keySet()));
+      assertEquals(2, (int) faceted.facets.get("research_theme_name").get("Nutrition"));
+      // Passages have no state.
+      assertTrue(faceted.facets.get("state").isEmpty());
+
+      // Counts cover all matches, not only the top hits.
+      FacetedResults top1 = searcher.searchFacets("wheat", 1, List.of("region_name"));
+      assertEquals(1, top1.results.length);
+      assertEquals(Map.of("North", 2, "South", 1), top1.facets.get("region_name"));
+    }
+  }
+
+  @Test
+  public void testDrillDown() throws Exception {
+    try (SimpleSearcher searcher = new SimpleSearcher(indexPath.toString())) {
+      FacetedResults faceted = searcher.searchFacets("frost", 10, GRDCPassageGenerator.FACET_FIELDS,
+          Map.of("region_name", List.of("North")));
+      assertEquals(List.of("r1", "r3"), docids(faceted.results).stream().sorted().collect(Collectors.toList()));
+      assertEquals(Map.of("North", 2), faceted.facets.get("region_name"));
+
+      // Values within a field are alternatives, fields are combined.
+      faceted = searcher.searchFacets("frost", 10, List.of("region_name"),
+          Map.of("region_name", List.of("North", "West"), "research_theme_name", List.of("Crop protection")));
+      assertEquals(Map.of("North", 1, "West", 1), faceted.facets.get("region_name"));
+
+      // Nothing matches an unknown value.
+      faceted = searcher.searchFacets("frost", 10, List.of("region_name"), Map.of("region_name", List.of("East")));
+      assertEquals(0, faceted.results.length);
+      assertTrue(faceted.facets.get("region_name").isEmpty());
+    }
+  }
+
+  @Test
+  public void testDrillDownFiltersAreCached() throws Exception {
+    DrillDownCachingPolicy policy = new DrillDownCachingPolicy();
+    Query single = policy.filter("region_name", List.of("North"));
+    Query multiple = policy.filter("region_name", List.of("North", "West", "North"));
+
+    assertTrue(policy.shouldCache(single));
+    assertTrue(policy.shouldCache(multiple));
+    // The same selection yields an equal query, so later searches hit the same cache entry.
+    assertEquals(single, new DrillDownCachingPolicy().filter("region_name", List.of("North")));
+    assertFalse(new DrillDownCachingPolicy().shouldCache(single));
+
+    expectThrows(IllegalArgumentException.class, () -> policy.filter("region_name", List.of()));
+
+    // Only the most recently used filters are remembered.
+    DrillDownCachingPolicy small = new DrillDownCachingPolicy(1);
+    Query north = small.filter("region_name", List.of("North"));
+    Query west = small.filter("region_name", List.of("West"));
+    assertTrue(small.shouldCache(west));
+    assertFalse(small.shouldCache(north));
+  }
+}
@@ -20,14 +20,27 @@ import io.anserini.IndexerTestBase;
 import io.anserini.index.IndexArgs;
 import io.anserini.search.SimpleSearcher.Result;
 import io.anserini.search.query.PhraseQueryGenerator;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.junit.Test;
 
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -297,4 +310,145 @@ public class SimpleSearcherTest extends IndexerTestBase {
     SimpleSearcher searcher = new SimpleSearcher(super.tempDir1.toString());
     assertEquals(3 ,searcher.getTotalNumDocuments());
   }
+
+  @Test
+  public void testResultCache() throws Exception {
+    SimpleSearcher searcher = new SimpleSearcher(super.tempDir1.toString());
+    assertNull(searcher.getResultCacheStats());
+    searcher.setResultCache(16);
+
+    Result[] results = searcher.search("text");
+    assertEquals(2, results.length);
+    assertEquals(0, searcher.getResultCacheStats().hitCount());
+    assertEquals(1, searcher.getResultCacheStats().missCount());
+
+    // The same analyzed query hits the cache, and gives the same results.
+    Result[] cached = searcher.search("texts");
+    assertEquals(1, searcher.getResultCacheStats().hitCount());
+    assertEquals(2, cached.length);
+    assertEquals("doc1", cached[0].docid);
+    assertEquals(0.28830000f, cached[0].score, 10e-6);
+    assertEquals("doc2", cached[1].docid);
+    assertNotSame(results, cached);
+
+    // A different number of hits, scoring function or reranker is a different search.
+    searcher.search("text", 1);
+    assertEquals(2, searcher.getResultCacheStats().missCount());
+    searcher.setBM25(1.2f, 0.75f);
+    assertNotEquals(0.28830000f, searcher.search("text")[0].score, 10e-6);
+    assertEquals(3, searcher.getResultCacheStats().missCount());
+    searcher.setRM3();
+    searcher.search("text");
+    assertEquals(4, searcher.getResultCacheStats().missCount());
+    searcher.unsetRM3();
+    searcher.search("text");
+    assertEquals(2, searcher.getResultCacheStats().hitCount());
+    // Rerankers are told apart by their full configuration, not only by their tags.
+    SearchArgs defaults = new SearchArgs();
+    searcher.setRM3(Integer.parseInt(defaults.rm3_fbTerms[0]), Integer.parseInt(defaults.rm3_fbDocs[0]),
+        Float.parseFloat(defaults.rm3_originalQueryWeight[0]), true);
+    searcher.search("text");
+    assertEquals(5, searcher.getResultCacheStats().missCount());
+    searcher.unsetRM3();
+
+    // Changing the documents of returned results leaves the cached ones alone.
+    searcher.search("text")[0].lucene_document.removeFields(IndexArgs.ID);
+    assertEquals("doc1", searcher.search("text")[0].lucene_document.get(IndexArgs.ID));
+    assertEquals(4, searcher.getResultCacheStats().hitCount());
+
+    // Nothing fits into an empty cache.
+    searcher.setResultCache(0);
+    searcher.search("text");
+    searcher.search("text");
+    assertEquals(0, searcher.getResultCacheStats().hitCount());
+    assertEquals(2, searcher.getResultCacheStats().evictionCount());
+
+    searcher.unsetResultCache();
+    assertNull(searcher.getResultCacheStats());
+    searcher.close();
+  }
+
+  // Appends a document to the test index, as publishing a refreshed index would.
+  private void addDocument(String docid, String contents) throws Exception {
+    IndexWriterConfig config = new IndexWriterConfig(new EnglishAnalyzer());
+    config.setOpenMode(IndexWriterConfig.OpenMode.APPEND);
+    try (Directory dir = FSDirectory.open(super.tempDir1); IndexWriter writer = new IndexWriter(dir, config)) {
+      Document doc = new Document();
+      doc.add(new StringField(IndexArgs.ID, docid, Field.Store.YES));
+      doc.add(new SortedDocValuesField(IndexArgs.ID, new BytesRef(docid)));
+      doc.add(new TextField(IndexArgs.CONTENTS, contents, Field.Store.YES));
+      writer.addDocument(doc);
+      writer.commit();
+    }
+  }
+
+  @Test
+  public void testRefresh() throws Exception {
+    SimpleSearcher searcher = new SimpleSearcher(super.tempDir1.toString());
+    searcher.setResultCache(16);
+    assertEquals(3, searcher.getTotalNumDocuments());
+    assertEquals(2, searcher.search("text").length);
+    assertFalse(searcher.refresh());
+
+    addDocument("doc4", "yet another text");
+
+    // Nothing changes until the searcher is refreshed.
+    assertEquals(3, searcher.getTotalNumDocuments());
+    assertEquals(2, searcher.search("text").length);
+    assertNull(searcher.document("doc4"));
+
+    // A search in flight holds on to the reader it started with.
+    DirectoryReader inFlight = searcher.acquireReader();
+
+    assertTrue(searcher.refresh());
+    assertEquals(4, searcher.getTotalNumDocuments());
+    Result[] results = searcher.search("text");
+    assertEquals(3, results.length);
+    assertEquals("yet another text", searcher.document("doc4").get(IndexArgs.CONTENTS));
+    assertFalse(searcher.refresh());
+
+    assertEquals(3, inFlight.numDocs());
+    assertEquals("here is a test", inFlight.document(2).get(IndexArgs.CONTENTS));
+    searcher.releaseReader(inFlight);
+    assertEquals(0, inFlight.getRefCount());
+
+    searcher.close();
+  }
+
+  @Test
+  public void testReopen() throws Exception {
+    SimpleSearcher searcher = new SimpleSearcher(super.tempDir1.toString());
+    searcher.setResultCache(16);
+    assertEquals(2, searcher.search("text").length);
+
+    // Switch to a copy of the index with an additional document.
+    Path published = createTempDir();
+    for (String file : FSDirectory.listAll(super.tempDir1)) {
+      Files.copy(super.tempDir1.resolve(file), published.resolve(file));
+    }
+    DirectoryReader inFlight = searcher.acquireReader();
+    addDocument("doc4", "yet another text");
+    searcher.reopen(published.toString());
+    assertEquals(3, searcher.getTotalNumDocuments());
+    assertEquals(0, searcher.resultCache.size());
+
+    searcher.reopen(super.tempDir1.toString());
+    assertEquals(4, searcher.getTotalNumDocuments());
+    assertEquals(3, searcher.search("text").length);
+
+    // The reader acquired before the index was reopened is still usable, and closed once released.
+    assertEquals(3, inFlight.numDocs());
+    searcher.releaseReader(inFlight);
+    assertEquals(0, inFlight.getRefCount());
+
+    try {
+      searcher.reopen(published.resolve("missing").toString());
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Expected; the searcher keeps using the current index.
+    }
+    assertEquals(4, searcher.getTotalNumDocuments());
+
+    searcher.close();
+  }
 }
@@ -0,0 +1,170 @@
+/*
+ * Anserini: A Lucene toolkit for replicable information retrieval research
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.anserini.search;
+
+import io.anserini.index.IndexArgs;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TieBreakingTopDocsCollectorTest extends LuceneTestCase {
+  private static final String[] TERMS = {"citi", "text", "filler"};
+
+  private Path indexPath;
+  private IndexReader reader;
+
+  // Builds an index of several segments with many score ties, in which docids are added out of order, so that
+  // breaking ties by Lucene docid would give a different ranking from breaking them by external docid.
+  @Before
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    indexPath = createTempDir();
+
+    List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      order.add(i);
+    }
+    Collections.shuffle(order, random());
+
+    IndexWriterConfig config = new IndexWriterConfig(new EnglishAnalyzer());
+    config.setMergePolicy(NoMergePolicy.INSTANCE);
+    try (Directory dir = FSDirectory.open(indexPath); IndexWriter writer = new IndexWriter(dir, config)) {
+      for (int n = 0; n < order.size(); n++) {
+        int i = order.get(n);
+        String docid = String.format("doc%03d", i);
+        Document doc = new Document();
+        doc.add(new StringField(IndexArgs.ID, docid, Field.Store.YES));
+        doc.add(new SortedDocValuesField(IndexArgs.ID, new BytesRef(docid)));
+        doc.add(new TextField(IndexArgs.CONTENTS, "city " + "text ".repeat(i % 4) + "filler ".repeat(i % 3),
+            Field.Store.NO));
+        writer.addDocument(doc);
+        if (n % 50 == 49) {
+          writer.commit();
+        }
+      }
+    }
+    reader = DirectoryReader.open(FSDirectory.open(indexPath));
+  }
+
+  @After
+  @Override
+  public void tearDown() throws Exception {
+    reader.close();
+    super.tearDown();
+  }
+
+  @Test
+  public void testSameRanking() throws Exception {
+    IndexSearcher searcher = new IndexSearcher(reader);
+    for (Query query : queries()) {
+      for (int k : new int[] {1, 7, 50, 123, 300, 1000}) {
+        assertSameRanking(searcher.search(query, k, SearchCollection.BREAK_SCORE_TIES_BY_DOCID, true),
+            TieBreakingTopDocsCollector.search(searcher, query, k));
+      }
+    }
+  }
+
+  @Test
+  public void testSameRankingWithSlices() throws Exception {
+    IndexSearcher searcher = new IndexSearcher(reader);
+    ExecutorService executor = IntraQueryParallelism.newExecutor(3);
+    try {
+      IndexSearcher sliced = IntraQueryParallelism.newSearcher(reader, executor, 60, 1);
+      for (Query query : queries()) {
+        for (int k : new int[] {1, 7, 50, 123, 300}) {
+          assertSameRanking(searcher.search(query, k, SearchCollection.BREAK_SCORE_TIES_BY_DOCID, true),
+              TieBreakingTopDocsCollector.search(sliced, query, k));
+        }
+      }
+    } finally {
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+  }
+
+  @Test
+  public void testTiesAtCutoff() throws Exception {
+    // Every document matches with the same score, so the top hits are the smallest docids.
+    IndexSearcher searcher = new IndexSearcher(reader);
+    Query query = new ConstantScoreQuery(new TermQuery(new Term(IndexArgs.CONTENTS, "citi")));
+    TopDocs rs = TieBreakingTopDocsCollector.search(searcher, query, 5);
+    assertEquals(5, rs.scoreDocs.length);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(String.format("doc%03d", i), searcher.doc(rs.scoreDocs[i].doc).get(IndexArgs.ID));
+    }
+  }
+
+  @Test
+  public void testInvalidNumHits() {
+    expectThrows(IllegalArgumentException.class, () -> new TieBreakingTopDocsCollector(0));
+  }
+
+  private static List<Query> queries() {
+    List<Query> queries = new ArrayList<>();
+    for (String term : TERMS) {
+      queries.add(new TermQuery(new Term(IndexArgs.CONTENTS, term)));
+    }
+    for (int i = 0; i < TERMS.length; i++) {
+      BooleanQuery.Builder builder = new BooleanQuery.Builder();
+      builder.add(new TermQuery(new Term(IndexArgs.CONTENTS, TERMS[i])), BooleanClause.Occur.SHOULD);
+      builder.add(new TermQuery(new Term(IndexArgs.CONTENTS, TERMS[(i + 1) % TERMS.length])),
+          BooleanClause.Occur.SHOULD);
+      queries.add(builder.build());
+    }
+    return queries;
+  }
+
+  private static void assertSameRanking(TopDocs expected, TopDocs results) {
+    assertEquals(expected.scoreDocs.length, results.scoreDocs.length);
+    for (int i = 0; i < expected.scoreDocs.length; i++) {
+      assertEquals(expected.scoreDocs[i].doc, results.scoreDocs[i].doc);
+      assertEquals(expected.scoreDocs[i].score, results.scoreDocs[i].score, 0.0f);
+    }
+  }
+}